@@ -3,7 +3,10 @@ package com.wildbitsfoundry.etk4j.control;
 import com.wildbitsfoundry.etk4j.math.MathETK;
 import com.wildbitsfoundry.etk4j.math.complex.Complex;
 import com.wildbitsfoundry.etk4j.math.linearalgebra.EigenvalueDecomposition;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.Expmv;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.LinearOperator;
 import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.MatrixView;
 import com.wildbitsfoundry.etk4j.util.ComplexArrays;
 import com.wildbitsfoundry.etk4j.util.DoubleArrays;
 
@@ -20,6 +23,27 @@ public abstract class LinearTimeInvariantSystem {
         INTERPOLATION
     }
 
+    /**
+     * How the state is propagated between time points.
+     */
+    public enum ExponentialMethod {
+        /**
+         * Discretize once with the dense matrix exponential of the augmented system. {@code O(n<sup>3</sup>)} setup
+         * and {@code O(n<sup>2</sup>)} work per step.
+         */
+        EXPM,
+        /**
+         * Apply the exponential of the augmented system to the state at every step with the truncated Taylor
+         * method of {@link Expmv}. Only products with the state matrix are needed.
+         */
+        TAYLOR,
+        /**
+         * Apply the exponential of the augmented system to the state at every step with the Krylov method of
+         * {@link Expmv}. Only products with the state matrix are needed.
+         */
+        KRYLOV
+    }
+
     public abstract StateSpace toStateSpace();
 
     public abstract TransferFunction toTransferFunction();
@@ -50,14 +74,7 @@ public abstract class LinearTimeInvariantSystem {
      */
     protected TimeResponse lsim(double[][] input, double[] time, double[] initialConditions,
                                 StateSpace ss, IntegrationMethod integrationMethod) {
-        double[][] U = DoubleArrays.transpose(input);
-
-        if (U.length != time.length) {
-            throw new IllegalArgumentException("The input array and the time array must have the same length.");
-        }
-        if (time.length == 0) {
-            throw new IllegalArgumentException("The time array must have at least one element.");
-        }
+        double[][] U = transposeInput(input, time);
 
         Matrix A = ss.getA();
         Matrix B = ss.getB();
@@ -78,66 +95,74 @@ public abstract class LinearTimeInvariantSystem {
         if (time[0] == 0.0) {
             xOut[0] = x0;
         } else if (time[0] > 0.0) {
-            xOut[0] = dot(x0, A.transpose().multiply(time[0]).expm().getAs2dArray());
+            // x0 * expm(A' * t0) = expm(A' * t0)' * x0
+            A.transpose().multiply(time[0]).expm().view().transpose().multiply(x0, xOut[0]);
         } else {
             throw new IllegalArgumentException("Initial time must be non negative.");
         }
 
+        double[] work = new double[noStates];
         if (noSteps > 1) {
-            double dt = time[1] - time[0];
-            double[] delta = new double[time.length - 2];
-            for (int i = 1; i < time.length - 1; ++i) {
-                delta[i - 1] = (time[i + 1] - time[i]) / dt;
-            }
-            if (!DoubleArrays.allClose(delta, 1.0)) {
-                throw new NonUniformTimeStepsException("Only uniform time steps are supported.");
-            }
+            final double dt = uniformTimeStep(time);
 
             switch (integrationMethod) {
                 case ZERO_ORDER_HOLD: {
                     A.multiplyEquals(dt);
                     B.multiplyEquals(dt);
-                    double[][] M = new double[noStates + noInputs][];
+                    // M' for M = [A B; 0 0]
+                    final int dim = noStates + noInputs;
+                    double[] mt = new double[dim * dim];
                     for (int i = 0; i < noStates; ++i) {
-                        M[i] = DoubleArrays.concatenate(A.getRow(i), B.getRow(i));
-                    }
-                    for (int i = noStates; i < noStates + noInputs; ++i) {
-                        M[i] = new double[noStates + noInputs];
+                        for (int j = 0; j < noStates; ++j) {
+                            mt[j * dim + i] = A.get(i, j);
+                        }
+                        for (int j = 0; j < noInputs; ++j) {
+                            mt[(noStates + j) * dim + i] = B.get(i, j);
+                        }
                     }
 
-                    Matrix expMT = new Matrix(M).transpose().expm();
-                    double[][] Ad = expMT.subMatrix(0, noStates - 1, 0, noStates - 1).getAs2dArray();
-                    double[][] Bd = expMT.subMatrix(noStates, expMT.getRowCount() - 1, 0, noStates - 1).getAs2dArray();
+                    // The states are propagated as x[i] = Ad' * x[i - 1] + Bd' * u[i - 1] through transposed views
+                    // of exp(M'), so neither block is copied.
+                    MatrixView expMT = new Matrix(mt, dim, dim).expm().view();
+                    MatrixView AdT = expMT.subView(0, noStates - 1, 0, noStates - 1).transpose();
+                    MatrixView BdT = expMT.subView(noStates, dim - 1, 0, noStates - 1).transpose();
                     for (int i = 1; i < noSteps; ++i) {
-                        xOut[i] = DoubleArrays.addElementWise(dot(xOut[i - 1], Ad), dot(U[i - 1], Bd));
+                        AdT.multiply(xOut[i - 1], xOut[i]);
+                        BdT.multiply(U[i - 1], work);
+                        DoubleArrays.addElementWiseInPlace(xOut[i], work);
                     }
                     break;
                 }
                 case INTERPOLATION: {
                     A.multiplyEquals(dt);
                     B.multiplyEquals(dt);
-                    double[][] M = new double[noStates + 2 * noInputs][];
+                    // M' for M = [A B 0; 0 0 I; 0 0 0]
+                    final int dim = noStates + 2 * noInputs;
+                    double[] mt = new double[dim * dim];
                     for (int i = 0; i < noStates; ++i) {
-                        M[i] = DoubleArrays.concatenateAll(A.getRow(i), B.getRow(i), new double[noInputs]);
+                        for (int j = 0; j < noStates; ++j) {
+                            mt[j * dim + i] = A.get(i, j);
+                        }
+                        for (int j = 0; j < noInputs; ++j) {
+                            mt[(noStates + j) * dim + i] = B.get(i, j);
+                        }
                     }
-                    double[][] identity = Matrix.identity(noInputs).getAs2dArray();
-                    for (int i = noStates, j = 0; i < noStates + noInputs; ++i, ++j) {
-                        M[i] = DoubleArrays.concatenate(new double[noStates + noInputs], identity[j]);
-                    }
-                    for (int i = noStates + noInputs; i < noStates + 2 * noInputs; ++i) {
-                        M[i] = new double[noStates + 2 * noInputs];
+                    for (int i = 0; i < noInputs; ++i) {
+                        mt[(noStates + noInputs + i) * dim + noStates + i] = 1.0;
                     }
 
-                    Matrix expMT = new Matrix(M).transpose().expm();
-                    double[][] Ad = expMT.subMatrix(0, noStates - 1, 0, noStates - 1).getAs2dArray();
-                    double[][] Bd1 = expMT.subMatrix(noStates + noInputs, expMT.getRowCount() - 1, 0, noStates - 1).getAs2dArray();
-                    double[][] Bd0 = expMT.subMatrix(noStates, noStates + noInputs - 1, 0, noStates - 1).getAs2dArray();
-                    for (int i = 0; i < Bd0.length; ++i) {
-                        DoubleArrays.subtractElementWiseInPlace(Bd0[i], Bd1[i]);
-                    }
+                    Matrix expMT = new Matrix(mt, dim, dim).expm();
+                    Matrix Bd0 = expMT.subMatrix(noStates, noStates + noInputs - 1, 0, noStates - 1);
+                    Bd0.subtractEquals(expMT.subMatrix(noStates + noInputs, dim - 1, 0, noStates - 1));
+                    MatrixView AdT = expMT.view().subView(0, noStates - 1, 0, noStates - 1).transpose();
+                    MatrixView Bd1T = expMT.view().subView(noStates + noInputs, dim - 1, 0, noStates - 1).transpose();
+                    MatrixView Bd0T = Bd0.view().transpose();
                     for (int i = 1; i < noSteps; ++i) {
-                        xOut[i] = DoubleArrays.addElementWise(dot(xOut[i - 1], Ad), dot(U[i - 1], Bd0));
-                        DoubleArrays.addElementWiseInPlace(xOut[i], dot(U[i], Bd1));
+                        AdT.multiply(xOut[i - 1], xOut[i]);
+                        Bd0T.multiply(U[i - 1], work);
+                        DoubleArrays.addElementWiseInPlace(xOut[i], work);
+                        Bd1T.multiply(U[i], work);
+                        DoubleArrays.addElementWiseInPlace(xOut[i], work);
                     }
                     break;
                 }
@@ -145,23 +170,179 @@ public abstract class LinearTimeInvariantSystem {
                     throw new IllegalArgumentException("Unknown integration method.");
             }
         }
-        double[][] yOut = new double[noSteps][noStates];
-        double[][] c = C.transpose().getAs2dArray();
-        double[][] d = D.transpose().getAs2dArray();
+        // y = C * x + D * u
+        final int noOutputs = C.getRowCount();
+        double[][] yOut = new double[noSteps][noOutputs];
+        double[] du = new double[noOutputs];
+        for (int i = 0; i < noSteps; ++i) {
+            C.multiply(xOut[i], yOut[i]);
+            D.multiply(U[i], du);
+            DoubleArrays.addElementWiseInPlace(yOut[i], du);
+        }
+        return new TimeResponse(time, DoubleArrays.transpose(yOut), xOut);
+    }
+
+    /**
+     * Simulate time response of a continuous-time system without forming the matrix exponential of the state matrix.
+     * <P>
+     * With the input held ({@link IntegrationMethod#ZERO_ORDER_HOLD}) or linearly interpolated
+     * ({@link IntegrationMethod#INTERPOLATION}) between time points, the state at the next time point is the first
+     * {@code n} entries of {@code e<sup>dt * M</sup> * [x; 1; 0]} where
+     * <pre>
+     *     M = [A  B * u[k]  B * (u[k + 1] - u[k]) / dt]
+     *         [0      0                0             ]
+     *         [0      1                0             ]
+     * </pre>
+     * (the last row and column are dropped for the zero order hold). {@link Expmv} evaluates that product with a
+     * handful of products with {@code A}, so for a sparse {@code A} every step is {@code O(nnz)}.
+     *
+     * @param input             Array describing the input at every time step. For multiple inputs, each row of this
+     *                          array represents an input to the system.
+     * @param time              The time at which to evaluate the system.
+     * @param initialConditions Initial conditions of the system.
+     * @param A                 The state matrix, a {@link Matrix},
+     *                          {@link com.wildbitsfoundry.etk4j.math.linearalgebra.sparse.SparseMatrix} or any
+     *                          other operator together with its 1-norm.
+     * @param normA             The 1-norm of {@code A}, or {@code NaN} to compute it from a {@code Matrix} or
+     *                          {@code SparseMatrix}.
+     * @param B                 The input to state matrix.
+     * @param C                 The state to output matrix.
+     * @param D                 The feed through matrix.
+     * @param integrationMethod Integration method.
+     * @param method            {@link ExponentialMethod#TAYLOR} or {@link ExponentialMethod#KRYLOV}.
+     * @return The {@link TimeResponse} Of the system.
+     */
+    protected static TimeResponse lsim(double[][] input, double[] time, double[] initialConditions,
+                                       LinearOperator A, double normA, Matrix B, Matrix C, Matrix D,
+                                       IntegrationMethod integrationMethod, ExponentialMethod method) {
+        if (method == ExponentialMethod.EXPM) {
+            throw new IllegalArgumentException("The dense matrix exponential needs a StateSpace system.");
+        }
+        double[][] U = transposeInput(input, time);
+        final int noStates = A.getRowCount();
+        final int noInputs = B.getColumnCount();
+        final int noSteps = time.length;
+        if (A.getColumnCount() != noStates || B.getRowCount() != noStates) {
+            throw new IllegalArgumentException("A must be square and B must have as many rows as A.");
+        }
+        final double norm = Double.isNaN(normA) ? Expmv.norm1(A) : normA;
+
+        double[] x0 = initialConditions == null ? new double[noStates] : initialConditions;
+        double[][] xOut = new double[noSteps][];
+        if (x0.length != noStates) {
+            throw new IllegalArgumentException("The number of initial conditions is different from the number of states.");
+        }
+        if (time[0] == 0.0) {
+            xOut[0] = x0;
+        } else if (time[0] > 0.0) {
+            xOut[0] = expmv(A, norm, time[0], x0, method);
+        } else {
+            throw new IllegalArgumentException("Initial time must be non negative.");
+        }
+
+        if (noSteps > 1) {
+            final double dt = uniformTimeStep(time);
+            final boolean interpolate;
+            switch (integrationMethod) {
+                case ZERO_ORDER_HOLD:
+                    interpolate = false;
+                    break;
+                case INTERPOLATION:
+                    interpolate = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown integration method.");
+            }
+            final int dim = noStates + (interpolate ? 2 : 1);
+            final double[] b0 = new double[noStates];
+            final double[] b1 = new double[noStates];
+            final double[] Bu = new double[noStates];
+            final double[] xs = new double[noStates];
+            final double[] ys = new double[noStates];
+            // M * [x; z0; z1] = [A * x + b0 * z0 + b1 * z1; 0; z0]
+            LinearOperator M = LinearOperator.of(dim, dim, (x, y) -> {
+                System.arraycopy(x, 0, xs, 0, noStates);
+                A.multiply(xs, ys);
+                final double z0 = x[noStates];
+                final double z1 = interpolate ? x[noStates + 1] : 0.0;
+                for (int i = 0; i < noStates; ++i) {
+                    y[i] = ys[i] + b0[i] * z0 + b1[i] * z1;
+                }
+                y[noStates] = 0.0;
+                if (interpolate) {
+                    y[noStates + 1] = z0;
+                }
+            });
+            double[] v = new double[dim];
+            B.multiply(U[0], Bu);
+            for (int k = 1; k < noSteps; ++k) {
+                System.arraycopy(Bu, 0, b0, 0, noStates);
+                if (interpolate) {
+                    B.multiply(U[k], Bu);
+                    for (int i = 0; i < noStates; ++i) {
+                        b1[i] = (Bu[i] - b0[i]) / dt;
+                    }
+                } else if (k + 1 < noSteps) {
+                    B.multiply(U[k], Bu);
+                }
+                // The columns of the augmented part add at most max(||b0||, ||b1||) + 1 to the 1-norm.
+                final double normM = Math.max(norm, Math.max(norm1(b0), norm1(b1)) + 1.0);
+                System.arraycopy(xOut[k - 1], 0, v, 0, noStates);
+                v[noStates] = 1.0;
+                if (interpolate) {
+                    v[noStates + 1] = 0.0;
+                }
+                xOut[k] = Arrays.copyOf(expmv(M, normM, dt, v, method), noStates);
+            }
+        }
+        // y = C * x + D * u
+        final int noOutputs = C.getRowCount();
+        double[][] yOut = new double[noSteps][noOutputs];
+        double[] du = new double[noOutputs];
         for (int i = 0; i < noSteps; ++i) {
-            yOut[i] = dot(xOut[i], c);
-            DoubleArrays.addElementWiseInPlace(yOut[i], dot(U[i], d));
+            C.multiply(xOut[i], yOut[i]);
+            D.multiply(U[i], du);
+            DoubleArrays.addElementWiseInPlace(yOut[i], du);
         }
         return new TimeResponse(time, DoubleArrays.transpose(yOut), xOut);
     }
 
-    private static double[] dot(double[] a, double[][] b) {
-        if (a.length != b.length) {
-            throw new IllegalArgumentException("The number of elements in a must match the number of rows in b.");
+    private static double[] expmv(LinearOperator A, double norm, double t, double[] v, ExponentialMethod method) {
+        if (method == ExponentialMethod.KRYLOV) {
+            return Expmv.krylov(A, norm, t, v, Expmv.DEFAULT_KRYLOV_DIMENSION, Expmv.DEFAULT_KRYLOV_TOLERANCE);
+        }
+        return Expmv.taylor(A, norm, t, v);
+    }
+
+    private static double norm1(double[] x) {
+        double norm = 0.0;
+        for (double xi : x) {
+            norm += Math.abs(xi);
+        }
+        return norm;
+    }
+
+    private static double[][] transposeInput(double[][] input, double[] time) {
+        double[][] U = DoubleArrays.transpose(input);
+        if (U.length != time.length) {
+            throw new IllegalArgumentException("The input array and the time array must have the same length.");
+        }
+        if (time.length == 0) {
+            throw new IllegalArgumentException("The time array must have at least one element.");
+        }
+        return U;
+    }
+
+    private static double uniformTimeStep(double[] time) {
+        double dt = time[1] - time[0];
+        double[] delta = new double[time.length - 2];
+        for (int i = 1; i < time.length - 1; ++i) {
+            delta[i - 1] = (time[i + 1] - time[i]) / dt;
+        }
+        if (!DoubleArrays.allClose(delta, 1.0)) {
+            throw new NonUniformTimeStepsException("Only uniform time steps are supported.");
         }
-        Matrix A = new Matrix(a, 1);
-        A.multiplyEquals(new Matrix(b));
-        return A.getArray();
+        return dt;
     }
 
     /**
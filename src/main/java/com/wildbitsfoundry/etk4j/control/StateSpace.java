@@ -2,7 +2,9 @@ package com.wildbitsfoundry.etk4j.control;
 
 import com.wildbitsfoundry.etk4j.math.complex.Complex;
 import com.wildbitsfoundry.etk4j.math.linearalgebra.ComplexMatrix;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.LinearOperator;
 import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.MatrixEquations;
 import com.wildbitsfoundry.etk4j.math.linearalgebra.NonSquareMatrixException;
 import com.wildbitsfoundry.etk4j.util.DoubleArrays;
 
@@ -88,6 +90,58 @@ public class StateSpace extends LinearTimeInvariantSystem {
         return new Matrix(D);
     }
 
+    /**
+     * Controllability gramian of a stable system, the solution Wc of {@code A*Wc + Wc*A' + B*B' = 0}.
+     * @return The controllability gramian.
+     * @throws IllegalArgumentException if the system is not stable.
+     * @see MatrixEquations#lyapChol(Matrix, Matrix)
+     */
+    public Matrix getControllabilityGramian() {
+        Matrix R = getControllabilityGramianFactor();
+        return R.transpose().multiply(R);
+    }
+
+    /**
+     * Observability gramian of a stable system, the solution Wo of {@code A'*Wo + Wo*A + C'*C = 0}.
+     * @return The observability gramian.
+     * @throws IllegalArgumentException if the system is not stable.
+     * @see MatrixEquations#lyapChol(Matrix, Matrix)
+     */
+    public Matrix getObservabilityGramian() {
+        Matrix R = getObservabilityGramianFactor();
+        return R.transpose().multiply(R);
+    }
+
+    /**
+     * Cholesky factor of the controllability gramian, computed directly with Hammarling's method.
+     * @return The upper triangular Rc such that {@code Wc = Rc'*Rc}.
+     * @throws IllegalArgumentException if the system is not stable.
+     */
+    public Matrix getControllabilityGramianFactor() {
+        return MatrixEquations.lyapChol(A, B);
+    }
+
+    /**
+     * Cholesky factor of the observability gramian, computed directly with Hammarling's method.
+     * @return The upper triangular Ro such that {@code Wo = Ro'*Ro}.
+     * @throws IllegalArgumentException if the system is not stable.
+     */
+    public Matrix getObservabilityGramianFactor() {
+        return MatrixEquations.lyapChol(A.transpose(), C.transpose());
+    }
+
+    /**
+     * Hankel singular values of a stable system, the square roots of the eigenvalues of {@code Wc*Wo}. They are
+     * computed as the singular values of {@code Ro*Rc'}, which is more accurate than forming the gramians.
+     * @return The Hankel singular values in descending order.
+     * @throws IllegalArgumentException if the system is not stable.
+     */
+    public double[] getHankelSingularValues() {
+        Matrix Rc = getControllabilityGramianFactor();
+        Matrix Ro = getObservabilityGramianFactor();
+        return Ro.multiply(Rc.transpose()).SVD().getSingularValues();
+    }
+
     @Override
     public String toString() {
         return String.format("A:%n%s%nB:%n%s%nC:%n%s%nD%n%s%n", A, B, C, D);
@@ -327,6 +381,81 @@ public class StateSpace extends LinearTimeInvariantSystem {
         return lsim(input, time, initialConditions, this, integrationMethod);
     }
 
+    /**
+     * Simulate time response of a continuous time system.
+     * @param input Array describing the input at every time step. For multiple inputs, each row of this
+     *              array represents an input to the system.
+     * @param time The time vector at which to evaluate the response.
+     * @param initialConditions The initial conditions of the system.
+     * @param integrationMethod The integration method between time points.
+     * @param exponentialMethod How the state is propagated between time points. {@link ExponentialMethod#TAYLOR}
+     *                          and {@link ExponentialMethod#KRYLOV} only multiply vectors by {@code A}, which is
+     *                          cheaper than the dense matrix exponential for systems with many states.
+     * @return The time response of the system.
+     */
+    public TimeResponse simulateTimeResponse(double[][] input, double[] time, double[] initialConditions,
+                                             IntegrationMethod integrationMethod,
+                                             ExponentialMethod exponentialMethod) {
+        if (exponentialMethod == ExponentialMethod.EXPM) {
+            return lsim(input, time, initialConditions, this, integrationMethod);
+        }
+        return lsim(input, time, initialConditions, A, Double.NaN, B, C, D, integrationMethod, exponentialMethod);
+    }
+
+    /**
+     * Simulate time response of a continuous time system whose state matrix is only available as an operator, such
+     * as a {@link com.wildbitsfoundry.etk4j.math.linearalgebra.sparse.SparseMatrix}. Every step costs a handful of
+     * products with {@code A}.
+     * @param A The state matrix, a {@link Matrix} or
+     *          {@link com.wildbitsfoundry.etk4j.math.linearalgebra.sparse.SparseMatrix}.
+     * @param B The input to state matrix.
+     * @param C The state to output matrix.
+     * @param D The feed through matrix.
+     * @param input Array describing the input at every time step. For multiple inputs, each row of this
+     *              array represents an input to the system.
+     * @param time The time vector at which to evaluate the response.
+     * @param initialConditions The initial conditions of the system, {@code null} for zero initial conditions.
+     * @param integrationMethod The integration method between time points.
+     * @param exponentialMethod {@link ExponentialMethod#TAYLOR} or {@link ExponentialMethod#KRYLOV}.
+     * @return The time response of the system.
+     */
+    public static TimeResponse simulateTimeResponse(LinearOperator A, Matrix B, Matrix C, Matrix D,
+                                                    double[][] input, double[] time, double[] initialConditions,
+                                                    IntegrationMethod integrationMethod,
+                                                    ExponentialMethod exponentialMethod) {
+        return simulateTimeResponse(A, Double.NaN, B, C, D, input, time, initialConditions, integrationMethod,
+                exponentialMethod);
+    }
+
+    /**
+     * Simulate time response of a continuous time system whose state matrix is only available as an operator.
+     * @param A The state matrix.
+     * @param normA The 1-norm of {@code A} or an upper bound of it.
+     * @param B The input to state matrix.
+     * @param C The state to output matrix.
+     * @param D The feed through matrix.
+     * @param input Array describing the input at every time step. For multiple inputs, each row of this
+     *              array represents an input to the system.
+     * @param time The time vector at which to evaluate the response.
+     * @param initialConditions The initial conditions of the system, {@code null} for zero initial conditions.
+     * @param integrationMethod The integration method between time points.
+     * @param exponentialMethod {@link ExponentialMethod#TAYLOR} or {@link ExponentialMethod#KRYLOV}.
+     * @return The time response of the system.
+     */
+    public static TimeResponse simulateTimeResponse(LinearOperator A, double normA, Matrix B, Matrix C, Matrix D,
+                                                    double[][] input, double[] time, double[] initialConditions,
+                                                    IntegrationMethod integrationMethod,
+                                                    ExponentialMethod exponentialMethod) {
+        if (exponentialMethod == ExponentialMethod.EXPM) {
+            if (!(A instanceof Matrix)) {
+                throw new IllegalArgumentException("The dense matrix exponential needs a dense state matrix.");
+            }
+            return new StateSpace((Matrix) A, B, C, D).simulateTimeResponse(input, time, initialConditions,
+                    integrationMethod);
+        }
+        return lsim(input, time, initialConditions, A, normA, B, C, D, integrationMethod, exponentialMethod);
+    }
+
     @Override
     public Complex evaluateAt(double w) {
         return evaluateMIMOAt(w)[0];
@@ -288,6 +288,18 @@ public class Complex implements Comparable<Complex> {
         addOp(this, real, imag);
     }
 
+    /**
+     * Assignment in place. <br>
+     * Performs the equivalent of {@code Complex a = new Complex(real, imag)} without creating a new instance.
+     *
+     * @param real the new real part.
+     * @param imag the new imaginary part.
+     */
+    public void set(double real, double imag) {
+        this.real = real;
+        this.imag = imag;
+    }
+
     /**
      * Subtraction of complex numbers.
      *
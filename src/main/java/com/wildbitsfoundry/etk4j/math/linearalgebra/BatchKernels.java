@@ -0,0 +1,459 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import java.util.Arrays;
+
+/**
+ * Kernels of {@link MatrixBatch}.
+ * <p>
+ * Operands are stored as structure of arrays: element {@code e = i * cols + j} of member {@code s} of an operand
+ * described by {@code (x, off, stride)} is {@code x[off + e * stride + s]}. Every kernel processes {@code len}
+ * consecutive members and the loop over the members is always the innermost one, so it runs over contiguous memory
+ * with no data dependent control flow and the JIT compiler can vectorize it. The kernels for 2x2 and 3x3 operands are
+ * fully unrolled.
+ */
+final class BatchKernels {
+
+    private BatchKernels() {
+    }
+
+    /**
+     * {@code C = A * B} with A m-by-k and B k-by-n. Every element of C is accumulated over k in increasing order, as
+     * {@link Matrix#multiply(Matrix)} does.
+     */
+    static void multiply(int m, int n, int k, int len,
+                         double[] a, int aOff, int aStride,
+                         double[] b, int bOff, int bStride,
+                         double[] c, int cOff, int cStride) {
+        if (m == 2 && n == 2 && k == 2) {
+            multiply2(len, a, aOff, aStride, b, bOff, bStride, c, cOff, cStride);
+            return;
+        }
+        if (m == 3 && n == 3 && k == 3) {
+            multiply3(len, a, aOff, aStride, b, bOff, bStride, c, cOff, cStride);
+            return;
+        }
+        for (int i = 0; i < m; ++i) {
+            for (int j = 0; j < n; ++j) {
+                final int co = cOff + (i * n + j) * cStride;
+                if (k == 0) {
+                    for (int s = 0; s < len; ++s) {
+                        c[co + s] = 0.0;
+                    }
+                    continue;
+                }
+                int ao = aOff + i * k * aStride;
+                int bo = bOff + j * bStride;
+                for (int s = 0; s < len; ++s) {
+                    c[co + s] = a[ao + s] * b[bo + s];
+                }
+                for (int p = 1; p < k; ++p) {
+                    ao = aOff + (i * k + p) * aStride;
+                    bo = bOff + (p * n + j) * bStride;
+                    for (int s = 0; s < len; ++s) {
+                        c[co + s] += a[ao + s] * b[bo + s];
+                    }
+                }
+            }
+        }
+    }
+
+    private static void multiply2(int len, double[] a, int aOff, int as, double[] b, int bOff, int bs,
+                                  double[] c, int cOff, int cs) {
+        for (int s = 0; s < len; ++s) {
+            final double a00 = a[aOff + s], a01 = a[aOff + as + s];
+            final double a10 = a[aOff + 2 * as + s], a11 = a[aOff + 3 * as + s];
+            final double b00 = b[bOff + s], b01 = b[bOff + bs + s];
+            final double b10 = b[bOff + 2 * bs + s], b11 = b[bOff + 3 * bs + s];
+            c[cOff + s] = a00 * b00 + a01 * b10;
+            c[cOff + cs + s] = a00 * b01 + a01 * b11;
+            c[cOff + 2 * cs + s] = a10 * b00 + a11 * b10;
+            c[cOff + 3 * cs + s] = a10 * b01 + a11 * b11;
+        }
+    }
+
+    private static void multiply3(int len, double[] a, int aOff, int as, double[] b, int bOff, int bs,
+                                  double[] c, int cOff, int cs) {
+        for (int s = 0; s < len; ++s) {
+            final double a00 = a[aOff + s], a01 = a[aOff + as + s], a02 = a[aOff + 2 * as + s];
+            final double a10 = a[aOff + 3 * as + s], a11 = a[aOff + 4 * as + s], a12 = a[aOff + 5 * as + s];
+            final double a20 = a[aOff + 6 * as + s], a21 = a[aOff + 7 * as + s], a22 = a[aOff + 8 * as + s];
+            final double b00 = b[bOff + s], b01 = b[bOff + bs + s], b02 = b[bOff + 2 * bs + s];
+            final double b10 = b[bOff + 3 * bs + s], b11 = b[bOff + 4 * bs + s], b12 = b[bOff + 5 * bs + s];
+            final double b20 = b[bOff + 6 * bs + s], b21 = b[bOff + 7 * bs + s], b22 = b[bOff + 8 * bs + s];
+            c[cOff + s] = a00 * b00 + a01 * b10 + a02 * b20;
+            c[cOff + cs + s] = a00 * b01 + a01 * b11 + a02 * b21;
+            c[cOff + 2 * cs + s] = a00 * b02 + a01 * b12 + a02 * b22;
+            c[cOff + 3 * cs + s] = a10 * b00 + a11 * b10 + a12 * b20;
+            c[cOff + 4 * cs + s] = a10 * b01 + a11 * b11 + a12 * b21;
+            c[cOff + 5 * cs + s] = a10 * b02 + a11 * b12 + a12 * b22;
+            c[cOff + 6 * cs + s] = a20 * b00 + a21 * b10 + a22 * b20;
+            c[cOff + 7 * cs + s] = a20 * b01 + a21 * b11 + a22 * b21;
+            c[cOff + 8 * cs + s] = a20 * b02 + a21 * b12 + a22 * b22;
+        }
+    }
+
+    /**
+     * LU factorization with partial pivoting in place. {@code perm} receives the row permutation with the same
+     * layout as the matrices (n elements per member) and {@code sign} its sign.
+     */
+    static void factor(int n, int len, double[] lu, int off, int stride, int[] perm, int[] sign) {
+        for (int s = 0; s < len; ++s) {
+            sign[off + s] = 1;
+        }
+        for (int i = 0; i < n; ++i) {
+            for (int s = 0; s < len; ++s) {
+                perm[off + i * stride + s] = i;
+            }
+        }
+        for (int k = 0; k < n; ++k) {
+            final int kk = off + (k * n + k) * stride;
+            // Pivot search and row swaps differ between members, they are the only scalar part.
+            if (k < n - 1) {
+                for (int s = 0; s < len; ++s) {
+                    int p = k;
+                    double max = Math.abs(lu[kk + s]);
+                    for (int i = k + 1; i < n; ++i) {
+                        final double v = Math.abs(lu[off + (i * n + k) * stride + s]);
+                        if (v > max) {
+                            max = v;
+                            p = i;
+                        }
+                    }
+                    if (p != k) {
+                        for (int j = 0; j < n; ++j) {
+                            final int x = off + (k * n + j) * stride + s;
+                            final int y = off + (p * n + j) * stride + s;
+                            final double t = lu[x];
+                            lu[x] = lu[y];
+                            lu[y] = t;
+                        }
+                        final int x = off + k * stride + s;
+                        final int y = off + p * stride + s;
+                        final int t = perm[x];
+                        perm[x] = perm[y];
+                        perm[y] = t;
+                        sign[off + s] = -sign[off + s];
+                    }
+                }
+            }
+            for (int i = k + 1; i < n; ++i) {
+                final int ik = off + (i * n + k) * stride;
+                for (int s = 0; s < len; ++s) {
+                    final double pivot = lu[kk + s];
+                    lu[ik + s] = pivot != 0.0 ? lu[ik + s] / pivot : lu[ik + s];
+                }
+                for (int j = k + 1; j < n; ++j) {
+                    final int ij = off + (i * n + j) * stride;
+                    final int kj = off + (k * n + j) * stride;
+                    for (int s = 0; s < len; ++s) {
+                        lu[ij + s] -= lu[ik + s] * lu[kj + s];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Solves {@code A * X = B} given the factors of A. B and X have {@code nx} columns and must not overlap.
+     */
+    static void solve(int n, int nx, int len, double[] lu, int[] perm, int off, int stride,
+                      double[] b, int bOff, int bStride, double[] x, int xOff, int xStride) {
+        // X = B(perm, :)
+        for (int i = 0; i < n; ++i) {
+            final int pi = off + i * stride;
+            for (int j = 0; j < nx; ++j) {
+                final int xo = xOff + (i * nx + j) * xStride;
+                for (int s = 0; s < len; ++s) {
+                    x[xo + s] = b[bOff + (perm[pi + s] * nx + j) * bStride + s];
+                }
+            }
+        }
+        // Solve L * Y = X
+        for (int k = 0; k < n; ++k) {
+            for (int i = k + 1; i < n; ++i) {
+                final int ik = off + (i * n + k) * stride;
+                for (int j = 0; j < nx; ++j) {
+                    final int xi = xOff + (i * nx + j) * xStride;
+                    final int xk = xOff + (k * nx + j) * xStride;
+                    for (int s = 0; s < len; ++s) {
+                        x[xi + s] -= x[xk + s] * lu[ik + s];
+                    }
+                }
+            }
+        }
+        // Solve U * X = Y
+        for (int k = n - 1; k >= 0; --k) {
+            final int kk = off + (k * n + k) * stride;
+            for (int j = 0; j < nx; ++j) {
+                final int xk = xOff + (k * nx + j) * xStride;
+                for (int s = 0; s < len; ++s) {
+                    x[xk + s] /= lu[kk + s];
+                }
+            }
+            for (int i = 0; i < k; ++i) {
+                final int ik = off + (i * n + k) * stride;
+                for (int j = 0; j < nx; ++j) {
+                    final int xi = xOff + (i * nx + j) * xStride;
+                    final int xk = xOff + (k * nx + j) * xStride;
+                    for (int s = 0; s < len; ++s) {
+                        x[xi + s] -= x[xk + s] * lu[ik + s];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Determinants of 2x2 and 3x3 members by cofactor expansion.
+     */
+    static void det(int n, int len, double[] a, int off, int stride, double[] det, int detOff) {
+        if (n == 2) {
+            for (int s = 0; s < len; ++s) {
+                det[detOff + s] = a[off + s] * a[off + 3 * stride + s] - a[off + stride + s] * a[off + 2 * stride + s];
+            }
+        } else {
+            for (int s = 0; s < len; ++s) {
+                final double a00 = a[off + s], a01 = a[off + stride + s], a02 = a[off + 2 * stride + s];
+                final double a10 = a[off + 3 * stride + s], a11 = a[off + 4 * stride + s];
+                final double a12 = a[off + 5 * stride + s];
+                final double a20 = a[off + 6 * stride + s], a21 = a[off + 7 * stride + s];
+                final double a22 = a[off + 8 * stride + s];
+                det[detOff + s] = a00 * (a11 * a22 - a12 * a21) - a01 * (a10 * a22 - a12 * a20)
+                        + a02 * (a10 * a21 - a11 * a20);
+            }
+        }
+    }
+
+    /**
+     * Inverses of 2x2 and 3x3 members from the adjugate, given their determinants.
+     */
+    static void inverse(int n, int len, double[] a, int off, int stride, double[] det, int detOff,
+                        double[] x, int xOff, int xStride) {
+        if (n == 2) {
+            for (int s = 0; s < len; ++s) {
+                final double r = 1.0 / det[detOff + s];
+                final double a00 = a[off + s], a01 = a[off + stride + s];
+                final double a10 = a[off + 2 * stride + s], a11 = a[off + 3 * stride + s];
+                x[xOff + s] = a11 * r;
+                x[xOff + xStride + s] = -a01 * r;
+                x[xOff + 2 * xStride + s] = -a10 * r;
+                x[xOff + 3 * xStride + s] = a00 * r;
+            }
+        } else {
+            for (int s = 0; s < len; ++s) {
+                final double r = 1.0 / det[detOff + s];
+                final double a00 = a[off + s], a01 = a[off + stride + s], a02 = a[off + 2 * stride + s];
+                final double a10 = a[off + 3 * stride + s], a11 = a[off + 4 * stride + s];
+                final double a12 = a[off + 5 * stride + s];
+                final double a20 = a[off + 6 * stride + s], a21 = a[off + 7 * stride + s];
+                final double a22 = a[off + 8 * stride + s];
+                x[xOff + s] = (a11 * a22 - a12 * a21) * r;
+                x[xOff + xStride + s] = (a02 * a21 - a01 * a22) * r;
+                x[xOff + 2 * xStride + s] = (a01 * a12 - a02 * a11) * r;
+                x[xOff + 3 * xStride + s] = (a12 * a20 - a10 * a22) * r;
+                x[xOff + 4 * xStride + s] = (a00 * a22 - a02 * a20) * r;
+                x[xOff + 5 * xStride + s] = (a02 * a10 - a00 * a12) * r;
+                x[xOff + 6 * xStride + s] = (a10 * a21 - a11 * a20) * r;
+                x[xOff + 7 * xStride + s] = (a01 * a20 - a00 * a21) * r;
+                x[xOff + 8 * xStride + s] = (a00 * a11 - a01 * a10) * r;
+            }
+        }
+    }
+
+    /**
+     * Inverses of n-by-n members from their LU decompositions, computed in temporaries local to the call.
+     * {@code singular} is set for the members that have no inverse.
+     */
+    static void inverseLU(int n, int len, double[] a, int off, int stride, double[] x, int xOff, int xStride,
+                          boolean[] singular) {
+        final int nn = n * n;
+        double[] lu = new double[nn * len];
+        for (int e = 0; e < nn; ++e) {
+            System.arraycopy(a, off + e * stride, lu, e * len, len);
+        }
+        int[] perm = new int[n * len];
+        int[] sign = new int[len];
+        factor(n, len, lu, 0, len, perm, sign);
+        for (int k = 0; k < n; ++k) {
+            for (int s = 0; s < len; ++s) {
+                if (lu[(k * n + k) * len + s] == 0.0) {
+                    singular[off + s] = true;
+                }
+            }
+        }
+        double[] identity = new double[nn * len];
+        for (int i = 0; i < n; ++i) {
+            Arrays.fill(identity, (i * n + i) * len, (i * n + i + 1) * len, 1.0);
+        }
+        double[] inverse = new double[nn * len];
+        solve(n, n, len, lu, perm, 0, len, identity, 0, len, inverse, 0, len);
+        for (int e = 0; e < nn; ++e) {
+            System.arraycopy(inverse, e * len, x, xOff + e * xStride, len);
+        }
+    }
+
+    /**
+     * Matrix exponentials of {@code len} n-by-n members, see {@link MatrixBatch#expm()}. All the temporaries are
+     * local to the call, so calling it on blocks of members keeps them in cache.
+     */
+    static void expm(int n, int len, double[] a, int aOff, int aStride, double[] x, int xOff, int xStride) {
+        final int nn = n * n;
+        double[] A = new double[nn * len];
+        for (int e = 0; e < nn; ++e) {
+            System.arraycopy(a, aOff + e * aStride, A, e * len, len);
+        }
+        double[] norm = new double[len];
+        double[] colSum = new double[len];
+        double maxNorm = 0.0;
+        for (int j = 0; j < n; ++j) {
+            Arrays.fill(colSum, 0.0);
+            for (int i = 0; i < n; ++i) {
+                final int e = (i * n + j) * len;
+                for (int s = 0; s < len; ++s) {
+                    colSum[s] += Math.abs(A[e + s]);
+                }
+            }
+            for (int s = 0; s < len; ++s) {
+                norm[s] = Math.max(norm[s], colSum[s]);
+            }
+        }
+        for (int s = 0; s < len; ++s) {
+            maxNorm = Math.max(maxNorm, norm[s]);
+        }
+
+        double[] A2 = new double[nn * len];
+        multiply(n, n, n, len, A, 0, len, A, 0, len, A2, 0, len);
+        double[] result;
+        int[] squarings = null;
+        int maxSquarings = 0;
+        if (maxNorm <= MatrixExponential.THETA_3) {
+            result = pade(n, len, A, MatrixExponential.PADE_3, A2);
+        } else if (maxNorm <= MatrixExponential.THETA_5) {
+            result = pade(n, len, A, MatrixExponential.PADE_5, A2, power(n, len, A2, A2));
+        } else if (maxNorm <= MatrixExponential.THETA_7) {
+            double[] A4 = power(n, len, A2, A2);
+            result = pade(n, len, A, MatrixExponential.PADE_7, A2, A4, power(n, len, A4, A2));
+        } else if (maxNorm <= MatrixExponential.THETA_9) {
+            double[] A4 = power(n, len, A2, A2);
+            double[] A6 = power(n, len, A4, A2);
+            result = pade(n, len, A, MatrixExponential.PADE_9, A2, A4, A6, power(n, len, A6, A2));
+        } else {
+            // Scale every member by its own power of two, which is exact.
+            squarings = new int[len];
+            for (int s = 0; s < len; ++s) {
+                if (norm[s] > MatrixExponential.THETA_13) {
+                    squarings[s] = Math.getExponent(norm[s] / MatrixExponential.THETA_13) + 1;
+                    maxSquarings = Math.max(maxSquarings, squarings[s]);
+                }
+            }
+            for (int e = 0; e < nn; ++e) {
+                for (int s = 0; s < len; ++s) {
+                    A[e * len + s] = Math.scalb(A[e * len + s], -squarings[s]);
+                }
+            }
+            for (int e = 0; e < nn; ++e) {
+                for (int s = 0; s < len; ++s) {
+                    A2[e * len + s] = Math.scalb(A2[e * len + s], -2 * squarings[s]);
+                }
+            }
+            result = pade13(n, len, A, A2);
+        }
+
+        double[] Y = new double[nn * len];
+        for (int k = 0; k < maxSquarings; ++k) {
+            multiply(n, n, n, len, result, 0, len, result, 0, len, Y, 0, len);
+            for (int e = 0; e < nn; ++e) {
+                for (int s = 0; s < len; ++s) {
+                    if (squarings[s] > k) {
+                        result[e * len + s] = Y[e * len + s];
+                    }
+                }
+            }
+        }
+        for (int e = 0; e < nn; ++e) {
+            System.arraycopy(result, e * len, x, xOff + e * xStride, len);
+        }
+    }
+
+    private static double[] power(int n, int len, double[] P, double[] Q) {
+        double[] R = new double[n * n * len];
+        multiply(n, n, n, len, P, 0, len, Q, 0, len, R, 0, len);
+        return R;
+    }
+
+    /**
+     * Padé approximant of degree {@code b.length - 1} from the even powers of A, see {@link MatrixExponential}.
+     */
+    private static double[] pade(int n, int len, double[] A, double[] b, double[]... powers) {
+        final int size = n * n * len;
+        double[] u = new double[size];
+        double[] v = new double[size];
+        for (int i = 0; i < n; ++i) {
+            final int d = (i * n + i) * len;
+            for (int s = 0; s < len; ++s) {
+                u[d + s] = b[1];
+                v[d + s] = b[0];
+            }
+        }
+        for (int k = 0; k < powers.length; ++k) {
+            final double bu = b[2 * k + 3];
+            final double bv = b[2 * k + 2];
+            final double[] P = powers[k];
+            for (int i = 0; i < size; ++i) {
+                u[i] += bu * P[i];
+                v[i] += bv * P[i];
+            }
+        }
+        double[] U = new double[size];
+        multiply(n, n, n, len, A, 0, len, u, 0, len, U, 0, len);
+        return solvePade(n, len, U, v);
+    }
+
+    private static double[] pade13(int n, int len, double[] A, double[] A2) {
+        final double[] c = MatrixExponential.PADE_13;
+        final int size = n * n * len;
+        double[] A4 = power(n, len, A2, A2);
+        double[] A6 = power(n, len, A4, A2);
+        double[] u = new double[size];
+        double[] v = new double[size];
+        for (int i = 0; i < size; ++i) {
+            u[i] = c[13] * A6[i] + c[11] * A4[i] + c[9] * A2[i];
+            v[i] = c[12] * A6[i] + c[10] * A4[i] + c[8] * A2[i];
+        }
+        double[] U = new double[size];
+        double[] V = new double[size];
+        multiply(n, n, n, len, A6, 0, len, u, 0, len, U, 0, len);
+        multiply(n, n, n, len, A6, 0, len, v, 0, len, V, 0, len);
+        for (int i = 0; i < size; ++i) {
+            U[i] += c[7] * A6[i] + c[5] * A4[i] + c[3] * A2[i];
+            V[i] += c[6] * A6[i] + c[4] * A4[i] + c[2] * A2[i];
+        }
+        for (int i = 0; i < n; ++i) {
+            final int d = (i * n + i) * len;
+            for (int s = 0; s < len; ++s) {
+                U[d + s] += c[1];
+                V[d + s] += c[0];
+            }
+        }
+        multiply(n, n, n, len, A, 0, len, U, 0, len, u, 0, len);
+        return solvePade(n, len, u, V);
+    }
+
+    /**
+     * Solves {@code (V - U) * X = V + U}.
+     */
+    private static double[] solvePade(int n, int len, double[] U, double[] V) {
+        final int size = n * n * len;
+        double[] P = new double[size];
+        double[] Q = new double[size];
+        for (int i = 0; i < size; ++i) {
+            P[i] = V[i] + U[i];
+            Q[i] = V[i] - U[i];
+        }
+        int[] perm = new int[n * len];
+        int[] sign = new int[len];
+        factor(n, len, Q, 0, len, perm, sign);
+        solve(n, n, len, Q, perm, 0, len, P, 0, len, U, 0, len);
+        return U;
+    }
+}
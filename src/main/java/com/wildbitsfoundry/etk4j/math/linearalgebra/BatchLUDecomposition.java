@@ -0,0 +1,97 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import java.util.Arrays;
+
+/**
+ * LU decomposition with partial pivoting of every member of a {@link MatrixBatch}.
+ * <p>
+ * The pivot search and row swaps are done member by member, the elimination and the substitutions run over all the
+ * members at once. A singular member does not stop the factorization, see {@link #isNonSingular()}.
+ */
+public final class BatchLUDecomposition {
+    private final int count;
+    private final int n;
+    private final double[] lu;
+    private final int[] perm;
+    private final int[] sign;
+
+    BatchLUDecomposition(MatrixBatch A) {
+        count = A.count;
+        n = A.rows;
+        lu = A.data.clone();
+        perm = new int[n * count];
+        sign = new int[count];
+        MatrixBatch.run(count, 2L * n * n * n / 3, (from, len) -> BatchKernels.factor(n, len, lu, from, count,
+                perm, sign));
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Which members are non singular.
+     *
+     * @return {@code true} at index {@code b} if U, and thus member {@code b}, is non singular.
+     */
+    public boolean[] isNonSingular() {
+        boolean[] result = new boolean[count];
+        Arrays.fill(result, true);
+        for (int k = 0; k < n; ++k) {
+            final int kk = (k * n + k) * count;
+            for (int b = 0; b < count; ++b) {
+                if (lu[kk + b] == 0.0) {
+                    result[b] = false;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determinant of every member.
+     *
+     * @return The determinants.
+     */
+    public double[] det() {
+        double[] det = new double[count];
+        for (int b = 0; b < count; ++b) {
+            det[b] = sign[b];
+        }
+        for (int k = 0; k < n; ++k) {
+            final int kk = (k * n + k) * count;
+            for (int b = 0; b < count; ++b) {
+                det[b] *= lu[kk + b];
+            }
+        }
+        return det;
+    }
+
+    /**
+     * Solves {@code A[b] * X[b] = B[b]} for every member.
+     *
+     * @param B A batch of right hand sides with as many members and rows as the factored batch.
+     * @return The batch of solutions.
+     * @exception IllegalArgumentException Matrix row dimensions must agree.
+     * @exception RuntimeException if any member is singular.
+     */
+    public MatrixBatch solve(MatrixBatch B) {
+        if (B.count != count) {
+            throw new IllegalArgumentException("Both batches must have the same number of matrices.");
+        }
+        if (B.rows != n) {
+            throw new IllegalArgumentException("Matrix row dimensions must agree.");
+        }
+        boolean[] nonSingular = isNonSingular();
+        for (int b = 0; b < count; ++b) {
+            if (!nonSingular[b]) {
+                throw new RuntimeException(String.format("Matrix %d of the batch is singular.", b));
+            }
+        }
+        final int nx = B.cols;
+        final MatrixBatch X = new MatrixBatch(count, n, nx);
+        MatrixBatch.run(count, 2L * n * n * nx, (from, len) -> BatchKernels.solve(n, nx, len, lu, perm, from, count,
+                B.data, from, count, X.data, from, count));
+        return X;
+    }
+}
@@ -1,6 +1,6 @@
 package com.wildbitsfoundry.etk4j.math.linearalgebra;
 
-import com.wildbitsfoundry.etk4j.util.DoubleArrays;
+import java.util.Arrays;
 
 /**
  * Cholesky Decomposition.
@@ -24,7 +24,7 @@ public class CholeskyDecomposition {
 	 * 
 	 * @serial internal array storage.
 	 */
-	private double[][] L;
+	private double[] L;
 
 	/**
 	 * Row and column dimension (square matrix).
@@ -55,33 +55,45 @@ public class CholeskyDecomposition {
 	public CholeskyDecomposition(Matrix Arg) {
 
 		// Initialize.
-		double[] A = Arg.getArray();
 		final int m = Arg.getRowCount();
-		final int n = Arg.getColumnCount();
 		_n = m;
-		L = new double[m][m];
-		isspd = (n == m);
+		L = new double[m * m];
+		isspd = factor(Arg.getArray(), m, Arg.getColumnCount(), L);
+	}
+
+	/**
+	 * Computes the row packed lower triangular factor.
+	 *
+	 * @param A The row packed data of the matrix to factor.
+	 * @param m The number of rows of {@code A}.
+	 * @param n The number of columns of {@code A}.
+	 * @param L Array of length {@code m * m} that receives the row packed lower triangular factor.
+	 * @return true if {@code A} is symmetric and positive definite.
+	 */
+	static boolean factor(double[] A, int m, int n, double[] L) {
+		boolean isspd = (n == m);
 		// Main loop.
 		for (int j = 0; j < m; j++) {
-			double[] Lrowj = L[j];
+			final int rowj = j * m;
 			double d = 0.0;
 			for (int k = 0; k < j; k++) {
-				double[] Lrowk = L[k];
+				final int rowk = k * m;
 				double s = 0.0;
 				for (int i = 0; i < k; i++) {
-					s += Lrowk[i] * Lrowj[i];
+					s += L[rowk + i] * L[rowj + i];
 				}
-				Lrowj[k] = s = (A[j * n + k] - s) / L[k][k];
+				L[rowj + k] = s = (A[j * n + k] - s) / L[rowk + k];
 				d = d + s * s;
 				isspd = isspd & (A[k * n + j] == A[j * n + k]);
 			}
 			d = A[j * n + j] - d;
 			isspd = isspd & (d > 0.0);
-			L[j][j] = Math.sqrt(Math.max(d, 0.0));
+			L[rowj + j] = Math.sqrt(Math.max(d, 0.0));
 			for (int k = j + 1; k < m; k++) {
-				L[j][k] = 0.0;
+				L[rowj + k] = 0.0;
 			}
 		}
+		return isspd;
 	}
 
 	/*
@@ -148,7 +160,7 @@ public class CholeskyDecomposition {
 	 */
 
 	public Matrix getL() {
-		return new Matrix(DoubleArrays.flatten(L), _n, _n);
+		return new Matrix(Arrays.copyOf(L, L.length), _n, _n);
 	}
 
 	/**
@@ -175,14 +187,33 @@ public class CholeskyDecomposition {
 		// Copy right hand side.
 		double[] X = B.getArrayCopy();
 		int nx = B.getColumnCount();
+		substitute(L, n, X, nx);
 
+		return new Matrix(X, n, nx);
+	}
+
+	/**
+	 * Solves {@code L * L' * X = B} in place.
+	 *
+	 * @param L  The row packed lower triangular factor.
+	 * @param n  The dimension of the factored matrix.
+	 * @param X  The row packed {@code n x nx} right hand side, which is overwritten with X.
+	 * @param nx The number of columns of {@code X}.
+	 */
+	static void substitute(double[] L, int n, double[] X, int nx) {
+		if (Trsm.isBlocked(n, nx)) {
+			Trsm.solveLower(n, nx, L, 0, n, 1, false, X);
+			// L' is read through swapped strides.
+			Trsm.solveUpper(n, nx, L, 0, 1, n, null, X);
+			return;
+		}
 		// Solve L*Y = B;
 		for (int k = 0; k < n; k++) {
 			for (int j = 0; j < nx; j++) {
 				for (int i = 0; i < k; i++) {
-					X[k * nx + j] -= X[i * nx + j] * L[k][i];
+					X[k * nx + j] -= X[i * nx + j] * L[k * n + i];
 				}
-				X[k * nx + j] /= L[k][k];
+				X[k * nx + j] /= L[k * n + k];
 			}
 		}
 
@@ -190,12 +221,10 @@ public class CholeskyDecomposition {
 		for (int k = n - 1; k >= 0; k--) {
 			for (int j = 0; j < nx; j++) {
 				for (int i = k + 1; i < n; i++) {
-					X[k * nx + j] -= X[i * nx + j] * L[i][k];
+					X[k * nx + j] -= X[i * nx + j] * L[i * n + k];
 				}
-				X[k * nx + j] /= L[k][k];
+				X[k * nx + j] /= L[k * n + k];
 			}
 		}
-
-		return new Matrix(X, n, nx);
 	}
 }
@@ -0,0 +1,118 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+/**
+ * Reusable Cholesky decomposition of symmetric positive definite matrices of a fixed size.
+ * <P>
+ * All the storage needed to factor and solve is allocated once by the constructor, so repeatedly calling
+ * {@link #factor(Matrix)} followed by {@link #solve(double[], double[])} or {@link #solve(Matrix, Matrix)} does not
+ * allocate.
+ */
+public class CholeskyWorkspace {
+	private final int _n;
+	private final double[] L;
+	private boolean isspd;
+	private boolean _factored;
+
+	/**
+	 * @param n The dimension of the matrices to factor.
+	 */
+	public CholeskyWorkspace(int n) {
+		_n = n;
+		L = new double[n * n];
+	}
+
+	/**
+	 * The dimension of the matrices this workspace factors.
+	 *
+	 * @return n
+	 */
+	public int getDimension() {
+		return _n;
+	}
+
+	/**
+	 * Factors {@code A} into the workspace. {@code A} is not modified.
+	 *
+	 * @param A An n-by-n symmetric matrix.
+	 * @return true if {@code A} is symmetric and positive definite.
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+	public boolean factor(Matrix A) {
+		if (A.getRowCount() != _n || A.getColumnCount() != _n) {
+			throw new IllegalArgumentException("Matrix dimensions must agree.");
+		}
+		isspd = CholeskyDecomposition.factor(A.getArray(), _n, _n, L);
+		_factored = true;
+		return isspd;
+	}
+
+	/**
+	 * Is the matrix symmetric and positive definite?
+	 *
+	 * @return true if A is symmetric and positive definite.
+	 */
+	public boolean isSPD() {
+		checkFactored();
+		return isspd;
+	}
+
+	/**
+	 * Solve A*x = b
+	 *
+	 * @param b
+	 *            The right hand side of length n.
+	 * @param x
+	 *            Array of length n that receives the solution. It can be the same array as {@code b}.
+	 * @exception IllegalArgumentException
+	 *                Array lengths must agree.
+	 * @exception RuntimeException
+	 *                Matrix is not symmetric positive definite.
+	 */
+	public void solve(double[] b, double[] x) {
+		if (b.length != _n || x.length != _n) {
+			throw new IllegalArgumentException("Array lengths must agree.");
+		}
+		checkSolvable();
+		if (b != x) {
+			System.arraycopy(b, 0, x, 0, _n);
+		}
+		CholeskyDecomposition.substitute(L, _n, x, 1);
+	}
+
+	/**
+	 * Solve A*X = B
+	 *
+	 * @param B
+	 *            A Matrix with n rows and any number of columns.
+	 * @param X
+	 *            A Matrix of the same size as {@code B} that receives the solution. It can be {@code B}.
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 * @exception RuntimeException
+	 *                Matrix is not symmetric positive definite.
+	 */
+	public void solve(Matrix B, Matrix X) {
+		final int nx = B.getColumnCount();
+		if (B.getRowCount() != _n || X.getRowCount() != _n || X.getColumnCount() != nx) {
+			throw new IllegalArgumentException("Matrix dimensions must agree.");
+		}
+		checkSolvable();
+		if (B != X) {
+			System.arraycopy(B.getArray(), 0, X.getArray(), 0, _n * nx);
+		}
+		CholeskyDecomposition.substitute(L, _n, X.getArray(), nx);
+	}
+
+	private void checkFactored() {
+		if (!_factored) {
+			throw new IllegalStateException("No matrix has been factored yet.");
+		}
+	}
+
+	private void checkSolvable() {
+		if (!isSPD()) {
+			throw new RuntimeException("Matrix is not symmetric positive definite.");
+		}
+	}
+}
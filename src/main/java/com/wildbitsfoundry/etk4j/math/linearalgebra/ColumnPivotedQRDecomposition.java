@@ -0,0 +1,333 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import com.wildbitsfoundry.etk4j.constants.ConstantsETK;
+import com.wildbitsfoundry.etk4j.math.MathETK;
+
+/**
+ * QR decomposition with column pivoting, {@code A * P = Q * R}.
+ * <P>
+ * At every step the remaining column of largest norm is moved to the front (Businger and Golub), so the magnitudes
+ * of the diagonal entries of R are non increasing and a small diagonal entry reveals a gap in the singular values.
+ * This makes the decomposition a cheap substitute for the SVD when only the numerical rank or the minimum norm least
+ * squares solution (and so the pseudo-inverse) are needed. The column norms are downdated after every reflection
+ * and only recomputed when cancellation makes the downdated value unreliable.
+ * <P>
+ * The Householder vectors and R are stored with the same layout as {@link QRDecomposition}. Any shape of matrix is
+ * supported, R has {@code min(m, n)} rows.
+ *
+ * @see <a href="https://doi.org/10.1007/BF02165169">P. Businger and G. H. Golub, Linear least squares solutions by
+ * Householder transformations, Numer. Math. 7, 1965</a>
+ */
+public class ColumnPivotedQRDecomposition {
+	protected double[] _data;
+	protected final int _rows;
+	protected final int _cols;
+
+	protected double[] _rdiag;
+	protected int[] _pivot;
+
+	public ColumnPivotedQRDecomposition(Matrix matrix) {
+		_rows = matrix.getRowCount();
+		_cols = matrix.getColumnCount();
+		_data = matrix.getArrayCopy();
+		_rdiag = new double[Math.min(_rows, _cols)];
+		_pivot = new int[_cols];
+		factor(_data, _rows, _cols, _rdiag, _pivot);
+	}
+
+	/**
+	 * Factors row packed data in place.
+	 *
+	 * @param data  The row packed data, which is overwritten with the Householder vectors and R.
+	 * @param rows  The number of rows.
+	 * @param cols  The number of columns.
+	 * @param rdiag Array of length {@code min(rows, cols)} that receives the diagonal of R.
+	 * @param pivot Array of length {@code cols} that receives the column permutation.
+	 */
+	static void factor(double[] data, int rows, int cols, double[] rdiag, int[] pivot) {
+		// Partial column norms and the norms they were last computed from.
+		double[] vn1 = new double[cols];
+		double[] vn2 = new double[cols];
+		for (int j = 0; j < cols; ++j) {
+			pivot[j] = j;
+			vn1[j] = vn2[j] = columnNorm(data, rows, cols, j, 0);
+		}
+		final double tol = Math.sqrt(ConstantsETK.DOUBLE_EPS);
+		final int kmax = Math.min(rows, cols);
+		for (int k = 0; k < kmax; ++k) {
+			int p = k;
+			for (int j = k + 1; j < cols; ++j) {
+				if (vn1[j] > vn1[p]) {
+					p = j;
+				}
+			}
+			if (p != k) {
+				for (int i = 0; i < rows; ++i) {
+					double temp = data[i * cols + p];
+					data[i * cols + p] = data[i * cols + k];
+					data[i * cols + k] = temp;
+				}
+				int temp = pivot[p];
+				pivot[p] = pivot[k];
+				pivot[k] = temp;
+				vn1[p] = vn1[k];
+				vn2[p] = vn2[k];
+			}
+
+			double nrm = columnNorm(data, rows, cols, k, k);
+			if (nrm != 0.0) {
+				// Form k-th Householder vector.
+				if (data[k * cols + k] < 0) {
+					nrm = -nrm;
+				}
+				for (int i = k; i < rows; i++) {
+					data[i * cols + k] /= nrm;
+				}
+				data[k * cols + k] += 1.0;
+
+				// Apply transformation to remaining columns.
+				for (int j = k + 1; j < cols; j++) {
+					double s = 0.0;
+					for (int i = k; i < rows; i++) {
+						s += data[i * cols + k] * data[i * cols + j];
+					}
+					s = -s / data[k * cols + k];
+					for (int i = k; i < rows; i++) {
+						data[i * cols + j] += s * data[i * cols + k];
+					}
+				}
+			}
+			rdiag[k] = -nrm;
+
+			// Downdate the norms of the remaining columns, R(k, j) has been removed from them.
+			for (int j = k + 1; j < cols; ++j) {
+				if (vn1[j] != 0.0) {
+					double temp = Math.abs(data[k * cols + j]) / vn1[j];
+					temp = Math.max(0.0, (1.0 + temp) * (1.0 - temp));
+					double ratio = vn1[j] / vn2[j];
+					if (temp * ratio * ratio <= tol) {
+						vn1[j] = vn2[j] = columnNorm(data, rows, cols, j, k + 1);
+					} else {
+						vn1[j] *= Math.sqrt(temp);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 2-norm of {@code A(row0 : rows - 1, j)} without under/overflow.
+	 */
+	private static double columnNorm(double[] data, int rows, int cols, int j, int row0) {
+		double nrm = 0.0;
+		for (int i = row0; i < rows; ++i) {
+			nrm = MathETK.hypot(nrm, data[i * cols + j]);
+		}
+		return nrm;
+	}
+
+	/*
+	 * ------------------------ Public Methods ------------------------
+	 */
+
+	/**
+	 * Effective numerical matrix rank with the same tolerance as {@link SingularValueDecomposition#rank()},
+	 * {@code max(m, n) * |R(0, 0)| * eps}.
+	 *
+	 * @return Number of diagonal entries of R whose magnitude is above the tolerance.
+	 */
+	public int rank() {
+		if (_rdiag.length == 0) {
+			return 0;
+		}
+		return rank(Math.max(_rows, _cols) * Math.abs(_rdiag[0]) * ConstantsETK.DOUBLE_EPS);
+	}
+
+	/**
+	 * Numerical matrix rank.
+	 *
+	 * @param tol The tolerance below which a diagonal entry of R is considered to be zero.
+	 * @return Number of diagonal entries of R whose magnitude is above {@code tol}.
+	 */
+	public int rank(double tol) {
+		int r = 0;
+		while (r < _rdiag.length && Math.abs(_rdiag[r]) > tol) {
+			++r;
+		}
+		return r;
+	}
+
+	/**
+	 * Return the column permutation
+	 *
+	 * @return piv such that {@code A(:, piv) = Q * R}
+	 */
+	public int[] getPivot() {
+		return _pivot.clone();
+	}
+
+	/**
+	 * Return the permutation matrix
+	 *
+	 * @return P such that {@code A * P = Q * R}
+	 */
+	public Matrix getP() {
+		Matrix P = new Matrix(_cols, _cols);
+		for (int j = 0; j < _cols; ++j) {
+			P.set(_pivot[j], j, 1.0);
+		}
+		return P;
+	}
+
+	/**
+	 * Return the upper trapezoidal factor
+	 *
+	 * @return R, with {@code min(m, n)} rows and n columns.
+	 */
+	public Matrix getR() {
+		final int k = _rdiag.length;
+		Matrix X = new Matrix(k, _cols);
+		double[] R = X.getArray();
+		for (int i = 0; i < k; i++) {
+			R[i * _cols + i] = _rdiag[i];
+			for (int j = i + 1; j < _cols; j++) {
+				R[i * _cols + j] = _data[i * _cols + j];
+			}
+		}
+		return X;
+	}
+
+	/**
+	 * Generate and return the (economy-sized) orthogonal factor
+	 *
+	 * @return Q, with m rows and {@code min(m, n)} columns.
+	 */
+	public Matrix getQThin() {
+		final int k = _rdiag.length;
+		Matrix Q = new Matrix(_rows, k);
+		for (int i = 0; i < k; ++i) {
+			Q.set(i, i, 1.0);
+		}
+		applyQ(Q.getArray(), k);
+		return Q;
+	}
+
+	/**
+	 * Minimum norm least squares solution of A*X = B.
+	 * <P>
+	 * Columns past the numerical rank r are dropped: with {@code A * P = Q * [R11 R12; 0 R22]} and R22 neglected, the
+	 * trapezoid {@code [R11 R12]} is reduced to a triangle by an orthogonal transformation from the right (a complete
+	 * orthogonal decomposition) and the solution of smallest norm is returned. For a full rank matrix with at least
+	 * as many rows as columns this is the ordinary least squares solution.
+	 *
+	 * @param B
+	 *            A Matrix with as many rows as A and any number of columns.
+	 * @return X that minimizes the two norm of A*X-B and, among those, has the smallest two norm.
+	 * @exception IllegalArgumentException
+	 *                Matrix row dimensions must agree.
+	 */
+	public Matrix solve(Matrix B) {
+		if (B.getRowCount() != _rows) {
+			throw new IllegalArgumentException("Matrix row dimensions must agree.");
+		}
+		final int nx = B.getColumnCount();
+		final int r = rank();
+		double[] X = B.getArrayCopy();
+		applyQTranspose(X, nx);
+
+		// Y(0 : r - 1, :) solves [R11 R12] * Y = C(0 : r - 1, :)
+		double[] Y = new double[_cols * nx];
+		System.arraycopy(X, 0, Y, 0, r * nx);
+		if (r == _cols) {
+			QRDecomposition.backSubstitute(_data, _rdiag, _cols, Y, nx);
+		} else if (r > 0) {
+			// [R11 R12]' = Z * T, so [R11 R12] = T' * Z' and Y = Z * T'^-1 * C.
+			double[] trapezoid = new double[_cols * r];
+			for (int i = 0; i < r; ++i) {
+				trapezoid[i * r + i] = _rdiag[i];
+				for (int j = i + 1; j < _cols; ++j) {
+					trapezoid[j * r + i] = _data[i * _cols + j];
+				}
+			}
+			QRDecomposition cod = new QRDecomposition(trapezoid, _cols, r);
+			double[] T = cod.getR().getArray();
+			// Solve T' * W = C
+			for (int k = 0; k < r; ++k) {
+				for (int i = 0; i < k; ++i) {
+					final double tik = T[i * r + k];
+					for (int j = 0; j < nx; ++j) {
+						Y[k * nx + j] -= tik * Y[i * nx + j];
+					}
+				}
+				for (int j = 0; j < nx; ++j) {
+					Y[k * nx + j] /= T[k * r + k];
+				}
+			}
+			Y = cod.QmultiplyX(new Matrix(Y, _cols, nx)).getArray();
+		}
+
+		// X(piv, :) = Y
+		double[] result = new double[_cols * nx];
+		for (int k = 0; k < _cols; ++k) {
+			System.arraycopy(Y, k * nx, result, _pivot[k] * nx, nx);
+		}
+		return new Matrix(result, _cols, nx);
+	}
+
+	/**
+	 * Moore–Penrose pseudo-inverse of the matrix truncated to its numerical rank.
+	 *
+	 * @return {@code pinv(A)}, see {@link #solve(Matrix)}.
+	 */
+	public Matrix pinv() {
+		return solve(Matrix.identity(_rows));
+	}
+
+	/**
+	 * Overwrites the row packed {@code rows x nx} array {@code X} with {@code transpose(Q) * X}.
+	 */
+	private void applyQTranspose(double[] X, int nx) {
+		for (int k = 0; k < _rdiag.length; k++) {
+			reflect(k, X, nx);
+		}
+	}
+
+	/**
+	 * Overwrites the row packed {@code rows x nx} array {@code X} with {@code Q * X}.
+	 */
+	private void applyQ(double[] X, int nx) {
+		for (int k = _rdiag.length - 1; k >= 0; k--) {
+			reflect(k, X, nx);
+		}
+	}
+
+	private void reflect(int k, double[] X, int nx) {
+		final double vkk = _data[k * _cols + k];
+		if (vkk == 0.0) {
+			// Zero column, no reflection was applied.
+			return;
+		}
+		for (int j = 0; j < nx; j++) {
+			double s = 0.0;
+			for (int i = k; i < _rows; i++) {
+				s += _data[i * _cols + k] * X[i * nx + j];
+			}
+			s = -s / vkk;
+			for (int i = k; i < _rows; i++) {
+				X[i * nx + j] += s * _data[i * _cols + k];
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < _rows * _cols; ++i) {
+			if (i > 0 && i % _cols == 0) {
+				sb.append(System.lineSeparator());
+			}
+			sb.append(String.format("%.4f", _data[i])).append(" ");
+		}
+		return sb.toString();
+	}
+}
@@ -1,11 +1,20 @@
 package com.wildbitsfoundry.etk4j.math.linearalgebra;
 
+import com.wildbitsfoundry.etk4j.math.MathETK;
 import com.wildbitsfoundry.etk4j.math.complex.Complex;
 
 import java.util.Arrays;
 
+/**
+ * LU Decomposition of a complex matrix.
+ * <P>
+ * The factors are kept as two row packed {@code double} arrays holding the real and imaginary parts, and the
+ * factorization and substitution kernels work directly on those arrays. The complex products and quotients are
+ * evaluated with the same formulas used by {@link Complex}, so the results match those of complex scalar arithmetic.
+ */
 public class ComplexLUDecomposition {
-	protected Complex[] _data;
+	protected double[] _real;
+	protected double[] _imag;
 	protected final int _rows;
 	protected final int _cols;
 
@@ -15,44 +24,60 @@ public class ComplexLUDecomposition {
 	public ComplexLUDecomposition(ComplexMatrix matrix) {
 		final int rows = matrix.getRowCount();
 		final int cols = matrix.getColumnCount();
-		Complex[] data = matrix.getArrayCopy();
+		double[] re = Arrays.copyOf(matrix.getRealArray(), rows * cols);
+		double[] im = Arrays.copyOf(matrix.getImagArray(), rows * cols);
 
 		_pivot = new int[rows];
 		for (int i = 0; i < rows; i++) {
 			_pivot[i] = i;
 		}
 
-		Complex[] LUcol = new Complex[rows];
+		double[] colRe = new double[rows];
+		double[] colIm = new double[rows];
 
 		// Begin the outer loop
 		for (int j = 0; j < cols; j++) {
 			// Copy the j-th column to localize references.
 			for (int i = 0; i < rows; i++) {
-				LUcol[i] = data[i * cols + j];
+				colRe[i] = re[i * cols + j];
+				colIm[i] = im[i * cols + j];
 			}
 			// Apply previous transformations
 			for (int i = 0; i < rows; i++) {
+				final int row = i * cols;
 				int maxel = Math.min(i, j);
-				Complex s = new Complex();
+				double sRe = 0.0;
+				double sIm = 0.0;
 				for (int k = 0; k < maxel; k++) {
-					s.addEquals(data[i * cols + k].multiply(LUcol[k]));
+					double lRe = re[row + k];
+					double lIm = im[row + k];
+					sRe += lRe * colRe[k] - lIm * colIm[k];
+					sIm += lRe * colIm[k] + lIm * colRe[k];
 				}
-				LUcol[i].subtractEquals(s);
-				data[i * cols + j] = LUcol[i];
+				colRe[i] -= sRe;
+				colIm[i] -= sIm;
+				re[row + j] = colRe[i];
+				im[row + j] = colIm[i];
 			}
 
 			// Find pivot and swap if needed
 			int p = j;
+			double max = j < rows ? MathETK.hypot(colRe[j], colIm[j]) : 0.0;
 			for (int i = j + 1; i < rows; i++) {
-				if (LUcol[i].abs() > LUcol[p].abs()) {
+				double abs = MathETK.hypot(colRe[i], colIm[i]);
+				if (abs > max) {
 					p = i;
+					max = abs;
 				}
 			}
 			if (p != j) {
 				for (int k = 0; k < cols; k++) {
-					Complex temp = data[p * cols + k];
-					data[p * cols + k] = data[j * cols + k];
-					data[j * cols + k] = temp;
+					double temp = re[p * cols + k];
+					re[p * cols + k] = re[j * cols + k];
+					re[j * cols + k] = temp;
+					temp = im[p * cols + k];
+					im[p * cols + k] = im[j * cols + k];
+					im[j * cols + k] = temp;
 				}
 				int temp = _pivot[p];
 				_pivot[p] = _pivot[j];
@@ -60,20 +85,34 @@ public class ComplexLUDecomposition {
 				_pivotsign = -_pivotsign;
 			}
 			// Wrapping up
-			if (j < rows & !data[j * cols + j].equals(new Complex())) {
+			if (j < rows && !isZero(re[j * cols + j], im[j * cols + j])) {
+				// Divide by the pivot by multiplying with its reciprocal.
+				double dRe = re[j * cols + j];
+				double dIm = im[j * cols + j];
+				double mag = 1.0 / (dRe * dRe + dIm * dIm);
+				double invRe = dRe * mag;
+				double invIm = dIm * -mag;
 				for (int i = j + 1; i < rows; i++) {
-					data[i * cols + j].divideEquals(data[j * cols + j]);
+					double xRe = re[i * cols + j];
+					double xIm = im[i * cols + j];
+					re[i * cols + j] = xRe * invRe - xIm * invIm;
+					im[i * cols + j] = xRe * invIm + xIm * invRe;
 				}
 			}
 		}
-		_data = data;
+		_real = re;
+		_imag = im;
 		_rows = rows;
 		_cols = cols;
 	}
 
+	private static boolean isZero(double re, double im) {
+		return re == 0.0 && im == 0.0;
+	}
+
 	public boolean isNonSingular() {
 		for (int j = 0; j < _cols; ++j) {
-			if (_data[j * _cols + j].equals(new Complex())) {
+			if (isZero(_real[j * _cols + j], _imag[j * _cols + j])) {
 				return false;
 			}
 		}
@@ -82,53 +121,51 @@ public class ComplexLUDecomposition {
 
 	/**
 	 * Return lower triangular factor
-	 * 
+	 *
 	 * @return L
 	 */
 
 	public ComplexMatrix getL() {
 		final int rows = _rows;
 		final int cols = _cols;
-		Complex[] L = new Complex[rows * cols];
+		double[] re = new double[rows * cols];
+		double[] im = new double[rows * cols];
 		for (int i = 0; i < rows; ++i) {
 			for (int j = 0; j < cols; ++j) {
 				if (i > j) {
-					L[i * cols + j] = _data[i * cols + j];
+					re[i * cols + j] = _real[i * cols + j];
+					im[i * cols + j] = _imag[i * cols + j];
 				} else if (i == j) {
-					L[i * cols + j] = Complex.fromReal(1.0);
-				} else {
-					L[i * cols + j] = new Complex();
+					re[i * cols + j] = 1.0;
 				}
 			}
 		}
-		return new ComplexMatrix(L, rows, cols);
+		return new ComplexMatrix(re, im, rows, cols);
 	}
 
 	/**
 	 * Return upper triangular factor
-	 * 
+	 *
 	 * @return U
 	 */
 
 	public ComplexMatrix getU() {
 		final int rows = _rows;
 		final int cols = _cols;
-		Complex[] U = new Complex[rows * cols];
+		double[] re = new double[rows * cols];
+		double[] im = new double[rows * cols];
 		for (int i = 0; i < cols; i++) {
-			for (int j = 0; j < cols; j++) {
-				if (i <= j) {
-					U[i * cols + j] = _data[i * cols + j];
-				} else {
-					U[i * cols + j] = new Complex();
-				}
+			for (int j = i; j < cols; j++) {
+				re[i * cols + j] = _real[i * cols + j];
+				im[i * cols + j] = _imag[i * cols + j];
 			}
 		}
-		return new ComplexMatrix(U, rows, cols);
+		return new ComplexMatrix(re, im, rows, cols);
 	}
 
 	/**
 	 * Return pivot permutation vector
-	 * 
+	 *
 	 * @return piv
 	 */
 
@@ -138,7 +175,7 @@ public class ComplexLUDecomposition {
 
 	/**
 	 * Return pivot permutation vector as a one-dimensional double array
-	 * 
+	 *
 	 * @return (double) piv
 	 */
 
@@ -157,14 +194,14 @@ public class ComplexLUDecomposition {
 		}
 		Complex det = Complex.fromReal(_pivotsign);
 		for (int i = 0; i < _cols; i++) {
-			det.multiplyEquals(this._data[i * _cols + i]);
+			det.multiplyEquals(_real[i * _cols + i], _imag[i * _cols + i]);
 		}
 		return det;
 	}
 
 	/**
 	 * Solve A*X = B
-	 * 
+	 *
 	 * @param B
 	 *            A Matrix with as many rows as A and any number of columns.
 	 * @return X so that L*U*X = B(piv,:)
@@ -184,31 +221,92 @@ public class ComplexLUDecomposition {
 
 		// Copy right hand side with pivoting
 		int nx = B.getColumnCount();
-		ComplexMatrix Xmat = ComplexMatrix.fromRealMatrix(B.subMatrix(_pivot, 0, nx - 1));
-		Complex[] X = Xmat.getArray();
+		double[] re = B.subMatrix(_pivot, 0, nx - 1).getArray();
+		double[] im = new double[re.length];
+		substitute(_real, _imag, _cols, re, im, nx);
+		return new ComplexMatrix(re, im, _rows, nx);
+	}
 
-		final int cols = _cols;
+	/**
+	 * Solve A*X = B
+	 *
+	 * @param B
+	 *            A ComplexMatrix with as many rows as A and any number of columns.
+	 * @return X so that L*U*X = B(piv,:)
+	 * @exception IllegalArgumentException
+	 *                Matrix row dimensions must agree.
+	 * @exception RuntimeException
+	 *                Matrix is singular.
+	 */
 
+	public ComplexMatrix solve(ComplexMatrix B) {
+		if (B.getRowCount() != _rows) {
+			throw new IllegalArgumentException("Matrix row dimensions must agree.");
+		}
+		if (!this.isNonSingular()) {
+			throw new RuntimeException("Matrix is singular.");
+		}
+
+		// Copy right hand side with pivoting
+		int nx = B.getColumnCount();
+		double[] bRe = B.getRealArray();
+		double[] bIm = B.getImagArray();
+		double[] re = new double[_rows * nx];
+		double[] im = new double[_rows * nx];
+		for (int i = 0; i < _rows; ++i) {
+			System.arraycopy(bRe, _pivot[i] * nx, re, i * nx, nx);
+			System.arraycopy(bIm, _pivot[i] * nx, im, i * nx, nx);
+		}
+		substitute(_real, _imag, _cols, re, im, nx);
+		return new ComplexMatrix(re, im, _rows, nx);
+	}
+
+	/**
+	 * Solves L*U*X = B in place. {@code xRe} and {@code xIm} hold the row packed, already permuted, right hand side
+	 * with {@code nx} columns and are overwritten with the solution.
+	 */
+	static void substitute(double[] luRe, double[] luIm, int n, double[] xRe, double[] xIm, int nx) {
 		// Solve L * Y = B(_pivot,:)
-		for (int k = 0; k < cols; ++k) {
-			for (int i = k + 1; i < cols; ++i) {
+		for (int k = 0; k < n; ++k) {
+			final int rowk = k * nx;
+			for (int i = k + 1; i < n; ++i) {
+				final int rowi = i * nx;
+				final double lRe = luRe[i * n + k];
+				final double lIm = luIm[i * n + k];
 				for (int j = 0; j < nx; ++j) {
-					X[i * nx + j].subtractEquals(X[k * nx + j].multiply(_data[i * cols + k]));
+					double yRe = xRe[rowk + j];
+					double yIm = xIm[rowk + j];
+					xRe[rowi + j] -= yRe * lRe - yIm * lIm;
+					xIm[rowi + j] -= yRe * lIm + yIm * lRe;
 				}
 			}
 		}
 		// Solve U * X = Y;
-		for (int k = cols - 1; k >= 0; --k) {
+		for (int k = n - 1; k >= 0; --k) {
+			final int rowk = k * nx;
+			final double dRe = luRe[k * n + k];
+			final double dIm = luIm[k * n + k];
+			final double mag = 1.0 / (dRe * dRe + dIm * dIm);
+			final double invRe = dRe * mag;
+			final double invIm = dIm * -mag;
 			for (int j = 0; j < nx; ++j) {
-				X[k * nx + j].divideEquals(_data[k * cols + k]);
+				double yRe = xRe[rowk + j];
+				double yIm = xIm[rowk + j];
+				xRe[rowk + j] = yRe * invRe - yIm * invIm;
+				xIm[rowk + j] = yRe * invIm + yIm * invRe;
 			}
 			for (int i = 0; i < k; ++i) {
+				final int rowi = i * nx;
+				final double uRe = luRe[i * n + k];
+				final double uIm = luIm[i * n + k];
 				for (int j = 0; j < nx; ++j) {
-					X[i * nx + j].subtractEquals(X[k * nx + j].multiply(_data[i * cols + k]));
+					double yRe = xRe[rowk + j];
+					double yIm = xIm[rowk + j];
+					xRe[rowi + j] -= yRe * uRe - yIm * uIm;
+					xIm[rowi + j] -= yRe * uIm + yIm * uRe;
 				}
 			}
 		}
-		return Xmat;
 	}
 
 	@Override
@@ -218,8 +316,8 @@ public class ComplexLUDecomposition {
 			if (i > 0 && i % _cols == 0) {
 				sb.append(System.lineSeparator());
 			}
-			sb.append(String.format("%.4f", _data[i])).append(" ");
+			sb.append(new Complex(_real[i], _imag[i])).append(" ");
 		}
 		return sb.toString();
 	}
-}
\ No newline at end of file
+}
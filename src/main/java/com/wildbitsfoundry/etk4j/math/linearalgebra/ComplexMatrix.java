@@ -1,12 +1,17 @@
 package com.wildbitsfoundry.etk4j.math.linearalgebra;
 
 import com.wildbitsfoundry.etk4j.math.complex.Complex;
-import com.wildbitsfoundry.etk4j.util.ComplexArrays;
 
 import java.util.Arrays;
 
+/**
+ * Dense complex matrix. The real and imaginary parts are stored in two separate row packed {@code double} arrays
+ * (structure of arrays) so the arithmetic kernels run on primitives. {@link Complex} values are only created at the
+ * API edge, e.g. by {@link #get(int, int)} and {@link #getArray()}.
+ */
 public class ComplexMatrix {
-    private Complex[] data;
+    private double[] real;
+    private double[] imag;
     private int rows;
     private int cols;
 
@@ -14,7 +19,8 @@ public class ComplexMatrix {
         this.rows = rows;
         this.cols = cols;
 
-        this.data = new Complex[rows * cols];
+        this.real = new double[rows * cols];
+        this.imag = new double[rows * cols];
     }
 
     /***
@@ -30,10 +36,12 @@ public class ComplexMatrix {
         }
 
         int dim = this.rows * cols;
-        this.data = new Complex[dim];
+        this.real = new double[dim];
+        this.imag = new double[dim];
         for (int i = 0; i < this.rows; ++i) {
             for (int j = 0; j < cols; ++j) {
-                this.data[i * cols + j] = data[i + j * rows];
+                this.real[i * cols + j] = data[i + j * rows].real();
+                this.imag[i * cols + j] = data[i + j * rows].imag();
             }
         }
     }
@@ -41,31 +49,67 @@ public class ComplexMatrix {
     public ComplexMatrix(Complex[][] data) {
         rows = data.length;
         cols = data[0].length;
-        this.data = ComplexArrays.flatten(data);
+        real = new double[rows * cols];
+        imag = new double[rows * cols];
+        for (int i = 0; i < rows; ++i) {
+            for (int j = 0; j < cols; ++j) {
+                real[i * cols + j] = data[i][j].real();
+                imag[i * cols + j] = data[i][j].imag();
+            }
+        }
     }
 
     // row packed
     // _rows = rows
     // _cols = cols
-    // _data = data;
     public ComplexMatrix(Complex[] data, int rows, int cols) {
         this.rows = rows;
         this.cols = cols;
-        this.data = data;
+        if (data == null) {
+            this.real = null;
+            this.imag = null;
+        } else {
+            this.real = new double[data.length];
+            this.imag = new double[data.length];
+            for (int i = 0; i < data.length; ++i) {
+                this.real[i] = data[i].real();
+                this.imag[i] = data[i].imag();
+            }
+        }
+    }
+
+    /**
+     * Constructs a {@code ComplexMatrix} from row packed real and imaginary parts. The arrays are used as the
+     * internal storage, no copies are made.
+     *
+     * @param real The row packed real parts.
+     * @param imag The row packed imaginary parts.
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     */
+    public ComplexMatrix(double[] real, double[] imag, int rows, int cols) {
+        if (real.length != imag.length) {
+            throw new IllegalArgumentException("The real and imaginary arrays must have the same length.");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.real = real;
+        this.imag = imag;
     }
 
     public ComplexMatrix(ComplexMatrix matrix) {
         rows = matrix.rows;
         cols = matrix.cols;
-        data = new Complex[rows * cols];
-        System.arraycopy(matrix.data, 0, this.data, 0, this.rows * this.cols);
+        real = Arrays.copyOf(matrix.real, rows * cols);
+        imag = Arrays.copyOf(matrix.imag, rows * cols);
     }
 
     public ComplexMatrix(int rows, int cols, double val) {
         this.rows = rows;
         this.cols = cols;
-        data = new Complex[this.rows * this.cols];
-        Arrays.fill(data, val);
+        real = new double[this.rows * this.cols];
+        imag = new double[this.rows * this.cols];
+        Arrays.fill(real, val);
     }
 
     /***
@@ -73,12 +117,12 @@ public class ComplexMatrix {
      * @return
      */
     public ComplexMatrix copy() {
-        Complex[] data = ComplexArrays.deepCopy(this.data);
-        return new ComplexMatrix(data, this.rows, this.cols);
+        return new ComplexMatrix(this);
     }
 
     public static ComplexMatrix fromRealMatrix(Matrix m) {
-        return new ComplexMatrix(ComplexArrays.fromReal(m.getArray()), m.getRowCount(), m.getColumnCount());
+        return new ComplexMatrix(m.getArrayCopy(), new double[m.getRowCount() * m.getColumnCount()],
+                m.getRowCount(), m.getColumnCount());
     }
     // region SubMatrix
 
@@ -94,22 +138,17 @@ public class ComplexMatrix {
     }
 
     public Complex get(int i, int j) {
-        if(i < 0) {
-            throw new ArrayIndexOutOfBoundsException("Index i cannot be less thant zero.");
-        }
-        if (i >= rows) {
-            throw new ArrayIndexOutOfBoundsException(String.format("Index i: %d >= than number of rows: %d.", i, rows));
-        }
-        if(j < 0) {
-            throw new ArrayIndexOutOfBoundsException("Index j cannot be less thant zero.");
-        }
-        if (j >= cols) {
-            throw new ArrayIndexOutOfBoundsException(String.format("Index j: %d >= than number of columns: %d.", j, cols));
-        }
-        return data[i * cols + j];
+        checkIndexes(i, j);
+        return new Complex(real[i * cols + j], imag[i * cols + j]);
     }
 
     public void set(int i, int j, Complex val) {
+        checkIndexes(i, j);
+        real[i * cols + j] = val.real();
+        imag[i * cols + j] = val.imag();
+    }
+
+    private void checkIndexes(int i, int j) {
         if(i < 0) {
             throw new ArrayIndexOutOfBoundsException("Index i cannot be less thant zero.");
         }
@@ -122,26 +161,61 @@ public class ComplexMatrix {
         if (j >= cols) {
             throw new ArrayIndexOutOfBoundsException(String.format("Index j: %d >= than number of columns: %d.", j, cols));
         }
-        data[i * cols + j] = val;
     }
 
+    /**
+     * Retrieves the row packed data of the {@code ComplexMatrix}. The values are copies, changes to the returned
+     * array do not change the contents of the {@code ComplexMatrix}.
+     *
+     * @return The row packed data.
+     */
     public Complex[] getArray() {
-        return this.data;
+        if (real == null) {
+            return null;
+        }
+        Complex[] data = new Complex[real.length];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = new Complex(real[i], imag[i]);
+        }
+        return data;
     }
 
     public Complex[] getArrayCopy() {
-        return ComplexArrays.deepCopy(data);
+        return getArray();
+    }
+
+    /**
+     * Retrieves the row packed real parts. Changes to this array will change the contents of the
+     * {@code ComplexMatrix}.
+     *
+     * @return The internal storage of the real parts.
+     */
+    public double[] getRealArray() {
+        return real;
+    }
+
+    /**
+     * Retrieves the row packed imaginary parts. Changes to this array will change the contents of the
+     * {@code ComplexMatrix}.
+     *
+     * @return The internal storage of the imaginary parts.
+     */
+    public double[] getImagArray() {
+        return imag;
     }
     // endregion
 
     // region arithmetic operations
     public ComplexMatrix add(ComplexMatrix m) {
         checkMatrixDimensions(m);
-        Complex[] result = new Complex[this.rows * this.cols];
-        for (int i = 0; i < this.rows * this.cols; ++i) {
-            result[i] = this.data[i].add(m.data[i]);
+        final int length = this.rows * this.cols;
+        double[] re = new double[length];
+        double[] im = new double[length];
+        for (int i = 0; i < length; ++i) {
+            re[i] = this.real[i] + m.real[i];
+            im[i] = this.imag[i] + m.imag[i];
         }
-        return new ComplexMatrix(result, rows, cols);
+        return new ComplexMatrix(re, im, rows, cols);
     }
 
     public void addEquals(Matrix m) {
@@ -149,18 +223,19 @@ public class ComplexMatrix {
         checkMatrixDimensions(m);
         final int length = rows * cols;
         for (int i = 0; i < length; ++i) {
-            data[i].addEquals(mData[i]);
+            real[i] += mData[i];
         }
     }
 
     public ComplexMatrix subtract(Matrix m) {
         double[] data = m.getArray();
         checkMatrixDimensions(m);
-        Complex[] result = new Complex[this.rows * this.cols];
-        for (int i = 0; i < this.rows * this.cols; ++i) {
-            result[i] = this.data[i].subtract(data[i]);
+        final int length = this.rows * this.cols;
+        double[] re = new double[length];
+        for (int i = 0; i < length; ++i) {
+            re[i] = this.real[i] - data[i];
         }
-        return new ComplexMatrix(result, rows, cols);
+        return new ComplexMatrix(re, Arrays.copyOf(imag, length), rows, cols);
     }
 
     public ComplexMatrix multiply(Matrix matrix) {
@@ -176,22 +251,13 @@ public class ComplexMatrix {
             throw new IllegalArgumentException("Matrix inner dimensions must agree. Check that the number of" +
                     "columns of the first matrix equal the number of rows of the second matrix.");
         }
-        Complex[] result = new Complex[a.rows * bCols];
-        double[] bColJ = new double[a.cols];
-        double[] bData = b.getArray();
-        for (int j = 0; j < bCols; j++) {
-            for (int k = 0; k < a.cols; k++) {
-                bColJ[k] = bData[k * bCols + j];
-            }
-            for (int i = 0; i < a.rows; i++) {
-                Complex s = new Complex();
-                for (int k = 0; k < a.cols; k++) {
-                    s.addEquals(a.data[k + i * a.cols].multiply(bColJ[k]));
-                }
-                result[i * bCols + j] = s;
-            }
-        }
-        c.data = result;
+        // B is real so A * B = re(A) * B + j * im(A) * B.
+        double[] re = new double[a.rows * bCols];
+        double[] im = new double[a.rows * bCols];
+        Gemm.multiply(a.rows, bCols, a.cols, a.real, b.getArray(), re);
+        Gemm.multiply(a.rows, bCols, a.cols, a.imag, b.getArray(), im);
+        c.real = re;
+        c.imag = im;
         c.rows = a.rows;
         c.cols = bCols;
     }
@@ -199,10 +265,31 @@ public class ComplexMatrix {
     public void multiplyEquals(Matrix matrix) {
         multiplyOp(this, matrix, this);
     }
+
+    /**
+     * Complex {@code Matrix} multiplication.
+     * @param matrix The complex {@code Matrix} to multiply;
+     * @return {@code A * B}.
+     */
+    public ComplexMatrix multiply(ComplexMatrix matrix) {
+        if (matrix.rows != cols) {
+            throw new IllegalArgumentException("Matrix inner dimensions must agree. Check that the number of" +
+                    "columns of the first matrix equal the number of rows of the second matrix.");
+        }
+        final int n = matrix.cols;
+        // re(C) = re(A) * re(B) - im(A) * im(B), im(C) = re(A) * im(B) + im(A) * re(B)
+        double[] re = new double[rows * n];
+        double[] im = new double[rows * n];
+        Gemm.multiply(rows, n, cols, 1.0, real, 0, cols, 1, matrix.real, 0, n, 1, re, 0, n);
+        Gemm.multiply(rows, n, cols, -1.0, imag, 0, cols, 1, matrix.imag, 0, n, 1, re, 0, n);
+        Gemm.multiply(rows, n, cols, 1.0, real, 0, cols, 1, matrix.imag, 0, n, 1, im, 0, n);
+        Gemm.multiply(rows, n, cols, 1.0, imag, 0, cols, 1, matrix.real, 0, n, 1, im, 0, n);
+        return new ComplexMatrix(re, im, rows, n);
+    }
     // endregion
 
     public boolean isEmpty() {
-        if ((rows == 0 && cols == 0) || data == null || data.length == 0) {
+        if ((rows == 0 && cols == 0) || real == null || real.length == 0) {
             return true;
         }
         return false;
@@ -210,18 +297,20 @@ public class ComplexMatrix {
 
     public ComplexMatrix transpose() {
         if (this.isEmpty()) {
-            return new ComplexMatrix(null, 0, 0);
+            return new ComplexMatrix(new double[0], new double[0], 0, 0);
         }
-        Complex[] result = new Complex[rows * cols];
+        double[] re = new double[rows * cols];
+        double[] im = new double[rows * cols];
         final int trows = cols;
         final int tcols = rows;
 
         for (int i = 0; i < rows; ++i) {
             for (int j = 0; j < cols; ++j) {
-                result[j * tcols + i] = data[i * cols + j];
+                re[j * tcols + i] = real[i * cols + j];
+                im[j * tcols + i] = imag[i * cols + j];
             }
         }
-        return new ComplexMatrix(result, trows, tcols);
+        return new ComplexMatrix(re, im, trows, tcols);
     }
 
     public ComplexMatrix inv() {
@@ -244,6 +333,10 @@ public class ComplexMatrix {
 //        }
     }
 
+    public ComplexMatrix solve(ComplexMatrix B) {
+        return new ComplexLUDecomposition(this).solve(B);
+    }
+
     // endregion
 
     @Override
@@ -253,7 +346,7 @@ public class ComplexMatrix {
             if (i > 0 && i % cols == 0) {
                 sb.append(System.lineSeparator());
             }
-            sb.append(String.format("%s", data[i])).append(" ");
+            sb.append(String.format("%s", new Complex(real[i], imag[i]))).append(" ");
         }
         sb.setLength(sb.length() - 1);
         return sb.toString();
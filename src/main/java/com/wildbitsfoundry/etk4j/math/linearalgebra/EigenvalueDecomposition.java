@@ -3,6 +3,8 @@ package com.wildbitsfoundry.etk4j.math.linearalgebra;
 import com.wildbitsfoundry.etk4j.constants.ConstantsETK;
 import com.wildbitsfoundry.etk4j.math.MathETK;
 
+import java.util.Arrays;
+
 /**
  * Eigenvalues and eigenvectors of a real matrix.
  * <P>
@@ -67,11 +69,17 @@ public class EigenvalueDecomposition {
 	 */
 	private double[] ort;
 
+	/**
+	 * Stop the nonsymmetric algorithm at the real Schur form.
+	 */
+	private boolean schurOnly;
+
 	/*
 	 * ------------------------ Private Methods ------------------------
 	 */
 
 	// Symmetric Householder reduction to tridiagonal form.
+	// V holds the transpose of the EISPACK array (see the constructor).
 
 	private void tred2() {
 
@@ -81,7 +89,7 @@ public class EigenvalueDecomposition {
 		// Fortran subroutine in EISPACK.
 
 		for (int j = 0; j < _dim; j++) {
-			d[j] = V[(_dim - 1) * _dim + j];
+			d[j] = V[j * _dim + (_dim - 1)];
 		}
 
 		// Householder reduction to tridiagonal form.
@@ -98,9 +106,9 @@ public class EigenvalueDecomposition {
 			if (scale == 0.0) {
 				e[i] = d[i - 1];
 				for (int j = 0; j < i; j++) {
-					d[j] = V[(i - 1) * _dim + j];
-					V[i * _dim + j] = 0.0;
+					d[j] = V[j * _dim + (i - 1)];
 					V[j * _dim + i] = 0.0;
+					V[i * _dim + j] = 0.0;
 				}
 			} else {
 
@@ -126,11 +134,11 @@ public class EigenvalueDecomposition {
 
 				for (int j = 0; j < i; j++) {
 					f = d[j];
-					V[j * _dim + i] = f;
+					V[i * _dim + j] = f;
 					g = e[j] + V[j * _dim + j] * f;
 					for (int k = j + 1; k <= i - 1; k++) {
-						g += V[k * _dim + j] * d[k];
-						e[k] += V[k * _dim + j] * f;
+						g += V[j * _dim + k] * d[k];
+						e[k] += V[j * _dim + k] * f;
 					}
 					e[j] = g;
 				}
@@ -147,10 +155,10 @@ public class EigenvalueDecomposition {
 					f = d[j];
 					g = e[j];
 					for (int k = j; k <= i - 1; k++) {
-						V[k * _dim + j] -= (f * e[k] + g * d[k]);
+						V[j * _dim + k] -= (f * e[k] + g * d[k]);
 					}
-					d[j] = V[(i - 1) * _dim + j];
-					V[i * _dim + j] = 0.0;
+					d[j] = V[j * _dim + (i - 1)];
+					V[j * _dim + i] = 0.0;
 				}
 			}
 			d[i] = h;
@@ -159,30 +167,30 @@ public class EigenvalueDecomposition {
 		// Accumulate transformations.
 
 		for (int i = 0; i < _dim - 1; i++) {
-			V[(_dim - 1) * _dim + i] = V[i * _dim + i];
+			V[i * _dim + (_dim - 1)] = V[i * _dim + i];
 			V[i * _dim + i] = 1.0;
 			double h = d[i + 1];
 			if (h != 0.0) {
 				for (int k = 0; k <= i; k++) {
-					d[k] = V[k * _dim + (i + 1)] / h;
+					d[k] = V[(i + 1) * _dim + k] / h;
 				}
 				for (int j = 0; j <= i; j++) {
 					double g = 0.0;
 					for (int k = 0; k <= i; k++) {
-						g += V[k * _dim + (i + 1)] * V[k * _dim + j];
+						g += V[(i + 1) * _dim + k] * V[j * _dim + k];
 					}
 					for (int k = 0; k <= i; k++) {
-						V[k * _dim + j] -= g * d[k];
+						V[j * _dim + k] -= g * d[k];
 					}
 				}
 			}
 			for (int k = 0; k <= i; k++) {
-				V[k * _dim + (i + 1)] = 0.0;
+				V[(i + 1) * _dim + k] = 0.0;
 			}
 		}
 		for (int j = 0; j < _dim; j++) {
-			d[j] = V[(_dim - 1) * _dim + j];
-			V[(_dim - 1) * _dim + j] = 0.0;
+			d[j] = V[j * _dim + (_dim - 1)];
+			V[j * _dim + (_dim - 1)] = 0.0;
 		}
 		V[(_dim - 1) * _dim + (_dim - 1)] = 1.0;
 		e[0] = 0.0;
@@ -268,9 +276,9 @@ public class EigenvalueDecomposition {
 						// Accumulate transformation.
 
 						for (int k = 0; k < _dim; k++) {
-							h = V[k * _dim + (i + 1)];
-							V[k * _dim + (i + 1)] = s * V[k * _dim + i] + c * h;
-							V[k * _dim + i] = c * V[k * _dim + i] - s * h;
+							h = V[(i + 1) * _dim + k];
+							V[(i + 1) * _dim + k] = s * V[i * _dim + k] + c * h;
+							V[i * _dim + k] = c * V[i * _dim + k] - s * h;
 						}
 					}
 					p = -s * s2 * c3 * el1 * e[l] / dl1;
@@ -300,9 +308,9 @@ public class EigenvalueDecomposition {
 				d[k] = d[i];
 				d[i] = p;
 				for (int j = 0; j < _dim; j++) {
-					p = V[j * _dim + i];
-					V[j * _dim + i] = V[j * _dim + k];
-					V[j * _dim + k] = p;
+					p = V[i * _dim + j];
+					V[i * _dim + j] = V[k * _dim + j];
+					V[k * _dim + j] = p;
 				}
 			}
 		}
@@ -319,6 +327,7 @@ public class EigenvalueDecomposition {
 
 		int low = 0;
 		int high = _dim - 1;
+		double[] work = new double[_dim];
 
 		for (int m = low + 1; m <= high - 1; m++) {
 
@@ -347,14 +356,24 @@ public class EigenvalueDecomposition {
 				// Apply Householder similarity transformation
 				// H = (I-u*u'/h)*H*(I-u*u')/h)
 
-				for (int j = m; j < _dim; j++) {
-					double f = 0.0;
-					for (int i = high; i >= m; i--) {
-						f += ort[i] * H[i][j];
+				// The column sums are accumulated a row at a time, in the
+				// same order, so H is swept along its rows.
+				Arrays.fill(work, m, _dim, 0.0);
+				for (int i = high; i >= m; i--) {
+					final double oi = ort[i];
+					final double[] Hi = H[i];
+					for (int j = m; j < _dim; j++) {
+						work[j] += oi * Hi[j];
 					}
-					f = f / h;
-					for (int i = m; i <= high; i++) {
-						H[i][j] -= f * ort[i];
+				}
+				for (int j = m; j < _dim; j++) {
+					work[j] = work[j] / h;
+				}
+				for (int i = m; i <= high; i++) {
+					final double oi = ort[i];
+					final double[] Hi = H[i];
+					for (int j = m; j < _dim; j++) {
+						Hi[j] -= work[j] * oi;
 					}
 				}
 
@@ -386,15 +405,23 @@ public class EigenvalueDecomposition {
 				for (int i = m + 1; i <= high; i++) {
 					ort[i] = H[i][m - 1];
 				}
-				for (int j = m; j <= high; j++) {
-					double g = 0.0;
-					for (int i = m; i <= high; i++) {
-						g += ort[i] * V[i * _dim + j];
+				Arrays.fill(work, m, high + 1, 0.0);
+				for (int i = m; i <= high; i++) {
+					final double oi = ort[i];
+					final int rowi = i * _dim;
+					for (int j = m; j <= high; j++) {
+						work[j] += oi * V[rowi + j];
 					}
+				}
+				for (int j = m; j <= high; j++) {
 					// Double division avoids possible underflow
-					g = (g / ort[m]) / H[m][m - 1];
-					for (int i = m; i <= high; i++) {
-						V[i * _dim + j] += g * ort[i];
+					work[j] = (work[j] / ort[m]) / H[m][m - 1];
+				}
+				for (int i = m; i <= high; i++) {
+					final double oi = ort[i];
+					final int rowi = i * _dim;
+					for (int j = m; j <= high; j++) {
+						V[rowi + j] += work[j] * oi;
 					}
 				}
 			}
@@ -702,6 +729,10 @@ public class EigenvalueDecomposition {
 			} // check convergence
 		} // while (n >= low)
 
+		if (schurOnly) {
+			return;
+		}
+
 		// Backsubstitute to find vectors of upper triangular form
 
 		if (norm == 0.0) {
@@ -876,12 +907,45 @@ public class EigenvalueDecomposition {
 	 */
 
 	public EigenvalueDecomposition(Matrix Arg, boolean balance) {
+		this(Arg, balance, false);
+	}
+
+	/**
+	 * @param Arg
+	 *            Square matrix
+	 * @param balance
+	 *            Balance a nonsymmetric matrix before reducing it.
+	 * @param symmetric
+	 *            Use the symmetric algorithm without checking for symmetry.
+	 *            Only the lower triangle of the matrix is referenced.
+	 */
+	EigenvalueDecomposition(Matrix Arg, boolean balance, boolean symmetric) {
+		this(Arg, balance, symmetric, false);
+	}
+
+	/**
+	 * @param Arg
+	 *            Square matrix
+	 * @param balance
+	 *            Balance a nonsymmetric matrix before reducing it.
+	 * @param symmetric
+	 *            Use the symmetric algorithm without checking for symmetry.
+	 *            Only the lower triangle of the matrix is referenced.
+	 * @param schurOnly
+	 *            Stop a nonsymmetric matrix at its real Schur form, V then
+	 *            holds the Schur vectors instead of the eigenvectors, see
+	 *            {@link #getSchurForm()}.
+	 */
+	EigenvalueDecomposition(Matrix Arg, boolean balance, boolean symmetric, boolean schurOnly) {
+		this.schurOnly = schurOnly;
 		double[] A = Arg.getArray();
 		_dim = Arg.getColumnCount();
 		issymmetric = true;
-		for (int j = 0; (j < _dim) & issymmetric; j++) {
-			for (int i = 0; (i < _dim) & issymmetric; i++) {
-				issymmetric = (A[i * _dim + j] == A[j * _dim + i]);
+		if (!symmetric) {
+			for (int j = 0; (j < _dim) & issymmetric; j++) {
+				for (int i = 0; (i < _dim) & issymmetric; i++) {
+					issymmetric = (A[i * _dim + j] == A[j * _dim + i]);
+				}
 			}
 		}
 		if(balance && !issymmetric) {
@@ -893,9 +957,12 @@ public class EigenvalueDecomposition {
 		e = new double[_dim];
 
 		if (issymmetric) {
+			// The symmetric routines work on V' so that all their inner
+			// loops, including the accumulation of the rotations, run
+			// along rows of the row packed storage.
 			for (int i = 0; i < _dim; i++) {
 				for (int j = 0; j < _dim; j++) {
-					V[i * _dim + j] = A[i * _dim + j];
+					V[j * _dim + i] = A[i * _dim + j];
 				}
 			}
 
@@ -905,6 +972,14 @@ public class EigenvalueDecomposition {
 			// Diagonalize.
 			tql2();
 
+			for (int i = 0; i < _dim; i++) {
+				for (int j = i + 1; j < _dim; j++) {
+					double t = V[i * _dim + j];
+					V[i * _dim + j] = V[j * _dim + i];
+					V[j * _dim + i] = t;
+				}
+			}
+
 		} else {
 			H = new double[_dim][_dim];
 			ort = new double[_dim];
@@ -937,6 +1012,36 @@ public class EigenvalueDecomposition {
 		return new Matrix(V, _dim, _dim);
 	}
 
+	/**
+	 * Quasi upper triangular real Schur form T, with A = V*T*V' when the
+	 * decomposition stopped at the Schur form. The 1-by-1 diagonal blocks hold
+	 * the real eigenvalues and the 2-by-2 blocks the complex conjugate pairs.
+	 * Negligible sub-diagonal elements left by the QR iteration are set to
+	 * zero, so T(i + 1, i) is non zero only inside a 2-by-2 block.
+	 * 
+	 * @return T
+	 */
+	Matrix getSchurForm() {
+		Matrix X = new Matrix(_dim, _dim);
+		double[] T = X.getArray();
+		if (issymmetric) {
+			for (int i = 0; i < _dim; i++) {
+				T[i * _dim + i] = d[i];
+			}
+			return X;
+		}
+		for (int i = 0; i < _dim; i++) {
+			for (int j = Math.max(i - 1, 0); j < _dim; j++) {
+				T[i * _dim + j] = H[i][j];
+			}
+			// A complex pair starts at i when e[i] > 0.
+			if (i > 0 && !(e[i - 1] > 0)) {
+				T[i * _dim + i - 1] = 0.0;
+			}
+		}
+		return X;
+	}
+
 	/**
 	 * Return the real parts of the eigenvalues
 	 * 
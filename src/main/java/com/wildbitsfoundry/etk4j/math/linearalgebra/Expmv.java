@@ -0,0 +1,342 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.sparse.SparseMatrix;
+
+import java.util.Arrays;
+
+/**
+ * Action of the matrix exponential, {@code w = e<sup>t * A</sup> * v}, without forming {@code e<sup>t * A</sup>}.
+ * <P>
+ * Both methods only need products of {@code A} with vectors, so they work with dense matrices, sparse matrices and
+ * matrix free {@link LinearOperator}s, and their cost is a multiple of the cost of one product instead of the
+ * {@code O(n<sup>3</sup>)} of {@link Matrix#expm()}.
+ * <ul>
+ *     <li>{@link #taylor(LinearOperator, double, double[])} truncates the Taylor series of
+ *     {@code e<sup>t * A / s</sup>} at degree {@code m} and applies it {@code s} times. The pair {@code (m, s)} with
+ *     the least products that keeps the backward error below the unit roundoff is picked from
+ *     {@code t * ||A||<sub>1</sub>} (Al-Mohy and Higham, 2011). It needs no storage besides a few vectors.</li>
+ *     <li>{@link #krylov(LinearOperator, double, double[])} projects {@code A} onto a Krylov subspace of dimension
+ *     {@code m} with the Arnoldi process and exponentiates the small Hessenberg matrix, taking time steps sized to
+ *     meet a local error tolerance (Sidje, Expokit, 1998). It usually needs fewer products than the Taylor method
+ *     when {@code t * ||A||} is large, at the price of storing {@code m + 1} basis vectors.</li>
+ * </ul>
+ * The overloads without a norm argument compute {@code ||A||<sub>1</sub>} for {@link Matrix} and
+ * {@link SparseMatrix} operators. Other operators must supply it, an upper bound is fine but increases the cost.
+ *
+ * @see <a href="https://doi.org/10.1137/100788860">A. H. Al-Mohy and N. J. Higham, Computing the Action of the
+ * Matrix Exponential, with an Application to Exponential Integrators, SIAM J. Sci. Comput. 33(2), 2011</a>
+ * @see <a href="https://doi.org/10.1145/285861.285868">R. B. Sidje, Expokit: A Software Package for Computing Matrix
+ * Exponentials, ACM Trans. Math. Softw. 24(1), 1998</a>
+ */
+public final class Expmv {
+    /**
+     * Unit roundoff, the backward error targeted by the Taylor method.
+     */
+    private static final double TOLERANCE = Math.ulp(1.0) / 2.0;
+
+    /**
+     * Degrees of the Taylor approximants and the largest {@code t * ||A||} at which each of them meets the unit
+     * roundoff backward error bound.
+     */
+    private static final int[] DEGREES = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20,
+            21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 35, 40, 45, 50, 55};
+    private static final double[] THETA = {2.29e-16, 2.58e-8, 1.39e-5, 3.40e-4, 2.40e-3, 9.07e-3, 2.38e-2, 5.00e-2,
+            8.96e-2, 1.44e-1, 2.14e-1, 3.00e-1, 4.00e-1, 5.14e-1, 6.41e-1, 7.81e-1, 9.31e-1, 1.09, 1.26, 1.44, 1.62,
+            1.82, 2.01, 2.22, 2.43, 2.64, 2.86, 3.08, 3.31, 3.54, 4.7, 6.0, 7.2, 8.5, 9.9};
+
+    /**
+     * Default dimension of the Krylov subspace.
+     */
+    public static final int DEFAULT_KRYLOV_DIMENSION = 30;
+
+    /**
+     * Default local error tolerance of the Krylov method.
+     */
+    public static final double DEFAULT_KRYLOV_TOLERANCE = 1e-12;
+
+    private static final int MAX_REJECTIONS = 10;
+
+    private Expmv() {
+    }
+
+    /**
+     * Computes {@code e<sup>t * A</sup> * v} with the truncated Taylor series.
+     *
+     * @param A A square {@link Matrix} or {@link SparseMatrix}.
+     * @param t The time.
+     * @param v The vector, it is not modified.
+     * @return {@code e<sup>t * A</sup> * v}.
+     */
+    public static double[] taylor(LinearOperator A, double t, double[] v) {
+        return taylor(A, norm1(A), t, v);
+    }
+
+    /**
+     * Computes {@code e<sup>t * A</sup> * v} with the truncated Taylor series.
+     *
+     * @param A     A square operator.
+     * @param norm1 The 1-norm of {@code A} or an upper bound of it.
+     * @param t     The time.
+     * @param v     The vector, it is not modified.
+     * @return {@code e<sup>t * A</sup> * v}.
+     */
+    public static double[] taylor(LinearOperator A, double norm1, double t, double[] v) {
+        checkArguments(A, v);
+        final int n = v.length;
+        double[] F = Arrays.copyOf(v, n);
+        final double tnorm = Math.abs(t) * norm1;
+        if (tnorm == 0.0) {
+            return F;
+        }
+        // Cheapest (m, s) in number of products m * s.
+        int m = 0;
+        int s = 0;
+        double cost = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < DEGREES.length; ++i) {
+            final double steps = Math.ceil(tnorm / THETA[i]);
+            if (DEGREES[i] * steps < cost) {
+                cost = DEGREES[i] * steps;
+                m = DEGREES[i];
+                s = (int) steps;
+            }
+        }
+        if (!(cost < Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("The norm of t * A must be finite.");
+        }
+
+        double[] b = Arrays.copyOf(v, n);
+        double[] w = new double[n];
+        for (int i = 0; i < s; ++i) {
+            double c1 = normInf(b);
+            for (int k = 1; k <= m; ++k) {
+                A.multiply(b, w);
+                final double scale = t / ((double) s * k);
+                for (int j = 0; j < n; ++j) {
+                    b[j] = scale * w[j];
+                    F[j] += b[j];
+                }
+                final double c2 = normInf(b);
+                // Two consecutive terms below the tolerance, the rest of the series is negligible.
+                if (c1 + c2 <= TOLERANCE * normInf(F)) {
+                    break;
+                }
+                c1 = c2;
+            }
+            System.arraycopy(F, 0, b, 0, n);
+        }
+        return F;
+    }
+
+    /**
+     * Computes {@code e<sup>t * A</sup> * v} with the Krylov method, a subspace of dimension
+     * {@link #DEFAULT_KRYLOV_DIMENSION} and a local error tolerance of {@link #DEFAULT_KRYLOV_TOLERANCE}.
+     *
+     * @param A A square {@link Matrix} or {@link SparseMatrix}.
+     * @param t The time.
+     * @param v The vector, it is not modified.
+     * @return {@code e<sup>t * A</sup> * v}.
+     */
+    public static double[] krylov(LinearOperator A, double t, double[] v) {
+        return krylov(A, norm1(A), t, v, DEFAULT_KRYLOV_DIMENSION, DEFAULT_KRYLOV_TOLERANCE);
+    }
+
+    /**
+     * Computes {@code e<sup>t * A</sup> * v} with the Krylov method.
+     *
+     * @param A         A square operator.
+     * @param norm1     The 1-norm of {@code A} or an estimate of it, used to size the first time step.
+     * @param t         The time.
+     * @param v         The vector, it is not modified.
+     * @param dimension The dimension of the Krylov subspace.
+     * @param tolerance The local error tolerance, relative to the norm of {@code v}.
+     * @return {@code e<sup>t * A</sup> * v}.
+     * @throws RuntimeException If the time step cannot be reduced enough to meet the tolerance.
+     */
+    public static double[] krylov(LinearOperator A, double norm1, double t, double[] v, int dimension,
+                                  double tolerance) {
+        checkArguments(A, v);
+        if (dimension < 1) {
+            throw new IllegalArgumentException("The Krylov subspace dimension must be at least one.");
+        }
+        if (!(tolerance > 0.0)) {
+            throw new IllegalArgumentException("The tolerance must be positive.");
+        }
+        final int n = v.length;
+        double[] w = Arrays.copyOf(v, n);
+        double beta = norm(w);
+        final double tOut = Math.abs(t);
+        if (beta == 0.0 || tOut == 0.0 || norm1 == 0.0) {
+            return w;
+        }
+        final int m = Math.min(n, dimension);
+        final double sgn = Math.signum(t);
+        final double breakdownTolerance = 1e-7;
+        final double gamma = 0.9;
+        final double delta = 1.2;
+        final double tol = tolerance * beta;
+
+        double[][] V = new double[m + 1][n];
+        double[] p = new double[n];
+        // Hessenberg matrix augmented with two rows and columns for the error estimate, stored by rows.
+        double[] H = new double[(m + 2) * (m + 2)];
+        double fact = Math.pow((m + 1) / Math.E, m + 1) * Math.sqrt(2.0 * Math.PI * (m + 1));
+        double tNew = (1.0 / norm1) * Math.pow((fact * tol) / (4.0 * beta * norm1), 1.0 / m);
+        tNew = roundStep(tNew);
+        double tNow = 0.0;
+        while (tNow < tOut) {
+            double tStep = Math.min(tOut - tNow, tNew);
+            Arrays.fill(H, 0.0);
+            for (int i = 0; i < n; ++i) {
+                V[0][i] = w[i] / beta;
+            }
+            int mb = m;
+            int k1 = 2;
+            final int ld = m + 2;
+            for (int j = 0; j < m; ++j) {
+                A.multiply(V[j], p);
+                for (int i = 0; i <= j; ++i) {
+                    final double hij = dot(V[i], p);
+                    H[i * ld + j] = hij;
+                    final double[] vi = V[i];
+                    for (int l = 0; l < n; ++l) {
+                        p[l] -= hij * vi[l];
+                    }
+                }
+                final double s = norm(p);
+                if (s < breakdownTolerance * norm1) {
+                    // Happy breakdown, the subspace is invariant and the projection is exact.
+                    k1 = 0;
+                    mb = j + 1;
+                    tStep = tOut - tNow;
+                    break;
+                }
+                H[(j + 1) * ld + j] = s;
+                for (int l = 0; l < n; ++l) {
+                    V[j + 1][l] = p[l] / s;
+                }
+            }
+            double avnorm = 0.0;
+            if (k1 != 0) {
+                H[(m + 1) * ld + m] = 1.0;
+                A.multiply(V[m], p);
+                avnorm = norm(p);
+            }
+
+            Matrix F;
+            double errLoc;
+            double xm = 1.0 / m;
+            int rejections = 0;
+            while (true) {
+                final int mx = mb + k1;
+                double[] h = new double[mx * mx];
+                for (int i = 0; i < mx; ++i) {
+                    for (int j = 0; j < mx; ++j) {
+                        h[i * mx + j] = sgn * tStep * H[i * ld + j];
+                    }
+                }
+                F = new Matrix(h, mx, mx).expm();
+                if (k1 == 0) {
+                    errLoc = breakdownTolerance;
+                    break;
+                }
+                final double phi1 = Math.abs(beta * F.get(m, 0));
+                final double phi2 = Math.abs(beta * F.get(m + 1, 0) * avnorm);
+                if (phi1 > 10.0 * phi2) {
+                    errLoc = phi2;
+                    xm = 1.0 / m;
+                } else if (phi1 > phi2) {
+                    errLoc = (phi1 * phi2) / (phi1 - phi2);
+                    xm = 1.0 / m;
+                } else {
+                    errLoc = phi1;
+                    xm = 1.0 / Math.max(1, m - 1);
+                }
+                if (errLoc <= delta * tStep * tol) {
+                    break;
+                }
+                if (++rejections > MAX_REJECTIONS) {
+                    throw new RuntimeException("The requested tolerance is too high for the Krylov method.");
+                }
+                tStep = roundStep(gamma * tStep * Math.pow(tStep * tol / errLoc, xm));
+            }
+
+            // w = beta * V * F(:, 0)
+            final int mx = mb + Math.max(0, k1 - 1);
+            Arrays.fill(w, 0.0);
+            for (int j = 0; j < mx; ++j) {
+                final double c = beta * F.get(j, 0);
+                final double[] vj = V[j];
+                for (int l = 0; l < n; ++l) {
+                    w[l] += c * vj[l];
+                }
+            }
+            beta = norm(w);
+            tNow += tStep;
+            if (beta == 0.0) {
+                break;
+            }
+            tNew = roundStep(gamma * tStep * Math.pow(tStep * tol / Math.max(errLoc, Double.MIN_NORMAL), xm));
+        }
+        return w;
+    }
+
+    /**
+     * Rounds a step size up to two significant digits.
+     */
+    private static double roundStep(double step) {
+        if (!(step < Double.MAX_VALUE)) {
+            return Double.MAX_VALUE;
+        }
+        if (!(step > Double.MIN_NORMAL)) {
+            throw new RuntimeException("The time step of the Krylov method underflowed.");
+        }
+        final double s = Math.pow(10.0, Math.floor(Math.log10(step)) - 1);
+        return Math.ceil(step / s) * s;
+    }
+
+    /**
+     * 1-norm of a {@link Matrix} or {@link SparseMatrix}.
+     *
+     * @param A The operator.
+     * @return The maximum column sum of {@code A}.
+     * @throws IllegalArgumentException If {@code A} is neither a {@code Matrix} nor a {@code SparseMatrix}.
+     */
+    public static double norm1(LinearOperator A) {
+        if (A instanceof Matrix) {
+            return ((Matrix) A).norm1();
+        }
+        if (A instanceof SparseMatrix) {
+            return ((SparseMatrix) A).norm1();
+        }
+        throw new IllegalArgumentException("The 1-norm of the operator is unknown, pass it explicitly.");
+    }
+
+    private static void checkArguments(LinearOperator A, double[] v) {
+        if (A.getRowCount() != A.getColumnCount()) {
+            throw new IllegalArgumentException("Operator must be square.");
+        }
+        if (v.length != A.getColumnCount()) {
+            throw new IllegalArgumentException("Vector length must equal the number of columns.");
+        }
+    }
+
+    private static double normInf(double[] x) {
+        double norm = 0.0;
+        for (double xi : x) {
+            norm = Math.max(norm, Math.abs(xi));
+        }
+        return norm;
+    }
+
+    private static double dot(double[] x, double[] y) {
+        double sum = 0.0;
+        for (int i = 0; i < x.length; ++i) {
+            sum += x[i] * y[i];
+        }
+        return sum;
+    }
+
+    private static double norm(double[] x) {
+        return Math.sqrt(dot(x, x));
+    }
+}
@@ -0,0 +1,152 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import static com.wildbitsfoundry.etk4j.math.linearalgebra.Matrices.forwardSubstitutionSolve;
+
+/**
+ * A reusable factorization of a {@link Matrix} for solving {@code A * X = B}.
+ * <p>
+ * The decomposition is picked by the shape and symmetry of A:
+ * <pre>
+ *     Cholesky if A is square, symmetric and positive definite.
+ *     LU with partial pivoting for any other square matrix.
+ *     QR (tall and skinny QR for many more rows than columns) if A has more rows than columns, for the least
+ *     squares solution.
+ *     QR of A' if A has more columns than rows, for the minimum norm solution.
+ * </pre>
+ * Factoring costs O(n<sup>3</sup>) once, every later {@link #solve(Matrix)} costs O(n<sup>2</sup>k) for k right hand
+ * sides. Many right hand sides are solved with blocked triangular solves whose updates are matrix products, so
+ * solving a block of columns at once is much faster than solving them one at a time.
+ * <p>
+ * The factorization is a snapshot: later changes to A do not affect it. See {@link Matrix#factorize()} for a
+ * factorization that is cached on the matrix.
+ */
+public final class Factorization {
+
+    public enum Type {
+        CHOLESKY, LU, QR, TALL_SKINNY_QR, TRANSPOSE_QR
+    }
+
+    private final Type type;
+    private final int rows;
+    private final int cols;
+    private final CholeskyDecomposition chol;
+    private final LUDecomposition lu;
+    private final QRDecomposition qr;
+    private final TallSkinnyQRDecomposition tsqr;
+    // R' of the QR decomposition of A' for under-determined systems.
+    private final Matrix rt;
+
+    private Factorization(Type type, Matrix A, CholeskyDecomposition chol, LUDecomposition lu, QRDecomposition qr,
+                          TallSkinnyQRDecomposition tsqr, Matrix rt) {
+        this.type = type;
+        this.rows = A.getRowCount();
+        this.cols = A.getColumnCount();
+        this.chol = chol;
+        this.lu = lu;
+        this.qr = qr;
+        this.tsqr = tsqr;
+        this.rt = rt;
+    }
+
+    /**
+     * Factors {@code A}.
+     *
+     * @param A The matrix to factor, it is not modified.
+     * @return The factorization of A.
+     */
+    public static Factorization of(Matrix A) {
+        final int rows = A.getRowCount();
+        final int cols = A.getColumnCount();
+        if (rows == cols) {
+            if (hasPositiveDiagonalAndIsSymmetric(A)) {
+                CholeskyDecomposition chol = new CholeskyDecomposition(A);
+                if (chol.isSPD()) {
+                    return new Factorization(Type.CHOLESKY, A, chol, null, null, null, null);
+                }
+            }
+            return new Factorization(Type.LU, A, null, new LUDecomposition(A), null, null, null);
+        } else if (rows > cols) {
+            if (rows >= 2 * TallSkinnyQRDecomposition.MIN_BLOCK_ROWS && rows >= 16 * cols) {
+                return new Factorization(Type.TALL_SKINNY_QR, A, null, null, null,
+                        new TallSkinnyQRDecomposition(A), null);
+            }
+            return new Factorization(Type.QR, A, null, null, new QRDecomposition(A), null, null);
+        }
+        QRDecomposition qr = A.transpose().QR();
+        return new Factorization(Type.TRANSPOSE_QR, A, null, null, qr, null, qr.getRT());
+    }
+
+    private static boolean hasPositiveDiagonalAndIsSymmetric(Matrix A) {
+        final int n = A.getRowCount();
+        final double[] a = A.getArray();
+        for (int i = 0; i < n; ++i) {
+            if (!(a[i * n + i] > 0.0)) {
+                return false;
+            }
+        }
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < i; ++j) {
+                if (a[i * n + j] != a[j * n + i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The decomposition in use.
+     *
+     * @return The type of decomposition.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    public int getColumnCount() {
+        return cols;
+    }
+
+    /**
+     * Solves {@code A * X = B}.
+     *
+     * @param B A matrix with as many rows as A and any number of columns.
+     * @return The solution if A is square, the least squares solution if A has more rows than columns and the
+     * minimum norm solution if A has more columns than rows.
+     * @throws IllegalArgumentException Matrix row dimensions must agree.
+     * @throws RuntimeException         if A is singular or rank deficient.
+     */
+    public Matrix solve(Matrix B) {
+        switch (type) {
+            case CHOLESKY:
+                return chol.solve(B);
+            case LU:
+                return lu.solve(B);
+            case QR:
+                return qr.solve(B);
+            case TALL_SKINNY_QR:
+                return tsqr.solve(B);
+            default:
+                if (B.getRowCount() != rows) {
+                    throw new IllegalArgumentException("Matrix row dimensions must agree.");
+                }
+                Matrix R1 = forwardSubstitutionSolve(rt, B);
+                R1.appendRows(cols - R1.getRowCount());
+                return qr.QmultiplyX(R1);
+        }
+    }
+
+    /**
+     * Solves {@code A * x = b} for a single right hand side.
+     *
+     * @param b A vector with as many elements as A has rows.
+     * @return x, see {@link #solve(Matrix)}.
+     */
+    public double[] solve(double[] b) {
+        return solve(new Matrix(b.clone(), b.length, 1)).getArray();
+    }
+}
@@ -0,0 +1,298 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import com.wildbitsfoundry.etk4j.util.ArrayKernels;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Cache blocked general matrix multiply kernel that computes {@code C += alpha * A * B}.
+ * <p>
+ * The operands are described by an offset and a row/column stride so transposed or sub-matrix operands can be
+ * multiplied without copying them first. {@code C} is always row packed with leading dimension {@code ldc}.
+ * <p>
+ * Large products are computed with the classic Goto/BLIS loop nest: {@code B} is packed in {@code KC x NC} panels
+ * of {@code NR} wide slivers, {@code A} is packed in {@code MC x KC} blocks of {@code MR} tall slivers and a
+ * {@code MR x NR} register blocked micro kernel streams over both packed buffers. Every element of {@code C} is
+ * accumulated over {@code k} in increasing order so the result is bit for bit identical to the textbook triple loop.
+ * <p>
+ * Products whose flop count ({@code 2 * m * n * k}) reaches {@link #getParallelThreshold()} are split into row and
+ * column panels of {@code C} that are computed on a {@link ForkJoinPool}, the pool of the calling task when called from
+ * one and the common pool otherwise. Panels never share an element of {@code C} and every element is still accumulated
+ * in the same order, so the parallel result is bit for bit identical to the serial one.
+ */
+final class Gemm {
+    static final int MR = 4;
+    static final int NR = 4;
+    static final int MC = 96;
+    static final int KC = 256;
+    static final int NC = 2048;
+
+    /**
+     * Products with less than this amount of multiply-adds are not worth packing.
+     */
+    static final long PACKING_THRESHOLD = 48L * 48L * 48L;
+
+    /**
+     * Default flop count above which products are computed in parallel, roughly a 200 x 200 x 200 product.
+     */
+    static final long DEFAULT_PARALLEL_THRESHOLD = 1L << 24;
+
+    private static volatile long parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    /**
+     * Provides the {@code MR x NR} micro kernel, vectorized when the Vector API is available.
+     */
+    private static final ArrayKernels KERNELS = ArrayKernels.getInstance();
+
+    private Gemm() {
+    }
+
+    /**
+     * Computes {@code C += alpha * A * B}.
+     *
+     * @param m     The number of rows of {@code A} and {@code C}.
+     * @param n     The number of columns of {@code B} and {@code C}.
+     * @param k     The number of columns of {@code A} and rows of {@code B}.
+     * @param alpha The scale factor applied to {@code A * B}.
+     * @param a     The storage of {@code A}.
+     * @param aOff  The offset of {@code A(0, 0)}.
+     * @param aRs   The row stride of {@code A}.
+     * @param aCs   The column stride of {@code A}.
+     * @param b     The storage of {@code B}.
+     * @param bOff  The offset of {@code B(0, 0)}.
+     * @param bRs   The row stride of {@code B}.
+     * @param bCs   The column stride of {@code B}.
+     * @param c     The row packed storage of {@code C}.
+     * @param cOff  The offset of {@code C(0, 0)}.
+     * @param ldc   The leading dimension (row stride) of {@code C}.
+     */
+    static void multiply(int m, int n, int k, double alpha,
+                         double[] a, int aOff, int aRs, int aCs,
+                         double[] b, int bOff, int bRs, int bCs,
+                         double[] c, int cOff, int ldc) {
+        if (m == 0 || n == 0 || k == 0) {
+            return;
+        }
+        final long flops = 2L * m * n * k;
+        final ForkJoinPool pool = ForkJoinTask.getPool();
+        final int parallelism = pool != null ? pool.getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+        if (flops >= parallelThreshold && parallelism > 1) {
+            // Aim for a few panels per worker so uneven panels still balance out.
+            long grain = Math.max(2L * PACKING_THRESHOLD, flops / (4L * parallelism));
+            MultiplyTask task = new MultiplyTask(0, m, 0, n, k, alpha, a, aOff, aRs, aCs,
+                    b, bOff, bRs, bCs, c, cOff, ldc, grain);
+            if (pool != null) {
+                task.invoke();
+            } else {
+                ForkJoinPool.commonPool().invoke(task);
+            }
+            return;
+        }
+        multiplySerial(m, n, k, alpha, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, ldc);
+    }
+
+    private static void multiplySerial(int m, int n, int k, double alpha,
+                                       double[] a, int aOff, int aRs, int aCs,
+                                       double[] b, int bOff, int bRs, int bCs,
+                                       double[] c, int cOff, int ldc) {
+        if ((long) m * n * k <= PACKING_THRESHOLD) {
+            multiplySmall(m, n, k, alpha, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, ldc);
+            return;
+        }
+        final int kcMax = Math.min(KC, k);
+        double[] packedA = new double[Math.min(MC, roundUp(m, MR)) * kcMax];
+        double[] packedB = new double[kcMax * Math.min(NC, roundUp(n, NR))];
+        double[] tile = new double[MR * NR];
+        for (int jc = 0; jc < n; jc += NC) {
+            final int nc = Math.min(NC, n - jc);
+            for (int pc = 0; pc < k; pc += KC) {
+                final int kc = Math.min(KC, k - pc);
+                packB(kc, nc, b, bOff + pc * bRs + jc * bCs, bRs, bCs, packedB);
+                for (int ic = 0; ic < m; ic += MC) {
+                    final int mc = Math.min(MC, m - ic);
+                    packA(mc, kc, alpha, a, aOff + ic * aRs + pc * aCs, aRs, aCs, packedA);
+                    macroKernel(mc, nc, kc, packedA, packedB, c, cOff + ic * ldc + jc, ldc, tile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Row packed convenience overload that computes {@code C += A * B}.
+     */
+    static void multiply(int m, int n, int k, double[] a, double[] b, double[] c) {
+        multiply(m, n, k, 1.0, a, 0, k, 1, b, 0, n, 1, c, 0, n);
+    }
+
+    /**
+     * Flop count ({@code 2 * m * n * k}) at or above which a product is computed in parallel.
+     *
+     * @return The current parallel threshold.
+     */
+    static long getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets the flop count ({@code 2 * m * n * k}) at or above which a product is computed in parallel.
+     *
+     * @param flops The new threshold. Use {@link Long#MAX_VALUE} to always multiply on the calling thread.
+     */
+    static void setParallelThreshold(long flops) {
+        if (flops < 0) {
+            throw new IllegalArgumentException("The parallel threshold must be greater than or equal to zero.");
+        }
+        parallelThreshold = flops;
+    }
+
+    /**
+     * Computes the {@code C(i0 : i1 - 1, j0 : j1 - 1)} panel by splitting the larger dimension in half until the
+     * panel is small enough to be computed serially.
+     */
+    private static final class MultiplyTask extends RecursiveAction {
+        private final int i0, i1, j0, j1, k;
+        private final double alpha;
+        private final double[] a, b, c;
+        private final int aOff, aRs, aCs, bOff, bRs, bCs, cOff, ldc;
+        private final long grain;
+
+        MultiplyTask(int i0, int i1, int j0, int j1, int k, double alpha,
+                     double[] a, int aOff, int aRs, int aCs,
+                     double[] b, int bOff, int bRs, int bCs,
+                     double[] c, int cOff, int ldc, long grain) {
+            this.i0 = i0;
+            this.i1 = i1;
+            this.j0 = j0;
+            this.j1 = j1;
+            this.k = k;
+            this.alpha = alpha;
+            this.a = a;
+            this.aOff = aOff;
+            this.aRs = aRs;
+            this.aCs = aCs;
+            this.b = b;
+            this.bOff = bOff;
+            this.bRs = bRs;
+            this.bCs = bCs;
+            this.c = c;
+            this.cOff = cOff;
+            this.ldc = ldc;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            final int m = i1 - i0;
+            final int n = j1 - j0;
+            if (2L * m * n * k <= grain || (m <= MR && n <= NR)) {
+                multiplySerial(m, n, k, alpha, a, aOff + i0 * aRs, aRs, aCs, b, bOff + j0 * bCs, bRs, bCs,
+                        c, cOff + i0 * ldc + j0, ldc);
+                return;
+            }
+            // Keep the split points on register tile boundaries so only the last panel has edge tiles.
+            if (m >= n) {
+                int mid = i0 + roundUp(m / 2, MR);
+                invokeAll(task(i0, mid, j0, j1), task(mid, i1, j0, j1));
+            } else {
+                int mid = j0 + roundUp(n / 2, NR);
+                invokeAll(task(i0, i1, j0, mid), task(i0, i1, mid, j1));
+            }
+        }
+
+        private MultiplyTask task(int i0, int i1, int j0, int j1) {
+            return new MultiplyTask(i0, i1, j0, j1, k, alpha, a, aOff, aRs, aCs, b, bOff, bRs, bCs,
+                    c, cOff, ldc, grain);
+        }
+    }
+
+    private static void multiplySmall(int m, int n, int k, double alpha,
+                                      double[] a, int aOff, int aRs, int aCs,
+                                      double[] b, int bOff, int bRs, int bCs,
+                                      double[] c, int cOff, int ldc) {
+        for (int i = 0; i < m; ++i) {
+            final int ci = cOff + i * ldc;
+            final int ai = aOff + i * aRs;
+            for (int p = 0; p < k; ++p) {
+                final double aip = alpha * a[ai + p * aCs];
+                final int bp = bOff + p * bRs;
+                if (bCs == 1) {
+                    for (int j = 0; j < n; ++j) {
+                        c[ci + j] += aip * b[bp + j];
+                    }
+                } else {
+                    for (int j = 0; j < n; ++j) {
+                        c[ci + j] += aip * b[bp + j * bCs];
+                    }
+                }
+            }
+        }
+    }
+
+    private static void packA(int mc, int kc, double alpha, double[] a, int aOff, int aRs, int aCs,
+                              double[] packed) {
+        int idx = 0;
+        for (int ir = 0; ir < mc; ir += MR) {
+            final int mr = Math.min(MR, mc - ir);
+            for (int p = 0; p < kc; ++p) {
+                final int ap = aOff + ir * aRs + p * aCs;
+                int ii = 0;
+                for (; ii < mr; ++ii) {
+                    packed[idx++] = alpha * a[ap + ii * aRs];
+                }
+                for (; ii < MR; ++ii) {
+                    packed[idx++] = 0.0;
+                }
+            }
+        }
+    }
+
+    private static void packB(int kc, int nc, double[] b, int bOff, int bRs, int bCs, double[] packed) {
+        int idx = 0;
+        for (int jr = 0; jr < nc; jr += NR) {
+            final int nr = Math.min(NR, nc - jr);
+            for (int p = 0; p < kc; ++p) {
+                final int bp = bOff + p * bRs + jr * bCs;
+                int jj = 0;
+                for (; jj < nr; ++jj) {
+                    packed[idx++] = b[bp + jj * bCs];
+                }
+                for (; jj < NR; ++jj) {
+                    packed[idx++] = 0.0;
+                }
+            }
+        }
+    }
+
+    private static void macroKernel(int mc, int nc, int kc, double[] packedA, double[] packedB,
+                                    double[] c, int cOff, int ldc, double[] tile) {
+        for (int jr = 0; jr < nc; jr += NR) {
+            final int nr = Math.min(NR, nc - jr);
+            final int bIdx = jr * kc;
+            for (int ir = 0; ir < mc; ir += MR) {
+                final int mr = Math.min(MR, mc - ir);
+                final int aIdx = ir * kc;
+                final int cIdx = cOff + ir * ldc + jr;
+                if (mr == MR && nr == NR) {
+                    KERNELS.multiply4x4(kc, packedA, aIdx, packedB, bIdx, c, cIdx, ldc);
+                } else {
+                    // Edge tile: run the full kernel on a scratch tile and only write back the valid entries.
+                    for (int i = 0; i < MR; ++i) {
+                        for (int j = 0; j < NR; ++j) {
+                            tile[i * NR + j] = i < mr && j < nr ? c[cIdx + i * ldc + j] : 0.0;
+                        }
+                    }
+                    KERNELS.multiply4x4(kc, packedA, aIdx, packedB, bIdx, tile, 0, NR);
+                    for (int i = 0; i < mr; ++i) {
+                        System.arraycopy(tile, i * NR, c, cIdx + i * ldc, nr);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int roundUp(int value, int multiple) {
+        return ((value + multiple - 1) / multiple) * multiple;
+    }
+}
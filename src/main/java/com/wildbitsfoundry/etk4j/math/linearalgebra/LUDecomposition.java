@@ -10,18 +10,66 @@ public class LUDecomposition {
 	protected int _pivotsign = 1;
 	protected int[] _pivot;
 
+	/**
+	 * One norm of the factored matrix, kept for the condition estimate.
+	 */
+	protected final double _norm1;
+
+	/**
+	 * Square matrices of at least this dimension are factored with the blocked algorithm.
+	 */
+	static final int BLOCKED_THRESHOLD = 128;
+
+	/**
+	 * Width of the panels factored by the blocked algorithm.
+	 */
+	static final int BLOCK_SIZE = 64;
+
 	public LUDecomposition(Matrix matrix) {
-		final int rows = matrix.getRowCount();
-		final int cols = matrix.getColumnCount();
-		double[] data = matrix.getArrayCopy();
+		this(matrix.getArrayCopy(), matrix.getRowCount(), matrix.getColumnCount());
+	}
 
+	/**
+	 * Factors row packed data in place.
+	 *
+	 * @param data The row packed data, which is overwritten with L and U.
+	 * @param rows The number of rows.
+	 * @param cols The number of columns.
+	 */
+	LUDecomposition(double[] data, int rows, int cols) {
+		_norm1 = new Matrix(data, rows, cols).norm1();
 		_pivot = new int[rows];
+		_pivotsign = factor(data, rows, cols, _pivot, new double[rows]);
+		_data = data;
+		_rows = rows;
+		_cols = cols;
+	}
+
+	/**
+	 * Factors row packed data in place.
+	 *
+	 * @param data   The row packed data, which is overwritten with L and U.
+	 * @param rows   The number of rows.
+	 * @param cols   The number of columns.
+	 * @param pivot  Array of length {@code rows} that receives the pivot permutation.
+	 * @param column Scratch array of length {@code rows}.
+	 * @return The sign of the pivot permutation.
+	 */
+	static int factor(double[] data, int rows, int cols, int[] pivot, double[] column) {
 		for (int i = 0; i < rows; i++) {
-			_pivot[i] = i;
+			pivot[i] = i;
 		}
+		if (rows == cols && rows >= BLOCKED_THRESHOLD) {
+			return factorBlocked(data, rows, pivot);
+		}
+		return factorUnblocked(data, rows, cols, pivot, column);
+	}
 
-		double[] LUcol = new double[rows];
-
+	/**
+	 * Crout/Doolittle ("left looking") factorization with partial pivoting, as found in JAMA.
+	 */
+	private static int factorUnblocked(double[] data, int rows, int cols, int[] pivot, double[] LUcol) {
+		int pivotsign = 1;
 		// Begin the outer loop
 		for (int j = 0; j < cols; j++) {
 			// Copy the j-th column to localize references.
@@ -47,15 +95,8 @@ public class LUDecomposition {
 				}
 			}
 			if (p != j) {
-				for (int k = 0; k < cols; k++) {
-					double temp = data[p * cols + k];
-					data[p * cols + k] = data[j * cols + k];
-					data[j * cols + k] = temp;
-				}
-				int temp = _pivot[p];
-				_pivot[p] = _pivot[j];
-				_pivot[j] = temp;
-				_pivotsign = -_pivotsign;
+				swapRows(data, cols, p, j, pivot);
+				pivotsign = -pivotsign;
 			}
 			// Wrapping up
 			if (j < rows & data[j * cols + j] != 0.0) {
@@ -64,9 +105,91 @@ public class LUDecomposition {
 				}
 			}
 		}
-		_data = data;
-		_rows = rows;
-		_cols = cols;
+		return pivotsign;
+	}
+
+	/**
+	 * Right looking blocked factorization with partial pivoting of a square matrix. For every panel of
+	 * {@link #BLOCK_SIZE} columns:
+	 * <pre>
+	 *     1. Factor the panel A(j0:n, j0:j1) with partial pivoting, swapping whole rows.
+	 *     2. Compute U12 = L11^-1 * A12.
+	 *     3. Update the trailing sub-matrix A22 = A22 - L21 * U12 with the blocked (and possibly parallel) GEMM kernel.
+	 * </pre>
+	 * The pivots and the packed L/U layout are the same as the ones of the unblocked algorithm.
+	 */
+	private static int factorBlocked(double[] data, int n, int[] pivots) {
+		int pivotsign = 1;
+		for (int j0 = 0; j0 < n; j0 += BLOCK_SIZE) {
+			final int jb = Math.min(BLOCK_SIZE, n - j0);
+			final int j1 = j0 + jb;
+
+			// Factor the panel.
+			for (int j = j0; j < j1; ++j) {
+				int p = j;
+				double max = Math.abs(data[j * n + j]);
+				for (int i = j + 1; i < n; ++i) {
+					double v = Math.abs(data[i * n + j]);
+					if (v > max) {
+						max = v;
+						p = i;
+					}
+				}
+				if (p != j) {
+					swapRows(data, n, p, j, pivots);
+					pivotsign = -pivotsign;
+				}
+				final double pivot = data[j * n + j];
+				if (pivot != 0.0) {
+					for (int i = j + 1; i < n; ++i) {
+						data[i * n + j] /= pivot;
+					}
+				}
+				// Rank one update of the remainder of the panel.
+				for (int i = j + 1; i < n; ++i) {
+					final double lij = data[i * n + j];
+					if (lij != 0.0) {
+						for (int k = j + 1; k < j1; ++k) {
+							data[i * n + k] -= lij * data[j * n + k];
+						}
+					}
+				}
+			}
+			if (j1 == n) {
+				break;
+			}
+
+			// U12 = L11^-1 * A12
+			for (int i = j0 + 1; i < j1; ++i) {
+				for (int k = j0; k < i; ++k) {
+					final double lik = data[i * n + k];
+					if (lik != 0.0) {
+						for (int j = j1; j < n; ++j) {
+							data[i * n + j] -= lik * data[k * n + j];
+						}
+					}
+				}
+			}
+
+			// A22 = A22 - L21 * U12
+			final int m2 = n - j1;
+			Gemm.multiply(m2, m2, jb, -1.0,
+					data, j1 * n + j0, n, 1,
+					data, j0 * n + j1, n, 1,
+					data, j1 * n + j1, n);
+		}
+		return pivotsign;
+	}
+
+	private static void swapRows(double[] data, int cols, int p, int j, int[] pivot) {
+		for (int k = 0; k < cols; k++) {
+			double temp = data[p * cols + k];
+			data[p * cols + k] = data[j * cols + k];
+			data[j * cols + k] = temp;
+		}
+		int temp = pivot[p];
+		pivot[p] = pivot[j];
+		pivot[j] = temp;
 	}
 
 	public boolean isNonSingular() {
@@ -185,28 +308,197 @@ public class LUDecomposition {
 		Matrix Xmat = B.subMatrix(_pivot, 0, nx - 1);
 		double[] X = Xmat.getArray();
 
-		final int cols = _cols;
+		substitute(_data, _cols, X, nx);
+		return Xmat;
+	}
 
+	/**
+	 * Solves {@code L * U * X = Y} in place by forward and backward substitution.
+	 *
+	 * @param lu The packed L and U factors of a {@code n x n} matrix.
+	 * @param n  The dimension of the factored matrix.
+	 * @param X  The row packed {@code n x nx} right hand side, already permuted, which is overwritten with X.
+	 * @param nx The number of columns of {@code X}.
+	 */
+	static void substitute(double[] lu, int n, double[] X, int nx) {
+		if (Trsm.isBlocked(n, nx)) {
+			Trsm.solveLower(n, nx, lu, 0, n, 1, true, X);
+			Trsm.solveUpper(n, nx, lu, 0, n, 1, null, X);
+			return;
+		}
+		if (nx == 1) {
+			// Row oriented dot products, same operation order as the loops below.
+			for (int i = 1; i < n; ++i) {
+				final int row = i * n;
+				double s = X[i];
+				for (int k = 0; k < i; ++k) {
+					s -= X[k] * lu[row + k];
+				}
+				X[i] = s;
+			}
+			for (int i = n - 1; i >= 0; --i) {
+				final int row = i * n;
+				double s = X[i];
+				for (int k = n - 1; k > i; --k) {
+					s -= X[k] * lu[row + k];
+				}
+				X[i] = s / lu[row + i];
+			}
+			return;
+		}
 		// Solve L * Y = B(_pivot,:)
-		for (int k = 0; k < cols; ++k) {
-			for (int i = k + 1; i < cols; ++i) {
+		for (int k = 0; k < n; ++k) {
+			for (int i = k + 1; i < n; ++i) {
 				for (int j = 0; j < nx; ++j) {
-					X[i * nx + j] -= X[k * nx + j] * _data[i * cols + k];
+					X[i * nx + j] -= X[k * nx + j] * lu[i * n + k];
 				}
 			}
 		}
 		// Solve U * X = Y;
-		for (int k = cols - 1; k >= 0; --k) {
+		for (int k = n - 1; k >= 0; --k) {
 			for (int j = 0; j < nx; ++j) {
-				X[k * nx + j] /= _data[k * cols + k];
+				X[k * nx + j] /= lu[k * n + k];
 			}
 			for (int i = 0; i < k; ++i) {
 				for (int j = 0; j < nx; ++j) {
-					X[i * nx + j] -= X[k * nx + j] * _data[i * cols + k];
+					X[i * nx + j] -= X[k * nx + j] * lu[i * n + k];
 				}
 			}
 		}
-		return Xmat;
+	}
+
+	/**
+	 * Estimate of the reciprocal condition number in the one norm, {@code 1 / (||A||1 * ||A^-1||1)}.
+	 * <P>
+	 * {@code ||A^-1||1} is estimated from the existing factors with a handful of solves with {@code A} and
+	 * {@code A'} (Hager's method as refined by Higham), so the cost is O(n^2) instead of the O(n^3) of inverting the
+	 * matrix or computing its singular values. The estimate of {@code ||A^-1||1} never exceeds the true value and is
+	 * almost always within a factor of 3 of it.
+	 *
+	 * @return An estimate of the reciprocal condition number. Zero if the matrix is singular.
+	 * @exception IllegalArgumentException
+	 *                Matrix must be square.
+	 * @see <a href="https://doi.org/10.1145/50063.214386">N. J. Higham, FORTRAN codes for estimating the one-norm of
+	 * a real or complex matrix, with applications to condition estimation, ACM Trans. Math. Softw. 14(4), 1988</a>
+	 */
+	public double rcond() {
+		if (_rows != _cols) {
+			throw new IllegalArgumentException("Matrix must be square.");
+		}
+		return rcond(_data, _cols, _pivot, _norm1);
+	}
+
+	static double rcond(double[] lu, int n, int[] pivot, double norm1) {
+		if (n == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		for (int j = 0; j < n; ++j) {
+			if (lu[j * n + j] == 0.0) {
+				return 0.0;
+			}
+		}
+		if (norm1 == 0.0) {
+			return 0.0;
+		}
+		return 1.0 / (norm1 * inverseNorm1Estimate(lu, n, pivot));
+	}
+
+	/**
+	 * Lower bound for {@code ||A^-1||1} given the factors of a non singular {@code A}.
+	 */
+	private static double inverseNorm1Estimate(double[] lu, int n, int[] pivot) {
+		final int maxIterations = 5;
+		double[] x = new double[n];
+		double[] work = new double[n];
+		double[] sign = new double[n];
+		Arrays.fill(x, 1.0 / n);
+
+		double est = 0.0;
+		int jLast = -1;
+		for (int iter = 0; iter < maxIterations; ++iter) {
+			// x = A^-1 * x
+			solve(lu, n, pivot, x, work);
+			double estNew = 0.0;
+			boolean repeated = iter > 0;
+			for (int i = 0; i < n; ++i) {
+				estNew += Math.abs(x[i]);
+				double s = x[i] >= 0.0 ? 1.0 : -1.0;
+				repeated &= s == sign[i];
+				sign[i] = s;
+			}
+			if (n == 1) {
+				return estNew;
+			}
+			if (iter > 0 && (repeated || estNew <= est)) {
+				est = Math.max(est, estNew);
+				break;
+			}
+			est = estNew;
+
+			// z = A^-T * sign(x), the next x is the unit vector at the largest entry of z unless it does not
+			// increase the estimate.
+			System.arraycopy(sign, 0, x, 0, n);
+			solveTranspose(lu, n, pivot, x, work);
+			int j = 0;
+			for (int i = 1; i < n; ++i) {
+				if (Math.abs(x[i]) > Math.abs(x[j])) {
+					j = i;
+				}
+			}
+			if (jLast >= 0 && Math.abs(x[j]) <= x[jLast]) {
+				break;
+			}
+			jLast = j;
+			Arrays.fill(x, 0.0);
+			x[j] = 1.0;
+		}
+
+		// The alternating vector guards against the cases where the gradient search gets stuck.
+		for (int i = 0; i < n; ++i) {
+			x[i] = (i % 2 == 0 ? 1.0 : -1.0) * (1.0 + (double) i / (n - 1));
+		}
+		solve(lu, n, pivot, x, work);
+		double alt = 0.0;
+		for (int i = 0; i < n; ++i) {
+			alt += Math.abs(x[i]);
+		}
+		return Math.max(est, 2.0 * alt / (3.0 * n));
+	}
+
+	/**
+	 * Overwrites {@code x} with {@code A^-1 * x}.
+	 */
+	private static void solve(double[] lu, int n, int[] pivot, double[] x, double[] work) {
+		for (int i = 0; i < n; ++i) {
+			work[i] = x[pivot[i]];
+		}
+		System.arraycopy(work, 0, x, 0, n);
+		substitute(lu, n, x, 1);
+	}
+
+	/**
+	 * Overwrites {@code x} with {@code A^-T * x}. Since {@code P * A = L * U}, {@code A' = U' * L' * P}.
+	 */
+	private static void solveTranspose(double[] lu, int n, int[] pivot, double[] x, double[] work) {
+		// Solve U' * Y = B, row oriented so U is read along its rows.
+		for (int k = 0; k < n; ++k) {
+			final double xk = x[k] /= lu[k * n + k];
+			for (int j = k + 1; j < n; ++j) {
+				x[j] -= lu[k * n + j] * xk;
+			}
+		}
+		// Solve L' * Z = Y
+		for (int k = n - 1; k > 0; --k) {
+			final double xk = x[k];
+			for (int j = 0; j < k; ++j) {
+				x[j] -= lu[k * n + j] * xk;
+			}
+		}
+		// X = P' * Z
+		for (int i = 0; i < n; ++i) {
+			work[pivot[i]] = x[i];
+		}
+		System.arraycopy(work, 0, x, 0, n);
 	}
 
 	@Override
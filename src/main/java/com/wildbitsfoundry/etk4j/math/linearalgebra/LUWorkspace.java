@@ -0,0 +1,153 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+/**
+ * Reusable LU decomposition of square matrices of a fixed size.
+ * <P>
+ * All the storage needed to factor and solve is allocated once by the constructor, so repeatedly calling
+ * {@link #factor(Matrix)} followed by {@link #solve(double[], double[])} or {@link #solve(Matrix, Matrix)} does not
+ * allocate. This is intended for control loops that factor thousands of same sized matrices per second.
+ * <P>
+ * Matrices of dimension {@link LUDecomposition#BLOCKED_THRESHOLD} or larger are factored with the blocked algorithm,
+ * whose matrix products use temporary packing buffers.
+ */
+public class LUWorkspace {
+	private final int _n;
+	private final double[] _data;
+	private final int[] _pivot;
+	private final double[] _column;
+	private int _pivotsign;
+	private double _norm1;
+	private boolean _factored;
+
+	/**
+	 * @param n The dimension of the matrices to factor.
+	 */
+	public LUWorkspace(int n) {
+		_n = n;
+		_data = new double[n * n];
+		_pivot = new int[n];
+		_column = new double[n];
+	}
+
+	/**
+	 * The dimension of the matrices this workspace factors.
+	 *
+	 * @return n
+	 */
+	public int getDimension() {
+		return _n;
+	}
+
+	/**
+	 * Factors {@code A} into the workspace. {@code A} is not modified.
+	 *
+	 * @param A An n-by-n matrix.
+	 * @return true if {@code A} is non singular.
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+	public boolean factor(Matrix A) {
+		if (A.getRowCount() != _n || A.getColumnCount() != _n) {
+			throw new IllegalArgumentException("Matrix dimensions must agree.");
+		}
+		System.arraycopy(A.getArray(), 0, _data, 0, _n * _n);
+		_norm1 = A.norm1();
+		_pivotsign = LUDecomposition.factor(_data, _n, _n, _pivot, _column);
+		_factored = true;
+		return isNonSingular();
+	}
+
+	public boolean isNonSingular() {
+		checkFactored();
+		for (int j = 0; j < _n; ++j) {
+			if (_data[j * _n + j] == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public double det() {
+		checkFactored();
+		double det = _pivotsign;
+		for (int i = 0; i < _n; i++) {
+			det *= _data[i * _n + i];
+		}
+		return det;
+	}
+
+	/**
+	 * Estimate of the reciprocal condition number in the one norm, see {@link LUDecomposition#rcond()}.
+	 *
+	 * @return An estimate of {@code 1 / (||A||1 * ||A^-1||1)}. Zero if the matrix is singular.
+	 */
+	public double rcond() {
+		checkFactored();
+		return LUDecomposition.rcond(_data, _n, _pivot, _norm1);
+	}
+
+	/**
+	 * Solve A*x = b
+	 *
+	 * @param b
+	 *            The right hand side of length n.
+	 * @param x
+	 *            Array of length n that receives the solution. It can be the same array as {@code b}.
+	 * @exception IllegalArgumentException
+	 *                Array lengths must agree.
+	 * @exception RuntimeException
+	 *                Matrix is singular.
+	 */
+	public void solve(double[] b, double[] x) {
+		if (b.length != _n || x.length != _n) {
+			throw new IllegalArgumentException("Array lengths must agree.");
+		}
+		checkSolvable();
+		for (int i = 0; i < _n; ++i) {
+			_column[i] = b[_pivot[i]];
+		}
+		System.arraycopy(_column, 0, x, 0, _n);
+		LUDecomposition.substitute(_data, _n, x, 1);
+	}
+
+	/**
+	 * Solve A*X = B
+	 *
+	 * @param B
+	 *            A Matrix with n rows and any number of columns.
+	 * @param X
+	 *            A Matrix of the same size as {@code B} that receives the solution. It must not be {@code B}.
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 * @exception RuntimeException
+	 *                Matrix is singular.
+	 */
+	public void solve(Matrix B, Matrix X) {
+		final int nx = B.getColumnCount();
+		if (B.getRowCount() != _n || X.getRowCount() != _n || X.getColumnCount() != nx) {
+			throw new IllegalArgumentException("Matrix dimensions must agree.");
+		}
+		if (B == X) {
+			throw new IllegalArgumentException("The solution Matrix must not be the right hand side Matrix.");
+		}
+		checkSolvable();
+		double[] b = B.getArray();
+		double[] x = X.getArray();
+		for (int i = 0; i < _n; ++i) {
+			System.arraycopy(b, _pivot[i] * nx, x, i * nx, nx);
+		}
+		LUDecomposition.substitute(_data, _n, x, nx);
+	}
+
+	private void checkFactored() {
+		if (!_factored) {
+			throw new IllegalStateException("No matrix has been factored yet.");
+		}
+	}
+
+	private void checkSolvable() {
+		if (!isNonSingular()) {
+			throw new RuntimeException("Matrix is singular.");
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import java.util.function.BiConsumer;
+
+/**
+ * A linear map {@code y = A * x} that is only known through its action on vectors.
+ * <P>
+ * This is all the iterative solvers in {@code com.wildbitsfoundry.etk4j.math.linearalgebra.iterative} need, so they
+ * work with dense matrices, sparse matrices and matrix free operators alike.
+ */
+public interface LinearOperator {
+
+    int getRowCount();
+
+    int getColumnCount();
+
+    /**
+     * Computes {@code y = A * x}.
+     *
+     * @param x A vector with as many elements as columns in the operator.
+     * @param y A vector with as many elements as rows in the operator that receives the product. It must not be
+     *          {@code x}.
+     */
+    void multiply(double[] x, double[] y);
+
+    /**
+     * Wraps a matrix vector product callback.
+     *
+     * @param rows   The number of rows of the operator.
+     * @param cols   The number of columns of the operator.
+     * @param matvec Callback that receives {@code x} and writes {@code A * x} into {@code y}.
+     * @return The operator.
+     */
+    static LinearOperator of(int rows, int cols, BiConsumer<double[], double[]> matvec) {
+        return new LinearOperator() {
+            @Override
+            public int getRowCount() {
+                return rows;
+            }
+
+            @Override
+            public int getColumnCount() {
+                return cols;
+            }
+
+            @Override
+            public void multiply(double[] x, double[] y) {
+                matvec.accept(x, y);
+            }
+        };
+    }
+}
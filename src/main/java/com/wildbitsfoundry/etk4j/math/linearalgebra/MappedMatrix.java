@@ -0,0 +1,590 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A dense matrix stored outside of the Java heap, either in direct buffers or in a memory-mapped file.
+ * <p>
+ * {@link Matrix} keeps its elements in a single {@code double[]}, which limits it to 2<sup>31</sup> - 1 elements and
+ * puts all of them on the heap. A {@code MappedMatrix} is indexed with longs and its elements live in chunks of direct
+ * memory of at most 1 GiB each, so it can hold matrices larger than the heap and, when it is backed by a file, larger
+ * than the physical memory: the operating system pages the parts that are in use in and out.
+ * <p>
+ * The operations stream the matrix through square tiles of at most {@value #TILE} by {@value #TILE} elements that are
+ * copied to the heap and processed with the in-memory kernels, so only a few tiles are resident at any time:
+ * <ul>
+ * <li>{@link #multiply(MappedMatrix, MappedMatrix)} is a tiled {@link Matrix#multiply(Matrix) product},</li>
+ * <li>{@link #add(MappedMatrix, MappedMatrix)}, {@link #subtract(MappedMatrix, MappedMatrix)},
+ * {@link #arrayMultiply(MappedMatrix, MappedMatrix)} and {@link #multiply(double, MappedMatrix)} stream the elements
+ * in storage order,</li>
+ * <li>{@link #QR()} factors a matrix with many rows one panel of rows at a time.</li>
+ * </ul>
+ * <p>
+ * The file format is a 64 byte header followed by the elements as little endian doubles, in row or column major
+ * order:
+ * <pre>
+ *     offset  size  content
+ *          0     8  the ASCII magic "ETK4JMAT"
+ *          8     4  format version, 1
+ *         12     4  storage order, 0 for row major and 1 for column major
+ *         16     8  number of rows
+ *         24     8  number of columns
+ *         32    32  reserved, zero
+ *         64        rows * columns doubles
+ * </pre>
+ * A {@code MappedMatrix} is not thread safe. Closing it releases the file, the mapped memory itself is released when
+ * the matrix is garbage collected.
+ */
+public final class MappedMatrix implements Closeable {
+
+    /**
+     * The order in which the elements are stored.
+     */
+    public enum Order {
+        ROW_MAJOR, COLUMN_MAJOR
+    }
+
+    /**
+     * Size of the file header in bytes.
+     */
+    static final int HEADER_SIZE = 64;
+
+    static final int VERSION = 1;
+
+    private static final byte[] MAGIC = "ETK4JMAT".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Default base 2 logarithm of the number of elements per chunk, 1 GiB chunks.
+     */
+    static final int CHUNK_SHIFT = 27;
+
+    /**
+     * Rows and columns of the tiles the operations are streamed through.
+     */
+    static final int TILE = 512;
+
+    /**
+     * Number of elements streamed at a time by the element-wise operations.
+     */
+    private static final int STREAM = TILE * TILE;
+
+    private final long rows;
+    private final long cols;
+    private final Order order;
+    private final int shift;
+    private final long mask;
+    private final ByteBuffer[] buffers;
+    private final DoubleBuffer[] chunks;
+    private final FileChannel channel;
+
+    private MappedMatrix(long rows, long cols, Order order, int shift, ByteBuffer[] buffers, FileChannel channel) {
+        this.rows = rows;
+        this.cols = cols;
+        this.order = order;
+        this.shift = shift;
+        this.mask = (1L << shift) - 1;
+        this.buffers = buffers;
+        this.chunks = new DoubleBuffer[buffers.length];
+        for (int c = 0; c < buffers.length; ++c) {
+            chunks[c] = buffers[c].order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+        this.channel = channel;
+    }
+
+    /**
+     * Creates a zero matrix in direct memory.
+     *
+     * @param rows  The number of rows.
+     * @param cols  The number of columns.
+     * @param order The storage order.
+     * @return The matrix.
+     */
+    public static MappedMatrix allocateDirect(long rows, long cols, Order order) {
+        return allocateDirect(rows, cols, order, CHUNK_SHIFT);
+    }
+
+    static MappedMatrix allocateDirect(long rows, long cols, Order order, int shift) {
+        final long size = size(rows, cols);
+        ByteBuffer[] buffers = new ByteBuffer[chunkCount(size, shift)];
+        for (int c = 0; c < buffers.length; ++c) {
+            buffers[c] = ByteBuffer.allocateDirect(chunkBytes(size, shift, c));
+        }
+        return new MappedMatrix(rows, cols, order, shift, buffers, null);
+    }
+
+    /**
+     * Creates a zero matrix backed by a new file, replacing the file if it exists.
+     *
+     * @param file  The file.
+     * @param rows  The number of rows.
+     * @param cols  The number of columns.
+     * @param order The storage order.
+     * @return The matrix, mapped for reading and writing.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public static MappedMatrix create(Path file, long rows, long cols, Order order) throws IOException {
+        return create(file, rows, cols, order, CHUNK_SHIFT);
+    }
+
+    static MappedMatrix create(Path file, long rows, long cols, Order order, int shift) throws IOException {
+        final long size = size(rows, cols);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC).putInt(VERSION).putInt(order.ordinal()).putLong(rows).putLong(cols);
+            // Through Buffer so the Java 8 signatures are linked, Java 9 added covariant overrides to ByteBuffer.
+            ((Buffer) header).clear();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            return new MappedMatrix(rows, cols, order, shift, map(channel, FileChannel.MapMode.READ_WRITE, size,
+                    shift), channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a matrix file written by {@link #create(Path, long, long, Order)}.
+     *
+     * @param file     The file.
+     * @param writable Whether the matrix can be modified. Changes are written through to the file.
+     * @return The matrix.
+     * @throws IOException              if the file cannot be read or mapped.
+     * @throws IllegalArgumentException if the file is not a matrix file.
+     */
+    public static MappedMatrix open(Path file, boolean writable) throws IOException {
+        return open(file, writable, CHUNK_SHIFT);
+    }
+
+    static MappedMatrix open(Path file, boolean writable, int shift) throws IOException {
+        FileChannel channel = writable ?
+                FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE) :
+                FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IllegalArgumentException("The file is not a matrix file.");
+                }
+            }
+            ((Buffer) header).flip();
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IllegalArgumentException("The file is not a matrix file.");
+            }
+            final int version = header.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException(String.format("Unsupported matrix file version: %d.", version));
+            }
+            final int ordinal = header.getInt();
+            if (ordinal < 0 || ordinal >= Order.values().length) {
+                throw new IllegalArgumentException("The file is not a matrix file.");
+            }
+            final long rows = header.getLong();
+            final long cols = header.getLong();
+            final long size = size(rows, cols);
+            if (channel.size() < HEADER_SIZE + size * Double.BYTES) {
+                throw new IllegalArgumentException("The matrix file is truncated.");
+            }
+            FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+            return new MappedMatrix(rows, cols, Order.values()[ordinal], shift, map(channel, mode, size, shift),
+                    channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static ByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long size, int shift)
+            throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[chunkCount(size, shift)];
+        for (int c = 0; c < buffers.length; ++c) {
+            buffers[c] = channel.map(mode, HEADER_SIZE + ((long) c << shift) * Double.BYTES,
+                    chunkBytes(size, shift, c));
+        }
+        return buffers;
+    }
+
+    private static long size(long rows, long cols) {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("The matrix dimensions must be greater than or equal to zero.");
+        }
+        final long size = Math.multiplyExact(rows, cols);
+        // The byte offsets must fit in a long too.
+        Math.multiplyExact(size, (long) Double.BYTES);
+        return size;
+    }
+
+    private static int chunkCount(long size, int shift) {
+        return Math.toIntExact((size + (1L << shift) - 1) >>> shift);
+    }
+
+    private static int chunkBytes(long size, int shift, int c) {
+        return (int) (Math.min(1L << shift, size - ((long) c << shift)) * Double.BYTES);
+    }
+
+    public long getRowCount() {
+        return rows;
+    }
+
+    public long getColumnCount() {
+        return cols;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * Whether the matrix is backed by a file.
+     *
+     * @return {@code true} if the matrix was created or opened from a file.
+     */
+    public boolean isMapped() {
+        return channel != null;
+    }
+
+    public double get(long i, long j) {
+        final long index = index(i, j);
+        return chunks[(int) (index >>> shift)].get((int) (index & mask));
+    }
+
+    public void set(long i, long j, double value) {
+        final long index = index(i, j);
+        chunks[(int) (index >>> shift)].put((int) (index & mask), value);
+    }
+
+    /**
+     * Copies a block of the matrix to the heap.
+     *
+     * @param i0   The first row.
+     * @param j0   The first column.
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @return The block {@code A(i0 : i0 + rows - 1, j0 : j0 + cols - 1)}.
+     */
+    public Matrix getMatrix(long i0, long j0, int rows, int cols) {
+        checkBlock(i0, j0, rows, cols);
+        double[] data = new double[Math.multiplyExact(rows, cols)];
+        readTile(i0, j0, rows, cols, data, new double[order == Order.ROW_MAJOR ? 0 : rows]);
+        return new Matrix(data, rows, cols);
+    }
+
+    /**
+     * Overwrites a block of the matrix.
+     *
+     * @param i0 The first row.
+     * @param j0 The first column.
+     * @param X  The new value of {@code A(i0 : i0 + X.rows - 1, j0 : j0 + X.cols - 1)}.
+     */
+    public void setMatrix(long i0, long j0, Matrix X) {
+        final int h = X.getRowCount();
+        final int w = X.getColumnCount();
+        checkBlock(i0, j0, h, w);
+        writeTile(i0, j0, h, w, X.getArray(), new double[order == Order.ROW_MAJOR ? 0 : h]);
+    }
+
+    /**
+     * Copies the whole matrix to the heap.
+     *
+     * @return The matrix as a {@link Matrix}.
+     * @throws IllegalStateException if the matrix has more than {@link Integer#MAX_VALUE} rows, columns or elements.
+     */
+    public Matrix toMatrix() {
+        if (rows > Integer.MAX_VALUE || cols > Integer.MAX_VALUE || rows * cols > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The matrix is too large to be copied to a Matrix.");
+        }
+        return getMatrix(0, 0, (int) rows, (int) cols);
+    }
+
+    /**
+     * Computes {@code C = A * B} one tile of C at a time. Every tile of C is accumulated over the tiles of a row
+     * panel of A and a column panel of B, so at most three tiles are on the heap at once.
+     *
+     * @param B The right factor.
+     * @param C The product, it must not be A or B.
+     * @throws IllegalArgumentException if the dimensions do not agree or C is A or B.
+     */
+    public void multiply(MappedMatrix B, MappedMatrix C) {
+        multiply(B, C, TILE);
+    }
+
+    void multiply(MappedMatrix B, MappedMatrix C, int tile) {
+        if (B.rows != cols) {
+            throw new IllegalArgumentException("Matrix inner dimensions must agree. Check that the number of" +
+                    "columns of the first matrix equal the number of rows of the second matrix.");
+        }
+        if (C.rows != rows || C.cols != B.cols) {
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        }
+        if (C == this || C == B) {
+            throw new IllegalArgumentException("The product cannot overwrite one of its factors.");
+        }
+        final double[] a = new double[tile * tile];
+        final double[] b = new double[tile * tile];
+        final double[] c = new double[tile * tile];
+        final double[] column = new double[tile];
+        for (long i0 = 0; i0 < rows; i0 += tile) {
+            final int h = (int) Math.min(tile, rows - i0);
+            for (long j0 = 0; j0 < B.cols; j0 += tile) {
+                final int w = (int) Math.min(tile, B.cols - j0);
+                Arrays.fill(c, 0, h * w, 0.0);
+                for (long k0 = 0; k0 < cols; k0 += tile) {
+                    final int d = (int) Math.min(tile, cols - k0);
+                    readTile(i0, k0, h, d, a, column);
+                    B.readTile(k0, j0, d, w, b, column);
+                    Gemm.multiply(h, w, d, 1.0, a, 0, d, 1, b, 0, w, 1, c, 0, w);
+                }
+                C.writeTile(i0, j0, h, w, c, column);
+            }
+        }
+    }
+
+    /**
+     * Computes {@code C = A + B} element by element.
+     *
+     * @param B A matrix with the dimensions of A.
+     * @param C The sum, it may be A or B.
+     */
+    public void add(MappedMatrix B, MappedMatrix C) {
+        elementwise(B, C, ADD, 0.0);
+    }
+
+    /**
+     * Computes {@code C = A - B} element by element.
+     *
+     * @param B A matrix with the dimensions of A.
+     * @param C The difference, it may be A or B.
+     */
+    public void subtract(MappedMatrix B, MappedMatrix C) {
+        elementwise(B, C, SUBTRACT, 0.0);
+    }
+
+    /**
+     * Computes the element by element product {@code C = A .* B}.
+     *
+     * @param B A matrix with the dimensions of A.
+     * @param C The product, it may be A or B.
+     */
+    public void arrayMultiply(MappedMatrix B, MappedMatrix C) {
+        elementwise(B, C, MULTIPLY, 0.0);
+    }
+
+    /**
+     * Computes {@code C = s * A}.
+     *
+     * @param s The scalar.
+     * @param C The product, it may be A.
+     */
+    public void multiply(double s, MappedMatrix C) {
+        elementwise(null, C, SCALE, s);
+    }
+
+    /**
+     * QR decomposition of a matrix with at least as many rows as columns, streamed one panel of rows at a time.
+     *
+     * @return The QR decomposition.
+     */
+    public MappedQRDecomposition QR() {
+        return new MappedQRDecomposition(this);
+    }
+
+    /**
+     * Writes the changes to the file.
+     */
+    public void flush() {
+        if (channel == null) {
+            return;
+        }
+        for (ByteBuffer buffer : buffers) {
+            if (buffer instanceof MappedByteBuffer && !buffer.isReadOnly()) {
+                ((MappedByteBuffer) buffer).force();
+            }
+        }
+    }
+
+    /**
+     * Writes the changes to the file and closes it. A matrix in direct memory does not need to be closed.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            flush();
+            channel.close();
+        }
+    }
+
+    private static final int ADD = 0;
+    private static final int SUBTRACT = 1;
+    private static final int MULTIPLY = 2;
+    private static final int SCALE = 3;
+
+    private void elementwise(MappedMatrix B, MappedMatrix C, int op, double s) {
+        if ((B != null && (B.rows != rows || B.cols != cols)) || C.rows != rows || C.cols != cols) {
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        }
+        if ((B == null || B.order == order) && C.order == order) {
+            // Same layout, stream the storage in order.
+            final long size = rows * cols;
+            final int len = (int) Math.min(STREAM, size);
+            final double[] a = new double[len];
+            final double[] b = B == null ? null : new double[len];
+            for (long k = 0; k < size; k += len) {
+                final int n = (int) Math.min(len, size - k);
+                read(k, a, 0, n);
+                if (B != null) {
+                    B.read(k, b, 0, n);
+                }
+                apply(op, a, b, s, n);
+                C.write(k, a, 0, n);
+            }
+            return;
+        }
+        final double[] a = new double[TILE * TILE];
+        final double[] b = B == null ? null : new double[TILE * TILE];
+        final double[] column = new double[TILE];
+        for (long i0 = 0; i0 < rows; i0 += TILE) {
+            final int h = (int) Math.min(TILE, rows - i0);
+            for (long j0 = 0; j0 < cols; j0 += TILE) {
+                final int w = (int) Math.min(TILE, cols - j0);
+                readTile(i0, j0, h, w, a, column);
+                if (B != null) {
+                    B.readTile(i0, j0, h, w, b, column);
+                }
+                apply(op, a, b, s, h * w);
+                C.writeTile(i0, j0, h, w, a, column);
+            }
+        }
+    }
+
+    private static void apply(int op, double[] a, double[] b, double s, int n) {
+        switch (op) {
+            case ADD:
+                for (int k = 0; k < n; ++k) {
+                    a[k] += b[k];
+                }
+                break;
+            case SUBTRACT:
+                for (int k = 0; k < n; ++k) {
+                    a[k] -= b[k];
+                }
+                break;
+            case MULTIPLY:
+                for (int k = 0; k < n; ++k) {
+                    a[k] *= b[k];
+                }
+                break;
+            default:
+                for (int k = 0; k < n; ++k) {
+                    a[k] *= s;
+                }
+                break;
+        }
+    }
+
+    /**
+     * Copies the block at {@code (i0, j0)} to the row packed {@code dst}. {@code column} is a work array of at least
+     * {@code h} elements, only used for column major storage.
+     */
+    void readTile(long i0, long j0, int h, int w, double[] dst, double[] column) {
+        if (order == Order.ROW_MAJOR) {
+            for (int i = 0; i < h; ++i) {
+                read((i0 + i) * cols + j0, dst, i * w, w);
+            }
+            return;
+        }
+        for (int j = 0; j < w; ++j) {
+            read((j0 + j) * rows + i0, column, 0, h);
+            for (int i = 0; i < h; ++i) {
+                dst[i * w + j] = column[i];
+            }
+        }
+    }
+
+    /**
+     * Copies the row packed {@code src} to the block at {@code (i0, j0)}. {@code column} is a work array of at least
+     * {@code h} elements, only used for column major storage.
+     */
+    void writeTile(long i0, long j0, int h, int w, double[] src, double[] column) {
+        if (order == Order.ROW_MAJOR) {
+            for (int i = 0; i < h; ++i) {
+                write((i0 + i) * cols + j0, src, i * w, w);
+            }
+            return;
+        }
+        for (int j = 0; j < w; ++j) {
+            for (int i = 0; i < h; ++i) {
+                column[i] = src[i * w + j];
+            }
+            write((j0 + j) * rows + i0, column, 0, h);
+        }
+    }
+
+    /**
+     * Copies {@code len} consecutive elements of the storage, starting at {@code index}, to {@code dst}.
+     */
+    private void read(long index, double[] dst, int off, int len) {
+        while (len > 0) {
+            final int c = (int) (index >>> shift);
+            final int pos = (int) (index & mask);
+            final int n = (int) Math.min(len, (1L << shift) - pos);
+            DoubleBuffer chunk = chunks[c].duplicate();
+            ((Buffer) chunk).position(pos);
+            chunk.get(dst, off, n);
+            index += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Copies {@code len} elements of {@code src} to consecutive elements of the storage, starting at {@code index}.
+     */
+    private void write(long index, double[] src, int off, int len) {
+        while (len > 0) {
+            final int c = (int) (index >>> shift);
+            final int pos = (int) (index & mask);
+            final int n = (int) Math.min(len, (1L << shift) - pos);
+            DoubleBuffer chunk = chunks[c].duplicate();
+            ((Buffer) chunk).position(pos);
+            chunk.put(src, off, n);
+            index += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private long index(long i, long j) {
+        if (i < 0 || i >= rows) {
+            throw new ArrayIndexOutOfBoundsException(String.format("Index i: %d >= than number of rows: %d.", i, rows));
+        }
+        if (j < 0 || j >= cols) {
+            throw new ArrayIndexOutOfBoundsException(String.format("Index j: %d >= than number of columns: %d.",
+                    j, cols));
+        }
+        return order == Order.ROW_MAJOR ? i * cols + j : j * rows + i;
+    }
+
+    private void checkBlock(long i0, long j0, int h, int w) {
+        if (h < 0 || w < 0 || i0 < 0 || j0 < 0 || i0 + h > rows || j0 + w > cols) {
+            throw new ArrayIndexOutOfBoundsException("The block is outside of the matrix.");
+        }
+    }
+}
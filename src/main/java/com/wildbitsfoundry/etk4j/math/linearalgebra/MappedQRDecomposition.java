@@ -0,0 +1,132 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+/**
+ * QR decomposition of a {@link MappedMatrix} with many more rows than columns.
+ * <P>
+ * The rows of A are streamed in panels. Every panel is stacked below the R factor of the rows before it and the stack
+ * is factored with a {@link QRDecomposition}, so after one pass over A its n-by-n R factor is known while only one
+ * panel is ever on the heap. Q is not kept: least squares problems are solved by streaming A and the right hand side
+ * together, which gives R and Q'*B in a single pass. The n-by-n R must fit on the heap.
+ *
+ * @see TallSkinnyQRDecomposition
+ */
+public class MappedQRDecomposition {
+
+	/**
+	 * Elements per panel of rows.
+	 */
+	static final int PANEL = MappedMatrix.TILE * MappedMatrix.TILE;
+
+	private final MappedMatrix _a;
+	private final int _cols;
+	private final int _panel;
+	private final Matrix _r;
+
+	MappedQRDecomposition(MappedMatrix A) {
+		this(A, PANEL);
+	}
+
+	/**
+	 * @param panel
+	 *            Elements per panel of rows.
+	 */
+	MappedQRDecomposition(MappedMatrix A, int panel) {
+		if (A.getColumnCount() > A.getRowCount()) {
+			throw new IllegalArgumentException("Matrix must have at least as many rows as columns.");
+		}
+		if (A.getColumnCount() > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The R factor of the matrix does not fit in a Matrix.");
+		}
+		_a = A;
+		_cols = (int) A.getColumnCount();
+		_panel = panel;
+		_r = factor(A, null, panel);
+	}
+
+	/**
+	 * Is the matrix full rank?
+	 *
+	 * @return true if R, and hence A, has full rank.
+	 */
+	public boolean isFullRank() {
+		return isFullRank(_r, _cols);
+	}
+
+	/**
+	 * Return the upper triangular factor
+	 *
+	 * @return R
+	 */
+	public Matrix getR() {
+		return _r.copy();
+	}
+
+	/**
+	 * Least squares solution of A*X = B. A and B are streamed again, once.
+	 *
+	 * @param B
+	 *            A matrix with as many rows as A and any number of columns.
+	 * @return X that minimizes the two norm of Q*R*X-B.
+	 * @exception IllegalArgumentException
+	 *                Matrix row dimensions must agree.
+	 * @exception RuntimeException
+	 *                Matrix is rank deficient.
+	 */
+	public Matrix solve(MappedMatrix B) {
+		if (B.getRowCount() != _a.getRowCount()) {
+			throw new IllegalArgumentException("Matrix row dimensions must agree.");
+		}
+		if (!isFullRank()) {
+			throw new RuntimeException("Matrix is rank deficient.");
+		}
+		final int nx = Math.toIntExact(B.getColumnCount());
+		final int n = _cols;
+		final int w = n + nx;
+		// The R factor of [A, B] is [R, Q'*B; 0, *].
+		final Matrix Ra = factor(_a, B, _panel);
+		if (!isFullRank(Ra, n)) {
+			throw new RuntimeException("Matrix is rank deficient.");
+		}
+		final double[] ra = Ra.getArray();
+		final double[] X = new double[n * nx];
+		for (int i = 0; i < n; ++i) {
+			System.arraycopy(ra, i * w + n, X, i * nx, nx);
+		}
+		Trsm.solveUpper(n, nx, ra, 0, w, 1, null, X);
+		return new Matrix(X, n, nx);
+	}
+
+	/**
+	 * Streams the panels of {@code [A, B]}, or of A if B is null, and returns the R factor of the stack.
+	 */
+	private static Matrix factor(MappedMatrix A, MappedMatrix B, int elements) {
+		final long m = A.getRowCount();
+		final int n = (int) A.getColumnCount();
+		final int nx = B == null ? 0 : Math.toIntExact(B.getColumnCount());
+		final int w = Math.addExact(n, nx);
+		final int panel = (int) Math.min(m, Math.max(w, elements / Math.max(w, 1)));
+		Matrix R = new Matrix(w, w);
+		for (long i0 = 0; i0 < m; i0 += panel) {
+			final int h = (int) Math.min(panel, m - i0);
+			Matrix stack = new Matrix(w + h, w);
+			stack.setMatrix(0, w - 1, 0, w - 1, R);
+			if (h > 0 && n > 0) {
+				stack.setMatrix(w, w + h - 1, 0, n - 1, A.getMatrix(i0, 0, h, n));
+			}
+			if (h > 0 && nx > 0) {
+				stack.setMatrix(w, w + h - 1, n, w - 1, B.getMatrix(i0, 0, h, nx));
+			}
+			R = stack.QR().getR();
+		}
+		return R;
+	}
+
+	private static boolean isFullRank(Matrix R, int n) {
+		for (int j = 0; j < n; j++) {
+			if (R.get(j, j) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -3,20 +3,20 @@ package com.wildbitsfoundry.etk4j.math.linearalgebra;
 import java.util.Arrays;
 import java.util.Random;
 
-import com.wildbitsfoundry.etk4j.constants.ConstantsETK;
-import com.wildbitsfoundry.etk4j.math.MathETK;
 import com.wildbitsfoundry.etk4j.math.complex.Complex;
 import com.wildbitsfoundry.etk4j.math.polynomials.Polynomial;
 import com.wildbitsfoundry.etk4j.util.ComplexArrays;
 import com.wildbitsfoundry.etk4j.util.DoubleArrays;
 
-import static com.wildbitsfoundry.etk4j.math.MathETK.frexp;
-import static com.wildbitsfoundry.etk4j.math.linearalgebra.Matrices.forwardSubstitutionSolve;
-
-public class Matrix {
+public class Matrix implements LinearOperator {
     private double[] data;
     private int rows;
     private int cols;
+    // Incremented by every method that modifies the Matrix, see getVersion().
+    private int version;
+    private boolean cacheFactorization;
+    private Factorization factorization;
+    private int factorizationVersion;
 
     /**
      * Constructs a {@code Matrix}.
@@ -296,6 +296,7 @@ public class Matrix {
             throw new ArrayIndexOutOfBoundsException(String.format("Index j: %d >= than number of columns: %d.", j, cols));
         }
         data[i * cols + j] = val;
+        ++version;
     }
 
     /**
@@ -317,6 +318,7 @@ public class Matrix {
      * @param X  {@codeA(i0:i1,j0:j1)}
      */
     public void setMatrix(int i0, int i1, int j0, int j1, Matrix X) {
+        ++version;
         if(i0 < 0 || i0 >= rows) {
             throw new ArrayIndexOutOfBoundsException("The initial row index i0 must be greater than zero and less than the number of rows.");
         }
@@ -344,6 +346,7 @@ public class Matrix {
      * @param X {@code A(r(:),c(:))}
      */
     public void setMatrix(int[] r, int[] c, Matrix X) {
+        ++version;
         if(Arrays.stream(r).anyMatch(i -> i < 0 || i >= rows)) {
             throw new ArrayIndexOutOfBoundsException("The row indexes must be greater than zero and less than the number of rows.");
         }
@@ -366,6 +369,7 @@ public class Matrix {
      * @param X  A(r(:),j0:j1)
      */
     public void setMatrix(int[] r, int j0, int j1, Matrix X) {
+        ++version;
         if(Arrays.stream(r).anyMatch(i -> i < 0 || i >= rows)) {
             throw new ArrayIndexOutOfBoundsException("The row indexes must be greater than zero and less than the number of rows.");
         }
@@ -391,6 +395,7 @@ public class Matrix {
      * @param X  A(i0:i1,c(:))
      */
     public void setMatrix(int i0, int i1, int[] c, Matrix X) {
+        ++version;
         if(i0 < 0 || i0 >= rows) {
             throw new ArrayIndexOutOfBoundsException("The initial row index i0 must be greater than zero and less than the number of rows.");
         }
@@ -410,10 +415,11 @@ public class Matrix {
     /**
      * Matrix rank.
      *
-     * @return The effective numerical rank, obtained from SVD.
+     * @return The effective numerical rank, obtained from the column pivoted QR decomposition.
+     * @see ColumnPivotedQRDecomposition#rank()
      */
     public int rank() {
-        return new SingularValueDecomposition(this).rank();
+        return new ColumnPivotedQRDecomposition(this).rank();
     }
 
     /**
@@ -426,6 +432,20 @@ public class Matrix {
         return new SingularValueDecomposition(this).cond();
     }
 
+    /**
+     * Estimate of the reciprocal condition number in the one norm. This is much cheaper than {@link #cond()}, and if
+     * the LU decomposition of the {@code Matrix} is already at hand {@link LUDecomposition#rcond()} reuses it.
+     *
+     * @return An estimate of {@code 1 / (||A||1 * ||A^-1||1)}. Zero if the {@code Matrix} is singular.
+     * @throws NonSquareMatrixException When the {@code Matrix} is not square.
+     */
+    public double rcond() {
+        if (rows != cols) {
+            throw new NonSquareMatrixException("Matrix must be square.");
+        }
+        return new LUDecomposition(this).rcond();
+    }
+
     /**
      * Matrix trace.
      *
@@ -526,6 +546,15 @@ public class Matrix {
         return new QRDecomposition(this);
     }
 
+    /**
+     * QR decomposition with column pivoting of the {@code Matrix}.
+     *
+     * @return The {@link ColumnPivotedQRDecomposition} of the {@code Matrix}.
+     */
+    public ColumnPivotedQRDecomposition QRCP() {
+        return new ColumnPivotedQRDecomposition(this);
+    }
+
     /**
      * Cholesky decomposition of the {@code Matrix}.
      *
@@ -608,6 +637,16 @@ public class Matrix {
         return new Matrix(result, trows, tcols);
     }
 
+    /**
+     * View of the whole {@code Matrix} that shares its storage. Sub-matrices, rows, columns and the transpose of the
+     * view are O(1) and can be multiplied without copying.
+     *
+     * @return A {@link MatrixView} of {@code A}.
+     */
+    public MatrixView view() {
+        return new MatrixView(this, data, 0, rows, cols, cols, 1);
+    }
+
     // region norms
 
     /***
@@ -660,13 +699,7 @@ public class Matrix {
      * @return square root of the sum of squares of all elements.
      */
     public double normFrob() {
-        double norm = 0.0;
-        for (int i = 0; i < rows; ++i) {
-            for (int j = 0; j < cols; ++j) {
-                norm = MathETK.hypot(norm, data[i * cols + j]);
-            }
-        }
-        return norm;
+        return DoubleArrays.norm2(data);
     }
     // endregion
 
@@ -707,6 +740,7 @@ public class Matrix {
      * @param B The {@code Matrix} to add.
      */
     public void addEquals(Matrix B) {
+        ++version;
         checkMatrixDimensions(B);
         final int length = rows * cols;
         for (int i = 0; i < length; ++i) {
@@ -733,6 +767,7 @@ public class Matrix {
      * @param B The {@code Matrix} to subtract.
      */
     public void subtractEquals(Matrix B) {
+        ++version;
         checkMatrixDimensions(B);
         final int length = rows * cols;
         for (int i = 0; i < length; ++i) {
@@ -758,6 +793,7 @@ public class Matrix {
      * @return A.*B
      */
     public void arrayMultiplyEquals(Matrix B) {
+        ++version;
         checkMatrixDimensions(B);
         DoubleArrays.multiplyElementWiseInPlace(data, B.data);
     }
@@ -779,6 +815,7 @@ public class Matrix {
      * @param B another matrix
      */
     public void arrayRightDivideEquals(Matrix B) {
+        ++version;
         checkMatrixDimensions(B);
         DoubleArrays.divideElementWiseInPlace(data, B.data);
     }
@@ -809,6 +846,7 @@ public class Matrix {
      * @param B another matrix
      */
     public void arrayLeftDivideEquals(Matrix B) {
+        ++version;
         checkMatrixDimensions(B);
         if (data.length != B.data.length) {
             throw new IllegalArgumentException("a and b dimensions must match");
@@ -837,7 +875,14 @@ public class Matrix {
      * @return s*A
      */
     public ComplexMatrix multiply(Complex s) {
-        return new ComplexMatrix(ComplexArrays.multiplyElementWise(data, s), rows, cols);
+        final int length = rows * cols;
+        double[] real = new double[length];
+        double[] imag = new double[length];
+        for (int i = 0; i < length; ++i) {
+            real[i] = data[i] * s.real();
+            imag[i] = data[i] * s.imag();
+        }
+        return new ComplexMatrix(real, imag, rows, cols);
     }
 
     /**
@@ -846,6 +891,7 @@ public class Matrix {
      * @param s scalar
      */
     public void multiplyEquals(double s) {
+        ++version;
         DoubleArrays.multiplyElementWiseInPlace(data, s);
     }
 
@@ -860,33 +906,76 @@ public class Matrix {
         return c;
     }
 
+    /**
+     * Matrix multiplication.
+     * @param B The view to multiply.
+     * @return {@code A * B}
+     */
+    public Matrix multiply(MatrixView B) {
+        return view().multiply(B);
+    }
+
+    /**
+     * Matrix vector multiplication {@code y = A * x}.
+     * @param x A vector with as many elements as columns in the {@code Matrix}.
+     * @param y A vector with as many elements as rows in the {@code Matrix} that receives the product.
+     */
+    @Override
+    public void multiply(double[] x, double[] y) {
+        if (x.length != cols || y.length != rows) {
+            throw new IllegalArgumentException("Vector lengths must agree with the Matrix dimensions.");
+        }
+        if (x == y) {
+            throw new IllegalArgumentException("The result vector must not be the input vector.");
+        }
+        for (int i = 0; i < rows; ++i) {
+            final int row = i * cols;
+            double sum = 0.0;
+            for (int j = 0; j < cols; ++j) {
+                sum += data[row + j] * x[j];
+            }
+            y[i] = sum;
+        }
+    }
+
     /**
      * Matrix multiplication in place. This is equivalent to {@code A *= B}
      * @param B The {@code Matrix} to multiply.
      */
     public void multiplyEquals(Matrix B) {
+        ++version;
         multiplyOp(this, B, this);
     }
 
+    /**
+     * Minimum number of floating point operations ({@code 2 * m * n * k}) needed for {@link #multiply(Matrix)} and
+     * {@link #multiplyEquals(Matrix)} to split the product across a {@code ForkJoinPool}: the pool of the calling task
+     * when called from one, the common pool otherwise. Smaller products are computed on the calling thread. The
+     * parallel result is bit for bit identical to the serial one.
+     *
+     * @return The current parallel multiplication threshold.
+     */
+    public static long getParallelMultiplyThreshold() {
+        return Gemm.getParallelThreshold();
+    }
+
+    /**
+     * Sets the minimum number of floating point operations ({@code 2 * m * n * k}) needed to compute a product in
+     * parallel.
+     *
+     * @param flops The new threshold. Use {@link Long#MAX_VALUE} to always multiply on the calling thread.
+     */
+    public static void setParallelMultiplyThreshold(long flops) {
+        Gemm.setParallelThreshold(flops);
+    }
+
     private static void multiplyOp(Matrix a, Matrix b, Matrix c) {
         if (b.rows != a.cols) {
             throw new IllegalArgumentException("Matrix inner dimensions must agree. Check that the number of" +
                     "columns of the first matrix equal the number of rows of the second matrix.");
         }
         double[] result = new double[a.rows * b.cols];
-        double[] bColJ = new double[a.cols];
-        for (int j = 0; j < b.cols; j++) {
-            for (int k = 0; k < a.cols; k++) {
-                bColJ[k] = b.data[k * b.cols + j];
-            }
-            for (int i = 0; i < a.rows; i++) {
-                double s = 0;
-                for (int k = 0; k < a.cols; k++) {
-                    s += a.data[k + i * a.cols] * bColJ[k];
-                }
-                result[i * b.cols + j] = s;
-            }
-        }
+        Gemm.multiply(a.rows, b.cols, a.cols, a.data, b.data, result);
         c.data = result;
         c.rows = a.rows;
         c.cols = b.cols;
@@ -904,49 +993,94 @@ public class Matrix {
             throw new IllegalArgumentException("Matrix inner dimensions must agree. Check that the number of" +
                     "columns of the first matrix equal the number of rows of the second matrix.");
         }
-        Complex[] result = new Complex[rows * bCols];
-        Complex[] bColJ = new Complex[cols];
-        Complex[] bData = matrix.getArray();
-        for (int j = 0; j < bCols; j++) {
-            for (int k = 0; k < cols; k++) {
-                bColJ[k] = bData[k * bCols + j];
-            }
-            for (int i = 0; i < rows; i++) {
-                Complex s = new Complex();
-                for (int k = 0; k < cols; k++) {
-                    s.addEquals(bColJ[k].multiply(data[k + i * cols]));
-                }
-                result[i * bCols + j] = s;
-            }
-        }
-        return new ComplexMatrix(result, rows, bCols);
+        // A is real so A * B = A * re(B) + j * A * im(B), which lets both halves run through the real kernel.
+        double[] real = new double[rows * bCols];
+        double[] imag = new double[rows * bCols];
+        Gemm.multiply(rows, bCols, cols, data, matrix.getRealArray(), real);
+        Gemm.multiply(rows, bCols, cols, data, matrix.getImagArray(), imag);
+        return new ComplexMatrix(real, imag, rows, bCols);
     }
 
     // endregion
 
     /**
-     * Solve system of linear equations. Three different algorithms are used depending on the shape of the matrix:
+     * Solve system of linear equations. The algorithm depends on the shape of the matrix:
      * <pre>
-     *     LU Decomposition if the matrix is squared.
+     *     Cholesky Decomposition if the matrix is squared, symmetric and positive definite.
+     *     LU Decomposition for any other squared matrix.
      *     QR if the matrix is thin in other words it has more rows than columns. (Overdetermined system)
+     *     Tall and skinny QR if the matrix has many more rows than columns.
      *     Transpose QR if the matrix is short and wide in other words it has more columns than rows. (Under-determined system)
      * </pre>
+     * The {@code Matrix} is factored on every call unless factorization caching is enabled, see
+     * {@link #setFactorizationCaching(boolean)}. Solving for all the columns of {@code b} at once is much faster than
+     * solving for them one at a time.
      *
      * @param b The solution {@Matrix}.
      * @return The solution to {@code Ax = b}
+     * @see Factorization
      */
     public Matrix solve(Matrix b) {
+        return factorize().solve(b);
+    }
 
-        if (rows == cols) { // Matrix is Squared
-            return new LUDecomposition(this).solve(b);
-        } else if (rows > cols) { // Matrix is thin (Overdetermined system)
-            return new QRDecomposition(this).solve(b);
-        } else { // Matrix is short and wide (Under-determined system)
-            QRDecomposition qr = this.transpose().QR();
-            Matrix R1 = forwardSubstitutionSolve(qr.getRT(), b);
-            R1.appendRows(cols - R1.rows);
-            return qr.QmultiplyX(R1);
+    /**
+     * Factorization used by {@link #solve(Matrix)}.
+     * <p>
+     * If factorization caching is enabled the factorization is kept and returned again until the {@code Matrix} is
+     * modified, so solving the same system for right hand sides that arrive over time costs O(n<sup>2</sup>) per
+     * right hand side instead of O(n<sup>3</sup>).
+     *
+     * @return The factorization of the {@code Matrix}.
+     */
+    public Factorization factorize() {
+        if (factorization != null && factorizationVersion == version) {
+            return factorization;
         }
+        Factorization result = Factorization.of(this);
+        if (cacheFactorization) {
+            factorization = result;
+            factorizationVersion = version;
+        }
+        return result;
+    }
+
+    /**
+     * Enables or disables caching the factorization used by {@link #solve(Matrix)} and {@link #factorize()}.
+     * Disabling it drops the cached factorization.
+     * <p>
+     * The cache is invalidated by the {@link #getVersion() version} of the {@code Matrix}, which also changes on writes
+     * through a {@link MatrixView}, but writes through the array returned by {@link #getArray()} are not detected.
+     *
+     * @param enabled Whether to cache the factorization.
+     */
+    public void setFactorizationCaching(boolean enabled) {
+        cacheFactorization = enabled;
+        if (!enabled) {
+            factorization = null;
+        }
+    }
+
+    public boolean isFactorizationCaching() {
+        return cacheFactorization;
+    }
+
+    /**
+     * Modification stamp of the {@code Matrix}. It changes every time a method of the {@code Matrix} or of one of its
+     * views modifies its elements or dimensions, but not when the array returned by {@link #getArray()} is written
+     * directly.
+     *
+     * @return The current version.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Changes the version after the elements were written by a {@link MatrixView}.
+     */
+    void markModified() {
+        ++version;
     }
 
     /**
@@ -960,53 +1094,25 @@ public class Matrix {
     }
 
     public void appendRows(int count) {
+        ++version;
         rows += count;
         final int newSize = rows * cols;
         data = Arrays.copyOf(data, newSize);
     }
 
     /**
-     * Pseudo inverse of the {@code Matrix}.
+     * Pseudo inverse of the {@code Matrix}, computed from a complete orthogonal decomposition built on the column
+     * pivoted QR decomposition. The {@code Matrix} is truncated to its numerical {@link #rank()} first.
      *
-     * @return {@code A<sup>+</sup>}.
+     * @return {@code A<sup>+</sup>}, or {@code null} if the rank is zero.
+     * @see ColumnPivotedQRDecomposition#pinv()
      */
     public Matrix pinv() {
-        int rows = this.rows;
-        int cols = this.cols;
-
-        if (rows < cols) {
-            Matrix result = this.transpose().pinv();
-            if (result != null) {
-                result = result.transpose();
-            }
-            return result;
-        }
-
-        SingularValueDecomposition svdX = this.SVD();
-        if (svdX.rank() < 1) {
+        ColumnPivotedQRDecomposition qrcp = new ColumnPivotedQRDecomposition(this);
+        if (qrcp.rank() < 1) {
             return null;
         }
-
-        double[] singularValues = svdX.getSingularValues();
-        double tol = Math.max(rows, cols) * singularValues[0] * ConstantsETK.DOUBLE_EPS;
-        double[] singularValueReciprocals = new double[singularValues.length];
-        for (int i = 0; i < singularValues.length; i++) {
-            if (Math.abs(singularValues[i]) >= tol) {
-                singularValueReciprocals[i] = 1.0 / singularValues[i];
-            }
-        }
-        Matrix U = svdX.getU();
-        Matrix V = svdX.getV();
-        int min = Math.min(cols, U.cols);
-        double[][] inverse = new double[cols][rows];
-        for (int i = 0; i < cols; i++) {
-            for (int j = 0; j < U.rows; j++) {
-                for (int k = 0; k < min; k++) {
-                    inverse[i][j] += V.get(i, k) * singularValueReciprocals[k] * U.get(j, k);
-                }
-            }
-        }
-        return new Matrix(inverse);
+        return qrcp.pinv();
     }
 
     @Override
@@ -1044,6 +1150,29 @@ public class Matrix {
         return new EigenvalueDecomposition(this, balance);
     }
 
+    /**
+     * Real Schur decomposition.
+     *
+     * @return The {@link RealSchurDecomposition} of the {@code Matrix}.
+     */
+    public RealSchurDecomposition schur() {
+        return new RealSchurDecomposition(this);
+    }
+
+    /**
+     * Eigenvalue decomposition of a symmetric {@code Matrix}. Only the lower triangle is referenced, so matrices that
+     * are symmetric up to rounding errors, such as computed covariances and gramians, take the symmetric path. The
+     * eigenvalues are real and sorted in ascending order and the eigenvectors are orthonormal.
+     *
+     * @return The {@link EigenvalueDecomposition} of the {@code Matrix}.
+     */
+    public EigenvalueDecomposition eigSymmetric() {
+        if (rows != cols) {
+            throw new NonSquareMatrixException("Matrix must be square.");
+        }
+        return new EigenvalueDecomposition(this, false, true);
+    }
+
     /**
      * Balances the matrix using the algorithm by Parlett and Reinsch with norm -1.
      * References:
@@ -1173,10 +1302,7 @@ public class Matrix {
      */
     public double[] getRow(int row) {
         double[] result = new double[cols];
-        int rowIndex = row * cols;
-        for (int j = 0; j < cols; ++j) {
-            result[j] = data[rowIndex + j];
-        }
+        System.arraycopy(data, row * cols, result, 0, cols);
         return result;
     }
 
@@ -1192,7 +1318,7 @@ public class Matrix {
         }
         double[] result = new double[rows];
         for (int i = 0; i < rows; ++i) {
-            result[i] = data[i * rows + col];
+            result[i] = data[i * cols + col];
         }
         return result;
     }
@@ -1332,6 +1458,7 @@ public class Matrix {
      * @param row The values to set.
      */
     public void setRow(int i, double[] row) {
+        ++version;
         if (i < 0 || i >= rows) {
             throw new IndexOutOfBoundsException("The row index i is out of bounds, it must be greater than zero and less than the number of rows.");
         }
@@ -1413,39 +1540,15 @@ public class Matrix {
 
     /**
      * {@code Matrix} exponential.
+     * <p>
+     * Computed by scaling and squaring with a Padé approximant of degree 3, 5, 7, 9 or 13, picked together with the
+     * number of squarings from the 1-norms of the powers of {@code A} (Al-Mohy and Higham, 2009).
      *
      * @return {@code e<sup>A</sup>}.
+     * @throws NonSquareMatrixException If the {@code Matrix} is not square.
      */
     public Matrix expm() {
-        MathETK.FRexpResult result = frexp(this.normInf());
-        double s = Math.max(0.0, result.exponent + 1);
-        Matrix A = this.multiply(1 / Math.pow(2.0, s));
-
-        Matrix X = new Matrix(A);
-        double c = 0.5;
-        Matrix E = Matrix.identity(A.rows, A.cols).add(A.multiply(c));
-        Matrix D = Matrix.identity(A.rows, A.cols).subtract(A.multiply(c));
-        double q = 6.0;
-        boolean p = true;
-        for (int k = 2; k <= q; ++k) {
-            c = c * (q - k + 1) / (k * (2 * q - k + 1));
-            X.multiplyEquals(A);
-            Matrix cX = X.multiply(c);
-            E.addEquals(cX);
-            if (p) {
-                D.addEquals(cX);
-            } else {
-                D.subtractEquals(cX);
-            }
-            p = !p;
-        }
-        E = D.solve(E);
-
-        for (int k = 0; k < s; ++k) {
-            E.multiplyEquals(E);
-        }
-        return E;
-
+        return MatrixExponential.expm(this);
     }
 
     /**
@@ -0,0 +1,375 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A batch of same sized small matrices, e.g. the 2x2 to 8x8 transfer matrices of millions of sections or the state
+ * matrices of a parameter sweep.
+ * <p>
+ * Creating a {@link Matrix} per member and operating on them one at a time is dominated by allocation, bounds checks
+ * and loops too short to vectorize. The members of a batch are stored as a structure of arrays instead: element
+ * {@code (i, j)} of all the members is contiguous, so every operation runs its innermost loop over the members. The
+ * kernels for 2x2 and 3x3 members are fully unrolled. Members are processed in blocks of {@value #BLOCK} so the
+ * temporaries of an operation stay in cache, and batches whose flop count reaches {@link #getParallelThreshold()} are
+ * split in chunks of blocks that are processed on a {@link ForkJoinPool}: the pool of the calling task when called
+ * from one, the common pool otherwise.
+ */
+public final class MatrixBatch {
+
+    /**
+     * Number of members processed together.
+     */
+    static final int BLOCK = 128;
+
+    /**
+     * Default flop count above which a batch operation is computed in parallel.
+     */
+    static final long DEFAULT_PARALLEL_THRESHOLD = 1L << 22;
+
+    private static volatile long parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    final int count;
+    final int rows;
+    final int cols;
+    final double[] data;
+
+    /**
+     * Creates a batch of zero matrices.
+     *
+     * @param count The number of matrices.
+     * @param rows  The number of rows of every matrix.
+     * @param cols  The number of columns of every matrix.
+     */
+    public MatrixBatch(int count, int rows, int cols) {
+        if (count < 0 || rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("The batch dimensions must be greater than or equal to zero.");
+        }
+        this.count = count;
+        this.rows = rows;
+        this.cols = cols;
+        this.data = new double[Math.multiplyExact(Math.multiplyExact(rows, cols), count)];
+    }
+
+    /**
+     * Copies the given matrices into a batch.
+     *
+     * @param matrices The matrices. All of them must have the same dimensions.
+     * @return The batch.
+     */
+    public static MatrixBatch of(Matrix... matrices) {
+        if (matrices.length == 0) {
+            throw new IllegalArgumentException("The batch must have at least one matrix.");
+        }
+        final int rows = matrices[0].getRowCount();
+        final int cols = matrices[0].getColumnCount();
+        MatrixBatch batch = new MatrixBatch(matrices.length, rows, cols);
+        for (int b = 0; b < matrices.length; ++b) {
+            batch.setMatrix(b, matrices[b]);
+        }
+        return batch;
+    }
+
+    /**
+     * Creates a batch of identity matrices.
+     *
+     * @param count The number of matrices.
+     * @param n     The dimension of the matrices.
+     * @return The batch.
+     */
+    public static MatrixBatch identity(int count, int n) {
+        MatrixBatch batch = new MatrixBatch(count, n, n);
+        for (int i = 0; i < n; ++i) {
+            Arrays.fill(batch.data, (i * n + i) * count, (i * n + i + 1) * count, 1.0);
+        }
+        return batch;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    public int getColumnCount() {
+        return cols;
+    }
+
+    /**
+     * The storage of the batch. Element {@code (i, j)} of matrix {@code b} is at index
+     * {@code (i * cols + j) * count + b}.
+     *
+     * @return The backing array, not a copy.
+     */
+    public double[] getArray() {
+        return data;
+    }
+
+    public double get(int b, int i, int j) {
+        return data[index(b, i, j)];
+    }
+
+    public void set(int b, int i, int j, double value) {
+        data[index(b, i, j)] = value;
+    }
+
+    /**
+     * Copies a member of the batch.
+     *
+     * @param b The index of the member.
+     * @return A copy of matrix {@code b}.
+     */
+    public Matrix getMatrix(int b) {
+        checkMember(b);
+        double[] result = new double[rows * cols];
+        for (int e = 0; e < result.length; ++e) {
+            result[e] = data[e * count + b];
+        }
+        return new Matrix(result, rows, cols);
+    }
+
+    /**
+     * Overwrites a member of the batch.
+     *
+     * @param b The index of the member.
+     * @param A The new value of matrix {@code b}.
+     */
+    public void setMatrix(int b, Matrix A) {
+        checkMember(b);
+        if (A.getRowCount() != rows || A.getColumnCount() != cols) {
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        }
+        double[] a = A.getArray();
+        for (int e = 0; e < a.length; ++e) {
+            data[e * count + b] = a[e];
+        }
+    }
+
+    /**
+     * Multiplies every member by the matching member of {@code B}.
+     *
+     * @param B A batch with as many members as this one.
+     * @return The batch of products {@code A[b] * B[b]}.
+     */
+    public MatrixBatch multiply(MatrixBatch B) {
+        checkCount(B);
+        if (B.rows != cols) {
+            throw new IllegalArgumentException("Matrix inner dimensions must agree. Check that the number of" +
+                    "columns of the first matrix equal the number of rows of the second matrix.");
+        }
+        final int m = rows, n = B.cols, k = cols;
+        final MatrixBatch C = new MatrixBatch(count, m, n);
+        run(count, 2L * m * n * k, (from, len) -> BatchKernels.multiply(m, n, k, len,
+                data, from, count, B.data, from, count, C.data, from, count));
+        return C;
+    }
+
+    /**
+     * LU decomposition with partial pivoting of every member.
+     *
+     * @return The batch LU decomposition.
+     */
+    public BatchLUDecomposition LU() {
+        checkSquare();
+        return new BatchLUDecomposition(this);
+    }
+
+    /**
+     * Solves {@code A[b] * X[b] = B[b]} for every member.
+     *
+     * @param B A batch of right hand sides with as many rows as this batch.
+     * @return The batch of solutions.
+     * @exception RuntimeException if any member is singular.
+     */
+    public MatrixBatch solve(MatrixBatch B) {
+        return LU().solve(B);
+    }
+
+    /**
+     * Inverse of every member. The inverses of 2x2 and 3x3 members are computed from the adjugate, the others from
+     * the LU decomposition.
+     *
+     * @return The batch of inverses.
+     * @exception RuntimeException if any member is singular.
+     */
+    public MatrixBatch inv() {
+        checkSquare();
+        final int n = rows;
+        final MatrixBatch X = new MatrixBatch(count, n, n);
+        if (n != 2 && n != 3) {
+            final boolean[] singular = new boolean[count];
+            run(count, 2L * n * n * n, (from, len) -> BatchKernels.inverseLU(n, len, data, from, count,
+                    X.data, from, count, singular));
+            for (int b = 0; b < count; ++b) {
+                if (singular[b]) {
+                    throw new RuntimeException(String.format("Matrix %d of the batch is singular.", b));
+                }
+            }
+            return X;
+        }
+        final double[] det = det();
+        for (int b = 0; b < count; ++b) {
+            if (det[b] == 0.0) {
+                throw new RuntimeException(String.format("Matrix %d of the batch is singular.", b));
+            }
+        }
+        run(count, 4L * n * n, (from, len) -> BatchKernels.inverse(n, len, data, from, count, det, from,
+                X.data, from, count));
+        return X;
+    }
+
+    /**
+     * Determinant of every member. The determinants of 2x2 and 3x3 members are computed by cofactor expansion, the
+     * others from the LU decomposition.
+     *
+     * @return The determinants.
+     */
+    public double[] det() {
+        checkSquare();
+        final int n = rows;
+        if (n != 2 && n != 3) {
+            return LU().det();
+        }
+        final double[] det = new double[count];
+        run(count, 4L * n * n, (from, len) -> BatchKernels.det(n, len, data, from, count, det, from));
+        return det;
+    }
+
+    /**
+     * Matrix exponential of every member.
+     * <p>
+     * Uses the scaling and squaring method of {@link Matrix#expm()}. Every block of members shares the lowest Padé
+     * degree that is accurate for all of them; blocks that need the degree 13 approximant scale every member by its
+     * own power of two and only square it as many times as it needs.
+     *
+     * @return The batch of exponentials.
+     */
+    public MatrixBatch expm() {
+        checkSquare();
+        final int n = rows;
+        final MatrixBatch X = new MatrixBatch(count, n, n);
+        run(count, 20L * n * n * n, (from, len) -> BatchKernels.expm(n, len, data, from, count,
+                X.data, from, count));
+        return X;
+    }
+
+    /**
+     * Flop count at or above which a batch operation is computed in parallel.
+     *
+     * @return The current parallel threshold.
+     */
+    public static long getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets the flop count at or above which a batch operation is computed in parallel.
+     *
+     * @param flops The new threshold. Use {@link Long#MAX_VALUE} to always compute on the calling thread.
+     */
+    public static void setParallelThreshold(long flops) {
+        if (flops < 0) {
+            throw new IllegalArgumentException("The parallel threshold must be greater than or equal to zero.");
+        }
+        parallelThreshold = flops;
+    }
+
+    /**
+     * A kernel applied to the members {@code from} to {@code from + len - 1}.
+     */
+    interface BlockKernel {
+        void apply(int from, int len);
+    }
+
+    /**
+     * Applies {@code kernel} to {@code count} members in blocks of {@link #BLOCK}, in parallel if the estimated
+     * flop count is large enough. Blocks never share a member so the result does not depend on the schedule.
+     */
+    static void run(int count, long flopsPerMember, BlockKernel kernel) {
+        final long flops = flopsPerMember * count;
+        final ForkJoinPool pool = ForkJoinTask.getPool();
+        final int parallelism = pool != null ? pool.getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+        if (flops >= parallelThreshold && parallelism > 1 && count > BLOCK) {
+            // Aim for a few chunks per worker so uneven chunks still balance out.
+            int blocks = (count + BLOCK - 1) / BLOCK;
+            int grain = Math.max(1, blocks / (4 * parallelism));
+            BlockTask task = new BlockTask(kernel, 0, blocks, grain, count);
+            if (pool != null) {
+                task.invoke();
+            } else {
+                ForkJoinPool.commonPool().invoke(task);
+            }
+            return;
+        }
+        runSerial(kernel, 0, count);
+    }
+
+    private static void runSerial(BlockKernel kernel, int from, int to) {
+        for (int b = from; b < to; b += BLOCK) {
+            kernel.apply(b, Math.min(BLOCK, to - b));
+        }
+    }
+
+    /**
+     * Processes the blocks {@code block0} to {@code block1 - 1} by splitting them in half until there are at most
+     * {@code grain} of them.
+     */
+    private static final class BlockTask extends RecursiveAction {
+        private final BlockKernel kernel;
+        private final int block0, block1, grain, count;
+
+        BlockTask(BlockKernel kernel, int block0, int block1, int grain, int count) {
+            this.kernel = kernel;
+            this.block0 = block0;
+            this.block1 = block1;
+            this.grain = grain;
+            this.count = count;
+        }
+
+        @Override
+        protected void compute() {
+            if (block1 - block0 <= grain) {
+                runSerial(kernel, block0 * BLOCK, Math.min(block1 * BLOCK, count));
+                return;
+            }
+            int mid = (block0 + block1) >>> 1;
+            invokeAll(new BlockTask(kernel, block0, mid, grain, count),
+                    new BlockTask(kernel, mid, block1, grain, count));
+        }
+    }
+
+    void checkCount(MatrixBatch B) {
+        if (B.count != count) {
+            throw new IllegalArgumentException("Both batches must have the same number of matrices.");
+        }
+    }
+
+    private void checkSquare() {
+        if (rows != cols) {
+            throw new NonSquareMatrixException("Matrix must be square.");
+        }
+    }
+
+    private void checkMember(int b) {
+        if (b < 0 || b >= count) {
+            throw new ArrayIndexOutOfBoundsException(String.format("Index b: %d >= than number of matrices: %d.",
+                    b, count));
+        }
+    }
+
+    private int index(int b, int i, int j) {
+        checkMember(b);
+        if (i < 0 || i >= rows) {
+            throw new ArrayIndexOutOfBoundsException(String.format("Index i: %d >= than number of rows: %d.", i, rows));
+        }
+        if (j < 0 || j >= cols) {
+            throw new ArrayIndexOutOfBoundsException(String.format("Index j: %d >= than number of columns: %d.",
+                    j, cols));
+        }
+        return (i * cols + j) * count + b;
+    }
+}
@@ -0,0 +1,584 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+/**
+ * Solvers for the Sylvester and Lyapunov matrix equations, both continuous and discrete.
+ * <p>
+ * The solvers use the Bartels-Stewart method: the coefficient matrices are reduced to their
+ * {@link RealSchurDecomposition real Schur forms}, the transformed equation is solved one 1-by-1 or 2-by-2 block at a
+ * time by substitution and the solution is transformed back. Every step costs O(n<sup>3</sup>), compared to the
+ * O(n<sup>6</sup>) of solving the equivalent Kronecker product system. The Cholesky factor variants use Hammarling's
+ * method, which computes the factor of the solution directly from the factor of the right hand side, without forming
+ * the solution, so the factor stays accurate even when the solution is badly conditioned.
+ * <p>
+ * The names and conventions are the ones of MATLAB.
+ *
+ * @see <a href="https://doi.org/10.1145/361573.361582">R. H. Bartels and G. W. Stewart, Solution of the matrix
+ * equation AX + XB = C, Comm. ACM 15(9), 1972</a>
+ * @see <a href="https://doi.org/10.1093/imanum/2.3.303">S. J. Hammarling, Numerical solution of the stable,
+ * non-negative definite Lyapunov equation, IMA J. Numer. Anal. 2(3), 1982</a>
+ */
+public final class MatrixEquations {
+
+    private MatrixEquations() {
+    }
+
+    /**
+     * Solves the continuous Lyapunov equation {@code A*X + X*A' + Q = 0}.
+     *
+     * @param A A square matrix.
+     * @param Q A matrix with the dimensions of A. If Q is symmetric so is the solution.
+     * @return X
+     * @throws RuntimeException if the equation does not have a unique solution, i.e. if two eigenvalues of A add up
+     *                          to zero.
+     */
+    public static Matrix lyap(Matrix A, Matrix Q) {
+        checkSquare(A);
+        checkDimensions(Q, A.getRowCount(), A.getRowCount());
+        RealSchurDecomposition schur = new RealSchurDecomposition(A);
+        return lyapunov(schur, Q, false);
+    }
+
+    /**
+     * Solves the Sylvester equation {@code A*X + X*B + C = 0}.
+     *
+     * @param A An m-by-m matrix.
+     * @param B An n-by-n matrix.
+     * @param C An m-by-n matrix.
+     * @return The m-by-n solution X.
+     * @throws RuntimeException if the equation does not have a unique solution, i.e. if an eigenvalue of A and an
+     *                          eigenvalue of B add up to zero.
+     */
+    public static Matrix lyap(Matrix A, Matrix B, Matrix C) {
+        checkSquare(A);
+        checkSquare(B);
+        checkDimensions(C, A.getRowCount(), B.getRowCount());
+        RealSchurDecomposition sa = new RealSchurDecomposition(A);
+        RealSchurDecomposition sb = new RealSchurDecomposition(B);
+        return sylvester(sa.getUArray(), sa.getTArray(), A.getRowCount(), sb.getUArray(), sb.getTArray(),
+                B.getRowCount(), C, false);
+    }
+
+    /**
+     * Solves the discrete Lyapunov (Stein) equation {@code A*X*A' - X + Q = 0}.
+     *
+     * @param A A square matrix.
+     * @param Q A matrix with the dimensions of A. If Q is symmetric so is the solution.
+     * @return X
+     * @throws RuntimeException if the equation does not have a unique solution, i.e. if the product of two
+     *                          eigenvalues of A is one.
+     */
+    public static Matrix dlyap(Matrix A, Matrix Q) {
+        checkSquare(A);
+        checkDimensions(Q, A.getRowCount(), A.getRowCount());
+        RealSchurDecomposition schur = new RealSchurDecomposition(A);
+        return lyapunov(schur, Q, true);
+    }
+
+    /**
+     * Solves the discrete Sylvester equation {@code A*X*B - X + C = 0}.
+     *
+     * @param A An m-by-m matrix.
+     * @param B An n-by-n matrix.
+     * @param C An m-by-n matrix.
+     * @return The m-by-n solution X.
+     * @throws RuntimeException if the equation does not have a unique solution, i.e. if the product of an eigenvalue
+     *                          of A and an eigenvalue of B is one.
+     */
+    public static Matrix dlyap(Matrix A, Matrix B, Matrix C) {
+        checkSquare(A);
+        checkSquare(B);
+        checkDimensions(C, A.getRowCount(), B.getRowCount());
+        RealSchurDecomposition sa = new RealSchurDecomposition(A);
+        RealSchurDecomposition sb = new RealSchurDecomposition(B);
+        return sylvester(sa.getUArray(), sa.getTArray(), A.getRowCount(), sb.getUArray(), sb.getTArray(),
+                B.getRowCount(), C, true);
+    }
+
+    /**
+     * Cholesky factor of the solution of the continuous Lyapunov equation {@code A*X + X*A' + B*B' = 0}.
+     *
+     * @param A A stable square matrix, all its eigenvalues must have negative real parts.
+     * @param B A matrix with as many rows as A.
+     * @return The upper triangular R, with a non negative diagonal, such that {@code X = R'*R}.
+     * @throws IllegalArgumentException if A is not stable.
+     */
+    public static Matrix lyapChol(Matrix A, Matrix B) {
+        return hammarling(A, B, false);
+    }
+
+    /**
+     * Cholesky factor of the solution of the discrete Lyapunov equation {@code A*X*A' - X + B*B' = 0}.
+     *
+     * @param A A stable square matrix, all its eigenvalues must lie inside the unit circle.
+     * @param B A matrix with as many rows as A.
+     * @return The upper triangular R, with a non negative diagonal, such that {@code X = R'*R}.
+     * @throws IllegalArgumentException if A is not stable.
+     */
+    public static Matrix dlyapChol(Matrix A, Matrix B) {
+        return hammarling(A, B, true);
+    }
+
+    /**
+     * Solves a Lyapunov equation as a Sylvester equation whose second coefficient is A'. If {@code A = U*S*U'}, then
+     * {@code A' = V*T*V'} with V the columns of U in reverse order and T the upper quasi triangular matrix obtained by
+     * reversing the rows and columns of S'.
+     */
+    private static Matrix lyapunov(RealSchurDecomposition schur, Matrix Q, boolean discrete) {
+        final int n = Q.getRowCount();
+        final double[] S = schur.getTArray();
+        final double[] U = schur.getUArray();
+        double[] T = new double[n * n];
+        double[] V = new double[n * n];
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < n; ++j) {
+                T[i * n + j] = S[(n - 1 - j) * n + n - 1 - i];
+                V[i * n + j] = U[i * n + n - 1 - j];
+            }
+        }
+        Matrix X = sylvester(U, S, n, V, T, n, Q, discrete);
+        if (isSymmetric(Q)) {
+            double[] x = X.getArray();
+            for (int i = 0; i < n; ++i) {
+                for (int j = 0; j < i; ++j) {
+                    double s = 0.5 * (x[i * n + j] + x[j * n + i]);
+                    x[i * n + j] = s;
+                    x[j * n + i] = s;
+                }
+            }
+        }
+        return X;
+    }
+
+    /**
+     * Solves {@code A*X + X*B + C = 0}, or {@code A*X*B - X + C = 0} if discrete, given {@code A = U*S*U'} and
+     * {@code B = V*T*V'}.
+     */
+    private static Matrix sylvester(double[] U, double[] S, int m, double[] V, double[] T, int n, Matrix C,
+                                    boolean discrete) {
+        Matrix Um = new Matrix(U, m, m);
+        Matrix Vm = new Matrix(V, n, n);
+        Matrix Y = Um.transpose().multiply(C).multiply(Vm);
+        double[] y = Y.getArray();
+        for (int i = 0; i < y.length; ++i) {
+            y[i] = -y[i];
+        }
+        solveQuasiTriangular(m, n, S, T, y, discrete);
+        return Um.multiply(Y).multiply(Vm.transpose());
+    }
+
+    /**
+     * Solves {@code S*Y + Y*T = F}, or {@code S*Y*T - Y = F} if discrete, with S and T upper quasi triangular.
+     * <p>
+     * The column blocks of Y are computed from left to right and, within a column block, the row blocks from the
+     * bottom up, so every block only depends on blocks that are already known. The contribution of the previous
+     * column blocks is subtracted from the whole column block with a single pass, in the discrete case through
+     * {@code G = S*Y}, which is updated as every column block is finished.
+     *
+     * @param m The dimension of S.
+     * @param n The dimension of T.
+     * @param S The row packed m-by-m S.
+     * @param T The row packed n-by-n T.
+     * @param F The row packed m-by-n right hand side, overwritten with Y.
+     */
+    static void solveQuasiTriangular(int m, int n, double[] S, double[] T, double[] F, boolean discrete) {
+        final double[] Y = F;
+        final double[] G = discrete ? new double[m * n] : null;
+        final double[] P = discrete ? G : Y;
+        final double[] w = new double[4];
+        final double[] rhs = new double[4];
+        for (int c0 = 0; c0 < n; ) {
+            final int q = c0 + 1 < n && T[(c0 + 1) * n + c0] != 0.0 ? 2 : 1;
+            // Y(:, c0 : c0 + q - 1) -= P(:, 0 : c0 - 1) * T(0 : c0 - 1, c0 : c0 + q - 1)
+            if (c0 > 0) {
+                for (int a = 0; a < m; ++a) {
+                    final int pa = a * n;
+                    for (int b = 0; b < q; ++b) {
+                        double s = 0.0;
+                        for (int i = 0; i < c0; ++i) {
+                            s += P[pa + i] * T[i * n + c0 + b];
+                        }
+                        Y[pa + c0 + b] -= s;
+                    }
+                }
+            }
+            for (int r1 = m; r1 > 0; ) {
+                final int p = r1 >= 2 && S[(r1 - 1) * m + r1 - 2] != 0.0 ? 2 : 1;
+                final int r0 = r1 - p;
+                // w = S(r0 : r1 - 1, r1 : m - 1) * Y(r1 : m - 1, c0 : c0 + q - 1)
+                for (int a = 0; a < p; ++a) {
+                    final int sa = (r0 + a) * m;
+                    for (int b = 0; b < q; ++b) {
+                        double s = 0.0;
+                        for (int j = r1; j < m; ++j) {
+                            s += S[sa + j] * Y[j * n + c0 + b];
+                        }
+                        w[a * q + b] = s;
+                    }
+                }
+                for (int a = 0; a < p; ++a) {
+                    for (int b = 0; b < q; ++b) {
+                        double s = w[a * q + b];
+                        if (discrete) {
+                            s = 0.0;
+                            for (int d = 0; d < q; ++d) {
+                                s += w[a * q + d] * T[(c0 + d) * n + c0 + b];
+                            }
+                        }
+                        rhs[a * q + b] = Y[(r0 + a) * n + c0 + b] - s;
+                    }
+                }
+                solveBlock(S, m, r0, p, T, n, c0, q, rhs, discrete);
+                for (int a = 0; a < p; ++a) {
+                    for (int b = 0; b < q; ++b) {
+                        Y[(r0 + a) * n + c0 + b] = rhs[a * q + b];
+                    }
+                }
+                r1 = r0;
+            }
+            if (discrete) {
+                // G(:, c0 : c0 + q - 1) = S * Y(:, c0 : c0 + q - 1)
+                for (int a = 0; a < m; ++a) {
+                    final int sa = a * m;
+                    for (int b = 0; b < q; ++b) {
+                        double s = 0.0;
+                        for (int j = Math.max(a - 1, 0); j < m; ++j) {
+                            s += S[sa + j] * Y[j * n + c0 + b];
+                        }
+                        G[a * n + c0 + b] = s;
+                    }
+                }
+            }
+            c0 += q;
+        }
+    }
+
+    /**
+     * Solves the p-by-q block equation {@code S11*X + X*T11 = R}, or {@code S11*X*T11 - X = R} if discrete, as a
+     * Kronecker product system of order p*q with partial pivoting. X and R are row packed in {@code x}.
+     */
+    private static void solveBlock(double[] S, int m, int r0, int p, double[] T, int n, int c0, int q, double[] x,
+                                   boolean discrete) {
+        final int k = p * q;
+        final double[] K = new double[k * k];
+        for (int a = 0; a < p; ++a) {
+            for (int b = 0; b < q; ++b) {
+                final int row = (a * q + b) * k;
+                for (int c = 0; c < p; ++c) {
+                    for (int d = 0; d < q; ++d) {
+                        final double sac = S[(r0 + a) * m + r0 + c];
+                        final double tdb = T[(c0 + d) * n + c0 + b];
+                        double v;
+                        if (discrete) {
+                            v = sac * tdb - (a == c && b == d ? 1.0 : 0.0);
+                        } else {
+                            v = (b == d ? sac : 0.0) + (a == c ? tdb : 0.0);
+                        }
+                        K[row + c * q + d] = v;
+                    }
+                }
+            }
+        }
+        double norm = 0.0;
+        for (double v : K) {
+            norm = Math.max(norm, Math.abs(v));
+        }
+        final double smin = Math.max(norm * 0x1.0p-52, Double.MIN_NORMAL);
+        for (int j = 0; j < k; ++j) {
+            int piv = j;
+            for (int i = j + 1; i < k; ++i) {
+                if (Math.abs(K[i * k + j]) > Math.abs(K[piv * k + j])) {
+                    piv = i;
+                }
+            }
+            if (!(Math.abs(K[piv * k + j]) >= smin)) {
+                throw new RuntimeException("The equation does not have a unique solution.");
+            }
+            if (piv != j) {
+                for (int c = 0; c < k; ++c) {
+                    double t = K[piv * k + c];
+                    K[piv * k + c] = K[j * k + c];
+                    K[j * k + c] = t;
+                }
+                double t = x[piv];
+                x[piv] = x[j];
+                x[j] = t;
+            }
+            for (int i = j + 1; i < k; ++i) {
+                final double l = K[i * k + j] / K[j * k + j];
+                for (int c = j + 1; c < k; ++c) {
+                    K[i * k + c] -= l * K[j * k + c];
+                }
+                x[i] -= l * x[j];
+            }
+        }
+        for (int j = k - 1; j >= 0; --j) {
+            double s = x[j];
+            for (int c = j + 1; c < k; ++c) {
+                s -= K[j * k + c] * x[c];
+            }
+            x[j] = s / K[j * k + j];
+        }
+    }
+
+    /**
+     * Hammarling's method on the complex Schur form {@code A = Q*S*Q'} of A.
+     * <p>
+     * The transformed equation is solved for an upper triangular U with {@code Q'*X*Q = U*U'} from the last row up.
+     * Every step gives a diagonal element of U from the last row of the transformed right hand side factor, solves a
+     * triangular system for the rest of its column and downdates the right hand side factor to the leading part of
+     * the equation. The factor of X is then the triangular factor of the QR decomposition of
+     * {@code [real(Q*U), imag(Q*U)]'}.
+     */
+    private static Matrix hammarling(Matrix A, Matrix B, boolean discrete) {
+        checkSquare(A);
+        final int n = A.getRowCount();
+        if (B.getRowCount() != n) {
+            throw new IllegalArgumentException("Matrix row dimensions must agree.");
+        }
+        if (B.getColumnCount() > n) {
+            // B*B' = R'*R with R the triangular factor of B'.
+            B = B.transpose().QR().getR().transpose();
+        }
+        final int m = B.getColumnCount();
+        RealSchurDecomposition schur = new RealSchurDecomposition(A);
+        final double[] sr = schur.getTArray().clone();
+        final double[] si = new double[n * n];
+        final double[] qr = schur.getUArray().clone();
+        final double[] qi = new double[n * n];
+        toComplexSchur(n, sr, si, qr, qi);
+        for (int k = 0; k < n; ++k) {
+            final double lr = sr[k * n + k];
+            final double li = si[k * n + k];
+            if (discrete ? !(lr * lr + li * li < 1.0) : !(lr < 0.0)) {
+                throw new IllegalArgumentException("Matrix A must be stable.");
+            }
+        }
+
+        // The right hand side factor Q'*B.
+        Matrix Qr = new Matrix(qr, n, n).transpose();
+        Matrix Qi = new Matrix(qi, n, n).transpose();
+        final double[] br = Qr.multiply(B).getArray();
+        final double[] bi = Qi.multiply(B).getArray();
+        for (int i = 0; i < bi.length; ++i) {
+            bi[i] = -bi[i];
+        }
+
+        final double[] ur = new double[n * n];
+        final double[] ui = new double[n * n];
+        final double[] cr = new double[n];
+        final double[] ci = new double[n];
+        final double[] yr = new double[n];
+        final double[] yi = new double[n];
+        for (int k = n - 1; k >= 0; --k) {
+            final int bk = k * m;
+            final double lr = sr[k * n + k];
+            final double li = si[k * n + k];
+            double nb2 = 0.0;
+            for (int j = 0; j < m; ++j) {
+                nb2 += br[bk + j] * br[bk + j] + bi[bk + j] * bi[bk + j];
+            }
+            final double mu = Math.sqrt(discrete ? nb2 / (1.0 - (lr * lr + li * li)) : nb2 / (-2.0 * lr));
+            ur[k * n + k] = mu;
+            if (mu == 0.0 || k == 0) {
+                // A zero row of the right hand side factor leaves the rest of the equation unchanged.
+                continue;
+            }
+            // c = B1 * b / mu with b the conjugate of the last row.
+            for (int i = 0; i < k; ++i) {
+                double re = 0.0, im = 0.0;
+                final int bi0 = i * m;
+                for (int j = 0; j < m; ++j) {
+                    final double xr = br[bi0 + j], xi = bi[bi0 + j];
+                    final double zr = br[bk + j], zi = -bi[bk + j];
+                    re += xr * zr - xi * zi;
+                    im += xr * zi + xi * zr;
+                }
+                cr[i] = re / mu;
+                ci[i] = im / mu;
+            }
+            // Back substitution for the column u of U above the diagonal:
+            // continuous: (S1 + conj(l) * I) * u = -(s * mu + c)
+            // discrete:   (conj(l) * S1 - I) * u = -(conj(l) * s * mu + c)
+            for (int i = k - 1; i >= 0; --i) {
+                final int si0 = i * n;
+                double tr = 0.0, ti = 0.0;
+                for (int j = i + 1; j < k; ++j) {
+                    final double ar = sr[si0 + j], ai = si[si0 + j];
+                    final double xr = ur[j * n + k], xi = ui[j * n + k];
+                    tr += ar * xr - ai * xi;
+                    ti += ar * xi + ai * xr;
+                }
+                // t = S1(i, i + 1 : k - 1) * u + s(i) * mu
+                tr += sr[si0 + k] * mu;
+                ti += si[si0 + k] * mu;
+                final double sdr = sr[si0 + i], sdi = si[si0 + i];
+                double rr, ri, dr, di;
+                if (discrete) {
+                    rr = -(lr * tr + li * ti) - cr[i];
+                    ri = -(lr * ti - li * tr) - ci[i];
+                    dr = lr * sdr + li * sdi - 1.0;
+                    di = lr * sdi - li * sdr;
+                } else {
+                    rr = -tr - cr[i];
+                    ri = -ti - ci[i];
+                    dr = sdr + lr;
+                    di = sdi - li;
+                }
+                final double den = dr * dr + di * di;
+                ur[i * n + k] = (rr * dr + ri * di) / den;
+                ui[i * n + k] = (ri * dr - rr * di) / den;
+            }
+            if (!discrete) {
+                // B1 -= u * b' / mu
+                for (int i = 0; i < k; ++i) {
+                    final double xr = ur[i * n + k] / mu, xi = ui[i * n + k] / mu;
+                    final int bi0 = i * m;
+                    for (int j = 0; j < m; ++j) {
+                        final double zr = br[bk + j], zi = bi[bk + j];
+                        br[bi0 + j] -= xr * zr - xi * zi;
+                        bi[bi0 + j] -= xr * zi + xi * zr;
+                    }
+                }
+                continue;
+            }
+            // B1*B1' + y*y' - u*u' with y = S1*u + mu*s and u = [B1, y] * v, v = [b / mu; conj(l)] of unit norm,
+            // is [B1, y] * (I - v*v') * [B1, y]'. The first m columns of the Householder reflector H that maps v to a
+            // multiple of the last unit vector span the complement of v, so the new factor is [B1, y] * H(:, 0 : m-1).
+            for (int i = 0; i < k; ++i) {
+                final int si0 = i * n;
+                double tr = sr[si0 + k] * mu, ti = si[si0 + k] * mu;
+                for (int j = i; j < k; ++j) {
+                    final double ar = sr[si0 + j], ai = si[si0 + j];
+                    final double xr = ur[j * n + k], xi = ui[j * n + k];
+                    tr += ar * xr - ai * xi;
+                    ti += ar * xi + ai * xr;
+                }
+                yr[i] = tr;
+                yi[i] = ti;
+            }
+            final double vmr = lr, vmi = -li;
+            final double vma = Math.hypot(vmr, vmi);
+            final double gr = vma == 0.0 ? -1.0 : -vmr / vma;
+            final double gi = vma == 0.0 ? 0.0 : -vmi / vma;
+            // w = v - g * e_m, w'*w = 2 * (1 + |v_m|)
+            final double wmr = vmr - gr, wmi = vmi - gi;
+            final double scale = 1.0 / (1.0 + vma);
+            for (int i = 0; i < k; ++i) {
+                final int bi0 = i * m;
+                // p = [B1, y](i, :) * w
+                double pr = yr[i] * wmr - yi[i] * wmi;
+                double pi = yr[i] * wmi + yi[i] * wmr;
+                for (int j = 0; j < m; ++j) {
+                    final double xr = br[bi0 + j], xi = bi[bi0 + j];
+                    final double wr = br[bk + j] / mu, wi = -bi[bk + j] / mu;
+                    pr += xr * wr - xi * wi;
+                    pi += xr * wi + xi * wr;
+                }
+                pr *= scale;
+                pi *= scale;
+                // B1(i, j) -= p * conj(w(j))
+                for (int j = 0; j < m; ++j) {
+                    final double wr = br[bk + j] / mu, wi = bi[bk + j] / mu;
+                    br[bi0 + j] -= pr * wr - pi * wi;
+                    bi[bi0 + j] -= pr * wi + pi * wr;
+                }
+            }
+        }
+
+        // Z = Q * U and X = Z * Z' = M * M' with M = [real(Z), imag(Z)].
+        Matrix Qrm = new Matrix(qr, n, n);
+        Matrix Qim = new Matrix(qi, n, n);
+        Matrix Urm = new Matrix(ur, n, n);
+        Matrix Uim = new Matrix(ui, n, n);
+        Matrix Zr = Qrm.multiply(Urm).subtract(Qim.multiply(Uim));
+        Matrix Zi = Qrm.multiply(Uim).add(Qim.multiply(Urm));
+        Matrix Mt = new Matrix(2 * n, n);
+        Mt.setMatrix(0, n - 1, 0, n - 1, Zr.transpose());
+        Mt.setMatrix(n, 2 * n - 1, 0, n - 1, Zi.transpose());
+        Matrix R = Mt.QR().getR();
+        double[] r = R.getArray();
+        for (int i = 0; i < n; ++i) {
+            if (r[i * n + i] < 0.0) {
+                for (int j = i; j < n; ++j) {
+                    r[i * n + j] = -r[i * n + j];
+                }
+            }
+        }
+        return R;
+    }
+
+    /**
+     * Reduces a real Schur decomposition {@code A = Q*S*Q'} to a complex Schur decomposition in place, by zeroing
+     * the sub-diagonal of every 2-by-2 block of S with a complex Givens rotation.
+     */
+    static void toComplexSchur(int n, double[] sr, double[] si, double[] qr, double[] qi) {
+        for (int m = n - 1; m >= 1; --m) {
+            final int p = m - 1;
+            final double c = sr[m * n + p];
+            if (c == 0.0) {
+                continue;
+            }
+            // [mu; c] is an eigenvector of the block for mu = l - S(m, m), l one of its eigenvalues.
+            final double half = 0.5 * (sr[p * n + p] - sr[m * n + m]);
+            final double disc = half * half + sr[p * n + m] * c;
+            final double mr = disc < 0.0 ? half : half + Math.copySign(Math.sqrt(disc), half);
+            final double mi = disc < 0.0 ? Math.sqrt(-disc) : 0.0;
+            final double h = Math.hypot(Math.hypot(mr, mi), c);
+            final double gr = mr / h, gi = mi / h, s = c / h;
+            // Rows p and m from G = [conj(g), s; -s, g].
+            for (int j = p; j < n; ++j) {
+                final double xr = sr[p * n + j], xi = si[p * n + j];
+                final double yr = sr[m * n + j], yi = si[m * n + j];
+                sr[p * n + j] = gr * xr + gi * xi + s * yr;
+                si[p * n + j] = gr * xi - gi * xr + s * yi;
+                sr[m * n + j] = -s * xr + gr * yr - gi * yi;
+                si[m * n + j] = -s * xi + gr * yi + gi * yr;
+            }
+            // Columns p and m from G'.
+            rotateColumns(m + 1, n, sr, si, p, m, gr, gi, s);
+            rotateColumns(n, n, qr, qi, p, m, gr, gi, s);
+            sr[m * n + p] = 0.0;
+            si[m * n + p] = 0.0;
+        }
+    }
+
+    /**
+     * Multiplies columns p and m of the first {@code rows} rows by {@code G' = [g, -s; s, conj(g)]} from the right.
+     */
+    private static void rotateColumns(int rows, int n, double[] ar, double[] ai, int p, int m, double gr, double gi,
+                                      double s) {
+        for (int i = 0; i < rows; ++i) {
+            final double xr = ar[i * n + p], xi = ai[i * n + p];
+            final double yr = ar[i * n + m], yi = ai[i * n + m];
+            ar[i * n + p] = xr * gr - xi * gi + s * yr;
+            ai[i * n + p] = xr * gi + xi * gr + s * yi;
+            ar[i * n + m] = -s * xr + yr * gr + yi * gi;
+            ai[i * n + m] = -s * xi + yi * gr - yr * gi;
+        }
+    }
+
+    private static boolean isSymmetric(Matrix Q) {
+        final int n = Q.getRowCount();
+        final double[] q = Q.getArray();
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < i; ++j) {
+                if (q[i * n + j] != q[j * n + i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void checkSquare(Matrix A) {
+        if (A.getRowCount() != A.getColumnCount()) {
+            throw new NonSquareMatrixException("Matrix must be square.");
+        }
+    }
+
+    private static void checkDimensions(Matrix C, int rows, int cols) {
+        if (C.getRowCount() != rows || C.getColumnCount() != cols) {
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import java.util.Arrays;
+
+/**
+ * Matrix exponential by scaling and squaring.
+ * <p>
+ * {@code e<sup>A</sup> = (r<sub>m</sub>(A / 2<sup>s</sup>))<sup>2<sup>s</sup></sup>} where {@code r<sub>m</sub>} is
+ * the {@code [m/m]} Padé approximant. The degree {@code m} in {3, 5, 7, 9, 13} and the number of squarings {@code s}
+ * are the cheapest ones that keep the backward error below the unit roundoff. They are picked from the quantities
+ * {@code ||A<sup>k</sup>||<sub>1</sub><sup>1/k</sup>}, which can be much smaller than {@code ||A||<sub>1</sub>}
+ * for nonnormal matrices, so fewer squarings are needed than with a bound based on the norm of {@code A} alone.
+ * <p>
+ * The norms of {@code A<sup>2</sup>}, {@code A<sup>4</sup>} and {@code A<sup>6</sup>} are computed exactly since
+ * those powers are needed by the approximants anyway. The norms of higher powers are bounded by products of the
+ * known ones.
+ *
+ * @see <a href="https://doi.org/10.1137/09074721X">A. H. Al-Mohy and N. J. Higham, A New Scaling and Squaring
+ * Algorithm for the Matrix Exponential, SIAM J. Matrix Anal. Appl. 31(3), 2009</a>
+ */
+final class MatrixExponential {
+    static final double THETA_3 = 1.495585217958292e-2;
+    static final double THETA_5 = 2.539398330063230e-1;
+    static final double THETA_7 = 9.504178996162932e-1;
+    static final double THETA_9 = 2.097847961257068e0;
+    static final double THETA_13 = 5.371920351148152e0;
+
+    static final double[] PADE_3 = {120.0, 60.0, 12.0, 1.0};
+    static final double[] PADE_5 = {30240.0, 15120.0, 3360.0, 420.0, 30.0, 1.0};
+    static final double[] PADE_7 = {17297280.0, 8648640.0, 1995840.0, 277200.0, 25200.0, 1512.0, 56.0, 1.0};
+    static final double[] PADE_9 = {17643225600.0, 8821612800.0, 2075673600.0, 302702400.0, 30270240.0,
+            2162160.0, 110880.0, 3960.0, 90.0, 1.0};
+    static final double[] PADE_13 = {64764752532480000.0, 32382376266240000.0, 7771770303897600.0,
+            1187353796428800.0, 129060195264000.0, 10559470521600.0, 670442572800.0, 33522128640.0,
+            1323241920.0, 40840800.0, 960960.0, 16380.0, 182.0, 1.0};
+
+    private MatrixExponential() {
+    }
+
+    static Matrix expm(Matrix matrix) {
+        final int n = matrix.getRowCount();
+        if (n != matrix.getColumnCount()) {
+            throw new NonSquareMatrixException("Matrix must be square.");
+        }
+        if (n == 0) {
+            return Matrix.empty();
+        }
+        final double[] A = matrix.getArray();
+        final double normA = norm1(A, n);
+
+        double[] A2 = multiply(A, A, n);
+        final double norm2 = norm1(A2, n);
+        // ||A^4|| and ||A^6|| are both bounded by ||A^2||^2 and ||A^2||^3.
+        final double eta1 = Math.sqrt(norm2);
+        if (eta1 <= THETA_3 && ell(A, n, normA, 1.0, 3) == 0) {
+            return pade(A, n, PADE_3, A2);
+        }
+        double[] A4 = multiply(A2, A2, n);
+        final double norm4 = norm1(A4, n);
+        final double d4 = Math.pow(norm4, 1.0 / 4.0);
+        final double eta2 = Math.max(d4, Math.pow(norm4 * norm2, 1.0 / 6.0));
+        if (eta2 <= THETA_5 && ell(A, n, normA, 1.0, 5) == 0) {
+            return pade(A, n, PADE_5, A2, A4);
+        }
+        double[] A6 = multiply(A4, A2, n);
+        final double norm6 = norm1(A6, n);
+        final double d6 = Math.pow(norm6, 1.0 / 6.0);
+        final double d8 = Math.min(d4, Math.pow(norm6 * norm2, 1.0 / 8.0));
+        final double eta3 = Math.max(d6, d8);
+        if (eta3 <= THETA_7 && ell(A, n, normA, 1.0, 7) == 0) {
+            return pade(A, n, PADE_7, A2, A4, A6);
+        }
+        if (eta3 <= THETA_9 && ell(A, n, normA, 1.0, 9) == 0) {
+            return pade(A, n, PADE_9, A2, A4, A6, multiply(A6, A2, n));
+        }
+
+        final double d10 = Math.min(Math.pow(norm6 * norm4, 1.0 / 10.0), Math.pow(norm6 * norm2 * norm2, 1.0 / 10.0));
+        final double eta5 = Math.min(eta3, Math.max(d8, d10));
+        int s = eta5 == 0.0 ? 0 : Math.max(0, (int) Math.ceil(Math.log(eta5 / THETA_13) / Math.log(2.0)));
+        s += ell(A, n, normA, Math.scalb(1.0, -s), 13);
+
+        double[] X = pade13(A, n, s, A2, A4, A6);
+        double[] Y = new double[n * n];
+        for (int k = 0; k < s; ++k) {
+            Arrays.fill(Y, 0.0);
+            Gemm.multiply(n, n, n, X, X, Y);
+            double[] temp = X;
+            X = Y;
+            Y = temp;
+        }
+        return new Matrix(X, n, n);
+    }
+
+    /**
+     * Odd and even parts of the Padé approximant of degree {@code b.length - 1} from the even powers of A:
+     * {@code U = A * sum(b[2k + 1] * A^2k)}, {@code V = sum(b[2k] * A^2k)}.
+     */
+    private static Matrix pade(double[] A, int n, double[] b, double[]... powers) {
+        double[] u = new double[n * n];
+        double[] v = new double[n * n];
+        for (int i = 0; i < n; ++i) {
+            u[i * n + i] = b[1];
+            v[i * n + i] = b[0];
+        }
+        for (int k = 0; k < powers.length; ++k) {
+            final double bu = b[2 * k + 3];
+            final double bv = b[2 * k + 2];
+            final double[] P = powers[k];
+            for (int i = 0; i < n * n; ++i) {
+                u[i] += bu * P[i];
+                v[i] += bv * P[i];
+            }
+        }
+        double[] U = multiply(A, u, n);
+        return new Matrix(solve(U, v, n), n, n);
+    }
+
+    /**
+     * Padé approximant of degree 13 at {@code A / 2<sup>s</sup>} evaluated with three products on top of the powers
+     * of {@code A}:
+     * <pre>
+     *     U = A * (A6 * (c13 * A6 + c11 * A4 + c9 * A2) + c7 * A6 + c5 * A4 + c3 * A2 + c1 * I)
+     *     V = A6 * (c12 * A6 + c10 * A4 + c8 * A2) + c6 * A6 + c4 * A4 + c2 * A2 + c0 * I
+     * </pre>
+     * with {@code ck = bk / 2<sup>ks</sup>}. Scaling by a power of two is exact, so folding it into the coefficients
+     * gives the same result as scaling the powers of {@code A}.
+     */
+    private static double[] pade13(double[] A, int n, int s, double[] A2, double[] A4, double[] A6) {
+        double[] c = new double[PADE_13.length];
+        for (int k = 0; k < c.length; ++k) {
+            c[k] = Math.scalb(PADE_13[k], -k * s);
+        }
+        final int nn = n * n;
+        double[] u = new double[nn];
+        double[] v = new double[nn];
+        for (int i = 0; i < nn; ++i) {
+            u[i] = c[13] * A6[i] + c[11] * A4[i] + c[9] * A2[i];
+            v[i] = c[12] * A6[i] + c[10] * A4[i] + c[8] * A2[i];
+        }
+        double[] U = multiply(A6, u, n);
+        double[] V = multiply(A6, v, n);
+        for (int i = 0; i < nn; ++i) {
+            U[i] += c[7] * A6[i] + c[5] * A4[i] + c[3] * A2[i];
+            V[i] += c[6] * A6[i] + c[4] * A4[i] + c[2] * A2[i];
+        }
+        for (int i = 0; i < n; ++i) {
+            U[i * n + i] += c[1];
+            V[i * n + i] += c[0];
+        }
+        return solve(multiply(A, U, n), V, n);
+    }
+
+    /**
+     * Solves {@code (V - U) * X = V + U}.
+     */
+    private static double[] solve(double[] U, double[] V, int n) {
+        final int nn = n * n;
+        double[] P = new double[nn];
+        double[] Q = new double[nn];
+        for (int i = 0; i < nn; ++i) {
+            P[i] = V[i] + U[i];
+            Q[i] = V[i] - U[i];
+        }
+        return new LUDecomposition(new Matrix(Q, n, n)).solve(new Matrix(P, n, n)).getArray();
+    }
+
+    /**
+     * Number of extra squarings needed so that the rounding errors in the evaluation of the Padé approximant of
+     * degree {@code m} at {@code scale * A} stay below the unit roundoff. The norm of
+     * {@code |scale * A|<sup>2m + 1</sup>} is computed exactly as {@code max(e' * |scale * A|<sup>2m + 1</sup>)}, since
+     * the matrix is nonnegative, unless the bound {@code ||scale * A||<sup>2m + 1</sup>} already shows that no extra
+     * squarings are needed.
+     */
+    private static int ell(double[] A, int n, double normA, double scale, int m) {
+        final int p = 2 * m + 1;
+        normA *= scale;
+        if (normA == 0.0) {
+            return 0;
+        }
+        // 1 / |c_2m+1| = binomial(2m, m) * (2m + 1)! where c_2m+1 is the leading coefficient of the error series.
+        double reciprocal = 1.0;
+        for (int k = m + 1; k <= 2 * m; ++k) {
+            reciprocal *= k;
+        }
+        for (int k = 2; k <= m; ++k) {
+            reciprocal /= k;
+        }
+        for (int k = 2; k <= p; ++k) {
+            reciprocal *= k;
+        }
+        final double u = Math.ulp(1.0) / 2.0;
+        if (Math.pow(normA, p - 1) / reciprocal <= u) {
+            return 0;
+        }
+
+        double[] x = new double[n];
+        double[] y = new double[n];
+        Arrays.fill(x, scale);
+        for (int k = 0; k < p; ++k) {
+            Arrays.fill(y, 0.0);
+            for (int i = 0; i < n; ++i) {
+                final double xi = x[i];
+                final int row = i * n;
+                for (int j = 0; j < n; ++j) {
+                    y[j] += xi * Math.abs(A[row + j]);
+                }
+            }
+            double[] temp = x;
+            x = y;
+            y = temp;
+            if (k + 1 < p) {
+                for (int j = 0; j < n; ++j) {
+                    x[j] *= scale;
+                }
+            }
+        }
+        double norm = 0.0;
+        for (int j = 0; j < n; ++j) {
+            norm = Math.max(norm, x[j]);
+        }
+        if (norm == 0.0) {
+            return 0;
+        }
+        final double alpha = norm / (normA * reciprocal);
+        return Math.max(0, (int) Math.ceil(Math.log(alpha / u) / Math.log(2.0) / (2 * m)));
+    }
+
+    private static double[] multiply(double[] A, double[] B, int n) {
+        double[] C = new double[n * n];
+        Gemm.multiply(n, n, n, A, B, C);
+        return C;
+    }
+
+    private static double norm1(double[] A, int n) {
+        double norm = 0.0;
+        for (int j = 0; j < n; ++j) {
+            double sum = 0.0;
+            for (int i = 0; i < n; ++i) {
+                sum += Math.abs(A[i * n + j]);
+            }
+            norm = Math.max(norm, sum);
+        }
+        return norm;
+    }
+}
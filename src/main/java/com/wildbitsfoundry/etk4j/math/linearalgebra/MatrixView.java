@@ -0,0 +1,261 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+/**
+ * A strided window into the storage of a {@link Matrix}.
+ * <P>
+ * A view is described by an offset and a row/column stride into the backing array, so taking a sub-matrix, a row, a
+ * column or the transpose of a view is O(1) and copies nothing. Views share storage with the {@code Matrix} they were
+ * created from: writes through {@link #set(int, int, double)} change the matrix and changes to the matrix are
+ * visible through the view. Views must not be used after any operation that reallocates the storage of the matrix,
+ * e.g. {@link Matrix#appendRows(int)} or {@link Matrix#multiplyEquals(Matrix)}.
+ * <P>
+ * Products are computed by the same blocked kernel as {@link Matrix#multiply(Matrix)}, which reads the operands
+ * through their strides, so the result is bit for bit identical to multiplying packed copies.
+ *
+ * @see Matrix#view()
+ */
+public final class MatrixView implements LinearOperator {
+    private final Matrix owner;
+    private final double[] data;
+    private final int offset;
+    private final int rows;
+    private final int cols;
+    private final int rowStride;
+    private final int colStride;
+
+    MatrixView(Matrix owner, double[] data, int offset, int rows, int cols, int rowStride, int colStride) {
+        this.owner = owner;
+        this.data = data;
+        this.offset = offset;
+        this.rows = rows;
+        this.cols = cols;
+        this.rowStride = rowStride;
+        this.colStride = colStride;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return cols;
+    }
+
+    /**
+     * Retrieve value from the view at a given position.
+     *
+     * @param i The row index.
+     * @param j The column index.
+     * @return The value at {@code A(i, j)}.
+     */
+    public double get(int i, int j) {
+        checkIndices(i, j);
+        return data[offset + i * rowStride + j * colStride];
+    }
+
+    /**
+     * Set the value at a given position. The backing {@code Matrix} is modified and its
+     * {@link Matrix#getVersion() version} changes.
+     *
+     * @param i   The row index.
+     * @param j   The column index.
+     * @param val The value to set at {@code A(i, j)}.
+     */
+    public void set(int i, int j, double val) {
+        checkIndices(i, j);
+        data[offset + i * rowStride + j * colStride] = val;
+        owner.markModified();
+    }
+
+    private void checkIndices(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= cols) {
+            throw new ArrayIndexOutOfBoundsException("Index (" + i + ", " + j + ") is out of bounds for a " +
+                    rows + "x" + cols + " view.");
+        }
+    }
+
+    /**
+     * Get a sub-matrix view. No data is copied.
+     *
+     * @param row0 The initial row index.
+     * @param row1 The final row index.
+     * @param col0 The initial column index.
+     * @param col1 The final column index.
+     * @return {@code A(row0 : row1, col0 : col1)}.
+     */
+    public MatrixView subView(int row0, int row1, int col0, int col1) {
+        if (row0 < 0 || row1 < row0 - 1 || row1 >= rows) {
+            throw new ArrayIndexOutOfBoundsException("The row indexes must satisfy 0 <= row0 <= row1 + 1 <= " +
+                    "number of rows.");
+        }
+        if (col0 < 0 || col1 < col0 - 1 || col1 >= cols) {
+            throw new ArrayIndexOutOfBoundsException("The column indexes must satisfy 0 <= col0 <= col1 + 1 <= " +
+                    "number of columns.");
+        }
+        return new MatrixView(owner, data, offset + row0 * rowStride + col0 * colStride, row1 - row0 + 1,
+                col1 - col0 + 1, rowStride, colStride);
+    }
+
+    /**
+     * Transposed view. No data is copied.
+     *
+     * @return {@code A<sup>T</sup>}.
+     */
+    public MatrixView transpose() {
+        return new MatrixView(owner, data, offset, cols, rows, colStride, rowStride);
+    }
+
+    /**
+     * Row view. No data is copied.
+     *
+     * @param i The row index.
+     * @return {@code A(i, :)} as a {@code 1 x n} view.
+     */
+    public MatrixView row(int i) {
+        return subView(i, i, 0, cols - 1);
+    }
+
+    /**
+     * Column view. No data is copied.
+     *
+     * @param j The column index.
+     * @return {@code A(:, j)} as a {@code m x 1} view.
+     */
+    public MatrixView column(int j) {
+        return subView(0, rows - 1, j, j);
+    }
+
+    /**
+     * Matrix multiplication.
+     *
+     * @param B The view to multiply.
+     * @return {@code A * B}
+     */
+    public Matrix multiply(MatrixView B) {
+        if (B.rows != cols) {
+            throw new IllegalArgumentException("Matrix inner dimensions must agree. Check that the number of" +
+                    "columns of the first matrix equal the number of rows of the second matrix.");
+        }
+        double[] result = new double[rows * B.cols];
+        Gemm.multiply(rows, B.cols, cols, 1.0, data, offset, rowStride, colStride,
+                B.data, B.offset, B.rowStride, B.colStride, result, 0, B.cols);
+        return new Matrix(result, rows, B.cols);
+    }
+
+    /**
+     * Matrix multiplication.
+     *
+     * @param B The {@code Matrix} to multiply.
+     * @return {@code A * B}
+     */
+    public Matrix multiply(Matrix B) {
+        return multiply(B.view());
+    }
+
+    /**
+     * Matrix vector multiplication {@code y = A * x}.
+     *
+     * @param x A vector with as many elements as columns in the view.
+     * @param y A vector with as many elements as rows in the view that receives the product.
+     */
+    @Override
+    public void multiply(double[] x, double[] y) {
+        if (x.length != cols || y.length != rows) {
+            throw new IllegalArgumentException("Vector lengths must agree with the Matrix dimensions.");
+        }
+        if (x == y) {
+            throw new IllegalArgumentException("The result vector must not be the input vector.");
+        }
+        for (int i = 0; i < rows; ++i) {
+            int idx = offset + i * rowStride;
+            double sum = 0.0;
+            for (int j = 0; j < cols; ++j, idx += colStride) {
+                sum += data[idx] * x[j];
+            }
+            y[i] = sum;
+        }
+    }
+
+    /**
+     * Solve {@code A * X = B}, see {@link Matrix#solve(Matrix)}. The view is packed into a new {@code Matrix} first,
+     * which the QR and LU decompositions copy again.
+     *
+     * @param B The right hand side.
+     * @return The solution to {@code A * X = B}.
+     */
+    public Matrix solve(Matrix B) {
+        return toMatrix().solve(B);
+    }
+
+    /**
+     * LU Decomposition of the view, packed once into the storage of the decomposition.
+     *
+     * @return {@link LUDecomposition}.
+     */
+    public LUDecomposition LU() {
+        return new LUDecomposition(pack(), rows, cols);
+    }
+
+    /**
+     * QR Decomposition of the view, packed once into the storage of the decomposition.
+     *
+     * @return {@link QRDecomposition}.
+     */
+    public QRDecomposition QR() {
+        return new QRDecomposition(pack(), rows, cols);
+    }
+
+    /**
+     * Cholesky Decomposition of the view. The factor is computed from a packed copy of the view.
+     *
+     * @return {@link CholeskyDecomposition}.
+     */
+    public CholeskyDecomposition Chol() {
+        return new CholeskyDecomposition(toMatrix());
+    }
+
+    /**
+     * Copies the view into row packed storage.
+     *
+     * @param dest   The destination array.
+     * @param offset The index of {@code A(0, 0)} in {@code dest}.
+     */
+    public void copyTo(double[] dest, int offset) {
+        if (offset < 0 || dest.length - offset < rows * cols) {
+            throw new IllegalArgumentException("The destination array is too small.");
+        }
+        for (int i = 0; i < rows; ++i) {
+            int src = this.offset + i * rowStride;
+            final int dst = offset + i * cols;
+            if (colStride == 1) {
+                System.arraycopy(data, src, dest, dst, cols);
+            } else {
+                for (int j = 0; j < cols; ++j, src += colStride) {
+                    dest[dst + j] = data[src];
+                }
+            }
+        }
+    }
+
+    private double[] pack() {
+        double[] result = new double[rows * cols];
+        copyTo(result, 0);
+        return result;
+    }
+
+    /**
+     * Copies the view into a new {@code Matrix}.
+     *
+     * @return A row packed copy of the view.
+     */
+    public Matrix toMatrix() {
+        return new Matrix(pack(), rows, cols);
+    }
+
+    @Override
+    public String toString() {
+        return toMatrix().toString();
+    }
+}
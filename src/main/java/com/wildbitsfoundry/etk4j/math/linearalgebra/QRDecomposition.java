@@ -9,13 +9,58 @@ public class QRDecomposition {
 
 	protected double[] _rdiag;
 
+	/**
+	 * Matrices with at least this many columns are factored with the blocked algorithm.
+	 */
+	static final int BLOCKED_THRESHOLD = 64;
+
+	/**
+	 * Number of Householder reflections aggregated in every block reflector.
+	 */
+	static final int BLOCK_SIZE = 32;
+
 	public QRDecomposition(Matrix matrix) {
-		final int rows = matrix.getRowCount();
-		final int cols = matrix.getColumnCount();
-		double[] data = matrix.getArrayCopy();
+		this(matrix.getArrayCopy(), matrix.getRowCount(), matrix.getColumnCount());
+	}
+
+	/**
+	 * Factors row packed data in place.
+	 *
+	 * @param data The row packed data, which is overwritten with the decomposition.
+	 * @param rows The number of rows.
+	 * @param cols The number of columns.
+	 */
+	QRDecomposition(double[] data, int rows, int cols) {
 		_rdiag = new double[cols];
+		factor(data, rows, cols, _rdiag);
+		_data = data;
+		_rows = rows;
+		_cols = cols;
+	}
 
-		for (int k = 0; k < cols; ++k) {
+	/**
+	 * Factors row packed data in place.
+	 *
+	 * @param data  The row packed data, which is overwritten with the Householder vectors and R.
+	 * @param rows  The number of rows.
+	 * @param cols  The number of columns.
+	 * @param rdiag Array of length {@code cols} that receives the diagonal of R.
+	 */
+	static void factor(double[] data, int rows, int cols, double[] rdiag) {
+		if (cols >= BLOCKED_THRESHOLD && rows >= cols) {
+			factorBlocked(data, rows, cols, rdiag);
+		} else {
+			householderColumns(data, rows, cols, 0, cols, cols, rdiag);
+		}
+	}
+
+	/**
+	 * Computes the Householder reflections of columns {@code k0} to {@code k1 - 1} and applies each of them to the
+	 * columns that follow it up to {@code colEnd - 1}.
+	 */
+	private static void householderColumns(double[] data, int rows, int cols, int k0, int k1, int colEnd,
+			double[] rdiag) {
+		for (int k = k0; k < k1; ++k) {
 			double nrm = 0.0;
 			// Compute 2-norm of k-th column without under/overflow.
 			for (int i = k; i < rows; ++i) {
@@ -33,7 +78,7 @@ public class QRDecomposition {
 				data[k * cols + k] += 1.0;
 
 				// Apply transformation to remaining columns.
-				for (int j = k + 1; j < cols; j++) {
+				for (int j = k + 1; j < colEnd; j++) {
 					double s = 0.0;
 					for (int i = k; i < rows; i++) {
 						s += data[i * cols + k] * data[i * cols + j];
@@ -44,11 +89,72 @@ public class QRDecomposition {
 					}
 				}
 			}
-			_rdiag[k] = -nrm;
+			rdiag[k] = -nrm;
+		}
+	}
+
+	/**
+	 * Blocked Householder QR. The reflections {@code H(k) = I - v(k) * v(k)' / v(k)(k)} of every panel of
+	 * {@link #BLOCK_SIZE} columns are aggregated in the compact WY form {@code H(0) * ... * H(b - 1) = I - Y * T * Y'}
+	 * and applied to the trailing columns with three matrix-matrix products:
+	 * <pre>
+	 *     W = Y' * C
+	 *     W = T' * W
+	 *     C = C - Y * W
+	 * </pre>
+	 * The Householder vectors and R are stored with the same layout as the unblocked algorithm.
+	 */
+	private static void factorBlocked(double[] data, int rows, int cols, double[] rdiag) {
+		for (int j0 = 0; j0 < cols; j0 += BLOCK_SIZE) {
+			final int j1 = Math.min(j0 + BLOCK_SIZE, cols);
+			final int b = j1 - j0;
+			householderColumns(data, rows, cols, j0, j1, j1, rdiag);
+			if (j1 == cols) {
+				break;
+			}
+
+			// Y holds the lower trapezoidal panel of Householder vectors.
+			final int mr = rows - j0;
+			double[] y = new double[mr * b];
+			for (int i = 0; i < mr; ++i) {
+				final int row = (j0 + i) * cols + j0;
+				for (int p = 0; p <= Math.min(i, b - 1); ++p) {
+					y[i * b + p] = data[row + p];
+				}
+			}
+
+			// T(0:j, j) = -tau(j) * T(0:j, 0:j) * Y(:, 0:j)' * v(j), T(j, j) = tau(j)
+			double[] t = new double[b * b];
+			double[] z = new double[b];
+			for (int j = 0; j < b; ++j) {
+				final double vjj = y[j * b + j];
+				final double tau = vjj != 0.0 ? 1.0 / vjj : 0.0;
+				for (int p = 0; p < j; ++p) {
+					double sum = 0.0;
+					for (int i = j; i < mr; ++i) {
+						sum += y[i * b + p] * y[i * b + j];
+					}
+					z[p] = sum;
+				}
+				for (int q = 0; q < j; ++q) {
+					double sum = 0.0;
+					for (int p = q; p < j; ++p) {
+						sum += t[q * b + p] * z[p];
+					}
+					t[q * b + j] = -tau * sum;
+				}
+				t[j * b + j] = tau;
+			}
+
+			// C = (I - Y * T' * Y') * C for the trailing columns.
+			final int nc = cols - j1;
+			final int cOff = j0 * cols + j1;
+			double[] w = new double[b * nc];
+			Gemm.multiply(b, nc, mr, 1.0, y, 0, 1, b, data, cOff, cols, 1, w, 0, nc);
+			double[] tw = new double[b * nc];
+			Gemm.multiply(b, nc, b, 1.0, t, 0, 1, b, w, 0, nc, 1, tw, 0, nc);
+			Gemm.multiply(mr, nc, b, -1.0, y, 0, b, 1, tw, 0, nc, 1, data, cOff, cols);
 		}
-		_data = data;
-		_rows = rows;
-		_cols = cols;
 	}
 
 	/*
@@ -235,6 +341,70 @@ public class QRDecomposition {
 		return Q;
 	}
 
+	/**
+	 * Overwrites the row packed {@code rows x nx} array {@code X} with {@code transpose(Q) * X}.
+	 *
+	 * @param X  The row packed data.
+	 * @param nx The number of columns of {@code X}.
+	 */
+	void multiplyQTransposeInPlace(double[] X, int nx) {
+		applyQTranspose(_data, _rows, _cols, X, nx);
+	}
+
+	/**
+	 * Overwrites the row packed {@code rows x nx} array {@code X} with {@code transpose(Q) * X}.
+	 *
+	 * @param qr   The packed Householder vectors.
+	 * @param rows The number of rows of the factored matrix.
+	 * @param cols The number of columns of the factored matrix.
+	 * @param X    The row packed data.
+	 * @param nx   The number of columns of {@code X}.
+	 */
+	static void applyQTranspose(double[] qr, int rows, int cols, double[] X, int nx) {
+		for (int k = 0; k < cols; k++) {
+			if (qr[k * cols + k] == 0.0) {
+				// Zero column, no reflection was applied.
+				continue;
+			}
+			for (int j = 0; j < nx; j++) {
+				double s = 0.0;
+				for (int i = k; i < rows; i++) {
+					s += qr[i * cols + k] * X[i * nx + j];
+				}
+				s = -s / qr[k * cols + k];
+				for (int i = k; i < rows; i++) {
+					X[i * nx + j] += s * qr[i * cols + k];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Solves {@code R * X = Y} in place, where Y are the leading {@code cols} rows of {@code X}.
+	 *
+	 * @param qr    The packed Householder vectors and R.
+	 * @param rdiag The diagonal of R.
+	 * @param cols  The number of columns of the factored matrix.
+	 * @param X     The row packed data.
+	 * @param nx    The number of columns of {@code X}.
+	 */
+	static void backSubstitute(double[] qr, double[] rdiag, int cols, double[] X, int nx) {
+		if (Trsm.isBlocked(cols, nx)) {
+			Trsm.solveUpper(cols, nx, qr, 0, cols, 1, rdiag, X);
+			return;
+		}
+		for (int k = cols - 1; k >= 0; k--) {
+			for (int j = 0; j < nx; j++) {
+				X[k * nx + j] /= rdiag[k];
+			}
+			for (int i = 0; i < k; i++) {
+				for (int j = 0; j < nx; j++) {
+					X[i * nx + j] -= X[k * nx + j] * qr[i * cols + k];
+				}
+			}
+		}
+	}
+
 	/**
 	 * Least squares solution of A*X = B
 	 * 
@@ -260,29 +430,9 @@ public class QRDecomposition {
 		double[] X = B.getArrayCopy();
 
 		// Compute Y = transpose(Q)*B
-		for (int k = 0; k < _cols; k++) {
-			for (int j = 0; j < nx; j++) {
-				double s = 0.0;
-				for (int i = k; i < _rows; i++) {
-					s += _data[i * _cols + k] * X[i * nx + j];
-				}
-				s = -s / _data[k * _cols + k];
-				for (int i = k; i < _rows; i++) {
-					X[i * nx + j] += s * _data[i * _cols + k];
-				}
-			}
-		}
+		multiplyQTransposeInPlace(X, nx);
 		// Solve R*X = Y;
-		for (int k = _cols - 1; k >= 0; k--) {
-			for (int j = 0; j < nx; j++) {
-				X[k * nx + j] /= _rdiag[k];
-			}
-			for (int i = 0; i < k; i++) {
-				for (int j = 0; j < nx; j++) {
-					X[i * nx + j] -= X[k * nx + j] * _data[i * _cols + k];
-				}
-			}
-		}
+		backSubstitute(_data, _rdiag, _cols, X, nx);
 		return (new Matrix(X, _cols, nx).subMatrix(0, _cols - 1, 0, nx - 1));
 	}
 	
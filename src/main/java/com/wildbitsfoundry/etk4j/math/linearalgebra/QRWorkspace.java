@@ -0,0 +1,135 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+/**
+ * Reusable QR decomposition of m-by-n matrices ({@code m >= n}) of a fixed size.
+ * <P>
+ * The storage needed to factor and solve is allocated by the constructor, so repeatedly calling
+ * {@link #factor(Matrix)} followed by {@link #solve(double[], double[])} does not allocate. The scratch space used by
+ * {@link #solve(Matrix, Matrix)} is grown on demand the first time a right hand side with more columns is seen, after
+ * that it does not allocate either.
+ * <P>
+ * Matrices with {@link QRDecomposition#BLOCKED_THRESHOLD} or more columns are factored with the blocked algorithm,
+ * which uses temporary buffers for its block reflectors.
+ */
+public class QRWorkspace {
+	private final int _rows;
+	private final int _cols;
+	private final double[] _data;
+	private final double[] _rdiag;
+	private double[] _work;
+	private boolean _factored;
+
+	/**
+	 * @param rows The number of rows of the matrices to factor.
+	 * @param cols The number of columns of the matrices to factor.
+	 */
+	public QRWorkspace(int rows, int cols) {
+		if (rows < cols) {
+			throw new IllegalArgumentException("Matrix must have at least as many rows as columns.");
+		}
+		_rows = rows;
+		_cols = cols;
+		_data = new double[rows * cols];
+		_rdiag = new double[cols];
+		_work = new double[rows];
+	}
+
+	public int getRowCount() {
+		return _rows;
+	}
+
+	public int getColumnCount() {
+		return _cols;
+	}
+
+	/**
+	 * Factors {@code A} into the workspace. {@code A} is not modified.
+	 *
+	 * @param A An m-by-n matrix.
+	 * @return true if {@code A} has full rank.
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+	public boolean factor(Matrix A) {
+		if (A.getRowCount() != _rows || A.getColumnCount() != _cols) {
+			throw new IllegalArgumentException("Matrix dimensions must agree.");
+		}
+		System.arraycopy(A.getArray(), 0, _data, 0, _rows * _cols);
+		QRDecomposition.factor(_data, _rows, _cols, _rdiag);
+		_factored = true;
+		return isFullRank();
+	}
+
+	/**
+	 * Is the matrix full rank?
+	 *
+	 * @return true if R, and hence A, has full rank.
+	 */
+	public boolean isFullRank() {
+		if (!_factored) {
+			throw new IllegalStateException("No matrix has been factored yet.");
+		}
+		for (int j = 0; j < _cols; j++) {
+			if (_rdiag[j] == 0.0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Least squares solution of A*x = b
+	 *
+	 * @param b
+	 *            The right hand side of length m.
+	 * @param x
+	 *            Array of length n that receives the x that minimizes the two norm of Q*R*x-b.
+	 * @exception IllegalArgumentException
+	 *                Array lengths must agree.
+	 * @exception RuntimeException
+	 *                Matrix is rank deficient.
+	 */
+	public void solve(double[] b, double[] x) {
+		if (b.length != _rows || x.length != _cols) {
+			throw new IllegalArgumentException("Array lengths must agree.");
+		}
+		checkSolvable();
+		System.arraycopy(b, 0, _work, 0, _rows);
+		QRDecomposition.applyQTranspose(_data, _rows, _cols, _work, 1);
+		QRDecomposition.backSubstitute(_data, _rdiag, _cols, _work, 1);
+		System.arraycopy(_work, 0, x, 0, _cols);
+	}
+
+	/**
+	 * Least squares solution of A*X = B
+	 *
+	 * @param B
+	 *            A Matrix with m rows and any number of columns.
+	 * @param X
+	 *            A n-by-nx Matrix that receives the X that minimizes the two norm of Q*R*X-B.
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 * @exception RuntimeException
+	 *                Matrix is rank deficient.
+	 */
+	public void solve(Matrix B, Matrix X) {
+		final int nx = B.getColumnCount();
+		if (B.getRowCount() != _rows || X.getRowCount() != _cols || X.getColumnCount() != nx) {
+			throw new IllegalArgumentException("Matrix dimensions must agree.");
+		}
+		checkSolvable();
+		if (_work.length < _rows * nx) {
+			_work = new double[_rows * nx];
+		}
+		System.arraycopy(B.getArray(), 0, _work, 0, _rows * nx);
+		QRDecomposition.applyQTranspose(_data, _rows, _cols, _work, nx);
+		QRDecomposition.backSubstitute(_data, _rdiag, _cols, _work, nx);
+		System.arraycopy(_work, 0, X.getArray(), 0, _cols * nx);
+	}
+
+	private void checkSolvable() {
+		if (!isFullRank()) {
+			throw new RuntimeException("Matrix is rank deficient.");
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+/**
+ * Real Schur Decomposition.
+ * <P>
+ * For a real square matrix A, the real Schur decomposition is an orthogonal
+ * matrix U and a quasi upper triangular matrix T so that A = U*T*U'. The
+ * diagonal of T is made of 1-by-1 blocks, which hold the real eigenvalues of
+ * A, and 2-by-2 blocks, which hold its complex conjugate pairs of eigenvalues.
+ * If A is symmetric T is diagonal.
+ * <P>
+ * The decomposition is computed with the same Hessenberg reduction and shifted
+ * QR iteration as the {@link EigenvalueDecomposition}, but it stops before the
+ * eigenvectors are computed. Unlike the eigenvectors, the Schur vectors are
+ * always well conditioned, which makes the decomposition the starting point of
+ * the solvers of {@link MatrixEquations}.
+ */
+
+public class RealSchurDecomposition {
+
+	/*
+	 * ------------------------ Class variables ------------------------
+	 */
+
+	/**
+	 * Row packed quasi upper triangular factor.
+	 *
+	 * @serial internal array storage.
+	 */
+	private double[] T;
+
+	/**
+	 * Row packed orthogonal factor.
+	 *
+	 * @serial internal array storage.
+	 */
+	private double[] U;
+
+	/**
+	 * Arrays for internal storage of eigenvalues.
+	 *
+	 * @serial internal storage of eigenvalues.
+	 */
+	private double[] d, e;
+
+	/**
+	 * Row and column dimension (square matrix).
+	 *
+	 * @serial matrix dimension.
+	 */
+	private int _n;
+
+	/*
+	 * ------------------------ Constructor ------------------------
+	 */
+
+	/**
+	 * Real Schur decomposition of a square matrix.
+	 *
+	 * @param Arg
+	 *            Square matrix
+	 * @throws NonSquareMatrixException
+	 *             Matrix must be square.
+	 */
+
+	public RealSchurDecomposition(Matrix Arg) {
+		if (Arg.getRowCount() != Arg.getColumnCount()) {
+			throw new NonSquareMatrixException("Matrix must be square.");
+		}
+		// Balancing is not orthogonal, so it would change the Schur vectors.
+		EigenvalueDecomposition eig = new EigenvalueDecomposition(Arg, false, false, true);
+		_n = Arg.getRowCount();
+		T = eig.getSchurForm().getArray();
+		U = eig.getV().getArray();
+		d = eig.getRealEigenvalues();
+		e = eig.getImagEigenvalues();
+	}
+
+	/*
+	 * ------------------------ Public Methods ------------------------
+	 */
+
+	/**
+	 * Return the quasi upper triangular factor
+	 *
+	 * @return T
+	 */
+
+	public Matrix getT() {
+		return new Matrix(T.clone(), _n, _n);
+	}
+
+	/**
+	 * Return the orthogonal factor
+	 *
+	 * @return U
+	 */
+
+	public Matrix getU() {
+		return new Matrix(U.clone(), _n, _n);
+	}
+
+	/**
+	 * Return the real parts of the eigenvalues, in the order of the diagonal
+	 * blocks of T
+	 *
+	 * @return real(eig(A))
+	 */
+
+	public double[] getRealEigenvalues() {
+		return d.clone();
+	}
+
+	/**
+	 * Return the imaginary parts of the eigenvalues, in the order of the
+	 * diagonal blocks of T. The first eigenvalue of a 2-by-2 block has the
+	 * positive imaginary part.
+	 *
+	 * @return imag(eig(A))
+	 */
+
+	public double[] getImagEigenvalues() {
+		return e.clone();
+	}
+
+	/**
+	 * Size of the diagonal block of T that starts at row {@code i}.
+	 *
+	 * @param i
+	 *            The first row of a diagonal block.
+	 * @return 2 if T(i + 1, i) is not zero, 1 otherwise.
+	 */
+	int blockSize(int i) {
+		return i + 1 < _n && T[(i + 1) * _n + i] != 0.0 ? 2 : 1;
+	}
+
+	/**
+	 * Internal row packed storage of T.
+	 */
+	double[] getTArray() {
+		return T;
+	}
+
+	/**
+	 * Internal row packed storage of U.
+	 */
+	double[] getUArray() {
+		return U;
+	}
+}
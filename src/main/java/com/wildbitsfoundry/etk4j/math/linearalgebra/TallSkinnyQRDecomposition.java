@@ -0,0 +1,179 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Tall and skinny QR (TSQR) decomposition.
+ * <P>
+ * For an m-by-n matrix A with {@code m >> n}, the rows of A are split into blocks that are factored independently
+ * (and in parallel) with a {@link QRDecomposition}. The resulting n-by-n R factors are then stacked in pairs and
+ * factored again until a single R is left. Q is never formed, it is kept as the tree of local decompositions and
+ * applied when solving.
+ * <P>
+ * This is well suited for least squares problems with many more observations than unknowns, e.g. regressions with
+ * 10<sup>5</sup> to 10<sup>6</sup> rows.
+ *
+ * @see <a href="https://arxiv.org/abs/0808.2664">Communication-optimal parallel and sequential QR and LU
+ * factorizations</a>
+ */
+public class TallSkinnyQRDecomposition {
+
+	/**
+	 * Minimum number of rows of a leaf block.
+	 */
+	static final int MIN_BLOCK_ROWS = 4096;
+
+	private final Node _root;
+	private final int _rows;
+	private final int _cols;
+
+	public TallSkinnyQRDecomposition(Matrix matrix) {
+		this(matrix, Math.max(MIN_BLOCK_ROWS,
+				matrix.getRowCount() / (4 * ForkJoinPool.getCommonPoolParallelism())));
+	}
+
+	/**
+	 * @param matrix    The matrix to factor, it must have at least as many rows as columns.
+	 * @param blockRows The number of rows of the blocks factored independently. Blocks are never smaller than the
+	 *                  number of columns of the matrix.
+	 */
+	public TallSkinnyQRDecomposition(Matrix matrix, int blockRows) {
+		final int rows = matrix.getRowCount();
+		final int cols = matrix.getColumnCount();
+		if (rows < cols) {
+			throw new IllegalArgumentException("Matrix must have at least as many rows as columns.");
+		}
+		_rows = rows;
+		_cols = cols;
+		_root = ForkJoinPool.commonPool().invoke(
+				new FactorTask(matrix.getArray(), cols, 0, rows, Math.max(blockRows, cols)));
+	}
+
+	/**
+	 * Is the matrix full rank?
+	 *
+	 * @return true if R, and hence A, has full rank.
+	 */
+	public boolean isFullRank() {
+		return _root.qr.isFullRank();
+	}
+
+	/**
+	 * Return the upper triangular factor
+	 *
+	 * @return R
+	 */
+	public Matrix getR() {
+		return _root.qr.getR();
+	}
+
+	/**
+	 * Least squares solution of A*X = B
+	 *
+	 * @param B A Matrix with as many rows as A and any number of columns.
+	 * @return X that minimizes the two norm of Q*R*X-B.
+	 * @throws IllegalArgumentException Matrix row dimensions must agree.
+	 * @throws RuntimeException         Matrix is rank deficient.
+	 */
+	public Matrix solve(Matrix B) {
+		if (B.getRowCount() != _rows) {
+			throw new IllegalArgumentException("Matrix row dimensions must agree.");
+		}
+		if (!this.isFullRank()) {
+			throw new RuntimeException("Matrix is rank deficient.");
+		}
+		final int nx = B.getColumnCount();
+		// Y = transpose(Q)*B, only the leading cols rows are needed.
+		double[] Y = applyQTranspose(_root, B.getArray(), nx);
+
+		// Solve R*X = Y;
+		Matrix R = _root.qr.getR();
+		double[] r = R.getArray();
+		for (int k = _cols - 1; k >= 0; k--) {
+			for (int j = 0; j < nx; j++) {
+				Y[k * nx + j] /= r[k * _cols + k];
+			}
+			for (int i = 0; i < k; i++) {
+				for (int j = 0; j < nx; j++) {
+					Y[i * nx + j] -= Y[k * nx + j] * r[i * _cols + k];
+				}
+			}
+		}
+		return new Matrix(Y, _cols, nx);
+	}
+
+	/**
+	 * Returns the leading {@code cols} rows of {@code transpose(Q_node) * B(node rows, :)}.
+	 */
+	private double[] applyQTranspose(Node node, double[] b, int nx) {
+		double[] x;
+		if (node.left == null) {
+			x = Arrays.copyOfRange(b, node.row0 * nx, node.row1 * nx);
+		} else {
+			double[] top = applyQTranspose(node.left, b, nx);
+			double[] bottom = applyQTranspose(node.right, b, nx);
+			x = Arrays.copyOf(top, top.length + bottom.length);
+			System.arraycopy(bottom, 0, x, top.length, bottom.length);
+		}
+		node.qr.multiplyQTransposeInPlace(x, nx);
+		return Arrays.copyOf(x, _cols * nx);
+	}
+
+	/**
+	 * A node of the reduction tree. Leaves hold the QR decomposition of a block of rows of A, inner nodes the QR
+	 * decomposition of the R factors of their children stacked on top of each other.
+	 */
+	private static final class Node {
+		final QRDecomposition qr;
+		final int row0;
+		final int row1;
+		final Node left;
+		final Node right;
+
+		Node(QRDecomposition qr, int row0, int row1, Node left, Node right) {
+			this.qr = qr;
+			this.row0 = row0;
+			this.row1 = row1;
+			this.left = left;
+			this.right = right;
+		}
+	}
+
+	private static final class FactorTask extends RecursiveTask<Node> {
+		private final double[] data;
+		private final int cols;
+		private final int row0;
+		private final int row1;
+		private final int blockRows;
+
+		FactorTask(double[] data, int cols, int row0, int row1, int blockRows) {
+			this.data = data;
+			this.cols = cols;
+			this.row0 = row0;
+			this.row1 = row1;
+			this.blockRows = blockRows;
+		}
+
+		@Override
+		protected Node compute() {
+			final int rows = row1 - row0;
+			if (rows < 2 * blockRows) {
+				double[] block = Arrays.copyOfRange(data, row0 * cols, row1 * cols);
+				return new Node(new QRDecomposition(block, rows, cols), row0, row1, null, null);
+			}
+			final int mid = row0 + rows / 2;
+			FactorTask top = new FactorTask(data, cols, row0, mid, blockRows);
+			FactorTask bottom = new FactorTask(data, cols, mid, row1, blockRows);
+			bottom.fork();
+			Node left = top.compute();
+			Node right = bottom.join();
+
+			double[] stacked = new double[2 * cols * cols];
+			System.arraycopy(left.qr.getR().getArray(), 0, stacked, 0, cols * cols);
+			System.arraycopy(right.qr.getR().getArray(), 0, stacked, cols * cols, cols * cols);
+			return new Node(new QRDecomposition(stacked, 2 * cols, cols), row0, row1, left, right);
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+/**
+ * Blocked triangular solves with many right hand sides, {@code T * X = B} with T triangular.
+ * <p>
+ * The triangle is processed in diagonal blocks of {@value #NB} rows. Each block of X is solved with the textbook
+ * row oriented substitution and the rest of X is then updated with a single {@link Gemm} product, so for many right
+ * hand sides almost all the work is done by the cache blocked matrix multiply. The triangle is described by an offset
+ * and a row/column stride like the {@link Gemm} operands, so transposed factors are solved without copying them. X
+ * is row packed with {@code nx} columns and is overwritten with the solution.
+ */
+final class Trsm {
+
+    /**
+     * Rows per diagonal block.
+     */
+    static final int NB = 64;
+
+    /**
+     * Fewest right hand sides for which the blocked solves are used. Fewer columns leave too little work for the
+     * products, and keep the single right hand side solves of the workspaces free of packing buffers.
+     */
+    static final int MIN_COLUMNS = 8;
+
+    private Trsm() {
+    }
+
+    /**
+     * Whether a solve is large enough to be worth blocking.
+     *
+     * @param n  The dimension of the triangle.
+     * @param nx The number of right hand sides.
+     * @return true if the blocked solves should be used.
+     */
+    static boolean isBlocked(int n, int nx) {
+        return n > NB && nx >= MIN_COLUMNS;
+    }
+
+    /**
+     * Solves {@code L * X = B} in place.
+     *
+     * @param n    The dimension of L.
+     * @param nx   The number of columns of X.
+     * @param a    The storage of L, only the strictly lower triangle and, if not unit, the diagonal are read.
+     * @param off  The offset of {@code L(0, 0)}.
+     * @param rs   The row stride of L.
+     * @param cs   The column stride of L.
+     * @param unit Whether L has a unit diagonal.
+     * @param X    The row packed right hand side, overwritten with the solution.
+     */
+    static void solveLower(int n, int nx, double[] a, int off, int rs, int cs, boolean unit, double[] X) {
+        for (int k0 = 0; k0 < n; k0 += NB) {
+            final int k1 = Math.min(k0 + NB, n);
+            for (int k = k0; k < k1; ++k) {
+                final int xk = k * nx;
+                if (!unit) {
+                    final double d = a[off + k * rs + k * cs];
+                    for (int j = 0; j < nx; ++j) {
+                        X[xk + j] /= d;
+                    }
+                }
+                for (int i = k + 1; i < k1; ++i) {
+                    final double l = a[off + i * rs + k * cs];
+                    final int xi = i * nx;
+                    for (int j = 0; j < nx; ++j) {
+                        X[xi + j] -= X[xk + j] * l;
+                    }
+                }
+            }
+            if (k1 < n) {
+                // X(k1 : n - 1, :) -= L(k1 : n - 1, k0 : k1 - 1) * X(k0 : k1 - 1, :)
+                Gemm.multiply(n - k1, nx, k1 - k0, -1.0, a, off + k1 * rs + k0 * cs, rs, cs,
+                        X, k0 * nx, nx, 1, X, k1 * nx, nx);
+            }
+        }
+    }
+
+    /**
+     * Solves {@code U * X = B} in place.
+     *
+     * @param n    The dimension of U.
+     * @param nx   The number of columns of X.
+     * @param a    The storage of U, only the strictly upper triangle and, if {@code diag} is null, the diagonal are
+     *             read.
+     * @param off  The offset of {@code U(0, 0)}.
+     * @param rs   The row stride of U.
+     * @param cs   The column stride of U.
+     * @param diag The diagonal of U if it is stored separately, {@code null} otherwise.
+     * @param X    The row packed right hand side, overwritten with the solution.
+     */
+    static void solveUpper(int n, int nx, double[] a, int off, int rs, int cs, double[] diag, double[] X) {
+        for (int k1 = n; k1 > 0; k1 -= NB) {
+            final int k0 = Math.max(k1 - NB, 0);
+            for (int k = k1 - 1; k >= k0; --k) {
+                final int xk = k * nx;
+                final double d = diag == null ? a[off + k * rs + k * cs] : diag[k];
+                for (int j = 0; j < nx; ++j) {
+                    X[xk + j] /= d;
+                }
+                for (int i = k0; i < k; ++i) {
+                    final double u = a[off + i * rs + k * cs];
+                    final int xi = i * nx;
+                    for (int j = 0; j < nx; ++j) {
+                        X[xi + j] -= X[xk + j] * u;
+                    }
+                }
+            }
+            if (k0 > 0) {
+                // X(0 : k0 - 1, :) -= U(0 : k0 - 1, k0 : k1 - 1) * X(k0 : k1 - 1, :)
+                Gemm.multiply(k0, nx, k1 - k0, -1.0, a, off + k0 * cs, rs, cs,
+                        X, k0 * nx, nx, 1, X, 0, nx);
+            }
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Truncated Singular Value Decomposition.
+ * <P>
+ * For an m-by-n matrix A and a target rank k, the leading k singular triplets form an m-by-k matrix U with orthonormal
+ * columns, a k-by-k diagonal matrix S and an n-by-k matrix V with orthonormal columns so that {@code U*S*V'} is the
+ * best rank k approximation of A. Only O(mnk) work is needed, compared to the O(mn<sup>2</sup>) of the full
+ * {@link SingularValueDecomposition}, which makes it suitable for model order reduction and compression of matrices
+ * with many rows.
+ * <P>
+ * Two algorithms are available:
+ * <ul>
+ * <li>{@link #randomized(Matrix, int, double)}: the range of A is sampled with a Gaussian test matrix and refined with
+ * a few power iterations, then A is projected onto it and the small projected matrix is decomposed. All the work is
+ * done with matrix-matrix products.</li>
+ * <li>{@link #lanczos(Matrix, int, double)}: Golub-Kahan-Lanczos bidiagonalization with full reorthogonalization,
+ * stopped as soon as the residuals of the leading k triplets are below the tolerance. It needs more passes over A
+ * but gives accurate triplets even when the singular values decay slowly.</li>
+ * </ul>
+ * Singular values below {@code tol * sigma[0]} are treated as zero and dropped, so {@link #rank()} can be smaller than
+ * the requested rank.
+ *
+ * @see <a href="https://doi.org/10.1137/090771806">N. Halko, P. G. Martinsson and J. A. Tropp, Finding structure with
+ * randomness: probabilistic algorithms for constructing approximate matrix decompositions, SIAM Rev. 53(2), 2011</a>
+ */
+public class TruncatedSingularValueDecomposition {
+	/**
+	 * Default number of extra samples of the range of A taken by the randomized algorithm.
+	 */
+	public static final int DEFAULT_OVERSAMPLING = 10;
+
+	/**
+	 * Default number of power iterations of the randomized algorithm.
+	 */
+	public static final int DEFAULT_POWER_ITERATIONS = 2;
+
+	private final int _rows;
+	private final int _cols;
+	private final int _rank;
+	private final double[] _u;
+	private final double[] _s;
+	private final double[] _v;
+
+	/**
+	 * Keeps the leading {@code k} columns of the row packed {@code u} and {@code v}, with leading dimensions
+	 * {@code ldu} and {@code ldv}, whose singular values are above {@code tol * s[0]}.
+	 */
+	private TruncatedSingularValueDecomposition(int rows, int cols, double[] u, int ldu, double[] s, double[] v,
+			int ldv, int k, double tol) {
+		int rank = 0;
+		while (rank < k && s[rank] > tol * s[0]) {
+			++rank;
+		}
+		_rows = rows;
+		_cols = cols;
+		_rank = rank;
+		_s = new double[rank];
+		System.arraycopy(s, 0, _s, 0, rank);
+		_u = new double[rows * rank];
+		for (int i = 0; i < rows; ++i) {
+			System.arraycopy(u, i * ldu, _u, i * rank, rank);
+		}
+		_v = new double[cols * rank];
+		for (int i = 0; i < cols; ++i) {
+			System.arraycopy(v, i * ldv, _v, i * rank, rank);
+		}
+	}
+
+	/**
+	 * Randomized truncated SVD with {@link #DEFAULT_OVERSAMPLING} and {@link #DEFAULT_POWER_ITERATIONS}. The test
+	 * matrix is drawn from a generator with a fixed seed so the result is reproducible.
+	 *
+	 * @param A    The matrix to decompose.
+	 * @param rank The target rank.
+	 * @param tol  Singular values below {@code tol * sigma[0]} are dropped.
+	 * @return The leading singular triplets of {@code A}.
+	 */
+	public static TruncatedSingularValueDecomposition randomized(Matrix A, int rank, double tol) {
+		return randomized(A, rank, tol, DEFAULT_OVERSAMPLING, DEFAULT_POWER_ITERATIONS, new Random(0));
+	}
+
+	/**
+	 * Randomized truncated SVD.
+	 * <pre>
+	 *     1. Y = A * Omega, with Omega an n-by-(k + p) Gaussian matrix, Q = orth(Y).
+	 *     2. q times: Q = orth(A' * Q), Q = orth(A * Q).
+	 *     3. B = Q' * A, B = Ub * S * V', U = Q * Ub.
+	 * </pre>
+	 * The power iterations sharpen the decay of the sampled spectrum ({@code (A * A')^q * A} has singular values
+	 * {@code sigma^(2q + 1)}), which is needed when the singular values decay slowly. Orthonormalizing between every
+	 * product keeps the small singular values from being lost to rounding.
+	 *
+	 * @param A               The matrix to decompose.
+	 * @param rank            The target rank k.
+	 * @param tol             Singular values below {@code tol * sigma[0]} are dropped.
+	 * @param oversampling    The number p of extra samples of the range of A.
+	 * @param powerIterations The number q of power iterations.
+	 * @param random          The source of the Gaussian test matrix.
+	 * @return The leading singular triplets of {@code A}.
+	 */
+	public static TruncatedSingularValueDecomposition randomized(Matrix A, int rank, double tol, int oversampling,
+			int powerIterations, Random random) {
+		checkArguments(A, rank, tol);
+		if (oversampling < 0 || powerIterations < 0) {
+			throw new IllegalArgumentException("Oversampling and power iterations cannot be negative.");
+		}
+		final int m = A.getRowCount();
+		final int n = A.getColumnCount();
+		final int l = Math.min(rank + oversampling, Math.min(m, n));
+		final double[] a = A.getArray();
+
+		double[] omega = new double[n * l];
+		for (int i = 0; i < omega.length; ++i) {
+			omega[i] = random.nextGaussian();
+		}
+		double[] Y = new double[m * l];
+		Gemm.multiply(m, l, n, 1.0, a, 0, n, 1, omega, 0, l, 1, Y, 0, l);
+		double[] Q = orthonormalize(Y, m, l);
+		for (int q = 0; q < powerIterations; ++q) {
+			double[] Z = new double[n * l];
+			Gemm.multiply(n, l, m, 1.0, a, 0, 1, n, Q, 0, l, 1, Z, 0, l);
+			Z = orthonormalize(Z, n, l);
+			Y = new double[m * l];
+			Gemm.multiply(m, l, n, 1.0, a, 0, n, 1, Z, 0, l, 1, Y, 0, l);
+			Q = orthonormalize(Y, m, l);
+		}
+
+		// B' = A' * Q is n-by-l with n >= l, B' = Ub * S * Vb' so B = Vb * S * Ub' and A ~ (Q * Vb) * S * Ub'.
+		double[] Bt = new double[n * l];
+		Gemm.multiply(n, l, m, 1.0, a, 0, 1, n, Q, 0, l, 1, Bt, 0, l);
+		SingularValueDecomposition svd = new SingularValueDecomposition(new Matrix(Bt, n, l));
+		double[] U = new double[m * l];
+		Gemm.multiply(m, l, l, 1.0, Q, 0, l, 1, svd.getV().getArray(), 0, l, 1, U, 0, l);
+		return new TruncatedSingularValueDecomposition(m, n, U, l, svd.getSingularValues(), svd.getU().getArray(),
+				l, Math.min(rank, l), tol);
+	}
+
+	/**
+	 * Truncated SVD by Lanczos bidiagonalization.
+	 * <P>
+	 * After j steps {@code A * Vj = Uj * Bj} and {@code A' * Uj = Vj * Bj' + beta[j] * v[j + 1] * e[j]'} with Bj
+	 * upper bidiagonal. The singular triplets of the small Bj give approximations {@code (sigma, Uj * x, Vj * y)}
+	 * whose residual is {@code |beta[j] * x[j]|}. Both bases are kept orthonormal by full reorthogonalization, so the
+	 * storage grows by {@code m + n} per step. The starting vector is drawn from a generator with a fixed seed.
+	 *
+	 * @param A    The matrix to decompose.
+	 * @param rank The target rank k.
+	 * @param tol  The iteration stops when the residuals of the leading k triplets are below
+	 *             {@code tol * sigma[0]}. Singular values below {@code tol * sigma[0]} are dropped.
+	 * @return The leading singular triplets of {@code A}.
+	 */
+	public static TruncatedSingularValueDecomposition lanczos(Matrix A, int rank, double tol) {
+		checkArguments(A, rank, tol);
+		final int m = A.getRowCount();
+		final int n = A.getColumnCount();
+		final int maxSteps = Math.min(m, n);
+		final int k = Math.min(rank, maxSteps);
+		final double[] a = A.getArray();
+		final Random random = new Random(0);
+
+		List<double[]> U = new ArrayList<>();
+		List<double[]> V = new ArrayList<>();
+		double[] alpha = new double[maxSteps];
+		double[] beta = new double[maxSteps];
+
+		double[] v = randomUnitVector(random, n, V);
+		SingularValueDecomposition svd = null;
+		int j = 0;
+		while (true) {
+			// alpha[j] * u[j] = A * v[j] - beta[j - 1] * u[j - 1]
+			V.add(v);
+			double[] u = new double[m];
+			A.multiply(v, u);
+			alpha[j] = orthogonalize(u, U);
+			if (alpha[j] == 0.0) {
+				u = randomUnitVector(random, m, U);
+			}
+			U.add(u);
+			++j;
+
+			// beta[j] * v[j + 1] = A' * u[j] - alpha[j] * v[j]
+			v = new double[n];
+			for (int i = 0; i < m; ++i) {
+				final double ui = u[i];
+				final int row = i * n;
+				for (int c = 0; c < n; ++c) {
+					v[c] += a[row + c] * ui;
+				}
+			}
+			beta[j - 1] = j < maxSteps ? orthogonalize(v, V) : 0.0;
+
+			if (j >= k && ((j - k) % 5 == 0 || j == maxSteps)) {
+				svd = new SingularValueDecomposition(bidiagonal(alpha, beta, j));
+				double[] s = svd.getSingularValues();
+				double[] X = svd.getU().getArray();
+				boolean converged = true;
+				for (int i = 0; i < k && converged; ++i) {
+					converged = Math.abs(beta[j - 1] * X[(j - 1) * j + i]) <= tol * s[0];
+				}
+				if (converged || j == maxSteps) {
+					break;
+				}
+			}
+			if (beta[j - 1] == 0.0) {
+				// Invariant subspace, continue with a new direction orthogonal to the current basis.
+				v = randomUnitVector(random, n, V);
+			}
+		}
+
+		// Ritz vectors Uj * X and Vj * Y
+		double[] X = svd.getU().getArray();
+		double[] Y = svd.getV().getArray();
+		double[] Ur = new double[m * k];
+		double[] Vr = new double[n * k];
+		for (int p = 0; p < j; ++p) {
+			double[] up = U.get(p);
+			double[] vp = V.get(p);
+			for (int i = 0; i < k; ++i) {
+				final double x = X[p * j + i];
+				final double y = Y[p * j + i];
+				for (int r = 0; r < m; ++r) {
+					Ur[r * k + i] += up[r] * x;
+				}
+				for (int r = 0; r < n; ++r) {
+					Vr[r * k + i] += vp[r] * y;
+				}
+			}
+		}
+		return new TruncatedSingularValueDecomposition(m, n, Ur, k, svd.getSingularValues(), Vr, k, k, tol);
+	}
+
+	private static void checkArguments(Matrix A, int rank, double tol) {
+		if (rank < 1) {
+			throw new IllegalArgumentException("The rank must be positive.");
+		}
+		if (tol < 0.0) {
+			throw new IllegalArgumentException("The tolerance cannot be negative.");
+		}
+		if (A.getRowCount() == 0 || A.getColumnCount() == 0) {
+			throw new IllegalArgumentException("Matrix cannot be empty.");
+		}
+	}
+
+	/**
+	 * Orthonormal basis of the range of a row packed {@code rows x cols} array, {@code rows >= cols}.
+	 */
+	private static double[] orthonormalize(double[] Y, int rows, int cols) {
+		return new QRDecomposition(Y, rows, cols).getQThin().getArray();
+	}
+
+	private static Matrix bidiagonal(double[] alpha, double[] beta, int j) {
+		Matrix B = new Matrix(j, j);
+		for (int i = 0; i < j; ++i) {
+			B.set(i, i, alpha[i]);
+			if (i + 1 < j) {
+				B.set(i, i + 1, beta[i]);
+			}
+		}
+		return B;
+	}
+
+	/**
+	 * Removes the components of {@code x} along the orthonormal {@code basis} with two passes of classical
+	 * Gram-Schmidt and normalizes it.
+	 *
+	 * @return The norm of {@code x} after the orthogonalization, zero if {@code x} lies in the span of the basis.
+	 */
+	private static double orthogonalize(double[] x, List<double[]> basis) {
+		final double norm0 = norm2(x);
+		for (int pass = 0; pass < 2; ++pass) {
+			double[] h = new double[basis.size()];
+			for (int p = 0; p < h.length; ++p) {
+				double[] b = basis.get(p);
+				double dot = 0.0;
+				for (int i = 0; i < x.length; ++i) {
+					dot += b[i] * x[i];
+				}
+				h[p] = dot;
+			}
+			for (int p = 0; p < h.length; ++p) {
+				double[] b = basis.get(p);
+				final double hp = h[p];
+				for (int i = 0; i < x.length; ++i) {
+					x[i] -= hp * b[i];
+				}
+			}
+		}
+		final double norm = norm2(x);
+		// Anything left after removing almost all of x is rounding noise.
+		if (norm <= 1e-14 * norm0 || norm == 0.0) {
+			return 0.0;
+		}
+		for (int i = 0; i < x.length; ++i) {
+			x[i] /= norm;
+		}
+		return norm;
+	}
+
+	private static double[] randomUnitVector(Random random, int n, List<double[]> basis) {
+		double[] x = new double[n];
+		do {
+			for (int i = 0; i < n; ++i) {
+				x[i] = random.nextGaussian();
+			}
+		} while (orthogonalize(x, basis) == 0.0);
+		return x;
+	}
+
+	private static double norm2(double[] x) {
+		double sum = 0.0;
+		for (double xi : x) {
+			sum += xi * xi;
+		}
+		return Math.sqrt(sum);
+	}
+
+	/*
+	 * ------------------------ Public Methods ------------------------
+	 */
+
+	/**
+	 * Number of singular triplets kept.
+	 *
+	 * @return The requested rank, reduced by the singular values below the tolerance.
+	 */
+	public int rank() {
+		return _rank;
+	}
+
+	/**
+	 * Return the left singular vectors
+	 *
+	 * @return U, m-by-rank.
+	 */
+	public Matrix getU() {
+		return new Matrix(_u.clone(), _rows, _rank);
+	}
+
+	/**
+	 * Return the right singular vectors
+	 *
+	 * @return V, n-by-rank.
+	 */
+	public Matrix getV() {
+		return new Matrix(_v.clone(), _cols, _rank);
+	}
+
+	/**
+	 * Return the one-dimensional array of singular values
+	 *
+	 * @return diagonal of S, in non increasing order.
+	 */
+	public double[] getSingularValues() {
+		return _s.clone();
+	}
+
+	/**
+	 * Return the diagonal matrix of singular values
+	 *
+	 * @return S
+	 */
+	public Matrix getS() {
+		Matrix S = new Matrix(_rank, _rank);
+		for (int i = 0; i < _rank; ++i) {
+			S.set(i, i, _s[i]);
+		}
+		return S;
+	}
+
+	/**
+	 * Low rank approximation.
+	 *
+	 * @return {@code U * S * V'}.
+	 */
+	public Matrix toMatrix() {
+		double[] us = _u.clone();
+		for (int i = 0; i < _rows; ++i) {
+			for (int p = 0; p < _rank; ++p) {
+				us[i * _rank + p] *= _s[p];
+			}
+		}
+		double[] result = new double[_rows * _cols];
+		Gemm.multiply(_rows, _cols, _rank, 1.0, us, 0, _rank, 1, _v, 0, 1, _rank, result, 0, _cols);
+		return new Matrix(result, _rows, _cols);
+	}
+}
@@ -0,0 +1,33 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.iterative;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.EigenvalueDecomposition;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.LinearOperator;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+
+/**
+ * Implicitly restarted Arnoldi method for a few eigenvalues of a general (nonsymmetric) operator, e.g. the ones with
+ * the largest real part to check the stability of a large system.
+ * <P>
+ * Complex conjugate Ritz values are used as a pair of shifts in a single real double shift QR step, so all the
+ * arithmetic is real.
+ *
+ * @see PartialEigenSolver
+ */
+public class ArnoldiEigenSolver extends PartialEigenSolver<ArnoldiEigenSolver> {
+
+    /**
+     * @param A A square operator.
+     * @param k The number of eigenvalues to compute.
+     */
+    public ArnoldiEigenSolver(LinearOperator A, int k) {
+        super(A, k);
+    }
+
+    @Override
+    protected double[] ritz(double[] H, int m, double[] re, double[] im) {
+        EigenvalueDecomposition eig = new EigenvalueDecomposition(new Matrix(H.clone(), m, m), false);
+        System.arraycopy(eig.getRealEigenvalues(), 0, re, 0, m);
+        System.arraycopy(eig.getImagEigenvalues(), 0, im, 0, m);
+        return eig.getV().getArray();
+    }
+}
@@ -0,0 +1,91 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.iterative;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.LinearOperator;
+
+/**
+ * Right preconditioned biconjugate gradient stabilized method (van der Vorst) for general nonsymmetric systems. It
+ * uses two products with the operator per iteration and a fixed amount of storage.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Biconjugate_gradient_stabilized_method">BiCGSTAB</a>
+ */
+public class BiCGSTAB extends IterativeLinearSolver<BiCGSTAB> {
+
+    /**
+     * @param A A square operator.
+     * @param b The right hand side.
+     */
+    public BiCGSTAB(LinearOperator A, double[] b) {
+        super(A, b);
+    }
+
+    @Override
+    public IterativeSolverResults solve() {
+        double[] x = initialSolution();
+        double[] r = new double[n];
+        double[] rHat = new double[n];
+        double[] p = new double[n];
+        double[] pHat = new double[n];
+        double[] v = new double[n];
+        double[] s = new double[n];
+        double[] sHat = new double[n];
+        double[] t = new double[n];
+        final double tol = tolerance();
+
+        residual(x, r);
+        double res = norm(r);
+        report(0, res);
+        if (res <= tol) {
+            return results(x, 0, res, true, "Converged");
+        }
+        System.arraycopy(r, 0, rHat, 0, n);
+        double rho = 1.0;
+        double alpha = 1.0;
+        double omega = 1.0;
+        for (int k = 1; k <= maxNumberOfIterations; ++k) {
+            final double rhoNew = dot(rHat, r);
+            if (rhoNew == 0.0) {
+                return results(x, k - 1, res, false, "Breakdown, rho is zero.");
+            }
+            if (k == 1) {
+                System.arraycopy(r, 0, p, 0, n);
+            } else {
+                final double beta = (rhoNew / rho) * (alpha / omega);
+                for (int i = 0; i < n; ++i) {
+                    p[i] = r[i] + beta * (p[i] - omega * v[i]);
+                }
+            }
+            precondition(p, pHat);
+            A.multiply(pHat, v);
+            alpha = rhoNew / dot(rHat, v);
+            for (int i = 0; i < n; ++i) {
+                s[i] = r[i] - alpha * v[i];
+            }
+            final double sNorm = norm(s);
+            if (sNorm <= tol) {
+                for (int i = 0; i < n; ++i) {
+                    x[i] += alpha * pHat[i];
+                }
+                report(k, sNorm);
+                return results(x, k, sNorm, true, "Converged");
+            }
+            precondition(s, sHat);
+            A.multiply(sHat, t);
+            final double tt = dot(t, t);
+            omega = tt == 0.0 ? 0.0 : dot(t, s) / tt;
+            for (int i = 0; i < n; ++i) {
+                x[i] += alpha * pHat[i] + omega * sHat[i];
+                r[i] = s[i] - omega * t[i];
+            }
+            res = norm(r);
+            report(k, res);
+            if (res <= tol) {
+                return results(x, k, res, true, "Converged");
+            }
+            if (omega == 0.0) {
+                return results(x, k, res, false, "Breakdown, omega is zero.");
+            }
+            rho = rhoNew;
+        }
+        return results(x, maxNumberOfIterations, res, false, "Maximum number of iterations exceeded");
+    }
+}
@@ -0,0 +1,65 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.iterative;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.LinearOperator;
+
+/**
+ * Preconditioned conjugate gradient method for symmetric positive definite systems. The preconditioner, if any,
+ * must be symmetric positive definite as well.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Conjugate_gradient_method">Conjugate gradient method</a>
+ */
+public class ConjugateGradient extends IterativeLinearSolver<ConjugateGradient> {
+
+    /**
+     * @param A A symmetric positive definite operator.
+     * @param b The right hand side.
+     */
+    public ConjugateGradient(LinearOperator A, double[] b) {
+        super(A, b);
+    }
+
+    @Override
+    public IterativeSolverResults solve() {
+        double[] x = initialSolution();
+        double[] r = new double[n];
+        double[] z = new double[n];
+        double[] p = new double[n];
+        double[] Ap = new double[n];
+        final double tol = tolerance();
+
+        residual(x, r);
+        double res = norm(r);
+        report(0, res);
+        if (res <= tol) {
+            return results(x, 0, res, true, "Converged");
+        }
+        precondition(r, z);
+        System.arraycopy(z, 0, p, 0, n);
+        double rz = dot(r, z);
+        for (int k = 1; k <= maxNumberOfIterations; ++k) {
+            A.multiply(p, Ap);
+            final double pAp = dot(p, Ap);
+            if (!(pAp > 0.0)) {
+                return results(x, k - 1, res, false, "Operator is not positive definite.");
+            }
+            final double alpha = rz / pAp;
+            for (int i = 0; i < n; ++i) {
+                x[i] += alpha * p[i];
+                r[i] -= alpha * Ap[i];
+            }
+            res = norm(r);
+            report(k, res);
+            if (res <= tol) {
+                return results(x, k, res, true, "Converged");
+            }
+            precondition(r, z);
+            final double rzNew = dot(r, z);
+            final double beta = rzNew / rz;
+            for (int i = 0; i < n; ++i) {
+                p[i] = z[i] + beta * p[i];
+            }
+            rz = rzNew;
+        }
+        return results(x, maxNumberOfIterations, res, false, "Maximum number of iterations exceeded");
+    }
+}
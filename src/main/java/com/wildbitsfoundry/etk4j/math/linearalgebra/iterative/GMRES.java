@@ -0,0 +1,154 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.iterative;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.LinearOperator;
+
+import java.util.Arrays;
+
+/**
+ * Restarted, right preconditioned generalized minimal residual method, GMRES(m), for general nonsymmetric systems.
+ * <P>
+ * Every cycle builds an orthonormal Krylov basis of up to {@code m} vectors with modified Gram-Schmidt and minimizes
+ * the residual over it using Givens rotations, so the residual norm is known at every iteration without forming x.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Generalized_minimal_residual_method">GMRES</a>
+ */
+public class GMRES extends IterativeLinearSolver<GMRES> {
+    private int restart = 30;
+
+    /**
+     * @param A A square operator.
+     * @param b The right hand side.
+     */
+    public GMRES(LinearOperator A, double[] b) {
+        super(A, b);
+    }
+
+    /**
+     * Number of iterations between restarts. Defaults to 30.
+     *
+     * @param m The maximum dimension of the Krylov subspace.
+     */
+    public GMRES restart(int m) {
+        if (m < 1) {
+            throw new IllegalArgumentException("The restart length must be at least one.");
+        }
+        restart = m;
+        return this;
+    }
+
+    @Override
+    public IterativeSolverResults solve() {
+        final int m = Math.min(restart, n);
+        double[] x = initialSolution();
+        double[] r = new double[n];
+        double[] w = new double[n];
+        double[] z = new double[n];
+        double[][] V = new double[m + 1][];
+        // Hessenberg matrix, stored by columns.
+        double[][] H = new double[m][m + 1];
+        double[] cs = new double[m];
+        double[] sn = new double[m];
+        double[] g = new double[m + 1];
+        double[] y = new double[m];
+        final double tol = tolerance();
+
+        residual(x, r);
+        double res = norm(r);
+        report(0, res);
+        if (res <= tol) {
+            return results(x, 0, res, true, "Converged");
+        }
+        int iterations = 0;
+        while (iterations < maxNumberOfIterations) {
+            final double beta = res;
+            if (V[0] == null) {
+                V[0] = new double[n];
+            }
+            for (int i = 0; i < n; ++i) {
+                V[0][i] = r[i] / beta;
+            }
+            Arrays.fill(g, 0.0);
+            g[0] = beta;
+
+            int j = 0;
+            boolean happyBreakdown = false;
+            while (j < m && iterations < maxNumberOfIterations) {
+                precondition(V[j], z);
+                A.multiply(z, w);
+                double[] h = H[j];
+                for (int i = 0; i <= j; ++i) {
+                    h[i] = dot(w, V[i]);
+                    final double hij = h[i];
+                    final double[] vi = V[i];
+                    for (int l = 0; l < n; ++l) {
+                        w[l] -= hij * vi[l];
+                    }
+                }
+                h[j + 1] = norm(w);
+
+                // Apply the previous rotations to the new column and compute a rotation that zeroes h[j + 1].
+                for (int i = 0; i < j; ++i) {
+                    final double temp = cs[i] * h[i] + sn[i] * h[i + 1];
+                    h[i + 1] = -sn[i] * h[i] + cs[i] * h[i + 1];
+                    h[i] = temp;
+                }
+                final double hNext = h[j + 1];
+                final double rho = Math.hypot(h[j], hNext);
+                cs[j] = h[j] / rho;
+                sn[j] = hNext / rho;
+                h[j] = rho;
+                h[j + 1] = 0.0;
+                g[j + 1] = -sn[j] * g[j];
+                g[j] = cs[j] * g[j];
+
+                ++iterations;
+                ++j;
+                res = Math.abs(g[j]);
+                report(iterations, res);
+                if (res <= tol || hNext == 0.0) {
+                    happyBreakdown = hNext == 0.0;
+                    break;
+                }
+                if (j < m) {
+                    if (V[j] == null) {
+                        V[j] = new double[n];
+                    }
+                    for (int l = 0; l < n; ++l) {
+                        V[j][l] = w[l] / hNext;
+                    }
+                }
+            }
+
+            // Solve the j-by-j triangular system H * y = g and update x += M^-1 * V * y.
+            for (int i = j - 1; i >= 0; --i) {
+                double sum = g[i];
+                for (int k = i + 1; k < j; ++k) {
+                    sum -= H[k][i] * y[k];
+                }
+                y[i] = sum / H[i][i];
+            }
+            Arrays.fill(w, 0.0);
+            for (int k = 0; k < j; ++k) {
+                final double yk = y[k];
+                final double[] vk = V[k];
+                for (int l = 0; l < n; ++l) {
+                    w[l] += yk * vk[l];
+                }
+            }
+            precondition(w, z);
+            for (int l = 0; l < n; ++l) {
+                x[l] += z[l];
+            }
+            // Restart from the true residual, the one given by the rotations can drift from it.
+            residual(x, r);
+            res = norm(r);
+            if (res <= tol) {
+                return results(x, iterations, res, true, "Converged");
+            }
+            if (happyBreakdown) {
+                return results(x, iterations, res, false, "Breakdown, the Krylov subspace is invariant.");
+            }
+        }
+        return results(x, iterations, res, false, "Maximum number of iterations exceeded");
+    }
+}
@@ -0,0 +1,128 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.iterative;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.sparse.CSRMatrix;
+
+import java.util.Arrays;
+
+/**
+ * Incomplete LU factorization with zero fill, ILU(0).
+ * <P>
+ * Computes L*U ~ A where L is unit lower triangular, U is upper triangular and both have the nonzero pattern of the
+ * corresponding triangle of A. Every diagonal entry of A must be stored and the factorization must not produce a
+ * zero pivot, which holds for instance for diagonally dominant matrices and M-matrices.
+ */
+public class ILU0Preconditioner implements Preconditioner {
+    private final int n;
+    private final int[] rowPointers;
+    private final int[] columnIndices;
+    private final double[] values;
+    private final int[] diagonal;
+
+    public ILU0Preconditioner(Matrix A) {
+        this(CSRMatrix.fromMatrix(A));
+    }
+
+    /**
+     * @param A A square sparse matrix. It is not modified.
+     */
+    public ILU0Preconditioner(CSRMatrix A) {
+        n = A.getRowCount();
+        if (A.getColumnCount() != n) {
+            throw new IllegalArgumentException("Matrix must be square.");
+        }
+        rowPointers = Arrays.copyOf(A.getRowPointers(), n + 1);
+        final int nnz = rowPointers[n];
+        columnIndices = Arrays.copyOf(A.getColumnIndices(), nnz);
+        values = Arrays.copyOf(A.getValues(), nnz);
+        sortRows();
+        diagonal = new int[n];
+        for (int i = 0; i < n; ++i) {
+            diagonal[i] = -1;
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; ++p) {
+                if (columnIndices[p] == i) {
+                    diagonal[i] = p;
+                    break;
+                }
+            }
+            if (diagonal[i] == -1) {
+                throw new IllegalArgumentException(String.format("Diagonal entry %d is not stored.", i));
+            }
+        }
+        factor();
+    }
+
+    private void sortRows() {
+        for (int i = 0; i < n; ++i) {
+            // Insertion sort, rows are short and usually sorted already.
+            for (int p = rowPointers[i] + 1; p < rowPointers[i + 1]; ++p) {
+                int j = columnIndices[p];
+                double v = values[p];
+                int q = p - 1;
+                while (q >= rowPointers[i] && columnIndices[q] > j) {
+                    columnIndices[q + 1] = columnIndices[q];
+                    values[q + 1] = values[q];
+                    --q;
+                }
+                columnIndices[q + 1] = j;
+                values[q + 1] = v;
+            }
+        }
+    }
+
+    private void factor() {
+        // position[j] is the position of column j in the current row, or -1 if it is not in the pattern.
+        int[] position = new int[n];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < n; ++i) {
+            final int start = rowPointers[i];
+            final int end = rowPointers[i + 1];
+            for (int p = start; p < end; ++p) {
+                position[columnIndices[p]] = p;
+            }
+            for (int p = start; p < diagonal[i]; ++p) {
+                final int k = columnIndices[p];
+                final double pivot = values[diagonal[k]];
+                if (pivot == 0.0) {
+                    throw new ArithmeticException(String.format("Zero pivot in row %d.", k));
+                }
+                final double lik = values[p] / pivot;
+                values[p] = lik;
+                for (int q = diagonal[k] + 1; q < rowPointers[k + 1]; ++q) {
+                    final int pos = position[columnIndices[q]];
+                    if (pos != -1) {
+                        values[pos] -= lik * values[q];
+                    }
+                }
+            }
+            for (int p = start; p < end; ++p) {
+                position[columnIndices[p]] = -1;
+            }
+        }
+        for (int i = 0; i < n; ++i) {
+            if (values[diagonal[i]] == 0.0) {
+                throw new ArithmeticException(String.format("Zero pivot in row %d.", i));
+            }
+        }
+    }
+
+    @Override
+    public void apply(double[] r, double[] z) {
+        // Solve L * y = r
+        for (int i = 0; i < n; ++i) {
+            double sum = r[i];
+            for (int p = rowPointers[i]; p < diagonal[i]; ++p) {
+                sum -= values[p] * z[columnIndices[p]];
+            }
+            z[i] = sum;
+        }
+        // Solve U * z = y
+        for (int i = n - 1; i >= 0; --i) {
+            double sum = z[i];
+            for (int p = diagonal[i] + 1; p < rowPointers[i + 1]; ++p) {
+                sum -= values[p] * z[columnIndices[p]];
+            }
+            z[i] = sum / values[diagonal[i]];
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.iterative;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.LinearOperator;
+
+import java.util.Arrays;
+
+/**
+ * Common settings and bookkeeping of the Krylov solvers for {@code A * x = b}.
+ * <P>
+ * The iteration stops when the two norm of the residual {@code b - A * x} drops below
+ * {@code max(relTolerance * ||b||, absTolerance)} or when the iteration limit is reached.
+ *
+ * @param <T> The concrete solver type, returned by the fluent setters.
+ */
+public abstract class IterativeLinearSolver<T extends IterativeLinearSolver<T>> {
+    protected final LinearOperator A;
+    protected final double[] b;
+    protected final int n;
+    protected int maxNumberOfIterations;
+    protected double absTol = 0.0;
+    protected double relTol = 1e-10;
+    protected double[] x0;
+    protected Preconditioner preconditioner;
+    private ResidualListener listener;
+    private double[] history;
+    private int historySize;
+
+    protected IterativeLinearSolver(LinearOperator A, double[] b) {
+        if (A.getRowCount() != A.getColumnCount()) {
+            throw new IllegalArgumentException("Operator must be square.");
+        }
+        if (b.length != A.getRowCount()) {
+            throw new IllegalArgumentException("Right hand side length must equal the number of rows.");
+        }
+        this.A = A;
+        this.b = b;
+        this.n = b.length;
+        this.maxNumberOfIterations = Math.max(100, 10 * n);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T self() {
+        return (T) this;
+    }
+
+    /**
+     * Maximum number of iterations.
+     *
+     * @param limit The maximum number of iterations allowed.
+     */
+    public T iterationLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The iteration limit cannot be negative.");
+        }
+        maxNumberOfIterations = limit;
+        return self();
+    }
+
+    /**
+     * Absolute tolerance.
+     *
+     * @param tol The residual norm below which the solver stops.
+     */
+    public T absTolerance(double tol) {
+        absTol = tol;
+        return self();
+    }
+
+    /**
+     * Relative tolerance.
+     *
+     * @param tol The residual norm, relative to the norm of the right hand side, below which the solver stops.
+     */
+    public T relTolerance(double tol) {
+        relTol = tol;
+        return self();
+    }
+
+    /**
+     * Initial guess (warm start). Defaults to zero.
+     *
+     * @param x0 The initial guess. It is not modified.
+     */
+    public T initialGuess(double[] x0) {
+        if (x0.length != n) {
+            throw new IllegalArgumentException("Initial guess length must equal the number of columns.");
+        }
+        this.x0 = x0;
+        return self();
+    }
+
+    /**
+     * Preconditioner. Defaults to none.
+     *
+     * @param preconditioner An approximate inverse of the operator.
+     */
+    public T preconditioner(Preconditioner preconditioner) {
+        this.preconditioner = preconditioner;
+        return self();
+    }
+
+    /**
+     * Listener notified of the residual norm after every iteration.
+     *
+     * @param listener The listener.
+     */
+    public T residualListener(ResidualListener listener) {
+        this.listener = listener;
+        return self();
+    }
+
+    /**
+     * Solve {@code A * x = b}.
+     *
+     * @return The {@link IterativeSolverResults} containing the solution and other solver results.
+     */
+    public abstract IterativeSolverResults solve();
+
+    // region helpers
+    protected double[] initialSolution() {
+        history = new double[16];
+        historySize = 0;
+        return x0 == null ? new double[n] : Arrays.copyOf(x0, n);
+    }
+
+    protected double tolerance() {
+        return Math.max(relTol * norm(b), absTol);
+    }
+
+    /**
+     * r = b - A * x
+     */
+    protected void residual(double[] x, double[] r) {
+        A.multiply(x, r);
+        for (int i = 0; i < n; ++i) {
+            r[i] = b[i] - r[i];
+        }
+    }
+
+    /**
+     * z = M^-1 * r
+     */
+    protected void precondition(double[] r, double[] z) {
+        if (preconditioner == null) {
+            System.arraycopy(r, 0, z, 0, n);
+        } else {
+            preconditioner.apply(r, z);
+        }
+    }
+
+    protected void report(int iteration, double residualNorm) {
+        if (historySize == history.length) {
+            history = Arrays.copyOf(history, 2 * historySize);
+        }
+        history[historySize++] = residualNorm;
+        if (listener != null) {
+            listener.onIteration(iteration, residualNorm);
+        }
+    }
+
+    protected IterativeSolverResults results(double[] x, int iterations, double residualNorm, boolean converged,
+                                             String status) {
+        IterativeSolverResults results = new IterativeSolverResults();
+        results.setValue(x);
+        results.setNumberOfIterations(iterations);
+        results.setError(residualNorm);
+        results.setHasConverged(converged);
+        results.setSolverStatus(status);
+        results.setResidualHistory(Arrays.copyOf(history, historySize));
+        return results;
+    }
+
+    protected static double dot(double[] x, double[] y) {
+        double sum = 0.0;
+        for (int i = 0; i < x.length; ++i) {
+            sum += x[i] * y[i];
+        }
+        return sum;
+    }
+
+    protected static double norm(double[] x) {
+        return Math.sqrt(dot(x, x));
+    }
+    // endregion
+}
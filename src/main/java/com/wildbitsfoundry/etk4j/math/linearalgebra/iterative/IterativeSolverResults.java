@@ -0,0 +1,89 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.iterative;
+
+import java.util.Arrays;
+
+/**
+ * Results of an iterative linear solve.
+ */
+public class IterativeSolverResults {
+    private double[] value;
+    private int numberOfIterations;
+    private String solverStatus;
+    private double error;
+    private boolean converged;
+    private double[] residualHistory;
+
+    /**
+     * The approximate solution.
+     *
+     * @return x
+     */
+    public double[] getValue() {
+        return value;
+    }
+
+    void setValue(double[] value) {
+        this.value = value;
+    }
+
+    public int getNumberOfIterations() {
+        return numberOfIterations;
+    }
+
+    void setNumberOfIterations(int numberOfIterations) {
+        this.numberOfIterations = numberOfIterations;
+    }
+
+    public String getSolverStatus() {
+        return solverStatus;
+    }
+
+    void setSolverStatus(String solverStatus) {
+        this.solverStatus = solverStatus;
+    }
+
+    /**
+     * The two norm of the final residual {@code b - A * x}, as tracked by the solver.
+     *
+     * @return The residual norm.
+     */
+    public double getError() {
+        return error;
+    }
+
+    void setError(double error) {
+        this.error = error;
+    }
+
+    public boolean hasConverged() {
+        return converged;
+    }
+
+    void setHasConverged(boolean converged) {
+        this.converged = converged;
+    }
+
+    /**
+     * The residual norm after every iteration. Element 0 is the initial residual.
+     *
+     * @return The residual history.
+     */
+    public double[] getResidualHistory() {
+        return residualHistory;
+    }
+
+    void setResidualHistory(double[] residualHistory) {
+        this.residualHistory = residualHistory;
+    }
+
+    @Override
+    public String toString() {
+        return "IterativeSolverResults{" +
+                "value=" + Arrays.toString(value) +
+                ", numberOfIterations=" + numberOfIterations +
+                ", solverStatus='" + solverStatus + '\'' +
+                ", error=" + error +
+                ", converged=" + converged +
+                '}';
+    }
+}
@@ -0,0 +1,48 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.iterative;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.sparse.SparseMatrix;
+
+/**
+ * Jacobi (diagonal) preconditioner, {@code M = diag(A)}.
+ */
+public class JacobiPreconditioner implements Preconditioner {
+    private final double[] inverseDiagonal;
+
+    /**
+     * @param diagonal The diagonal of the system matrix. All entries must be nonzero.
+     */
+    public JacobiPreconditioner(double[] diagonal) {
+        inverseDiagonal = new double[diagonal.length];
+        for (int i = 0; i < diagonal.length; ++i) {
+            if (diagonal[i] == 0.0) {
+                throw new IllegalArgumentException(String.format("Diagonal entry %d is zero.", i));
+            }
+            inverseDiagonal[i] = 1.0 / diagonal[i];
+        }
+    }
+
+    public JacobiPreconditioner(Matrix A) {
+        this(A.diag());
+    }
+
+    public JacobiPreconditioner(SparseMatrix A) {
+        this(diagonal(A));
+    }
+
+    private static double[] diagonal(SparseMatrix A) {
+        final int n = Math.min(A.getRowCount(), A.getColumnCount());
+        double[] d = new double[n];
+        for (int i = 0; i < n; ++i) {
+            d[i] = A.get(i, i);
+        }
+        return d;
+    }
+
+    @Override
+    public void apply(double[] r, double[] z) {
+        for (int i = 0; i < inverseDiagonal.length; ++i) {
+            z[i] = r[i] * inverseDiagonal[i];
+        }
+    }
+}
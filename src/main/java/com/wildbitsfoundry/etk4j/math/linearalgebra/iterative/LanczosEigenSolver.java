@@ -0,0 +1,45 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.iterative;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.EigenvalueDecomposition;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.LinearOperator;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+
+import java.util.Arrays;
+
+/**
+ * Implicitly restarted Lanczos method for a few eigenvalues of a symmetric operator.
+ * <P>
+ * For a symmetric operator the projected matrix H is tridiagonal, its eigenvalues are real and its eigenvectors are
+ * computed with the symmetric QL algorithm. The entries of H above the first super diagonal, which are only rounding
+ * errors, are dropped and the tridiagonal is kept exactly symmetric. The operator is not checked for symmetry.
+ *
+ * @see PartialEigenSolver
+ */
+public class LanczosEigenSolver extends PartialEigenSolver<LanczosEigenSolver> {
+
+    /**
+     * @param A A square symmetric operator.
+     * @param k The number of eigenvalues to compute.
+     */
+    public LanczosEigenSolver(LinearOperator A, int k) {
+        super(A, k);
+    }
+
+    @Override
+    protected void afterStep(double[] H, int m, int j) {
+        for (int i = 0; i + 1 < j; ++i) {
+            H[i * m + j] = 0.0;
+        }
+        if (j > 0) {
+            H[(j - 1) * m + j] = H[j * m + j - 1];
+        }
+    }
+
+    @Override
+    protected double[] ritz(double[] H, int m, double[] re, double[] im) {
+        EigenvalueDecomposition eig = new Matrix(H.clone(), m, m).eigSymmetric();
+        System.arraycopy(eig.getRealEigenvalues(), 0, re, 0, m);
+        Arrays.fill(im, 0.0);
+        return eig.getV().getArray();
+    }
+}
@@ -0,0 +1,123 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.iterative;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+
+/**
+ * Results of a partial eigenvalue computation. The eigenvalues are ordered as requested by
+ * {@link PartialEigenSolver.Which}, closest to the shift first in shift-invert mode.
+ */
+public class PartialEigenResults {
+    private double[] realEigenvalues;
+    private double[] imagEigenvalues;
+    private Matrix realEigenvectors;
+    private Matrix imagEigenvectors;
+    private double[] errorEstimates;
+    private int numberOfIterations;
+    private int numberOfConverged;
+    private String solverStatus;
+    private boolean converged;
+
+    /**
+     * Return the real parts of the eigenvalues
+     *
+     * @return real(lambda)
+     */
+    public double[] getRealEigenvalues() {
+        return realEigenvalues;
+    }
+
+    void setRealEigenvalues(double[] realEigenvalues) {
+        this.realEigenvalues = realEigenvalues;
+    }
+
+    /**
+     * Return the imaginary parts of the eigenvalues
+     *
+     * @return imag(lambda)
+     */
+    public double[] getImagEigenvalues() {
+        return imagEigenvalues;
+    }
+
+    void setImagEigenvalues(double[] imagEigenvalues) {
+        this.imagEigenvalues = imagEigenvalues;
+    }
+
+    /**
+     * Real parts of the eigenvectors. Column {@code i} belongs to eigenvalue {@code i}, every eigenvector has unit two
+     * norm.
+     *
+     * @return real(V)
+     */
+    public Matrix getRealEigenvectors() {
+        return realEigenvectors;
+    }
+
+    void setRealEigenvectors(Matrix realEigenvectors) {
+        this.realEigenvectors = realEigenvectors;
+    }
+
+    /**
+     * Imaginary parts of the eigenvectors, zero for real eigenvalues.
+     *
+     * @return imag(V)
+     */
+    public Matrix getImagEigenvectors() {
+        return imagEigenvectors;
+    }
+
+    void setImagEigenvectors(Matrix imagEigenvectors) {
+        this.imagEigenvectors = imagEigenvectors;
+    }
+
+    /**
+     * Estimates of the residual norms {@code ||A * v - lambda * v||} of the operator the Krylov subspace was built
+     * for, i.e. of {@code (A - sigma * I)^-1} in shift-invert mode.
+     *
+     * @return The error estimates.
+     */
+    public double[] getErrorEstimates() {
+        return errorEstimates;
+    }
+
+    void setErrorEstimates(double[] errorEstimates) {
+        this.errorEstimates = errorEstimates;
+    }
+
+    /**
+     * Number of implicit restarts.
+     *
+     * @return The number of restarts performed.
+     */
+    public int getNumberOfIterations() {
+        return numberOfIterations;
+    }
+
+    void setNumberOfIterations(int numberOfIterations) {
+        this.numberOfIterations = numberOfIterations;
+    }
+
+    public int getNumberOfConverged() {
+        return numberOfConverged;
+    }
+
+    void setNumberOfConverged(int numberOfConverged) {
+        this.numberOfConverged = numberOfConverged;
+    }
+
+    public String getSolverStatus() {
+        return solverStatus;
+    }
+
+    void setSolverStatus(String solverStatus) {
+        this.solverStatus = solverStatus;
+    }
+
+    public boolean hasConverged() {
+        return converged;
+    }
+
+    void setConverged(boolean converged) {
+        this.converged = converged;
+    }
+}
@@ -0,0 +1,602 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.iterative;
+
+import com.wildbitsfoundry.etk4j.constants.ConstantsETK;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.LUWorkspace;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.LinearOperator;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Implicitly restarted Krylov method for a few eigenvalues of a large operator (Sorensen).
+ * <P>
+ * A Krylov factorization {@code A * V = V * H + f * e'} of dimension m is computed and the eigenvalues of the small
+ * m-by-m H (the Ritz values) approximate the eigenvalues of A. The factorization is then compressed to the k wanted
+ * Ritz values by m - k implicitly shifted QR steps on H, using the unwanted Ritz values as shifts, and extended back to
+ * dimension m. Every restart filters the unwanted part of the spectrum out of the starting vector without any
+ * extra products with A. The iteration stops when the residual estimates {@code |beta * e' * y|} of the wanted Ritz
+ * pairs are below {@code tol * max(eps^(2/3), |theta|)}. The basis is kept orthonormal by classical Gram-Schmidt
+ * with reorthogonalization.
+ * <P>
+ * In shift-invert mode the factorization is built for {@code (A - sigma * I)^-1}, whose largest eigenvalues
+ * {@code 1 / (lambda - sigma)} correspond to the eigenvalues of A closest to {@code sigma}. This converges in a few
+ * restarts for interior eigenvalues at the cost of a linear solve per step.
+ *
+ * @param <T> The concrete solver type, returned by the fluent setters.
+ * @see <a href="https://doi.org/10.1137/0613025">D. C. Sorensen, Implicit application of polynomial filters in a
+ * k-step Arnoldi method, SIAM J. Matrix Anal. Appl. 13(1), 1992</a>
+ */
+public abstract class PartialEigenSolver<T extends PartialEigenSolver<T>> {
+    /**
+     * The part of the spectrum to compute.
+     */
+    public enum Which {
+        LARGEST_MAGNITUDE,
+        SMALLEST_MAGNITUDE,
+        LARGEST_REAL,
+        SMALLEST_REAL
+    }
+
+    private static final double EPS23 = Math.pow(ConstantsETK.DOUBLE_EPS, 2.0 / 3.0);
+
+    protected final LinearOperator A;
+    protected final int n;
+    protected final int k;
+    protected Which which = Which.LARGEST_MAGNITUDE;
+    protected int subspaceDimension;
+    protected double tol = 1e-10;
+    protected int maxNumberOfIterations = 300;
+    protected double[] v0;
+    protected boolean shiftInvert;
+    protected double sigma;
+    protected LinearOperator inverse;
+
+    protected PartialEigenSolver(LinearOperator A, int k) {
+        if (A.getRowCount() != A.getColumnCount()) {
+            throw new IllegalArgumentException("Operator must be square.");
+        }
+        this.A = A;
+        this.n = A.getRowCount();
+        if (k < 1 || k > n) {
+            throw new IllegalArgumentException("The number of eigenvalues must be between one and the dimension of " +
+                    "the operator.");
+        }
+        this.k = k;
+        this.subspaceDimension = Math.min(n, Math.max(2 * k + 1, 20));
+    }
+
+    @SuppressWarnings("unchecked")
+    private T self() {
+        return (T) this;
+    }
+
+    /**
+     * The part of the spectrum to compute. Defaults to {@link Which#LARGEST_MAGNITUDE}. Ignored in shift-invert mode,
+     * where the eigenvalues closest to the shift are computed.
+     *
+     * @param which The wanted eigenvalues.
+     */
+    public T which(Which which) {
+        this.which = which;
+        return self();
+    }
+
+    /**
+     * Dimension m of the Krylov subspace. Defaults to {@code max(2 * k + 1, 20)}. Larger subspaces need fewer
+     * restarts but the cost of every restart grows with {@code n * m^2}.
+     *
+     * @param m The subspace dimension, more than the number of wanted eigenvalues.
+     */
+    public T subspaceDimension(int m) {
+        if (m <= k && m < n) {
+            throw new IllegalArgumentException("The subspace dimension must be larger than the number of " +
+                    "eigenvalues.");
+        }
+        subspaceDimension = Math.min(m, n);
+        return self();
+    }
+
+    /**
+     * Relative tolerance of the residuals of the eigenpairs. Defaults to 1e-10.
+     *
+     * @param tol The tolerance.
+     */
+    public T tolerance(double tol) {
+        this.tol = tol;
+        return self();
+    }
+
+    /**
+     * Maximum number of implicit restarts. Defaults to 300.
+     *
+     * @param limit The maximum number of restarts allowed.
+     */
+    public T iterationLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The iteration limit cannot be negative.");
+        }
+        maxNumberOfIterations = limit;
+        return self();
+    }
+
+    /**
+     * Starting vector of the Krylov subspace. Defaults to a random vector from a generator with a fixed seed.
+     *
+     * @param v0 The starting vector. It is not modified.
+     */
+    public T initialVector(double[] v0) {
+        if (v0.length != n) {
+            throw new IllegalArgumentException("Initial vector length must equal the dimension of the operator.");
+        }
+        this.v0 = v0;
+        return self();
+    }
+
+    /**
+     * Shift-invert mode with a dense LU decomposition of {@code A - sigma * I}. The operator must be a
+     * {@link Matrix}.
+     *
+     * @param sigma The shift, the eigenvalues closest to it are computed.
+     */
+    public T shiftInvert(double sigma) {
+        if (!(A instanceof Matrix)) {
+            throw new IllegalArgumentException("Shift-invert needs a Matrix, use shiftInvert(sigma, inverse) for " +
+                    "other operators.");
+        }
+        Matrix shifted = ((Matrix) A).subtract(Matrix.identity(n).multiply(sigma));
+        LUWorkspace lu = new LUWorkspace(n);
+        if (!lu.factor(shifted)) {
+            throw new RuntimeException("Matrix is singular.");
+        }
+        return shiftInvert(sigma, LinearOperator.of(n, n, lu::solve));
+    }
+
+    /**
+     * Shift-invert mode.
+     *
+     * @param sigma   The shift, the eigenvalues closest to it are computed.
+     * @param inverse The operator {@code (A - sigma * I)^-1}, e.g. backed by a sparse LU decomposition.
+     */
+    public T shiftInvert(double sigma, LinearOperator inverse) {
+        if (inverse.getRowCount() != n || inverse.getColumnCount() != n) {
+            throw new IllegalArgumentException("The inverse must have the same dimensions as the operator.");
+        }
+        this.shiftInvert = true;
+        this.sigma = sigma;
+        this.inverse = inverse;
+        return self();
+    }
+
+    /**
+     * Eigenvalues and eigenvectors of the m-by-m upper Hessenberg H.
+     *
+     * @param H  The Hessenberg matrix, row packed.
+     * @param m  The dimension.
+     * @param re Receives the real parts of the eigenvalues.
+     * @param im Receives the imaginary parts of the eigenvalues.
+     * @return The eigenvectors, row packed, with the layout of {@link
+     * com.wildbitsfoundry.etk4j.math.linearalgebra.EigenvalueDecomposition#getV()}.
+     */
+    protected abstract double[] ritz(double[] H, int m, double[] re, double[] im);
+
+    /**
+     * Computes the wanted eigenpairs.
+     *
+     * @return The {@link PartialEigenResults}.
+     */
+    public PartialEigenResults solve() {
+        final LinearOperator op = shiftInvert ? inverse : A;
+        final Which target = shiftInvert ? Which.LARGEST_MAGNITUDE : which;
+        final int m = subspaceDimension;
+        final Random random = new Random(0);
+
+        double[][] V = new double[m][];
+        double[] H = new double[m * m];
+        double[] f = new double[n];
+        double[] w = new double[n];
+        double[] h = new double[m];
+
+        V[0] = v0 != null ? v0.clone() : randomVector(random);
+        double norm = norm(V[0]);
+        if (norm == 0.0) {
+            throw new IllegalArgumentException("The initial vector cannot be zero.");
+        }
+        scale(V[0], 1.0 / norm);
+        extend(op, V, H, f, w, h, 0, m, random);
+
+        double[] re = new double[m];
+        double[] im = new double[m];
+        double[] Q = new double[m * m];
+        double[][] W = new double[m][n];
+        int iterations = 0;
+        while (true) {
+            double[] Y = ritz(H, m, re, im);
+            Integer[] order = sort(re, im, target);
+            final double beta = norm(f);
+            double[] estimates = new double[m];
+            int nconv = 0;
+            for (int p = 0; p < m; ++p) {
+                final int i = order[p];
+                estimates[p] = beta * lastComponent(Y, m, re, im, i);
+                if (p < k && estimates[p] <= tol * Math.max(EPS23, Math.hypot(re[i], im[i]))) {
+                    ++nconv;
+                }
+            }
+            if (beta == 0.0) {
+                // Every residual estimate vanishes, the Ritz pairs are exact.
+                return results(V, Y, m, re, im, order, estimates, iterations, nconv,
+                        "Converged, the Krylov subspace is invariant.");
+            }
+            if (nconv >= k) {
+                return results(V, Y, m, re, im, order, estimates, iterations, nconv, "Converged");
+            }
+            if (iterations == maxNumberOfIterations) {
+                return results(V, Y, m, re, im, order, estimates, iterations, nconv,
+                        "Maximum number of iterations exceeded");
+            }
+            ++iterations;
+
+            // Keep some of the converged eigenvalues beyond the wanted ones to avoid stagnation, and never split a
+            // complex conjugate pair.
+            int kk = Math.min(k + Math.min(nconv, (m - k) / 2), m - 1);
+            if (isConjugatePair(re, im, order[kk - 1], order[kk])) {
+                kk = kk + 1 < m ? kk + 1 : kk - 1;
+            }
+            if (kk < 1) {
+                return results(V, Y, m, re, im, order, estimates, iterations, nconv,
+                        "Breakdown, the subspace is too small to keep a Ritz value on restart.");
+            }
+
+            // Implicitly shifted QR steps on H with the unwanted Ritz values.
+            Arrays.fill(Q, 0.0);
+            for (int i = 0; i < m; ++i) {
+                Q[i * m + i] = 1.0;
+            }
+            for (int p = kk; p < m; ++p) {
+                final int i = order[p];
+                if (im[i] == 0.0) {
+                    singleShift(H, Q, m, re[i]);
+                } else if (im[i] > 0.0 && m >= 3) {
+                    doubleShift(H, Q, m, 2.0 * re[i], re[i] * re[i] + im[i] * im[i]);
+                }
+            }
+
+            // V = V * Q(:, 0 : kk), f = V * Q(:, kk) * H(kk, kk - 1) + f * Q(m - 1, kk - 1)
+            for (int j = 0; j <= kk; ++j) {
+                double[] wj = W[j];
+                Arrays.fill(wj, 0.0);
+                for (int i = 0; i < m; ++i) {
+                    final double q = Q[i * m + j];
+                    if (q != 0.0) {
+                        axpy(q, V[i], wj);
+                    }
+                }
+            }
+            final double betaK = H[kk * m + kk - 1];
+            final double sigmaK = Q[(m - 1) * m + kk - 1];
+            for (int i = 0; i < n; ++i) {
+                f[i] = W[kk][i] * betaK + f[i] * sigmaK;
+            }
+            for (int j = 0; j < kk; ++j) {
+                System.arraycopy(W[j], 0, V[j], 0, n);
+            }
+            for (int i = 0; i < m; ++i) {
+                for (int j = 0; j < m; ++j) {
+                    if (i >= kk || j >= kk) {
+                        H[i * m + j] = 0.0;
+                    }
+                }
+            }
+            extend(op, V, H, f, w, h, kk, m, random);
+        }
+    }
+
+    /**
+     * Extends a Krylov factorization of dimension {@code j0} to dimension {@code m}.
+     */
+    private void extend(LinearOperator op, double[][] V, double[] H, double[] f, double[] w, double[] h, int j0,
+                        int m, Random random) {
+        for (int j = j0; j < m; ++j) {
+            if (j > 0) {
+                double beta = norm(f);
+                if (beta <= ConstantsETK.DOUBLE_EPS * normH(H, m, j)) {
+                    // Invariant subspace, continue with a random vector orthogonal to it.
+                    beta = 0.0;
+                    System.arraycopy(randomVector(random), 0, f, 0, n);
+                    orthogonalize(V, j, f, h);
+                    orthogonalize(V, j, f, h);
+                    scale(f, 1.0 / norm(f));
+                } else {
+                    scale(f, 1.0 / beta);
+                }
+                if (V[j] == null) {
+                    V[j] = new double[n];
+                }
+                System.arraycopy(f, 0, V[j], 0, n);
+                H[j * m + j - 1] = beta;
+            }
+            op.multiply(V[j], w);
+            System.arraycopy(w, 0, f, 0, n);
+            // Classical Gram-Schmidt, applied twice.
+            double[] h2 = new double[j + 1];
+            orthogonalize(V, j + 1, f, h);
+            orthogonalize(V, j + 1, f, h2);
+            for (int i = 0; i <= j; ++i) {
+                H[i * m + j] = h[i] + h2[i];
+            }
+            afterStep(H, m, j);
+        }
+    }
+
+    /**
+     * Hook to impose the structure of H after column {@code j} has been computed.
+     */
+    protected void afterStep(double[] H, int m, int j) {
+    }
+
+    private void orthogonalize(double[][] V, int count, double[] x, double[] h) {
+        for (int i = 0; i < count; ++i) {
+            h[i] = dot(V[i], x);
+        }
+        for (int i = 0; i < count; ++i) {
+            axpy(-h[i], V[i], x);
+        }
+    }
+
+    private static double normH(double[] H, int m, int j) {
+        double norm = 0.0;
+        for (int i = 0; i < j; ++i) {
+            for (int c = 0; c < j; ++c) {
+                norm = Math.max(norm, Math.abs(H[i * m + c]));
+            }
+        }
+        return norm;
+    }
+
+    /**
+     * One implicit QR step with shift {@code mu} on the Hessenberg H, accumulated in Q.
+     */
+    private static void singleShift(double[] H, double[] Q, int m, double mu) {
+        double x = H[0] - mu;
+        double y = H[m];
+        for (int j = 0; j < m - 1; ++j) {
+            final double r = Math.hypot(x, y);
+            final double c = r == 0.0 ? 1.0 : x / r;
+            final double s = r == 0.0 ? 0.0 : y / r;
+            for (int col = Math.max(0, j - 1); col < m; ++col) {
+                final double a = H[j * m + col];
+                final double b = H[(j + 1) * m + col];
+                H[j * m + col] = c * a + s * b;
+                H[(j + 1) * m + col] = -s * a + c * b;
+            }
+            if (j > 0) {
+                H[(j + 1) * m + j - 1] = 0.0;
+            }
+            rotateColumns(H, m, Math.min(j + 2, m - 1) + 1, j, c, s);
+            rotateColumns(Q, m, m, j, c, s);
+            if (j < m - 2) {
+                x = H[(j + 1) * m + j];
+                y = H[(j + 2) * m + j];
+            }
+        }
+    }
+
+    /**
+     * One implicit double shift (Francis) QR step with the roots of {@code z^2 - s * z + t} on the Hessenberg H,
+     * accumulated in Q.
+     */
+    private static void doubleShift(double[] H, double[] Q, int m, double s, double t) {
+        double x = H[0] * H[0] + H[1] * H[m] - s * H[0] + t;
+        double y = H[m] * (H[0] + H[m + 1] - s);
+        double z = H[m] * H[2 * m + 1];
+        for (int j = 0; j < m - 2; ++j) {
+            double alpha = Math.sqrt(x * x + y * y + z * z);
+            if (alpha != 0.0) {
+                if (x > 0) {
+                    alpha = -alpha;
+                }
+                final double v0 = x - alpha;
+                final double v1 = y;
+                final double v2 = z;
+                final double beta = 2.0 / (v0 * v0 + v1 * v1 + v2 * v2);
+                for (int col = Math.max(0, j - 1); col < m; ++col) {
+                    double d = beta * (v0 * H[j * m + col] + v1 * H[(j + 1) * m + col] + v2 * H[(j + 2) * m + col]);
+                    H[j * m + col] -= d * v0;
+                    H[(j + 1) * m + col] -= d * v1;
+                    H[(j + 2) * m + col] -= d * v2;
+                }
+                if (j > 0) {
+                    H[(j + 1) * m + j - 1] = 0.0;
+                    H[(j + 2) * m + j - 1] = 0.0;
+                }
+                reflectColumns(H, m, Math.min(j + 3, m - 1) + 1, j, v0, v1, v2, beta);
+                reflectColumns(Q, m, m, j, v0, v1, v2, beta);
+            }
+            x = H[(j + 1) * m + j];
+            y = H[(j + 2) * m + j];
+            if (j < m - 3) {
+                z = H[(j + 3) * m + j];
+            }
+        }
+        final double r = Math.hypot(x, y);
+        if (r != 0.0) {
+            final double c = x / r;
+            final double sn = y / r;
+            for (int col = m - 3; col < m; ++col) {
+                final double a = H[(m - 2) * m + col];
+                final double b = H[(m - 1) * m + col];
+                H[(m - 2) * m + col] = c * a + sn * b;
+                H[(m - 1) * m + col] = -sn * a + c * b;
+            }
+            H[(m - 1) * m + m - 3] = 0.0;
+            rotateColumns(H, m, m, m - 2, c, sn);
+            rotateColumns(Q, m, m, m - 2, c, sn);
+        }
+    }
+
+    /**
+     * Columns {@code j, j + 1} of the first {@code rows} rows of X times the transpose of {@code [c s; -s c]}.
+     */
+    private static void rotateColumns(double[] X, int m, int rows, int j, double c, double s) {
+        for (int i = 0; i < rows; ++i) {
+            final double a = X[i * m + j];
+            final double b = X[i * m + j + 1];
+            X[i * m + j] = c * a + s * b;
+            X[i * m + j + 1] = -s * a + c * b;
+        }
+    }
+
+    /**
+     * Columns {@code j, j + 1, j + 2} of the first {@code rows} rows of X times {@code I - beta * v * v'}.
+     */
+    private static void reflectColumns(double[] X, int m, int rows, int j, double v0, double v1, double v2,
+                                       double beta) {
+        for (int i = 0; i < rows; ++i) {
+            final int row = i * m + j;
+            double d = beta * (X[row] * v0 + X[row + 1] * v1 + X[row + 2] * v2);
+            X[row] -= d * v0;
+            X[row + 1] -= d * v1;
+            X[row + 2] -= d * v2;
+        }
+    }
+
+    private Integer[] sort(double[] re, double[] im, Which target) {
+        final int m = re.length;
+        Integer[] order = new Integer[m];
+        double[] key = new double[m];
+        for (int i = 0; i < m; ++i) {
+            order[i] = i;
+            switch (target) {
+                case LARGEST_MAGNITUDE:
+                    key[i] = -Math.hypot(re[i], im[i]);
+                    break;
+                case SMALLEST_MAGNITUDE:
+                    key[i] = Math.hypot(re[i], im[i]);
+                    break;
+                case LARGEST_REAL:
+                    key[i] = -re[i];
+                    break;
+                default:
+                    key[i] = re[i];
+                    break;
+            }
+        }
+        // Conjugate pairs have the same key, the one with positive imaginary part goes first.
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> key[i]).thenComparingDouble(i -> -im[i]));
+        return order;
+    }
+
+    private static boolean isConjugatePair(double[] re, double[] im, int i, int j) {
+        return im[i] != 0.0 && re[i] == re[j] && im[i] == -im[j];
+    }
+
+    /**
+     * {@code |e' * y| / ||y||} for the eigenvector y of eigenvalue {@code i}.
+     */
+    private static double lastComponent(double[] Y, int m, double[] re, double[] im, int i) {
+        final int[] cols = eigenvectorColumns(im, i);
+        double last = 0.0;
+        double norm = 0.0;
+        for (int c : cols) {
+            last = Math.hypot(last, Y[(m - 1) * m + c]);
+            for (int r = 0; r < m; ++r) {
+                norm = Math.hypot(norm, Y[r * m + c]);
+            }
+        }
+        return last / norm;
+    }
+
+    /**
+     * Columns holding the real and imaginary parts of the eigenvector of eigenvalue {@code i}.
+     */
+    private static int[] eigenvectorColumns(double[] im, int i) {
+        if (im[i] == 0.0) {
+            return new int[]{i};
+        }
+        return im[i] > 0.0 ? new int[]{i, i + 1} : new int[]{i - 1, i};
+    }
+
+    private PartialEigenResults results(double[][] V, double[] Y, int m, double[] re, double[] im, Integer[] order,
+                                        double[] estimates, int iterations, int nconv, String status) {
+        double[] lambdaRe = new double[k];
+        double[] lambdaIm = new double[k];
+        Matrix xRe = new Matrix(n, k);
+        Matrix xIm = new Matrix(n, k);
+        double[] xr = new double[n];
+        double[] xi = new double[n];
+        for (int p = 0; p < k; ++p) {
+            final int i = order[p];
+            if (shiftInvert) {
+                // lambda = sigma + 1 / theta
+                final double d = re[i] * re[i] + im[i] * im[i];
+                lambdaRe[p] = sigma + re[i] / d;
+                lambdaIm[p] = -im[i] / d;
+            } else {
+                lambdaRe[p] = re[i];
+                lambdaIm[p] = im[i];
+            }
+            final int[] cols = eigenvectorColumns(im, i);
+            Arrays.fill(xr, 0.0);
+            Arrays.fill(xi, 0.0);
+            for (int r = 0; r < m; ++r) {
+                axpy(Y[r * m + cols[0]], V[r], xr);
+                if (cols.length == 2) {
+                    // The eigenvector of the eigenvalue with negative imaginary part is the conjugate.
+                    axpy(im[i] > 0.0 ? Y[r * m + cols[1]] : -Y[r * m + cols[1]], V[r], xi);
+                }
+            }
+            final double scale = 1.0 / Math.hypot(norm(xr), norm(xi));
+            for (int r = 0; r < n; ++r) {
+                xRe.set(r, p, xr[r] * scale);
+                xIm.set(r, p, xi[r] * scale);
+            }
+        }
+        PartialEigenResults results = new PartialEigenResults();
+        results.setRealEigenvalues(lambdaRe);
+        results.setImagEigenvalues(lambdaIm);
+        results.setRealEigenvectors(xRe);
+        results.setImagEigenvectors(xIm);
+        results.setErrorEstimates(Arrays.copyOf(estimates, k));
+        results.setNumberOfIterations(iterations);
+        results.setNumberOfConverged(Math.min(nconv, k));
+        results.setConverged(nconv >= k);
+        results.setSolverStatus(status);
+        return results;
+    }
+
+    // region helpers
+    private double[] randomVector(Random random) {
+        double[] x = new double[n];
+        for (int i = 0; i < n; ++i) {
+            x[i] = random.nextGaussian();
+        }
+        return x;
+    }
+
+    protected static double dot(double[] x, double[] y) {
+        double sum = 0.0;
+        for (int i = 0; i < x.length; ++i) {
+            sum += x[i] * y[i];
+        }
+        return sum;
+    }
+
+    protected static double norm(double[] x) {
+        return Math.sqrt(dot(x, x));
+    }
+
+    private static void scale(double[] x, double alpha) {
+        for (int i = 0; i < x.length; ++i) {
+            x[i] *= alpha;
+        }
+    }
+
+    private static void axpy(double alpha, double[] x, double[] y) {
+        for (int i = 0; i < y.length; ++i) {
+            y[i] += alpha * x[i];
+        }
+    }
+    // endregion
+}
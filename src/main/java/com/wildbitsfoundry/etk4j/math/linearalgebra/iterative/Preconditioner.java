@@ -0,0 +1,15 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.iterative;
+
+/**
+ * Approximate inverse {@code M^-1} of the system matrix, used to speed up the convergence of the Krylov solvers.
+ */
+public interface Preconditioner {
+
+    /**
+     * Computes {@code z = M^-1 * r}.
+     *
+     * @param r The vector to precondition.
+     * @param z The vector that receives the result. It must not be {@code r}.
+     */
+    void apply(double[] r, double[] z);
+}
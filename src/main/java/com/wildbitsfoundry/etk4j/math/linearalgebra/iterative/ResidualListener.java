@@ -0,0 +1,13 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.iterative;
+
+/**
+ * Receives the residual norm of an iterative solver after every iteration.
+ */
+public interface ResidualListener {
+
+    /**
+     * @param iteration    The iteration number, 0 for the initial residual.
+     * @param residualNorm The two norm of the residual {@code b - A * x}.
+     */
+    void onIteration(int iteration, double residualNorm);
+}
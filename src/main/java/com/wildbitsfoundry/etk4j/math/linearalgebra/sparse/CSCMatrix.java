@@ -0,0 +1,224 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.sparse;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+
+import java.util.Arrays;
+
+/**
+ * Sparse matrix in compressed sparse column (CSC) format.
+ * <P>
+ * The row indices and values of column {@code j} are stored in positions {@code columnPointers[j]} to
+ * {@code columnPointers[j + 1] - 1} of the index and value arrays. This is the input format of
+ * {@link SparseLUDecomposition} and {@link SparseCholeskyDecomposition}.
+ */
+public class CSCMatrix extends SparseMatrix {
+    private final int[] columnPointers;
+    private final int[] rowIndices;
+    private final double[] values;
+
+    /**
+     * Constructs a {@code CSCMatrix} from its compressed storage. The arrays are used as the internal storage, no
+     * copies are made.
+     *
+     * @param rows           The number of rows.
+     * @param cols           The number of columns.
+     * @param columnPointers Array of length {@code cols + 1} with the start of each column.
+     * @param rowIndices     The row index of each entry.
+     * @param values         The value of each entry.
+     */
+    public CSCMatrix(int rows, int cols, int[] columnPointers, int[] rowIndices, double[] values) {
+        super(rows, cols);
+        checkCompressed(cols, rows, columnPointers, rowIndices, values);
+        this.columnPointers = columnPointers;
+        this.rowIndices = rowIndices;
+        this.values = values;
+    }
+
+    /**
+     * Builds a {@code CSCMatrix} from coordinate (triplet) form. Entries with the same row and column are summed.
+     *
+     * @param rows          The number of rows.
+     * @param cols          The number of columns.
+     * @param rowIndices    The row index of each entry.
+     * @param columnIndices The column index of each entry.
+     * @param values        The value of each entry.
+     * @return The CSC matrix.
+     */
+    public static CSCMatrix fromTriplets(int rows, int cols, int[] rowIndices, int[] columnIndices, double[] values) {
+        double[][] val = new double[1][];
+        int[][] storage = compress(cols, rows, columnIndices, rowIndices, values, val);
+        return new CSCMatrix(rows, cols, storage[0], storage[1], val[0]);
+    }
+
+    /**
+     * Converts a dense {@code Matrix}, keeping only its nonzero entries.
+     *
+     * @param matrix The dense matrix.
+     * @return The CSC matrix.
+     */
+    public static CSCMatrix fromMatrix(Matrix matrix) {
+        final int rows = matrix.getRowCount();
+        final int cols = matrix.getColumnCount();
+        double[] data = matrix.getArray();
+        int nnz = 0;
+        for (int i = 0; i < rows * cols; ++i) {
+            if (data[i] != 0.0) {
+                ++nnz;
+            }
+        }
+        int[] ptr = new int[cols + 1];
+        int[] idx = new int[nnz];
+        double[] val = new double[nnz];
+        int q = 0;
+        for (int j = 0; j < cols; ++j) {
+            for (int i = 0; i < rows; ++i) {
+                double v = data[i * cols + j];
+                if (v != 0.0) {
+                    idx[q] = i;
+                    val[q++] = v;
+                }
+            }
+            ptr[j + 1] = q;
+        }
+        return new CSCMatrix(rows, cols, ptr, idx, val);
+    }
+
+    // region getters
+    /**
+     * Changes to this array will change the contents of the matrix.
+     *
+     * @return The internal column pointers.
+     */
+    public int[] getColumnPointers() {
+        return columnPointers;
+    }
+
+    /**
+     * Changes to this array will change the contents of the matrix.
+     *
+     * @return The internal row indices.
+     */
+    public int[] getRowIndices() {
+        return rowIndices;
+    }
+
+    /**
+     * Changes to this array will change the contents of the matrix.
+     *
+     * @return The internal values.
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    @Override
+    public double get(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= cols) {
+            throw new ArrayIndexOutOfBoundsException(String.format("Index (%d, %d) is out of bounds for a %d-by-%d " +
+                    "matrix.", i, j, rows, cols));
+        }
+        double sum = 0.0;
+        for (int p = columnPointers[j]; p < columnPointers[j + 1]; ++p) {
+            if (rowIndices[p] == i) {
+                sum += values[p];
+            }
+        }
+        return sum;
+    }
+    // endregion
+
+    // region arithmetic operations
+    @Override
+    public void multiply(double[] x, double[] y) {
+        checkVectorLengths(x, y);
+        Arrays.fill(y, 0.0);
+        for (int j = 0; j < cols; ++j) {
+            final double xj = x[j];
+            for (int p = columnPointers[j]; p < columnPointers[j + 1]; ++p) {
+                y[rowIndices[p]] += values[p] * xj;
+            }
+        }
+    }
+
+    @Override
+    public Matrix multiply(Matrix B) {
+        final int n = B.getColumnCount();
+        if (B.getRowCount() != cols) {
+            throw new IllegalArgumentException("Matrix inner dimensions must agree. Check that the number of" +
+                    "columns of the first matrix equal the number of rows of the second matrix.");
+        }
+        double[] b = B.getArray();
+        double[] c = new double[rows * n];
+        for (int k = 0; k < cols; ++k) {
+            final int bk = k * n;
+            for (int p = columnPointers[k]; p < columnPointers[k + 1]; ++p) {
+                final double a = values[p];
+                final int ci = rowIndices[p] * n;
+                for (int j = 0; j < n; ++j) {
+                    c[ci + j] += a * b[bk + j];
+                }
+            }
+        }
+        return new Matrix(c, rows, n);
+    }
+    // endregion
+
+    public CSCMatrix transpose() {
+        final int nnz = getNonZeroCount();
+        int[] ptr = new int[rows + 1];
+        int[] idx = new int[nnz];
+        double[] val = new double[nnz];
+        transpose(cols, rows, columnPointers, rowIndices, values, ptr, idx, val);
+        return new CSCMatrix(cols, rows, ptr, idx, val);
+    }
+
+    /**
+     * Converts to compressed sparse row format.
+     *
+     * @return The same matrix in CSR format.
+     */
+    public CSRMatrix toCSR() {
+        final int nnz = getNonZeroCount();
+        int[] ptr = new int[rows + 1];
+        int[] idx = new int[nnz];
+        double[] val = new double[nnz];
+        transpose(cols, rows, columnPointers, rowIndices, values, ptr, idx, val);
+        return new CSRMatrix(rows, cols, ptr, idx, val);
+    }
+
+    @Override
+    public Matrix toMatrix() {
+        double[] data = new double[rows * cols];
+        for (int j = 0; j < cols; ++j) {
+            for (int p = columnPointers[j]; p < columnPointers[j + 1]; ++p) {
+                data[rowIndices[p] * cols + j] += values[p];
+            }
+        }
+        return new Matrix(data, rows, cols);
+    }
+
+    @Override
+    int majorDimension() {
+        return cols;
+    }
+
+    @Override
+    int[] pointers() {
+        return columnPointers;
+    }
+
+    @Override
+    int[] indices() {
+        return rowIndices;
+    }
+
+    @Override
+    double[] values() {
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d-by-%d CSCMatrix with %d nonzeros", rows, cols, getNonZeroCount());
+    }
+}
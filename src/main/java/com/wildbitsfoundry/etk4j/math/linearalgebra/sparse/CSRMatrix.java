@@ -0,0 +1,295 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.sparse;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+
+import java.util.Arrays;
+
+/**
+ * Sparse matrix in compressed sparse row (CSR) format.
+ * <P>
+ * The column indices and values of row {@code i} are stored in positions {@code rowPointers[i]} to
+ * {@code rowPointers[i + 1] - 1} of the index and value arrays. CSR is the natural format for matrix vector
+ * products, use {@link CSCMatrix} for the sparse factorizations.
+ */
+public class CSRMatrix extends SparseMatrix {
+    private final int[] rowPointers;
+    private final int[] columnIndices;
+    private final double[] values;
+
+    /**
+     * Constructs a {@code CSRMatrix} from its compressed storage. The arrays are used as the internal storage, no
+     * copies are made.
+     *
+     * @param rows          The number of rows.
+     * @param cols          The number of columns.
+     * @param rowPointers   Array of length {@code rows + 1} with the start of each row.
+     * @param columnIndices The column index of each entry.
+     * @param values        The value of each entry.
+     */
+    public CSRMatrix(int rows, int cols, int[] rowPointers, int[] columnIndices, double[] values) {
+        super(rows, cols);
+        checkCompressed(rows, cols, rowPointers, columnIndices, values);
+        this.rowPointers = rowPointers;
+        this.columnIndices = columnIndices;
+        this.values = values;
+    }
+
+    /**
+     * Builds a {@code CSRMatrix} from coordinate (triplet) form. Entries with the same row and column are summed.
+     *
+     * @param rows          The number of rows.
+     * @param cols          The number of columns.
+     * @param rowIndices    The row index of each entry.
+     * @param columnIndices The column index of each entry.
+     * @param values        The value of each entry.
+     * @return The CSR matrix.
+     */
+    public static CSRMatrix fromTriplets(int rows, int cols, int[] rowIndices, int[] columnIndices, double[] values) {
+        double[][] val = new double[1][];
+        int[][] storage = compress(rows, cols, rowIndices, columnIndices, values, val);
+        return new CSRMatrix(rows, cols, storage[0], storage[1], val[0]);
+    }
+
+    /**
+     * Converts a dense {@code Matrix}, keeping only its nonzero entries.
+     *
+     * @param matrix The dense matrix.
+     * @return The CSR matrix.
+     */
+    public static CSRMatrix fromMatrix(Matrix matrix) {
+        final int rows = matrix.getRowCount();
+        final int cols = matrix.getColumnCount();
+        double[] data = matrix.getArray();
+        int nnz = 0;
+        for (int i = 0; i < rows * cols; ++i) {
+            if (data[i] != 0.0) {
+                ++nnz;
+            }
+        }
+        int[] ptr = new int[rows + 1];
+        int[] idx = new int[nnz];
+        double[] val = new double[nnz];
+        int q = 0;
+        for (int i = 0; i < rows; ++i) {
+            for (int j = 0; j < cols; ++j) {
+                double v = data[i * cols + j];
+                if (v != 0.0) {
+                    idx[q] = j;
+                    val[q++] = v;
+                }
+            }
+            ptr[i + 1] = q;
+        }
+        return new CSRMatrix(rows, cols, ptr, idx, val);
+    }
+
+    /**
+     * Sparse identity matrix.
+     *
+     * @param n The dimension.
+     * @return An n-by-n identity matrix.
+     */
+    public static CSRMatrix identity(int n) {
+        int[] ptr = new int[n + 1];
+        int[] idx = new int[n];
+        double[] val = new double[n];
+        for (int i = 0; i < n; ++i) {
+            ptr[i + 1] = i + 1;
+            idx[i] = i;
+            val[i] = 1.0;
+        }
+        return new CSRMatrix(n, n, ptr, idx, val);
+    }
+
+    // region getters
+    /**
+     * Changes to this array will change the contents of the matrix.
+     *
+     * @return The internal row pointers.
+     */
+    public int[] getRowPointers() {
+        return rowPointers;
+    }
+
+    /**
+     * Changes to this array will change the contents of the matrix.
+     *
+     * @return The internal column indices.
+     */
+    public int[] getColumnIndices() {
+        return columnIndices;
+    }
+
+    /**
+     * Changes to this array will change the contents of the matrix.
+     *
+     * @return The internal values.
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    @Override
+    public double get(int i, int j) {
+        checkIndexes(i, j);
+        double sum = 0.0;
+        for (int p = rowPointers[i]; p < rowPointers[i + 1]; ++p) {
+            if (columnIndices[p] == j) {
+                sum += values[p];
+            }
+        }
+        return sum;
+    }
+
+    private void checkIndexes(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= cols) {
+            throw new ArrayIndexOutOfBoundsException(String.format("Index (%d, %d) is out of bounds for a %d-by-%d " +
+                    "matrix.", i, j, rows, cols));
+        }
+    }
+    // endregion
+
+    // region arithmetic operations
+    @Override
+    public void multiply(double[] x, double[] y) {
+        checkVectorLengths(x, y);
+        for (int i = 0; i < rows; ++i) {
+            double sum = 0.0;
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; ++p) {
+                sum += values[p] * x[columnIndices[p]];
+            }
+            y[i] = sum;
+        }
+    }
+
+    @Override
+    public Matrix multiply(Matrix B) {
+        final int n = B.getColumnCount();
+        if (B.getRowCount() != cols) {
+            throw new IllegalArgumentException("Matrix inner dimensions must agree. Check that the number of" +
+                    "columns of the first matrix equal the number of rows of the second matrix.");
+        }
+        double[] b = B.getArray();
+        double[] c = new double[rows * n];
+        for (int i = 0; i < rows; ++i) {
+            final int ci = i * n;
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; ++p) {
+                final double a = values[p];
+                final int bk = columnIndices[p] * n;
+                for (int j = 0; j < n; ++j) {
+                    c[ci + j] += a * b[bk + j];
+                }
+            }
+        }
+        return new Matrix(c, rows, n);
+    }
+
+    /**
+     * Sparse matrix product.
+     *
+     * @param B The sparse matrix to multiply.
+     * @return {@code A * B}.
+     */
+    public CSRMatrix multiply(CSRMatrix B) {
+        if (B.rows != cols) {
+            throw new IllegalArgumentException("Matrix inner dimensions must agree. Check that the number of" +
+                    "columns of the first matrix equal the number of rows of the second matrix.");
+        }
+        final int n = B.cols;
+        // Gustavson's algorithm, accumulating each row of the product in a dense work vector.
+        int[] marker = new int[n];
+        Arrays.fill(marker, -1);
+        double[] work = new double[n];
+        int[] ptr = new int[rows + 1];
+        int[] idx = new int[Math.max(16, getNonZeroCount() + B.getNonZeroCount())];
+        double[] val = new double[idx.length];
+        int nnz = 0;
+        for (int i = 0; i < rows; ++i) {
+            final int start = nnz;
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; ++p) {
+                final double a = values[p];
+                final int k = columnIndices[p];
+                for (int q = B.rowPointers[k]; q < B.rowPointers[k + 1]; ++q) {
+                    final int j = B.columnIndices[q];
+                    if (marker[j] != i) {
+                        marker[j] = i;
+                        if (nnz == idx.length) {
+                            idx = Arrays.copyOf(idx, 2 * idx.length);
+                            val = Arrays.copyOf(val, idx.length);
+                        }
+                        idx[nnz++] = j;
+                        work[j] = a * B.values[q];
+                    } else {
+                        work[j] += a * B.values[q];
+                    }
+                }
+            }
+            Arrays.sort(idx, start, nnz);
+            for (int q = start; q < nnz; ++q) {
+                val[q] = work[idx[q]];
+            }
+            ptr[i + 1] = nnz;
+        }
+        return new CSRMatrix(rows, n, ptr, Arrays.copyOf(idx, nnz), Arrays.copyOf(val, nnz));
+    }
+    // endregion
+
+    public CSRMatrix transpose() {
+        final int nnz = getNonZeroCount();
+        int[] ptr = new int[cols + 1];
+        int[] idx = new int[nnz];
+        double[] val = new double[nnz];
+        transpose(rows, cols, rowPointers, columnIndices, values, ptr, idx, val);
+        return new CSRMatrix(cols, rows, ptr, idx, val);
+    }
+
+    /**
+     * Converts to compressed sparse column format.
+     *
+     * @return The same matrix in CSC format.
+     */
+    public CSCMatrix toCSC() {
+        final int nnz = getNonZeroCount();
+        int[] ptr = new int[cols + 1];
+        int[] idx = new int[nnz];
+        double[] val = new double[nnz];
+        transpose(rows, cols, rowPointers, columnIndices, values, ptr, idx, val);
+        return new CSCMatrix(rows, cols, ptr, idx, val);
+    }
+
+    @Override
+    public Matrix toMatrix() {
+        double[] data = new double[rows * cols];
+        for (int i = 0; i < rows; ++i) {
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; ++p) {
+                data[i * cols + columnIndices[p]] += values[p];
+            }
+        }
+        return new Matrix(data, rows, cols);
+    }
+
+    @Override
+    int majorDimension() {
+        return rows;
+    }
+
+    @Override
+    int[] pointers() {
+        return rowPointers;
+    }
+
+    @Override
+    int[] indices() {
+        return columnIndices;
+    }
+
+    @Override
+    double[] values() {
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d-by-%d CSRMatrix with %d nonzeros", rows, cols, getNonZeroCount());
+    }
+}
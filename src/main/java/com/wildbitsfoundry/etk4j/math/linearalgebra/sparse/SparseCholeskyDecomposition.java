@@ -0,0 +1,331 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.sparse;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+
+import java.util.Arrays;
+
+/**
+ * Sparse Cholesky Decomposition.
+ * <P>
+ * For a symmetric, positive definite sparse matrix A, computes a lower triangular matrix L so that L*L' = P*A*P',
+ * where P is a fill reducing symmetric permutation. The nonzero pattern of L is computed from the elimination tree
+ * before any arithmetic is done, and the rows of L are then computed one at a time (up-looking algorithm).
+ * <P>
+ * If the matrix is not symmetric or positive definite, the constructor returns a partial decomposition and sets an
+ * internal flag that may be queried by the isSPD() method.
+ */
+public class SparseCholeskyDecomposition {
+    private final int _n;
+    private final int[] _p;
+    private final int[] _pinv;
+    private int[] Lp;
+    private int[] Li;
+    private double[] Lx;
+    private final boolean isspd;
+
+    /**
+     * Factors {@code A} with an approximate minimum degree ordering.
+     *
+     * @param A A square, symmetric sparse matrix.
+     */
+    public SparseCholeskyDecomposition(CSCMatrix A) {
+        this(A, SparseOrderings.amd(A));
+    }
+
+    /**
+     * @param A A square, symmetric sparse matrix.
+     * @param p The symmetric permutation, see {@link SparseOrderings}.
+     */
+    public SparseCholeskyDecomposition(CSCMatrix A, int[] p) {
+        final int n = A.getRowCount();
+        if (A.getColumnCount() != n) {
+            throw new IllegalArgumentException("Matrix must be square.");
+        }
+        if (p.length != n) {
+            throw new IllegalArgumentException("Permutation length must equal the matrix dimension.");
+        }
+        _n = n;
+        _p = Arrays.copyOf(p, n);
+        _pinv = SparseOrderings.inverse(_p);
+        isspd = isSymmetric(A) && factor(permuteUpper(A));
+    }
+
+    private static boolean isSymmetric(CSCMatrix A) {
+        // Compare A and A' with duplicates summed and sorted indices.
+        CSCMatrix B = canonical(A, false);
+        CSCMatrix T = canonical(A, true);
+        if (!Arrays.equals(B.getColumnPointers(), T.getColumnPointers())) {
+            return false;
+        }
+        final int nnz = B.getNonZeroCount();
+        int[] bi = B.getRowIndices();
+        int[] ti = T.getRowIndices();
+        double[] bx = B.getValues();
+        double[] tx = T.getValues();
+        for (int p = 0; p < nnz; ++p) {
+            if (bi[p] != ti[p] || bx[p] != tx[p]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static CSCMatrix canonical(CSCMatrix A, boolean transpose) {
+        final int[] Ap = A.getColumnPointers();
+        final int nnz = A.getNonZeroCount();
+        int[] cols = new int[nnz];
+        for (int j = 0; j < A.getColumnCount(); ++j) {
+            for (int p = Ap[j]; p < Ap[j + 1]; ++p) {
+                cols[p] = j;
+            }
+        }
+        int[] rows = Arrays.copyOf(A.getRowIndices(), nnz);
+        double[] vals = Arrays.copyOf(A.getValues(), nnz);
+        return transpose ? CSCMatrix.fromTriplets(A.getColumnCount(), A.getRowCount(), cols, rows, vals)
+                : CSCMatrix.fromTriplets(A.getRowCount(), A.getColumnCount(), rows, cols, vals);
+    }
+
+    /**
+     * The upper triangular part of P*A*P' in CSC format.
+     */
+    private CSCMatrix permuteUpper(CSCMatrix A) {
+        final int n = _n;
+        final int[] Ap = A.getColumnPointers();
+        final int[] Ai = A.getRowIndices();
+        final double[] Ax = A.getValues();
+        int nnz = 0;
+        int[] rows = new int[A.getNonZeroCount()];
+        int[] cols = new int[rows.length];
+        double[] vals = new double[rows.length];
+        for (int j = 0; j < n; ++j) {
+            final int j2 = _pinv[j];
+            for (int p = Ap[j]; p < Ap[j + 1]; ++p) {
+                final int i2 = _pinv[Ai[p]];
+                if (i2 <= j2) {
+                    rows[nnz] = i2;
+                    cols[nnz] = j2;
+                    vals[nnz++] = Ax[p];
+                }
+            }
+        }
+        return CSCMatrix.fromTriplets(n, n, Arrays.copyOf(rows, nnz), Arrays.copyOf(cols, nnz),
+                Arrays.copyOf(vals, nnz));
+    }
+
+    private boolean factor(CSCMatrix C) {
+        final int n = _n;
+        final int[] Cp = C.getColumnPointers();
+        final int[] Ci = C.getRowIndices();
+        final double[] Cx = C.getValues();
+
+        // Elimination tree.
+        int[] parent = new int[n];
+        int[] ancestor = new int[n];
+        for (int k = 0; k < n; ++k) {
+            parent[k] = -1;
+            ancestor[k] = -1;
+            for (int p = Cp[k]; p < Cp[k + 1]; ++p) {
+                int i = Ci[p];
+                while (i != -1 && i < k) {
+                    int next = ancestor[i];
+                    ancestor[i] = k;
+                    if (next == -1) {
+                        parent[i] = k;
+                    }
+                    i = next;
+                }
+            }
+        }
+
+        // Column counts of L from the row patterns given by the elimination tree.
+        int[] s = new int[n];
+        int[] mark = new int[n];
+        int[] count = new int[n];
+        for (int k = 0; k < n; ++k) {
+            int top = ereach(Cp, Ci, k, parent, s, mark, k + 1);
+            for (int p = top; p < n; ++p) {
+                ++count[s[p]];
+            }
+            ++count[k];
+        }
+        Lp = new int[n + 1];
+        for (int k = 0; k < n; ++k) {
+            Lp[k + 1] = Lp[k] + count[k];
+        }
+        Li = new int[Lp[n]];
+        Lx = new double[Lp[n]];
+
+        // Numerical factorization, one row of L at a time.
+        int[] c = Arrays.copyOf(Lp, n);
+        double[] x = new double[n];
+        for (int k = 0; k < n; ++k) {
+            int top = ereach(Cp, Ci, k, parent, s, mark, n + k + 1);
+            x[k] = 0.0;
+            for (int p = Cp[k]; p < Cp[k + 1]; ++p) {
+                x[Ci[p]] += Cx[p];
+            }
+            double d = x[k];
+            x[k] = 0.0;
+            for (; top < n; ++top) {
+                final int i = s[top];
+                final double lki = x[i] / Lx[Lp[i]];
+                x[i] = 0.0;
+                for (int p = Lp[i] + 1; p < c[i]; ++p) {
+                    x[Li[p]] -= Lx[p] * lki;
+                }
+                d -= lki * lki;
+                int p = c[i]++;
+                Li[p] = k;
+                Lx[p] = lki;
+            }
+            if (!(d > 0.0)) {
+                return false;
+            }
+            int p = c[k]++;
+            Li[p] = k;
+            Lx[p] = Math.sqrt(d);
+        }
+        return true;
+    }
+
+    /**
+     * Nonzero pattern of row k of L, returned in {@code s[top..n-1]}. Walks up the elimination tree from every
+     * nonzero of the k-th column of the upper triangle, stopping at nodes already marked with {@code stamp}.
+     */
+    private static int ereach(int[] Cp, int[] Ci, int k, int[] parent, int[] s, int[] mark, int stamp) {
+        final int n = parent.length;
+        int top = n;
+        mark[k] = stamp;
+        for (int p = Cp[k]; p < Cp[k + 1]; ++p) {
+            int i = Ci[p];
+            if (i > k) {
+                continue;
+            }
+            int len = 0;
+            for (; mark[i] != stamp; i = parent[i]) {
+                s[len++] = i;
+                mark[i] = stamp;
+            }
+            while (len > 0) {
+                s[--top] = s[--len];
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Is the matrix symmetric and positive definite?
+     *
+     * @return true if A is symmetric and positive definite.
+     */
+    public boolean isSPD() {
+        return isspd;
+    }
+
+    /**
+     * Return triangular factor.
+     *
+     * @return L such that L*L' = P*A*P'
+     */
+    public CSCMatrix getL() {
+        checkSPD();
+        return new CSCMatrix(_n, _n, Arrays.copyOf(Lp, _n + 1), Arrays.copyOf(Li, Li.length),
+                Arrays.copyOf(Lx, Lx.length));
+    }
+
+    /**
+     * The symmetric permutation P. Row and column k of P*A*P' are row and column {@code p[k]} of A.
+     *
+     * @return p
+     */
+    public int[] getPermutation() {
+        return Arrays.copyOf(_p, _n);
+    }
+
+    /**
+     * Solve A*x = b
+     *
+     * @param b
+     *            The right hand side.
+     * @return x so that L*L'*P*x = P*b
+     * @exception IllegalArgumentException
+     *                Array length must agree.
+     * @exception RuntimeException
+     *                Matrix is not symmetric positive definite.
+     */
+    public double[] solve(double[] b) {
+        if (b.length != _n) {
+            throw new IllegalArgumentException("Array length must agree.");
+        }
+        checkSPD();
+        double[] x = new double[_n];
+        solve(b, x, new double[_n]);
+        return x;
+    }
+
+    /**
+     * Solve A*X = B
+     *
+     * @param B
+     *            A Matrix with as many rows as A and any number of columns.
+     * @return X so that L*L'*P*X = P*B
+     * @exception IllegalArgumentException
+     *                Matrix row dimensions must agree.
+     * @exception RuntimeException
+     *                Matrix is not symmetric positive definite.
+     */
+    public Matrix solve(Matrix B) {
+        if (B.getRowCount() != _n) {
+            throw new IllegalArgumentException("Matrix row dimensions must agree.");
+        }
+        checkSPD();
+        final int nx = B.getColumnCount();
+        double[] b = B.getArray();
+        double[] X = new double[_n * nx];
+        double[] bj = new double[_n];
+        double[] xj = new double[_n];
+        double[] work = new double[_n];
+        for (int j = 0; j < nx; ++j) {
+            for (int i = 0; i < _n; ++i) {
+                bj[i] = b[i * nx + j];
+            }
+            solve(bj, xj, work);
+            for (int i = 0; i < _n; ++i) {
+                X[i * nx + j] = xj[i];
+            }
+        }
+        return new Matrix(X, _n, nx);
+    }
+
+    private void solve(double[] b, double[] x, double[] work) {
+        final int n = _n;
+        for (int k = 0; k < n; ++k) {
+            work[k] = b[_p[k]];
+        }
+        // Solve L*y = P*b
+        for (int j = 0; j < n; ++j) {
+            work[j] /= Lx[Lp[j]];
+            final double wj = work[j];
+            for (int p = Lp[j] + 1; p < Lp[j + 1]; ++p) {
+                work[Li[p]] -= Lx[p] * wj;
+            }
+        }
+        // Solve L'*z = y
+        for (int j = n - 1; j >= 0; --j) {
+            double wj = work[j];
+            for (int p = Lp[j] + 1; p < Lp[j + 1]; ++p) {
+                wj -= Lx[p] * work[Li[p]];
+            }
+            work[j] = wj / Lx[Lp[j]];
+        }
+        for (int k = 0; k < n; ++k) {
+            x[_p[k]] = work[k];
+        }
+    }
+
+    private void checkSPD() {
+        if (!isspd) {
+            throw new RuntimeException("Matrix is not symmetric positive definite.");
+        }
+    }
+}
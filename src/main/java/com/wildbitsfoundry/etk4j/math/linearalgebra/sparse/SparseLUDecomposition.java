@@ -0,0 +1,390 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.sparse;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+
+import java.util.Arrays;
+
+/**
+ * Sparse LU Decomposition.
+ * <P>
+ * For a square sparse matrix A, computes L*U = P*A*Q where Q is a fill reducing column permutation, P is the row
+ * permutation chosen by threshold partial pivoting, L is unit lower triangular and U is upper triangular. The columns
+ * are factored left to right, each one by a sparse triangular solve with the columns of L computed so far
+ * (Gilbert and Peierls), so the work is proportional to the number of floating point operations.
+ * <P>
+ * If the matrix is singular, the factorization stops at the first column without a nonzero pivot and sets an internal
+ * flag that may be queried by the isNonSingular() method.
+ */
+public class SparseLUDecomposition {
+    /**
+     * Default pivot tolerance. A diagonal entry is preferred as pivot as long as its magnitude is at least this
+     * fraction of the largest candidate in its column, which preserves the fill reducing ordering.
+     */
+    public static final double DEFAULT_PIVOT_TOLERANCE = 0.1;
+
+    private final int _n;
+    private final int[] _q;
+    private final int[] _pinv;
+    private int[] Lp;
+    private int[] Li;
+    private double[] Lx;
+    private int[] Up;
+    private int[] Ui;
+    private double[] Ux;
+    private final boolean _nonsingular;
+
+    /**
+     * Factors {@code A} with an approximate minimum degree column ordering of {@code A + A'}.
+     *
+     * @param A A square sparse matrix.
+     */
+    public SparseLUDecomposition(CSCMatrix A) {
+        this(A, SparseOrderings.amd(A), DEFAULT_PIVOT_TOLERANCE);
+    }
+
+    /**
+     * @param A         A square sparse matrix.
+     * @param q         The column permutation, see {@link SparseOrderings}.
+     * @param tolerance Pivot tolerance in {@code (0, 1]}. 1 gives partial pivoting.
+     */
+    public SparseLUDecomposition(CSCMatrix A, int[] q, double tolerance) {
+        final int n = A.getRowCount();
+        if (A.getColumnCount() != n) {
+            throw new IllegalArgumentException("Matrix must be square.");
+        }
+        if (q.length != n) {
+            throw new IllegalArgumentException("Permutation length must equal the matrix dimension.");
+        }
+        if (!(tolerance > 0.0 && tolerance <= 1.0)) {
+            throw new IllegalArgumentException("Pivot tolerance must be in (0, 1].");
+        }
+        _n = n;
+        _q = Arrays.copyOf(q, n);
+        _pinv = new int[n];
+        _nonsingular = factor(A, tolerance);
+    }
+
+    private boolean factor(CSCMatrix A, double tolerance) {
+        final int n = _n;
+        final int[] Ap = A.getColumnPointers();
+        final int[] Ai = A.getRowIndices();
+        final double[] Ax = A.getValues();
+
+        int capacity = 4 * A.getNonZeroCount() + n;
+        Lp = new int[n + 1];
+        Li = new int[capacity];
+        Lx = new double[capacity];
+        Up = new int[n + 1];
+        Ui = new int[capacity];
+        Ux = new double[capacity];
+
+        double[] x = new double[n];
+        int[] xi = new int[2 * n];
+        int[] mark = new int[n];
+        Arrays.fill(_pinv, -1);
+        int lnz = 0;
+        int unz = 0;
+        for (int k = 0; k < n; ++k) {
+            Lp[k] = lnz;
+            Up[k] = unz;
+            if (lnz + n > Li.length) {
+                Li = Arrays.copyOf(Li, 2 * Li.length + n);
+                Lx = Arrays.copyOf(Lx, Li.length);
+            }
+            if (unz + n > Ui.length) {
+                Ui = Arrays.copyOf(Ui, 2 * Ui.length + n);
+                Ux = Arrays.copyOf(Ux, Ui.length);
+            }
+            final int col = _q[k];
+            // x = L \ A(:, col)
+            final int top = reach(Ap, Ai, col, xi, mark, k + 1);
+            for (int p = top; p < n; ++p) {
+                x[xi[p]] = 0.0;
+            }
+            for (int p = Ap[col]; p < Ap[col + 1]; ++p) {
+                x[Ai[p]] += Ax[p];
+            }
+            for (int px = top; px < n; ++px) {
+                final int j = xi[px];
+                final int J = _pinv[j];
+                if (J < 0) {
+                    continue;
+                }
+                // The unit diagonal of column J of L is stored first.
+                final double xj = x[j];
+                for (int p = Lp[J] + 1; p < Lp[J + 1]; ++p) {
+                    x[Li[p]] -= Lx[p] * xj;
+                }
+            }
+
+            // Split x into U(:, k) and the pivot candidates.
+            int ipiv = -1;
+            double a = -1.0;
+            for (int p = top; p < n; ++p) {
+                final int i = xi[p];
+                if (_pinv[i] < 0) {
+                    final double t = Math.abs(x[i]);
+                    if (t > a) {
+                        a = t;
+                        ipiv = i;
+                    }
+                } else {
+                    Ui[unz] = _pinv[i];
+                    Ux[unz++] = x[i];
+                }
+            }
+            if (ipiv == -1 || a <= 0.0) {
+                Lp[k + 1] = lnz;
+                Up[k + 1] = unz;
+                return false;
+            }
+            if (_pinv[col] < 0 && Math.abs(x[col]) >= a * tolerance) {
+                ipiv = col;
+            }
+            final double pivot = x[ipiv];
+            Ui[unz] = k;
+            Ux[unz++] = pivot;
+            _pinv[ipiv] = k;
+            Li[lnz] = ipiv;
+            Lx[lnz++] = 1.0;
+            for (int p = top; p < n; ++p) {
+                final int i = xi[p];
+                if (_pinv[i] < 0) {
+                    Li[lnz] = i;
+                    Lx[lnz++] = x[i] / pivot;
+                }
+                x[i] = 0.0;
+            }
+        }
+        Lp[n] = lnz;
+        Up[n] = unz;
+        // Renumber the rows of L in pivot order.
+        for (int p = 0; p < lnz; ++p) {
+            Li[p] = _pinv[Li[p]];
+        }
+        Li = Arrays.copyOf(Li, lnz);
+        Lx = Arrays.copyOf(Lx, lnz);
+        Ui = Arrays.copyOf(Ui, unz);
+        Ux = Arrays.copyOf(Ux, unz);
+        return true;
+    }
+
+    /**
+     * Computes the nonzero pattern of {@code L \ A(:, col)} in topological order by a depth first search in the graph
+     * of the columns of L factored so far. The pattern is returned in {@code xi[top..n-1]}, {@code xi[0..n-1]} is
+     * used as the search stack and {@code xi[n..2n-1]} holds the position reached in every column. Nodes are marked
+     * by setting {@code mark[i] = stamp}.
+     */
+    private int reach(int[] Ap, int[] Ai, int col, int[] xi, int[] mark, int stamp) {
+        final int n = _n;
+        int top = n;
+        for (int p = Ap[col]; p < Ap[col + 1]; ++p) {
+            int start = Ai[p];
+            if (mark[start] == stamp) {
+                continue;
+            }
+            int head = 0;
+            xi[0] = start;
+            while (head >= 0) {
+                final int j = xi[head];
+                final int J = _pinv[j];
+                if (mark[j] != stamp) {
+                    mark[j] = stamp;
+                    xi[n + head] = J < 0 ? 0 : Lp[J];
+                }
+                boolean done = true;
+                final int end = J < 0 ? 0 : Lp[J + 1];
+                for (int q = xi[n + head]; q < end; ++q) {
+                    final int i = Li[q];
+                    if (mark[i] == stamp) {
+                        continue;
+                    }
+                    xi[n + head] = q;
+                    xi[++head] = i;
+                    done = false;
+                    break;
+                }
+                if (done) {
+                    --head;
+                    xi[--top] = j;
+                }
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Is the matrix nonsingular?
+     *
+     * @return true if U, and hence A, is nonsingular.
+     */
+    public boolean isNonSingular() {
+        return _nonsingular;
+    }
+
+    /**
+     * Return lower triangular factor
+     *
+     * @return L
+     */
+    public CSCMatrix getL() {
+        checkNonSingular();
+        return new CSCMatrix(_n, _n, Arrays.copyOf(Lp, _n + 1), Arrays.copyOf(Li, Li.length),
+                Arrays.copyOf(Lx, Lx.length));
+    }
+
+    /**
+     * Return upper triangular factor
+     *
+     * @return U
+     */
+    public CSCMatrix getU() {
+        checkNonSingular();
+        return new CSCMatrix(_n, _n, Arrays.copyOf(Up, _n + 1), Arrays.copyOf(Ui, Ui.length),
+                Arrays.copyOf(Ux, Ux.length));
+    }
+
+    /**
+     * Row permutation P. Row k of P*A*Q is row {@code p[k]} of A.
+     *
+     * @return p
+     */
+    public int[] getRowPermutation() {
+        checkNonSingular();
+        return SparseOrderings.inverse(_pinv);
+    }
+
+    /**
+     * Column permutation Q. Column k of P*A*Q is column {@code q[k]} of A.
+     *
+     * @return q
+     */
+    public int[] getColumnPermutation() {
+        return Arrays.copyOf(_q, _n);
+    }
+
+    /**
+     * Determinant
+     *
+     * @return det(A)
+     */
+    public double det() {
+        if (!_nonsingular) {
+            return 0.0;
+        }
+        // The diagonal entry of U is the last one of each column.
+        double det = permutationSign(_pinv) * permutationSign(_q);
+        for (int k = 0; k < _n; ++k) {
+            det *= Ux[Up[k + 1] - 1];
+        }
+        return det;
+    }
+
+    private static int permutationSign(int[] p) {
+        boolean[] visited = new boolean[p.length];
+        int sign = 1;
+        for (int i = 0; i < p.length; ++i) {
+            if (visited[i]) {
+                continue;
+            }
+            int length = 0;
+            for (int j = i; !visited[j]; j = p[j]) {
+                visited[j] = true;
+                ++length;
+            }
+            if (length % 2 == 0) {
+                sign = -sign;
+            }
+        }
+        return sign;
+    }
+
+    /**
+     * Solve A*x = b
+     *
+     * @param b
+     *            The right hand side.
+     * @return x so that A*x = b
+     * @exception IllegalArgumentException
+     *                Array length must agree.
+     * @exception RuntimeException
+     *                Matrix is singular.
+     */
+    public double[] solve(double[] b) {
+        if (b.length != _n) {
+            throw new IllegalArgumentException("Array length must agree.");
+        }
+        checkNonSingular();
+        double[] x = new double[_n];
+        double[] work = new double[_n];
+        solve(b, x, work);
+        return x;
+    }
+
+    /**
+     * Solve A*X = B
+     *
+     * @param B
+     *            A Matrix with as many rows as A and any number of columns.
+     * @return X so that A*X = B
+     * @exception IllegalArgumentException
+     *                Matrix row dimensions must agree.
+     * @exception RuntimeException
+     *                Matrix is singular.
+     */
+    public Matrix solve(Matrix B) {
+        if (B.getRowCount() != _n) {
+            throw new IllegalArgumentException("Matrix row dimensions must agree.");
+        }
+        checkNonSingular();
+        final int nx = B.getColumnCount();
+        double[] b = B.getArray();
+        double[] X = new double[_n * nx];
+        double[] bj = new double[_n];
+        double[] xj = new double[_n];
+        double[] work = new double[_n];
+        for (int j = 0; j < nx; ++j) {
+            for (int i = 0; i < _n; ++i) {
+                bj[i] = b[i * nx + j];
+            }
+            solve(bj, xj, work);
+            for (int i = 0; i < _n; ++i) {
+                X[i * nx + j] = xj[i];
+            }
+        }
+        return new Matrix(X, _n, nx);
+    }
+
+    private void solve(double[] b, double[] x, double[] work) {
+        final int n = _n;
+        // work = P * b
+        for (int i = 0; i < n; ++i) {
+            work[_pinv[i]] = b[i];
+        }
+        // work = L \ work
+        for (int j = 0; j < n; ++j) {
+            final double wj = work[j];
+            for (int p = Lp[j] + 1; p < Lp[j + 1]; ++p) {
+                work[Li[p]] -= Lx[p] * wj;
+            }
+        }
+        // work = U \ work
+        for (int j = n - 1; j >= 0; --j) {
+            work[j] /= Ux[Up[j + 1] - 1];
+            final double wj = work[j];
+            for (int p = Up[j]; p < Up[j + 1] - 1; ++p) {
+                work[Ui[p]] -= Ux[p] * wj;
+            }
+        }
+        // x = Q * work
+        for (int k = 0; k < n; ++k) {
+            x[_q[k]] = work[k];
+        }
+    }
+
+    private void checkNonSingular() {
+        if (!_nonsingular) {
+            throw new RuntimeException("Matrix is singular.");
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.sparse;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.LinearOperator;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+
+import java.util.Arrays;
+
+/**
+ * Base class of the compressed sparse matrix formats.
+ * <P>
+ * Both {@link CSRMatrix} and {@link CSCMatrix} store the nonzero entries of a matrix as three arrays: pointers into
+ * the major dimension (rows for CSR, columns for CSC), the minor index of every entry and its value. Entries within a
+ * row (CSR) or column (CSC) are not required to be sorted, but the factory methods of this package always produce
+ * sorted indices without duplicates.
+ */
+public abstract class SparseMatrix implements LinearOperator {
+    protected final int rows;
+    protected final int cols;
+
+    protected SparseMatrix(int rows, int cols) {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Matrix dimensions cannot be negative.");
+        }
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    public int getColumnCount() {
+        return cols;
+    }
+
+    /**
+     * Number of stored entries.
+     *
+     * @return The number of explicitly stored entries, including explicit zeros.
+     */
+    public int getNonZeroCount() {
+        return pointers()[majorDimension()];
+    }
+
+    /**
+     * Retrieves a single entry.
+     *
+     * @param i The row index.
+     * @param j The column index.
+     * @return The value of the entry at {@code (i, j)}, zero if it is not stored.
+     */
+    public abstract double get(int i, int j);
+
+    /**
+     * Sparse matrix vector product {@code y = A * x}.
+     *
+     * @param x A vector with as many elements as columns in the matrix.
+     * @param y A vector with as many elements as rows in the matrix that receives the product. It must not be
+     *          {@code x}.
+     */
+    public abstract void multiply(double[] x, double[] y);
+
+    /**
+     * Sparse matrix vector product.
+     *
+     * @param x A vector with as many elements as columns in the matrix.
+     * @return {@code A * x}.
+     */
+    public double[] multiply(double[] x) {
+        double[] y = new double[rows];
+        multiply(x, y);
+        return y;
+    }
+
+    /**
+     * Product of a sparse and a dense matrix.
+     *
+     * @param B The dense {@code Matrix} to multiply.
+     * @return {@code A * B} as a dense {@code Matrix}.
+     */
+    public abstract Matrix multiply(Matrix B);
+
+    /**
+     * Converts to a dense {@code Matrix}.
+     *
+     * @return A dense copy of this matrix.
+     */
+    public abstract Matrix toMatrix();
+
+    /**
+     * One norm
+     *
+     * @return maximum column sum.
+     */
+    public double norm1() {
+        final int major = majorDimension();
+        final int[] ptr = pointers();
+        final int[] idx = indices();
+        final double[] val = values();
+        final boolean byColumn = this instanceof CSCMatrix;
+        double[] sums = new double[cols];
+        for (int k = 0; k < major; ++k) {
+            for (int p = ptr[k]; p < ptr[k + 1]; ++p) {
+                sums[byColumn ? k : idx[p]] += Math.abs(val[p]);
+            }
+        }
+        double norm = 0.0;
+        for (double sum : sums) {
+            norm = Math.max(norm, sum);
+        }
+        return norm;
+    }
+
+    /**
+     * Number of rows for CSR, number of columns for CSC.
+     */
+    abstract int majorDimension();
+
+    abstract int[] pointers();
+
+    abstract int[] indices();
+
+    abstract double[] values();
+
+    void checkVectorLengths(double[] x, double[] y) {
+        if (x.length != cols) {
+            throw new IllegalArgumentException("Vector length must equal the number of columns.");
+        }
+        if (y.length != rows) {
+            throw new IllegalArgumentException("Result length must equal the number of rows.");
+        }
+        if (x == y) {
+            throw new IllegalArgumentException("The result vector must not be the input vector.");
+        }
+    }
+
+    static void checkCompressed(int major, int minor, int[] ptr, int[] idx, double[] val) {
+        if (ptr.length != major + 1) {
+            throw new IllegalArgumentException("Pointer array length must be one more than the major dimension.");
+        }
+        if (ptr[0] != 0) {
+            throw new IllegalArgumentException("The first pointer must be zero.");
+        }
+        for (int k = 0; k < major; ++k) {
+            if (ptr[k + 1] < ptr[k]) {
+                throw new IllegalArgumentException("Pointers must be non decreasing.");
+            }
+        }
+        final int nnz = ptr[major];
+        if (idx.length < nnz || val.length < nnz) {
+            throw new IllegalArgumentException("Index and value arrays must hold at least as many entries as the " +
+                    "last pointer.");
+        }
+        for (int p = 0; p < nnz; ++p) {
+            if (idx[p] < 0 || idx[p] >= minor) {
+                throw new IllegalArgumentException(String.format("Index %d at position %d is out of bounds.",
+                        idx[p], p));
+            }
+        }
+    }
+
+    /**
+     * Transposes compressed storage. Reading {@code ptr, idx, val} as CSR (CSC) storage of a matrix, the output
+     * arrays hold the CSC (CSR) storage of the same matrix. The minor indices of the output are sorted.
+     *
+     * @param major The major dimension of the input.
+     * @param minor The minor dimension of the input.
+     * @param tPtr  Array of length {@code minor + 1}.
+     * @param tIdx  Array of length {@code nnz}.
+     * @param tVal  Array of length {@code nnz}.
+     */
+    static void transpose(int major, int minor, int[] ptr, int[] idx, double[] val,
+                          int[] tPtr, int[] tIdx, double[] tVal) {
+        final int nnz = ptr[major];
+        int[] next = new int[minor];
+        for (int p = 0; p < nnz; ++p) {
+            ++next[idx[p]];
+        }
+        tPtr[0] = 0;
+        for (int i = 0; i < minor; ++i) {
+            tPtr[i + 1] = tPtr[i] + next[i];
+            next[i] = tPtr[i];
+        }
+        for (int j = 0; j < major; ++j) {
+            for (int p = ptr[j]; p < ptr[j + 1]; ++p) {
+                int q = next[idx[p]]++;
+                tIdx[q] = j;
+                tVal[q] = val[p];
+            }
+        }
+    }
+
+    /**
+     * Builds compressed storage from coordinate (triplet) form. Duplicated entries are summed.
+     *
+     * @return {@code {ptr, idx}} with the values stored in {@code out[0]}.
+     */
+    static int[][] compress(int major, int minor, int[] majorIdx, int[] minorIdx, double[] values, double[][] out) {
+        if (majorIdx.length != minorIdx.length || majorIdx.length != values.length) {
+            throw new IllegalArgumentException("Index and value arrays must have the same length.");
+        }
+        final int nnz = values.length;
+        // Bucket the entries by minor index first, transposing afterwards leaves the minor indices sorted.
+        int[] mPtr = new int[minor + 1];
+        for (int p = 0; p < nnz; ++p) {
+            if (majorIdx[p] < 0 || majorIdx[p] >= major || minorIdx[p] < 0 || minorIdx[p] >= minor) {
+                throw new IllegalArgumentException(String.format("Entry (%d, %d) is out of bounds.",
+                        majorIdx[p], minorIdx[p]));
+            }
+            ++mPtr[minorIdx[p] + 1];
+        }
+        for (int i = 0; i < minor; ++i) {
+            mPtr[i + 1] += mPtr[i];
+        }
+        int[] next = new int[minor];
+        System.arraycopy(mPtr, 0, next, 0, minor);
+        int[] mIdx = new int[nnz];
+        double[] mVal = new double[nnz];
+        for (int p = 0; p < nnz; ++p) {
+            int q = next[minorIdx[p]]++;
+            mIdx[q] = majorIdx[p];
+            mVal[q] = values[p];
+        }
+        int[] ptr = new int[major + 1];
+        int[] idx = new int[nnz];
+        double[] val = new double[nnz];
+        transpose(minor, major, mPtr, mIdx, mVal, ptr, idx, val);
+
+        // Sum duplicates, which are now adjacent.
+        int q = 0;
+        for (int j = 0; j < major; ++j) {
+            int start = ptr[j];
+            ptr[j] = q;
+            for (int p = start; p < ptr[j + 1]; ++p) {
+                if (q > ptr[j] && idx[q - 1] == idx[p]) {
+                    val[q - 1] += val[p];
+                } else {
+                    idx[q] = idx[p];
+                    val[q++] = val[p];
+                }
+            }
+        }
+        ptr[major] = q;
+        if (q < nnz) {
+            idx = Arrays.copyOf(idx, q);
+            val = Arrays.copyOf(val, q);
+        }
+        out[0] = val;
+        return new int[][]{ptr, idx};
+    }
+}
@@ -0,0 +1,388 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.sparse;
+
+import java.util.Arrays;
+
+/**
+ * Fill reducing orderings for sparse factorizations.
+ * <P>
+ * Every ordering works on the pattern of {@code A + A'} and returns a permutation vector {@code p} such that row and
+ * column {@code k} of the permuted matrix are row and column {@code p[k]} of {@code A}.
+ */
+public final class SparseOrderings {
+
+    private SparseOrderings() {
+    }
+
+    /**
+     * The identity permutation.
+     *
+     * @param n The dimension.
+     * @return {@code {0, 1, ..., n - 1}}.
+     */
+    public static int[] natural(int n) {
+        int[] p = new int[n];
+        for (int i = 0; i < n; ++i) {
+            p[i] = i;
+        }
+        return p;
+    }
+
+    /**
+     * Approximate minimum degree ordering.
+     * <P>
+     * Eliminates, at every step, a node of least approximate external degree. The elimination is carried out on a
+     * quotient graph, where eliminated nodes become elements that represent the cliques created by fill, so the
+     * storage never exceeds that of the original graph by much. Degrees are bounded from above as in Amestoy, Davis
+     * and Duff, "An Approximate Minimum Degree Ordering Algorithm", SIAM J. Matrix Anal. Appl. 17(4), 1996.
+     *
+     * @param A A square sparse matrix.
+     * @return The fill reducing permutation.
+     */
+    public static int[] amd(SparseMatrix A) {
+        final int n = checkSquare(A);
+        int[][] adj = adjacency(A);
+
+        IntList[] varAdj = new IntList[n];
+        IntList[] elemAdj = new IntList[n];
+        IntList[] elemVars = new IntList[n];
+        int[] degree = new int[n];
+        for (int i = 0; i < n; ++i) {
+            varAdj[i] = new IntList(adj[i]);
+            elemAdj[i] = new IntList(4);
+            degree[i] = adj[i].length;
+        }
+
+        // Degree lists.
+        int[] head = new int[n];
+        int[] next = new int[n];
+        int[] prev = new int[n];
+        Arrays.fill(head, -1);
+        for (int i = 0; i < n; ++i) {
+            insert(i, degree[i], head, next, prev);
+        }
+
+        boolean[] eliminated = new boolean[n];
+        boolean[] absorbed = new boolean[n];
+        int[] mark = new int[n];
+        int[] wmark = new int[n];
+        int[] w = new int[n];
+        int stamp = 0;
+        int[] order = new int[n];
+        int mindeg = 0;
+        for (int k = 0; k < n; ++k) {
+            while (head[mindeg] == -1) {
+                ++mindeg;
+            }
+            final int p = head[mindeg];
+            remove(p, degree[p], head, next, prev);
+            order[k] = p;
+            eliminated[p] = true;
+
+            // Lp: the variables adjacent to p, directly or through its elements.
+            ++stamp;
+            mark[p] = stamp;
+            IntList lp = new IntList(Math.max(4, degree[p]));
+            IntList vars = varAdj[p];
+            for (int t = 0; t < vars.size; ++t) {
+                int v = vars.data[t];
+                if (mark[v] != stamp) {
+                    mark[v] = stamp;
+                    lp.add(v);
+                }
+            }
+            IntList elems = elemAdj[p];
+            for (int t = 0; t < elems.size; ++t) {
+                int e = elems.data[t];
+                IntList le = elemVars[e];
+                for (int s = 0; s < le.size; ++s) {
+                    int v = le.data[s];
+                    if (!eliminated[v] && mark[v] != stamp) {
+                        mark[v] = stamp;
+                        lp.add(v);
+                    }
+                }
+                // Elements adjacent to p are absorbed by the new element p.
+                absorbed[e] = true;
+                elemVars[e] = null;
+            }
+            varAdj[p] = null;
+            elemAdj[p] = null;
+            elemVars[p] = lp;
+
+            // Prune the lists of the variables in Lp. Variables in Lp are now reachable through element p.
+            for (int t = 0; t < lp.size; ++t) {
+                final int i = lp.data[t];
+                IntList vi = varAdj[i];
+                int q = 0;
+                for (int s = 0; s < vi.size; ++s) {
+                    int v = vi.data[s];
+                    if (mark[v] != stamp) {
+                        vi.data[q++] = v;
+                    }
+                }
+                vi.size = q;
+                IntList ei = elemAdj[i];
+                q = 0;
+                for (int s = 0; s < ei.size; ++s) {
+                    int e = ei.data[s];
+                    if (!absorbed[e]) {
+                        ei.data[q++] = e;
+                    }
+                }
+                ei.size = q;
+                ei.add(p);
+            }
+
+            // w(e) = |Le \ Lp| for every element adjacent to Lp.
+            for (int t = 0; t < lp.size; ++t) {
+                IntList ei = elemAdj[lp.data[t]];
+                for (int s = 0; s < ei.size; ++s) {
+                    int e = ei.data[s];
+                    if (e == p) {
+                        continue;
+                    }
+                    if (wmark[e] != stamp) {
+                        wmark[e] = stamp;
+                        w[e] = elemVars[e].size;
+                    }
+                    --w[e];
+                }
+            }
+
+            // Approximate degree update.
+            final int lpExternal = lp.size - 1;
+            for (int t = 0; t < lp.size; ++t) {
+                final int i = lp.data[t];
+                int d = varAdj[i].size + lpExternal;
+                IntList ei = elemAdj[i];
+                for (int s = 0; s < ei.size; ++s) {
+                    int e = ei.data[s];
+                    if (e != p) {
+                        d += w[e];
+                    }
+                }
+                d = Math.min(d, degree[i] + lpExternal);
+                d = Math.min(d, n - k - 2);
+                d = Math.max(d, 0);
+                remove(i, degree[i], head, next, prev);
+                degree[i] = d;
+                insert(i, d, head, next, prev);
+                mindeg = Math.min(mindeg, d);
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Reverse Cuthill-McKee ordering. Reduces the bandwidth and profile of the matrix, which suits banded and
+     * profile solvers and is a cheap alternative to {@link #amd(SparseMatrix)}.
+     *
+     * @param A A square sparse matrix.
+     * @return The bandwidth reducing permutation.
+     */
+    public static int[] rcm(SparseMatrix A) {
+        final int n = checkSquare(A);
+        final int[][] adj = adjacency(A);
+        boolean[] visited = new boolean[n];
+        int[] order = new int[n];
+        int[] level = new int[n];
+        Arrays.fill(level, -1);
+        int[] queue = new int[n];
+        Integer[] neighbours = new Integer[n];
+        Integer[] byDegree = new Integer[n];
+        for (int i = 0; i < n; ++i) {
+            byDegree[i] = i;
+        }
+        Arrays.sort(byDegree, (a, b) -> adj[a].length - adj[b].length);
+        int k = 0;
+        int candidate = 0;
+        while (k < n) {
+            // Start from a node of minimum degree of the next component.
+            while (visited[byDegree[candidate]]) {
+                ++candidate;
+            }
+            int start = pseudoPeripheralNode(adj, byDegree[candidate], visited, level, queue);
+
+            // Breadth first search visiting the neighbours in order of increasing degree.
+            visited[start] = true;
+            order[k++] = start;
+            for (int h = k - 1; h < k; ++h) {
+                final int v = order[h];
+                int count = 0;
+                for (int u : adj[v]) {
+                    if (!visited[u]) {
+                        visited[u] = true;
+                        neighbours[count++] = u;
+                    }
+                }
+                Arrays.sort(neighbours, 0, count, (a, b) -> adj[a].length - adj[b].length);
+                for (int t = 0; t < count; ++t) {
+                    order[k++] = neighbours[t];
+                }
+            }
+        }
+        for (int i = 0, j = n - 1; i < j; ++i, --j) {
+            int temp = order[i];
+            order[i] = order[j];
+            order[j] = temp;
+        }
+        return order;
+    }
+
+    /**
+     * Inverse of a permutation vector.
+     *
+     * @param p A permutation of {@code 0, ..., n - 1}.
+     * @return {@code pinv} such that {@code pinv[p[k]] = k}.
+     */
+    public static int[] inverse(int[] p) {
+        int[] pinv = new int[p.length];
+        for (int k = 0; k < p.length; ++k) {
+            pinv[p[k]] = k;
+        }
+        return pinv;
+    }
+
+    /**
+     * George and Liu's heuristic: repeatedly restart the breadth first search from a node of minimum degree in the
+     * last level until the number of levels stops growing. {@code level} must be filled with -1 and is left that way.
+     */
+    private static int pseudoPeripheralNode(int[][] adj, int root, boolean[] visited, int[] level, int[] queue) {
+        int eccentricity = -1;
+        while (true) {
+            int tail = 0;
+            queue[tail++] = root;
+            level[root] = 0;
+            for (int h = 0; h < tail; ++h) {
+                int v = queue[h];
+                for (int u : adj[v]) {
+                    if (!visited[u] && level[u] == -1) {
+                        level[u] = level[v] + 1;
+                        queue[tail++] = u;
+                    }
+                }
+            }
+            final int depth = level[queue[tail - 1]];
+            int candidate = root;
+            int minDegree = Integer.MAX_VALUE;
+            for (int h = tail - 1; h >= 0 && level[queue[h]] == depth; --h) {
+                if (adj[queue[h]].length < minDegree) {
+                    minDegree = adj[queue[h]].length;
+                    candidate = queue[h];
+                }
+            }
+            for (int h = 0; h < tail; ++h) {
+                level[queue[h]] = -1;
+            }
+            if (depth <= eccentricity) {
+                return root;
+            }
+            eccentricity = depth;
+            if (candidate == root) {
+                return root;
+            }
+            root = candidate;
+        }
+    }
+
+    /**
+     * Adjacency lists of the pattern of {@code A + A'}, without the diagonal.
+     */
+    static int[][] adjacency(SparseMatrix A) {
+        final int n = A.getRowCount();
+        final int[] ptr = A.pointers();
+        final int[] idx = A.indices();
+        int[] count = new int[n];
+        for (int j = 0; j < n; ++j) {
+            for (int p = ptr[j]; p < ptr[j + 1]; ++p) {
+                int i = idx[p];
+                if (i != j) {
+                    ++count[i];
+                    ++count[j];
+                }
+            }
+        }
+        int[][] lists = new int[n][];
+        for (int i = 0; i < n; ++i) {
+            lists[i] = new int[count[i]];
+        }
+        Arrays.fill(count, 0);
+        for (int j = 0; j < n; ++j) {
+            for (int p = ptr[j]; p < ptr[j + 1]; ++p) {
+                int i = idx[p];
+                if (i != j) {
+                    lists[i][count[i]++] = j;
+                    lists[j][count[j]++] = i;
+                }
+            }
+        }
+        // Remove duplicates.
+        int[] mark = new int[n];
+        Arrays.fill(mark, -1);
+        for (int i = 0; i < n; ++i) {
+            int q = 0;
+            for (int t = 0; t < count[i]; ++t) {
+                int j = lists[i][t];
+                if (mark[j] != i) {
+                    mark[j] = i;
+                    lists[i][q++] = j;
+                }
+            }
+            if (q < lists[i].length) {
+                lists[i] = Arrays.copyOf(lists[i], q);
+            }
+        }
+        return lists;
+    }
+
+    private static int checkSquare(SparseMatrix A) {
+        if (A.getRowCount() != A.getColumnCount()) {
+            throw new IllegalArgumentException("Matrix must be square.");
+        }
+        return A.getRowCount();
+    }
+
+    private static void insert(int i, int d, int[] head, int[] next, int[] prev) {
+        next[i] = head[d];
+        prev[i] = -1;
+        if (head[d] != -1) {
+            prev[head[d]] = i;
+        }
+        head[d] = i;
+    }
+
+    private static void remove(int i, int d, int[] head, int[] next, int[] prev) {
+        if (prev[i] != -1) {
+            next[prev[i]] = next[i];
+        } else {
+            head[d] = next[i];
+        }
+        if (next[i] != -1) {
+            prev[next[i]] = prev[i];
+        }
+    }
+
+    /**
+     * Growable list of ints.
+     */
+    private static final class IntList {
+        int[] data;
+        int size;
+
+        IntList(int[] data) {
+            this.data = data;
+            this.size = data.length;
+        }
+
+        IntList(int capacity) {
+            this.data = new int[capacity];
+        }
+
+        void add(int v) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, Math.max(4, 2 * size));
+            }
+            data[size++] = v;
+        }
+    }
+}
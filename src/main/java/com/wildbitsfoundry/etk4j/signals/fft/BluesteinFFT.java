@@ -0,0 +1,92 @@
+package com.wildbitsfoundry.etk4j.signals.fft;
+
+import java.util.Arrays;
+
+/**
+ * Bluestein's chirp-z algorithm for lengths with large prime factors.
+ * <p>
+ * With the chirp {@code w(j) = exp(-i * pi * j^2 / n)}, {@code jk = (j^2 + k^2 - (k - j)^2) / 2} turns the transform
+ * into {@code X(k) = w(k) * sum(x(j) * w(j) * conj(w(k - j)))}, a convolution that is computed with power of two
+ * transforms of length {@code m >= 2n - 1}. The transform of the chirp is computed once, so every transform costs two
+ * power of two transforms of length m.
+ */
+final class BluesteinFFT {
+
+    private final int n;
+    private final int m;
+    private final MixedRadixFFT convolution;
+    private final double[] wr;
+    private final double[] wi;
+    // Transform of the zero padded conj(w), wrapped around so it holds conj(w(-j)) at m - j, divided by m for the
+    // inverse transform.
+    private final double[] kr;
+    private final double[] ki;
+
+    BluesteinFFT(int n) {
+        if (n > (1 << 29)) {
+            throw new IllegalArgumentException("n is too large for the chirp-z transform.");
+        }
+        this.n = n;
+        // The smallest power of two greater than or equal to 2n - 1.
+        this.m = Integer.highestOneBit(2 * n - 2) << 1;
+        // A power of two, so the convolution needs no butterfly scratch.
+        convolution = new MixedRadixFFT(m, MixedRadixFFT.factor(m));
+        wr = new double[n];
+        wi = new double[n];
+        kr = new double[m];
+        ki = new double[m];
+        final long twoN = 2L * n;
+        for (int j = 0; j < n; ++j) {
+            // j^2 mod 2n keeps the argument small and exact.
+            final double t = Math.PI * ((long) j * j % twoN) / n;
+            wr[j] = Math.cos(t);
+            wi[j] = -Math.sin(t);
+        }
+        kr[0] = wr[0];
+        ki[0] = -wi[0];
+        for (int j = 1; j < n; ++j) {
+            kr[j] = kr[m - j] = wr[j];
+            ki[j] = ki[m - j] = -wi[j];
+        }
+        convolution.transform(kr, ki, new double[m], new double[m], null);
+        for (int j = 0; j < m; ++j) {
+            kr[j] /= m;
+            ki[j] /= m;
+        }
+    }
+
+    /**
+     * Length of the scratch arrays of {@link #transform(double[], double[], double[], double[], double[], double[])}.
+     */
+    int getWorkLength() {
+        return m;
+    }
+
+    /**
+     * Forward transform in place. The scratch arrays must have {@link #getWorkLength()} elements.
+     *
+     * @param re The real parts.
+     * @param im The imaginary parts.
+     */
+    void transform(double[] re, double[] im, double[] ar, double[] ai, double[] workRe, double[] workIm) {
+        for (int j = 0; j < n; ++j) {
+            ar[j] = re[j] * wr[j] - im[j] * wi[j];
+            ai[j] = re[j] * wi[j] + im[j] * wr[j];
+        }
+        Arrays.fill(ar, n, m, 0.0);
+        Arrays.fill(ai, n, m, 0.0);
+        convolution.transform(ar, ai, workRe, workIm, null);
+        // Multiply by the kernel and conjugate, so the forward transform below computes the conjugate of the inverse.
+        for (int j = 0; j < m; ++j) {
+            final double xr = ar[j], xi = ai[j];
+            ar[j] = xr * kr[j] - xi * ki[j];
+            ai[j] = -(xr * ki[j] + xi * kr[j]);
+        }
+        convolution.transform(ar, ai, workRe, workIm, null);
+        for (int k = 0; k < n; ++k) {
+            final double xr = ar[k], xi = -ai[k];
+            re[k] = xr * wr[k] - xi * wi[k];
+            im[k] = xr * wi[k] + xi * wr[k];
+        }
+    }
+}
@@ -4,51 +4,33 @@ import com.wildbitsfoundry.etk4j.math.complex.Complex;
 
 /**
  * The {@code FFT} class provides and implementation of the Fast Fourier Transform.
+ * <p>
+ * Any length is supported in O(n log n). Powers of two use an in-place radix-4 transform, or a parallel four-step
+ * transform from {@code 2^22} points on, lengths whose prime factors are small use a mixed-radix transform and lengths
+ * with a large prime factor use Bluestein's chirp-z algorithm.
  * @see <a href="https://en.wikipedia.org/wiki/Fast_Fourier_transform">Fast Fourier Transform.</a>
  */
 public class FFT {
 
 	private int _n;
-	private int _m;
 
-	private double[] _cos;
-	private double[] _sin;
+	private FFTPlan _forward;
+	private FFTPlan _inverse;
+
+	// Half length transform and the twiddles W(n)^k, k <= n / 4, of the real transforms, created on first use.
+	private FFTPlan _half;
+	private double[] _realCos;
+	private double[] _realSin;
 
 	/**
-	 * Construcsts and instance of the {@code FFT} class.
-	 * @param n The length of the {@code FFT}. Must be a power of 2.
+	 * Construcsts and instance of the {@code FFT} class. The transforms are shared, see {@link FFTPlan}.
+	 * @param n The length of the {@code FFT}.
 	 */
 	public FFT(int n) {
+		_forward = FFTPlan.get(n, FFTPlan.Direction.FORWARD);
 		_n = n;
-		_m = (int) (Math.log(n) / Math.log(2.0));
-		
-		if(_n != (1 << _m)) {
-			throw new IllegalArgumentException("n must be a power of 2");
-		}
-
-		_cos = new double[n / 2];
-		_sin = new double[n / 2];
-
-		double t = -2 * Math.PI / n;
-		for (int i = 0; i < n / 2; ++i) {
-			_cos[i] = Math.cos(i * t);
-			_sin[i] = Math.sin(i * t);
-		}
 	}
 
-	/***************************************************************
-	 * fft.c Douglas L. Jones University of Illinois at Urbana-Champaign January
-	 * 19, 1992 http://cnx.rice.edu/content/m12016/latest/
-	 * 
-	 * fft: in-place radix-2 DIT DFT of a complex input
-	 * 
-	 * input: n: length of FFT: must be a power of two m: n = 2**m input/output
-	 * x: double array of length n with real part of data y: double array of
-	 * length n with imag part of data
-	 * 
-	 * Permission to copy and use this program is granted as long as this header
-	 * is included.
-	 ****************************************************************/
 	/**
 	 * Fast Fourier Transform in place.The real and imaginary parts after performing the {@code FFT}, are stored in the
 	 * input arrays {@code real} and {@code imag} respectively.
@@ -62,55 +44,7 @@ public class FFT {
 		if(real.length != _n) {
 			throw new IllegalArgumentException(String.format("The lengths of the arrays must be equal to n = %d.", _n));
 		}
-		
-		int i, j, k, n1, n2, a;
-		double c, s, t1, t2;
-
-		// Bit-reverse
-		j = 0;
-		n2 = _n / 2;
-		for (i = 1; i < _n - 1; i++) {
-			n1 = n2;
-			while (j >= n1) {
-				j = j - n1;
-				n1 = n1 / 2;
-			}
-			j = j + n1;
-
-			if (i < j) {
-				t1 = real[i];
-				real[i] = real[j];
-				real[j] = t1;
-				t1 = imag[i];
-				imag[i] = imag[j];
-				imag[j] = t1;
-			}
-		}
-
-		// FFT
-		n1 = 0;
-		n2 = 1;
-
-		for (i = 0; i < _m; i++) {
-			n1 = n2;
-			n2 = n2 + n2;
-			a = 0;
-
-			for (j = 0; j < n1; j++) {
-				c = _cos[a];
-				s = _sin[a];
-				a += 1 << (_m - i - 1);
-
-				for (k = j; k < _n; k = k + n2) {
-					t1 = c * real[k + n1] - s * imag[k + n1];
-					t2 = s * real[k + n1] + c * imag[k + n1];
-					real[k + n1] = real[k] - t1;
-					imag[k + n1] = imag[k] - t2;
-					real[k] = real[k] + t1;
-					imag[k] = imag[k] + t2;
-				}
-			}
-		}
+		_forward.transform(real, imag);
 	}
 
 	/**
@@ -119,72 +53,156 @@ public class FFT {
 	 * @param imag The imaginary part of the data.
 	 */
 	public void inverse(double[] real, double[] imag) {
-		this.direct(imag, real);
-		double factor = 1.0 / _n;
-		multiplyInPlace(real, imag, factor);
+		if(real.length != imag.length) {
+			throw new IllegalArgumentException("Length mismatch between real and imag");
+		}
+		if(real.length != _n) {
+			throw new IllegalArgumentException(String.format("The lengths of the arrays must be equal to n = %d.", _n));
+		}
+		getInverse().transform(real, imag);
 	}
 	
-    private static void multiplyInPlace(double[] a, double[] b, double d) {
-        final int length = a.length;
-        for (int i = 0; i < length; ++i) {
-            a[i] *= d;
-            b[i] *= d;
-        }
-    }
-
 	/**
-	 * Fast Fourier Transform in place.
-	 * @param data The input data.
+	 * Fast Fourier Transform of real data. Since the transform of real data is conjugate symmetric, only the
+	 * {@code n / 2 + 1} bins from 0 to the Nyquist frequency are computed. For even n the samples are packed into a
+	 * complex transform of length {@code n / 2}, which takes about half the time and memory of {@link #direct(double[],
+	 * double[])}.
+	 * @param input The n real samples. It is not modified.
+	 * @param real The real part of the transform, of length {@code n / 2 + 1}.
+	 * @param imag The imaginary part of the transform, of length {@code n / 2 + 1}.
 	 */
-	public void direct(Complex[] data) {
-		if(data.length != _n) {
-			throw new IllegalArgumentException(String.format("The lengths of the arrays must be equal to n = %d.", _n));
+	public void directReal(double[] input, double[] real, double[] imag) {
+		checkReal(input, real, imag);
+		final int h = _n / 2;
+		if((_n & 1) != 0) {
+			double[] re = input.clone();
+			double[] im = new double[_n];
+			_forward.transform(re, im);
+			System.arraycopy(re, 0, real, 0, h + 1);
+			System.arraycopy(im, 0, imag, 0, h + 1);
+			return;
 		}
-		
-		int i, j, k, n1, n2, a;
-		double c, s, t1, t2;
+		// z(j) = x(2j) + i * x(2j + 1), transformed in place in the output arrays.
+		for(int j = 0; j < h; ++j) {
+			real[j] = input[2 * j];
+			imag[j] = input[2 * j + 1];
+		}
+		FFTPlan half = getHalf();
+		half.transform(real, imag);
+		// With E and O the transforms of the even and odd samples, Z(k) = E(k) + i * O(k) and
+		// X(k) = E(k) + W(n)^k * O(k), X(h - k) = conj(E(k) - W(n)^k * O(k)).
+		final double z0 = real[0];
+		real[0] = z0 + imag[0];
+		real[h] = z0 - imag[0];
+		imag[0] = 0.0;
+		imag[h] = 0.0;
+		for(int k = 1, l = h - 1; k <= l; ++k, --l) {
+			final double er = 0.5 * (real[k] + real[l]);
+			final double ei = 0.5 * (imag[k] - imag[l]);
+			final double or = 0.5 * (imag[k] + imag[l]);
+			final double oi = -0.5 * (real[k] - real[l]);
+			final double c = _realCos[k];
+			final double s = _realSin[k];
+			final double wr = c * or + s * oi;
+			final double wi = c * oi - s * or;
+			real[k] = er + wr;
+			imag[k] = ei + wi;
+			real[l] = er - wr;
+			imag[l] = wi - ei;
+		}
+	}
 
-		// Bit-reverse
-		j = 0;
-		n2 = _n / 2;
-		for (i = 1; i < _n - 1; i++) {
-			n1 = n2;
-			while (j >= n1) {
-				j = j - n1;
-				n1 = n1 / 2;
+	/**
+	 * Inverse of {@link #directReal(double[], double[], double[])}. The imaginary parts of the bins 0 and
+	 * {@code n / 2} (for even n) are ignored.
+	 * @param real The real part of the {@code n / 2 + 1} bins. It is not modified.
+	 * @param imag The imaginary part of the {@code n / 2 + 1} bins. It is not modified.
+	 * @param output The n real samples.
+	 */
+	public void inverseReal(double[] real, double[] imag, double[] output) {
+		checkReal(output, real, imag);
+		final int h = _n / 2;
+		if((_n & 1) != 0) {
+			// Rebuild the conjugate symmetric spectrum.
+			double[] re = new double[_n];
+			double[] im = new double[_n];
+			re[0] = real[0];
+			for(int k = 1; k <= h; ++k) {
+				re[k] = re[_n - k] = real[k];
+				im[k] = imag[k];
+				im[_n - k] = -imag[k];
 			}
-			j = j + n1;
-
-			if (i < j) {
-				// swap data[i] and data[j]
-				Complex swap = data[i];
-				data[i] = data[j];
-				data[j] = swap;
+			// The imaginary parts of the inverse are zero.
+			_forward.transform(im, re);
+			for(int j = 0; j < _n; ++j) {
+				output[j] = re[j] / _n;
 			}
+			return;
 		}
+		FFTPlan half = getHalf();
+		double[] zr = new double[h];
+		double[] zi = new double[h];
+		// E(k) = (X(k) + conj(X(h - k))) / 2, O(k) = conj(W(n)^k) * (X(k) - conj(X(h - k))) / 2 and
+		// Z(k) = E(k) + i * O(k).
+		zr[0] = 0.5 * (real[0] + real[h]);
+		zi[0] = 0.5 * (real[0] - real[h]);
+		for(int k = 1, l = h - 1; k <= l; ++k, --l) {
+			final double er = 0.5 * (real[k] + real[l]);
+			final double ei = 0.5 * (imag[k] - imag[l]);
+			final double dr = 0.5 * (real[k] - real[l]);
+			final double di = 0.5 * (imag[k] + imag[l]);
+			final double c = _realCos[k];
+			final double s = _realSin[k];
+			final double or = c * dr - s * di;
+			final double oi = c * di + s * dr;
+			zr[k] = er - oi;
+			zi[k] = ei + or;
+			zr[l] = er + oi;
+			zi[l] = or - ei;
+		}
+		// Inverse transform of Z by swapping its real and imaginary parts.
+		half.transform(zi, zr);
+		final double factor = 1.0 / h;
+		for(int j = 0; j < h; ++j) {
+			output[2 * j] = zr[j] * factor;
+			output[2 * j + 1] = zi[j] * factor;
+		}
+	}
 
-		// FFT
-		n1 = 0;
-		n2 = 1;
-
-		for (i = 0; i < _m; i++) {
-			n1 = n2;
-			n2 = n2 + n2;
-			a = 0;
-
-			for (j = 0; j < n1; j++) {
-				c = _cos[a];
-				s = _sin[a];
-				a += 1 << (_m - i - 1);
+	private void checkReal(double[] samples, double[] real, double[] imag) {
+		if(real.length != imag.length) {
+			throw new IllegalArgumentException("Length mismatch between real and imag");
+		}
+		if(samples.length != _n) {
+			throw new IllegalArgumentException(String.format("The length of the real data must be equal to n = %d.", _n));
+		}
+		if(real.length != _n / 2 + 1) {
+			throw new IllegalArgumentException(String.format("The lengths of the arrays must be equal to n / 2 + 1 = %d.",
+					_n / 2 + 1));
+		}
+	}
 
-				for (k = j; k < _n; k = k + n2) {
-					t1 = c * data[k + n1].real() - s * data[k + n1].imag();
-					t2 = s * data[k + n1].real() + c * data[k + n1].imag();
-					data[k + n1].addEquals(-data[k + n1].real() + data[k].real() - t1, -data[k + n1].imag() + data[k].imag() - t2);
-					data[k].addEquals(t1, t2);
-				}
+	private synchronized FFTPlan getHalf() {
+		if(_half == null) {
+			final int q = _n / 4;
+			_realCos = new double[q + 1];
+			_realSin = new double[q + 1];
+			final double t = 2 * Math.PI / _n;
+			for(int k = 0; k <= q; ++k) {
+				_realCos[k] = Math.cos(k * t);
+				_realSin[k] = Math.sin(k * t);
 			}
+			_half = FFTPlan.get(_n / 2, FFTPlan.Direction.FORWARD);
 		}
+		return _half;
+	}
+
+	/**
+	 * Fast Fourier Transform in place.
+	 * @param data The input data.
+	 */
+	public void direct(Complex[] data) {
+		_forward.execute(data);
 	}
 
 	/**
@@ -192,19 +210,15 @@ public class FFT {
 	 * @param data The input data.
 	 */
 	public void inverse(Complex[] data) {
-		double t1;
-		// finding the conjugate of the complex number
-		// without calling conj() and creating a new Complex
-		for(int i = 0; i < _n; ++i) {
-			t1 = data[i].imag();
-			data[i].addEquals(0.0, -t1 - t1);
-		}
-		this.direct(data);
-		double factor = 1.0 / _n;
-		for(int i = 0; i < _n; ++i) {
-			t1 = data[i].imag();
-			data[i].addEquals(0.0, -t1 - t1);
-			data[i].multiplyEquals(factor);
+		getInverse().execute(data);
+	}
+
+	private FFTPlan getInverse() {
+		// Plans are immutable, so a racy initialization is harmless.
+		FFTPlan inverse = _inverse;
+		if(inverse == null) {
+			inverse = _inverse = FFTPlan.get(_n, FFTPlan.Direction.INVERSE);
 		}
+		return inverse;
 	}
 }
@@ -0,0 +1,601 @@
+package com.wildbitsfoundry.etk4j.signals.fft;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.wildbitsfoundry.etk4j.math.complex.Complex;
+
+/**
+ * A precomputed transform of a given length and direction.
+ * <p>
+ * Powers of two use a table of the bit-reversal swaps and radix-4 decimation in time stages, preceded by one radix-2
+ * stage when the exponent is odd, whose twiddles are stored per stage in the order the butterflies read them. Other
+ * lengths use a mixed-radix or a chirp-z transform, see {@link FFT}. Plans are immutable and can be shared by any
+ * number of threads; {@link #get(int, Direction)} keeps one plan per length and direction.
+ * <p>
+ * Powers of two from {@link #FOUR_STEP_THRESHOLD} on do not fit in cache and use the four-step algorithm instead.
+ * With {@code n = n1 * n2} and the data seen as a row major n1-by-n2 matrix, the columns are transformed in blocks of
+ * {@link #BLOCK} that are gathered into a contiguous buffer of their worker, multiplied by the twiddles
+ * {@code W(n)^(j2 * k1)}, the rows are transformed in place and the result is transposed. The blocks are processed on
+ * the {@link ForkJoinPool} of the calling task when called from one, on the common pool otherwise.
+ * Every block is computed the same way whichever thread runs it, so the parallel result is bit for bit identical to
+ * the serial one.
+ * <p>
+ * Scratch buffers, such as the primitive copy of the data of {@link #execute(Complex[])}, are pooled per plan, so
+ * transforms of up to {@link #POOLED_ELEMENTS} points do not allocate. The {@code 1 / n} scaling of the inverse is folded into the first
+ * stage of the power of two transforms and into the copy back to the {@link Complex} values otherwise.
+ */
+public final class FFTPlan {
+
+    /**
+     * Direction of a transform. The inverse transform is scaled by {@code 1 / n}.
+     */
+    public enum Direction {
+        FORWARD, INVERSE
+    }
+
+    /**
+     * Powers of two at least this long use the four-step algorithm.
+     */
+    static final int FOUR_STEP_THRESHOLD = 1 << 22;
+
+    /**
+     * Rows or columns per block of the four-step algorithm.
+     */
+    static final int BLOCK = 16;
+
+    /**
+     * Only plans of at most this length pool their scratch, about {@code POOLED_ELEMENTS / n} buffers of it. Longer
+     * transforms allocate their scratch on every call, so cached plans do not hold on to large buffers.
+     */
+    static final int POOLED_ELEMENTS = 1 << 20;
+
+    private static final ConcurrentHashMap<Long, FFTPlan> CACHE = new ConcurrentHashMap<>();
+
+    private final int n;
+    private final Direction direction;
+    private final double scale;
+    private final AtomicReferenceArray<Scratch> pool;
+
+    // Powers of two.
+    private final int[] swaps;
+    private final boolean radix2;
+    private final double[] twiddles;
+    // Other lengths, forward transforms only.
+    private final MixedRadixFFT mixedRadix;
+    private final BluesteinFFT bluestein;
+    // Four-step: the column and row transforms, W(n)^t for t < n1 and W(n)^(n1 * u) for u < n2.
+    private final FFTPlan columns;
+    private final FFTPlan rows;
+    private final double[] lowTwiddles;
+    private final double[] highTwiddles;
+
+    private FFTPlan(int n, Direction direction) {
+        this(n, direction, (n & (n - 1)) == 0 && n >= FOUR_STEP_THRESHOLD);
+    }
+
+    /**
+     * @param fourStep Use the four-step algorithm. n must be a power of two greater than or equal to {@code BLOCK * BLOCK}.
+     */
+    FFTPlan(int n, Direction direction, boolean fourStep) {
+        this.n = n;
+        this.direction = direction;
+        scale = direction == Direction.FORWARD ? 1.0 : 1.0 / n;
+        pool = new AtomicReferenceArray<>(
+                Math.min(Runtime.getRuntime().availableProcessors(), POOLED_ELEMENTS / n));
+        if (fourStep) {
+            final int n1 = 1 << (Integer.numberOfTrailingZeros(n) / 2);
+            final int n2 = n / n1;
+            columns = get(n1, direction);
+            rows = get(n2, direction);
+            final double sign = direction == Direction.FORWARD ? -1.0 : 1.0;
+            lowTwiddles = new double[2 * n1];
+            for (int t = 0; t < n1; ++t) {
+                final double a = sign * 2 * Math.PI * t / n;
+                lowTwiddles[2 * t] = Math.cos(a);
+                lowTwiddles[2 * t + 1] = Math.sin(a);
+            }
+            highTwiddles = new double[2 * n2];
+            for (int u = 0; u < n2; ++u) {
+                final double a = sign * 2 * Math.PI * u / n2;
+                highTwiddles[2 * u] = Math.cos(a);
+                highTwiddles[2 * u + 1] = Math.sin(a);
+            }
+            mixedRadix = null;
+            bluestein = null;
+            swaps = null;
+            twiddles = null;
+            radix2 = false;
+            return;
+        }
+        columns = null;
+        rows = null;
+        lowTwiddles = null;
+        highTwiddles = null;
+        if ((n & (n - 1)) != 0) {
+            int[] factors = MixedRadixFFT.factor(n);
+            if (MixedRadixFFT.prefersBluestein(n, factors)) {
+                bluestein = new BluesteinFFT(n);
+                mixedRadix = null;
+            } else {
+                mixedRadix = new MixedRadixFFT(n, factors);
+                bluestein = null;
+            }
+            swaps = null;
+            twiddles = null;
+            radix2 = false;
+            return;
+        }
+        mixedRadix = null;
+        bluestein = null;
+        swaps = bitReversalSwaps(n);
+        final int m = Integer.numberOfTrailingZeros(n);
+        radix2 = (m & 1) != 0;
+        // W(4l)^k, W(4l)^2k and W(4l)^3k for k < l in every radix-4 stage but the first, whose twiddles are all 1.
+        final double sign = direction == Direction.FORWARD ? -1.0 : 1.0;
+        int size = 0;
+        for (int l = radix2 ? 2 : 4; l < n; l *= 4) {
+            size += 6 * l;
+        }
+        twiddles = new double[size];
+        int t = 0;
+        for (int l = radix2 ? 2 : 4; l < n; l *= 4) {
+            final int l4 = 4 * l;
+            for (int k = 0; k < l; ++k) {
+                for (int j = 1; j <= 3; ++j) {
+                    final double a = sign * 2 * Math.PI * (j * k % l4) / l4;
+                    twiddles[t++] = Math.cos(a);
+                    twiddles[t++] = Math.sin(a);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the plan for the given length and direction. Plans are shared, so they are only created on first use.
+     *
+     * @param n         The length of the transform.
+     * @param direction The direction of the transform.
+     * @return The plan.
+     */
+    public static FFTPlan get(int n, Direction direction) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be greater than zero.");
+        }
+        final long key = ((long) n << 1) | direction.ordinal();
+        FFTPlan plan = CACHE.get(key);
+        if (plan == null) {
+            // Not computeIfAbsent: four-step plans get their sub-plans from the cache while they are created.
+            plan = new FFTPlan(n, direction);
+            FFTPlan previous = CACHE.putIfAbsent(key, plan);
+            if (previous != null) {
+                plan = previous;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Removes all the shared plans and their pooled buffers. Plans already in use remain valid.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    /**
+     * @return The length of the transform.
+     */
+    public int getLength() {
+        return n;
+    }
+
+    /**
+     * @return The direction of the transform.
+     */
+    public Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * Transform in place.
+     *
+     * @param real The real part of the data.
+     * @param imag The imaginary part of the data.
+     */
+    public void execute(double[] real, double[] imag) {
+        if (real.length != imag.length) {
+            throw new IllegalArgumentException("Length mismatch between real and imag");
+        }
+        if (real.length != n) {
+            throw new IllegalArgumentException(String.format("The lengths of the arrays must be equal to n = %d.", n));
+        }
+        transform(real, imag);
+    }
+
+    /**
+     * Transform in place.
+     *
+     * @param data The data.
+     */
+    public void execute(Complex[] data) {
+        if (data.length != n) {
+            throw new IllegalArgumentException(String.format("The lengths of the arrays must be equal to n = %d.", n));
+        }
+        Scratch scratch = acquire();
+        try {
+            final double[] re = scratch.get(Scratch.REAL, n);
+            final double[] im = scratch.get(Scratch.IMAG, n);
+            for (int i = 0; i < n; ++i) {
+                re[i] = data[i].real();
+                im[i] = data[i].imag();
+            }
+            if (swaps != null) {
+                powerOfTwo(re, im, 0);
+            } else if (rows != null) {
+                fourStep(re, im, scratch, true);
+            } else if (direction == Direction.FORWARD) {
+                forward(re, im, scratch);
+            } else {
+                // The inverse transform is the forward transform with the real and imaginary parts swapped.
+                forward(im, re, scratch);
+                for (int i = 0; i < n; ++i) {
+                    data[i].set(re[i] * scale, im[i] * scale);
+                }
+                return;
+            }
+            for (int i = 0; i < n; ++i) {
+                data[i].set(re[i], im[i]);
+            }
+        } finally {
+            release(scratch);
+        }
+    }
+
+    /**
+     * Transform in place of the first n elements of the arrays, which may be longer.
+     */
+    void transform(double[] real, double[] imag) {
+        if (swaps != null) {
+            powerOfTwo(real, imag, 0);
+            return;
+        }
+        Scratch scratch = acquire();
+        try {
+            if (rows != null) {
+                // The sub-transforms are scaled already.
+                fourStep(real, imag, scratch, true);
+            } else if (direction == Direction.FORWARD) {
+                forward(real, imag, scratch);
+            } else {
+                forward(imag, real, scratch);
+                for (int i = 0; i < n; ++i) {
+                    real[i] *= scale;
+                    imag[i] *= scale;
+                }
+            }
+        } finally {
+            release(scratch);
+        }
+    }
+
+    private void forward(double[] real, double[] imag, Scratch scratch) {
+        if (mixedRadix != null) {
+            mixedRadix.transform(real, imag, scratch.get(Scratch.WORK, n), scratch.get(Scratch.WORK + 1, n),
+                    scratch.get(Scratch.BUTTERFLY, mixedRadix.getButterflyLength()));
+        } else {
+            final int m = bluestein.getWorkLength();
+            bluestein.transform(real, imag, scratch.get(Scratch.WORK, m), scratch.get(Scratch.WORK + 1, m),
+                    scratch.get(Scratch.WORK + 2, m), scratch.get(Scratch.WORK + 3, m));
+        }
+    }
+
+    /**
+     * Four-step transform, see the class documentation.
+     */
+    void fourStep(double[] re, double[] im, boolean parallel) {
+        Scratch scratch = acquire();
+        try {
+            fourStep(re, im, scratch, parallel);
+        } finally {
+            release(scratch);
+        }
+    }
+
+    private void fourStep(double[] re, double[] im, Scratch scratch, boolean parallel) {
+        final ForkJoinPool workerPool = ForkJoinTask.getPool();
+        final int workers = !parallel ? 1 : workerPool != null ? workerPool.getParallelism()
+                : ForkJoinPool.getCommonPoolParallelism();
+        final double[] tr = scratch.get(Scratch.WORK, n);
+        final double[] ti = scratch.get(Scratch.WORK + 1, n);
+        if (workers <= 1) {
+            fourStep(COLUMNS, re, im, tr, ti, scratch, 0, 0, rows.n / BLOCK);
+            fourStep(ROWS, re, im, tr, ti, scratch, 0, 0, columns.n / BLOCK);
+            fourStep(COPY, re, im, tr, ti, scratch, 0, 0, columns.n);
+            return;
+        }
+        invoke(workerPool, new FourStepTask(this, COLUMNS, re, im, tr, ti, scratch, 0, workers, 0, rows.n / BLOCK));
+        invoke(workerPool, new FourStepTask(this, ROWS, re, im, tr, ti, scratch, 0, workers, 0, columns.n / BLOCK));
+        invoke(workerPool, new FourStepTask(this, COPY, re, im, tr, ti, scratch, 0, workers, 0, columns.n));
+    }
+
+    /**
+     * Runs {@code task} in {@code workerPool}, the pool of the calling task, or in the common pool if there is none.
+     */
+    private static void invoke(ForkJoinPool workerPool, ForkJoinTask<?> task) {
+        if (workerPool != null) {
+            task.invoke();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+    }
+
+    private static final int COLUMNS = 0;
+    private static final int ROWS = 1;
+    private static final int COPY = 2;
+
+    /**
+     * Runs the blocks {@code [lo, hi)} of one step of the four-step transform with the buffers of {@code worker}.
+     */
+    private void fourStep(int step, double[] re, double[] im, double[] tr, double[] ti, Scratch scratch, int worker,
+                          int lo, int hi) {
+        final int n1 = columns.n;
+        final int n2 = rows.n;
+        if (step == COLUMNS) {
+            final int shift = Integer.numberOfTrailingZeros(n1);
+            final double[] br = scratch.block(2 * worker, BLOCK * n1);
+            final double[] bi = scratch.block(2 * worker + 1, BLOCK * n1);
+            for (int blk = lo; blk < hi; ++blk) {
+                final int c0 = blk * BLOCK;
+                for (int r = 0, i = c0; r < n1; ++r, i += n2) {
+                    for (int c = 0; c < BLOCK; ++c) {
+                        br[c * n1 + r] = re[i + c];
+                        bi[c * n1 + r] = im[i + c];
+                    }
+                }
+                for (int c = 0; c < BLOCK; ++c) {
+                    final int off = c * n1;
+                    columns.powerOfTwo(br, bi, off);
+                    // W(n)^(j2 * k1) = W(n)^(n1 * u) * W(n)^t with j2 * k1 = n1 * u + t.
+                    final int j2 = c0 + c;
+                    for (int k1 = 1; k1 < n1; ++k1) {
+                        final int j = j2 * k1;
+                        final int t = 2 * (j & (n1 - 1)), u = 2 * (j >>> shift);
+                        final double wr = highTwiddles[u] * lowTwiddles[t] - highTwiddles[u + 1] * lowTwiddles[t + 1];
+                        final double wi = highTwiddles[u] * lowTwiddles[t + 1] + highTwiddles[u + 1] * lowTwiddles[t];
+                        final double xr = br[off + k1], xi = bi[off + k1];
+                        br[off + k1] = wr * xr - wi * xi;
+                        bi[off + k1] = wr * xi + wi * xr;
+                    }
+                }
+                for (int r = 0, i = c0; r < n1; ++r, i += n2) {
+                    for (int c = 0; c < BLOCK; ++c) {
+                        re[i + c] = br[c * n1 + r];
+                        im[i + c] = bi[c * n1 + r];
+                    }
+                }
+            }
+        } else if (step == ROWS) {
+            // X(k1 + n1 * k2) is the element (k1, k2) of the row transforms, so the result is their transpose.
+            for (int blk = lo; blk < hi; ++blk) {
+                final int r0 = blk * BLOCK;
+                for (int r = r0; r < r0 + BLOCK; ++r) {
+                    rows.powerOfTwo(re, im, r * n2);
+                }
+                for (int k2 = 0; k2 < n2; ++k2) {
+                    for (int r = r0, i = r0 * n2 + k2; r < r0 + BLOCK; ++r, i += n2) {
+                        tr[k2 * n1 + r] = re[i];
+                        ti[k2 * n1 + r] = im[i];
+                    }
+                }
+            }
+        } else {
+            System.arraycopy(tr, lo * n2, re, lo * n2, (hi - lo) * n2);
+            System.arraycopy(ti, lo * n2, im, lo * n2, (hi - lo) * n2);
+        }
+    }
+
+    /**
+     * Transform in place of the n elements from {@code off} on, scaled by {@link #scale}.
+     */
+    private void powerOfTwo(double[] re, double[] im, int off) {
+        for (int s = 0; s < swaps.length; s += 2) {
+            final int i = off + swaps[s], j = off + swaps[s + 1];
+            double t = re[i];
+            re[i] = re[j];
+            re[j] = t;
+            t = im[i];
+            im[i] = im[j];
+            im[j] = t;
+        }
+        // -i for the forward transform and i for the inverse.
+        final double rot = direction == Direction.FORWARD ? 1.0 : -1.0;
+        final double f = scale;
+        // The first stage has no twiddles and applies the scaling.
+        int l;
+        if (radix2) {
+            for (int k = off; k < off + n; k += 2) {
+                final double ar = f * re[k], ai = f * im[k], br = f * re[k + 1], bi = f * im[k + 1];
+                re[k] = ar + br;
+                im[k] = ai + bi;
+                re[k + 1] = ar - br;
+                im[k + 1] = ai - bi;
+            }
+            l = 2;
+        } else if (n >= 4) {
+            for (int i0 = off; i0 < off + n; i0 += 4) {
+                final int i1 = i0 + 1, i2 = i0 + 2, i3 = i0 + 3;
+                final double ar = f * re[i0], ai = f * im[i0], br = f * re[i1], bi = f * im[i1];
+                final double cr = f * re[i2], ci = f * im[i2], dr = f * re[i3], di = f * im[i3];
+                final double sr = ar + br, si = ai + bi, er = ar - br, ei = ai - bi;
+                final double pr = cr + dr, pi = ci + di;
+                final double qr = rot * (ci - di), qi = rot * (dr - cr);
+                re[i0] = sr + pr;
+                im[i0] = si + pi;
+                re[i1] = er + qr;
+                im[i1] = ei + qi;
+                re[i2] = sr - pr;
+                im[i2] = si - pi;
+                re[i3] = er - qr;
+                im[i3] = ei - qi;
+            }
+            l = 4;
+        } else {
+            // n = 1, for which the inverse scaling is 1 too.
+            return;
+        }
+        for (int t0 = 0; l < n; t0 += 6 * l, l *= 4) {
+            final int l4 = 4 * l;
+            for (int b = off; b < off + n; b += l4) {
+                for (int k = 0, t = t0; k < l; ++k, t += 6) {
+                    final int i0 = b + k, i1 = i0 + l, i2 = i1 + l, i3 = i2 + l;
+                    final double w1r = twiddles[t], w1i = twiddles[t + 1];
+                    final double w2r = twiddles[t + 2], w2i = twiddles[t + 3];
+                    final double w3r = twiddles[t + 4], w3i = twiddles[t + 5];
+                    // a = x0, b = W^2k * x1, c = W^k * x2, d = W^3k * x3.
+                    final double ar = re[i0], ai = im[i0];
+                    final double br = w2r * re[i1] - w2i * im[i1], bi = w2r * im[i1] + w2i * re[i1];
+                    final double cr = w1r * re[i2] - w1i * im[i2], ci = w1r * im[i2] + w1i * re[i2];
+                    final double dr = w3r * re[i3] - w3i * im[i3], di = w3r * im[i3] + w3i * re[i3];
+                    final double sr = ar + br, si = ai + bi, er = ar - br, ei = ai - bi;
+                    final double pr = cr + dr, pi = ci + di;
+                    // -i * (c - d) for the forward transform.
+                    final double qr = rot * (ci - di), qi = rot * (dr - cr);
+                    re[i0] = sr + pr;
+                    im[i0] = si + pi;
+                    re[i1] = er + qr;
+                    im[i1] = ei + qi;
+                    re[i2] = sr - pr;
+                    im[i2] = si - pi;
+                    re[i3] = er - qr;
+                    im[i3] = ei - qi;
+                }
+            }
+        }
+    }
+
+    private Scratch acquire() {
+        for (int i = 0; i < pool.length(); ++i) {
+            if (pool.get(i) != null) {
+                Scratch scratch = pool.getAndSet(i, null);
+                if (scratch != null) {
+                    return scratch;
+                }
+            }
+        }
+        return new Scratch();
+    }
+
+    private void release(Scratch scratch) {
+        for (int i = 0; i < pool.length(); ++i) {
+            if (pool.get(i) == null && pool.compareAndSet(i, null, scratch)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Buffers used by one transform at a time, allocated on first use. The blocks are the per worker column buffers
+     * of the four-step transform; the workers of one transform only ever touch their own blocks.
+     */
+    private static final class Scratch {
+        static final int REAL = 0;
+        static final int IMAG = 1;
+        static final int WORK = 2;
+        static final int BUTTERFLY = WORK + 4;
+
+        private final double[][] arrays = new double[BUTTERFLY + 1][];
+        private volatile double[][] blocks = new double[0][];
+
+        double[] get(int index, int length) {
+            double[] array = arrays[index];
+            if (array == null) {
+                array = arrays[index] = new double[length];
+            }
+            return array;
+        }
+
+        double[] block(int index, int length) {
+            double[][] current = blocks;
+            if (index >= current.length || current[index] == null) {
+                synchronized (this) {
+                    current = blocks;
+                    if (index >= current.length) {
+                        current = Arrays.copyOf(current, Math.max(index + 1, 2 * current.length));
+                    } else {
+                        current = current.clone();
+                    }
+                    if (current[index] == null) {
+                        current[index] = new double[length];
+                    }
+                    blocks = current;
+                }
+            }
+            return current[index];
+        }
+    }
+
+    /**
+     * Splits the blocks {@code [lo, hi)} of one four-step step evenly between the workers {@code [w0, w1)}, so every
+     * worker uses its own buffers.
+     */
+    private static final class FourStepTask extends RecursiveAction {
+        private final FFTPlan plan;
+        private final int step;
+        private final double[] re, im, tr, ti;
+        private final Scratch scratch;
+        private final int w0, w1, lo, hi;
+
+        FourStepTask(FFTPlan plan, int step, double[] re, double[] im, double[] tr, double[] ti, Scratch scratch,
+                     int w0, int w1, int lo, int hi) {
+            this.plan = plan;
+            this.step = step;
+            this.re = re;
+            this.im = im;
+            this.tr = tr;
+            this.ti = ti;
+            this.scratch = scratch;
+            this.w0 = w0;
+            this.w1 = w1;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (w1 - w0 == 1 || hi - lo <= 1) {
+                plan.fourStep(step, re, im, tr, ti, scratch, w0, lo, hi);
+                return;
+            }
+            final int wm = (w0 + w1) >>> 1;
+            final int mid = lo + (int) ((long) (hi - lo) * (wm - w0) / (w1 - w0));
+            invokeAll(new FourStepTask(plan, step, re, im, tr, ti, scratch, w0, wm, lo, mid),
+                    new FourStepTask(plan, step, re, im, tr, ti, scratch, wm, w1, mid, hi));
+        }
+    }
+
+    /**
+     * The pairs {@code i < j} with j the bit reversal of i, flattened.
+     */
+    private static int[] bitReversalSwaps(int n) {
+        final int shift = 32 - Integer.numberOfTrailingZeros(n);
+        int count = 0;
+        for (int i = 1; i < n; ++i) {
+            if (i < Integer.reverse(i) >>> shift) {
+                ++count;
+            }
+        }
+        int[] swaps = new int[2 * count];
+        for (int i = 1, s = 0; i < n; ++i) {
+            final int j = Integer.reverse(i) >>> shift;
+            if (i < j) {
+                swaps[s++] = i;
+                swaps[s++] = j;
+            }
+        }
+        return swaps;
+    }
+}
@@ -0,0 +1,325 @@
+package com.wildbitsfoundry.etk4j.signals.fft;
+
+import java.util.Arrays;
+
+/**
+ * Mixed-radix Cooley-Tukey engine for lengths whose prime factors are all small.
+ * <p>
+ * The length is factored into radices 4, 2, 3, 5 and any other odd primes. Every
+ * stage is a self-sorting (Stockham) pass from one buffer to the other, so no digit reversal is needed and every pass
+ * reads and writes contiguous runs. After the stage with radix p, and with L the product of the radices so far, the
+ * buffer holds the length L transforms of the n / L decimated subsequences of the input; the pass combines p of them
+ * with the twiddles {@code W(L * p)^(q * k)} and a length p butterfly. Radices 2, 3, 4 and 5 have dedicated
+ * butterflies, the other odd radices share one that pairs the outputs {@code s} and {@code p - s}, which halves its
+ * O(p<sup>2</sup>) work.
+ */
+final class MixedRadixFFT {
+
+    private final int n;
+    private final int[] factors;
+    // W(n)^k = cos[k] - i * sin[k]
+    private final double[] cos;
+    private final double[] sin;
+    private final int butterflyLength;
+
+    MixedRadixFFT(int n, int[] factors) {
+        this.n = n;
+        this.factors = factors;
+        int length = 0;
+        for (int p : factors) {
+            if (p > 5) {
+                length = Math.max(length, 2 * p + 4 * (p / 2 + 1));
+            }
+        }
+        butterflyLength = length;
+        cos = new double[n];
+        sin = new double[n];
+        final double t = 2 * Math.PI / n;
+        for (int k = 0; k < n; ++k) {
+            cos[k] = Math.cos(k * t);
+            sin[k] = Math.sin(k * t);
+        }
+    }
+
+    /**
+     * Factors {@code n} into radices.
+     *
+     * @param n The length.
+     * @return The radices.
+     */
+    static int[] factor(int n) {
+        int[] radices = new int[32];
+        int count = 0;
+        while (n % 4 == 0) {
+            radices[count++] = 4;
+            n /= 4;
+        }
+        if (n % 2 == 0) {
+            radices[count++] = 2;
+            n /= 2;
+        }
+        for (int p = 3; n > 1; p += 2) {
+            if (p > n / p) {
+                // n is prime
+                radices[count++] = n;
+                break;
+            }
+            while (n % p == 0) {
+                radices[count++] = p;
+                n /= p;
+            }
+        }
+        return Arrays.copyOf(radices, count);
+    }
+
+    /**
+     * Whether {@link BluesteinFFT} is faster than the mixed-radix transform for the given factors. The generic odd
+     * radix butterflies cost about {@code p / 2} complex multiply-adds per element, the chirp-z transform two power of
+     * two transforms of length {@code m >= 2n - 1}; measured, a chirp-z element of the longer transform costs about
+     * five times as much as a generic butterfly multiply-add per stage.
+     *
+     * @param n       The length.
+     * @param factors The radices of n.
+     * @return true if the length should be transformed with the chirp-z algorithm.
+     */
+    static boolean prefersBluestein(int n, int[] factors) {
+        long generic = 0;
+        for (int p : factors) {
+            if (p > 5) {
+                generic += p;
+            }
+        }
+        if (generic == 0 || n > (1 << 29)) {
+            return false;
+        }
+        final long m = Integer.highestOneBit(2 * n - 2) << 1;
+        final int log2m = Long.numberOfTrailingZeros(m);
+        return generic * n > 10 * m * log2m;
+    }
+
+    /**
+     * Length of the butterfly scratch of {@link #transform(double[], double[], double[], double[], double[])}, zero
+     * when all the radices have dedicated butterflies.
+     */
+    int getButterflyLength() {
+        return butterflyLength;
+    }
+
+    /**
+     * Forward transform in place.
+     *
+     * @param re        The real parts.
+     * @param im        The imaginary parts.
+     * @param workRe    Scratch of length n.
+     * @param workIm    Scratch of length n.
+     * @param butterfly Scratch of length {@link #getButterflyLength()}, may be null if that is zero.
+     */
+    void transform(double[] re, double[] im, double[] workRe, double[] workIm, double[] butterfly) {
+        double[] xr = re, xi = im, yr = workRe, yi = workIm;
+        int l = 1;
+        for (int p : factors) {
+            final int r = n / (l * p);
+            switch (p) {
+                case 2:
+                    pass2(l, r, xr, xi, yr, yi);
+                    break;
+                case 3:
+                    pass3(l, r, xr, xi, yr, yi);
+                    break;
+                case 4:
+                    pass4(l, r, xr, xi, yr, yi);
+                    break;
+                case 5:
+                    pass5(l, r, xr, xi, yr, yi);
+                    break;
+                default:
+                    passOdd(p, l, r, xr, xi, yr, yi, butterfly);
+                    break;
+            }
+            double[] t = xr;
+            xr = yr;
+            yr = t;
+            t = xi;
+            xi = yi;
+            yi = t;
+            l *= p;
+        }
+        if (xr != re) {
+            System.arraycopy(xr, 0, re, 0, n);
+            System.arraycopy(xi, 0, im, 0, n);
+        }
+    }
+
+    // In every pass the inputs of a butterfly are x[(j * l + k) + q * r * l], its twiddles W(n)^(q * k * r) and its
+    // outputs y[(j * p * l + k) + s * l], for j < r, k < l and q, s < p.
+
+    private void pass2(int l, int r, double[] xr, double[] xi, double[] yr, double[] yi) {
+        final int stride = r * l;
+        for (int j = 0; j < r; ++j) {
+            final int in = j * l;
+            final int out = 2 * j * l;
+            for (int k = 0; k < l; ++k) {
+                final int w = k * r;
+                final double c = cos[w], s = sin[w];
+                final int i0 = in + k, i1 = i0 + stride;
+                final double ar = xr[i1] * c + xi[i1] * s;
+                final double ai = xi[i1] * c - xr[i1] * s;
+                final int o = out + k;
+                yr[o] = xr[i0] + ar;
+                yi[o] = xi[i0] + ai;
+                yr[o + l] = xr[i0] - ar;
+                yi[o + l] = xi[i0] - ai;
+            }
+        }
+    }
+
+    private void pass3(int l, int r, double[] xr, double[] xi, double[] yr, double[] yi) {
+        final int stride = r * l;
+        final double s3 = sin[n / 3];
+        for (int j = 0; j < r; ++j) {
+            final int in = j * l;
+            final int out = 3 * j * l;
+            for (int k = 0; k < l; ++k) {
+                final int w = k * r;
+                final int i0 = in + k, i1 = i0 + stride, i2 = i1 + stride;
+                final double c1 = cos[w], s1 = sin[w], c2 = cos[2 * w], s2 = sin[2 * w];
+                final double a1r = xr[i1] * c1 + xi[i1] * s1, a1i = xi[i1] * c1 - xr[i1] * s1;
+                final double a2r = xr[i2] * c2 + xi[i2] * s2, a2i = xi[i2] * c2 - xr[i2] * s2;
+                final double tr = a1r + a2r, ti = a1i + a2i;
+                final double ur = s3 * (a1r - a2r), ui = s3 * (a1i - a2i);
+                final double mr = xr[i0] - 0.5 * tr, mi = xi[i0] - 0.5 * ti;
+                final int o = out + k;
+                yr[o] = xr[i0] + tr;
+                yi[o] = xi[i0] + ti;
+                yr[o + l] = mr + ui;
+                yi[o + l] = mi - ur;
+                yr[o + 2 * l] = mr - ui;
+                yi[o + 2 * l] = mi + ur;
+            }
+        }
+    }
+
+    private void pass4(int l, int r, double[] xr, double[] xi, double[] yr, double[] yi) {
+        final int stride = r * l;
+        for (int j = 0; j < r; ++j) {
+            final int in = j * l;
+            final int out = 4 * j * l;
+            for (int k = 0; k < l; ++k) {
+                final int w = k * r;
+                final int i0 = in + k, i1 = i0 + stride, i2 = i1 + stride, i3 = i2 + stride;
+                final double c1 = cos[w], s1 = sin[w], c2 = cos[2 * w], s2 = sin[2 * w];
+                final double c3 = cos[3 * w], s3 = sin[3 * w];
+                final double a1r = xr[i1] * c1 + xi[i1] * s1, a1i = xi[i1] * c1 - xr[i1] * s1;
+                final double a2r = xr[i2] * c2 + xi[i2] * s2, a2i = xi[i2] * c2 - xr[i2] * s2;
+                final double a3r = xr[i3] * c3 + xi[i3] * s3, a3i = xi[i3] * c3 - xr[i3] * s3;
+                final double t0r = xr[i0] + a2r, t0i = xi[i0] + a2i;
+                final double t1r = xr[i0] - a2r, t1i = xi[i0] - a2i;
+                final double t2r = a1r + a3r, t2i = a1i + a3i;
+                // -i * (a1 - a3)
+                final double t3r = a1i - a3i, t3i = a3r - a1r;
+                final int o = out + k;
+                yr[o] = t0r + t2r;
+                yi[o] = t0i + t2i;
+                yr[o + l] = t1r + t3r;
+                yi[o + l] = t1i + t3i;
+                yr[o + 2 * l] = t0r - t2r;
+                yi[o + 2 * l] = t0i - t2i;
+                yr[o + 3 * l] = t1r - t3r;
+                yi[o + 3 * l] = t1i - t3i;
+            }
+        }
+    }
+
+    private void pass5(int l, int r, double[] xr, double[] xi, double[] yr, double[] yi) {
+        final int stride = r * l;
+        final int n5 = n / 5;
+        final double ca = cos[n5], sa = sin[n5], cb = cos[2 * n5], sb = sin[2 * n5];
+        for (int j = 0; j < r; ++j) {
+            final int in = j * l;
+            final int out = 5 * j * l;
+            for (int k = 0; k < l; ++k) {
+                final int w = k * r;
+                final int i0 = in + k, i1 = i0 + stride, i2 = i1 + stride, i3 = i2 + stride, i4 = i3 + stride;
+                final double c1 = cos[w], s1 = sin[w], c2 = cos[2 * w], s2 = sin[2 * w];
+                final double c3 = cos[3 * w], s3 = sin[3 * w], c4 = cos[4 * w], s4 = sin[4 * w];
+                final double a1r = xr[i1] * c1 + xi[i1] * s1, a1i = xi[i1] * c1 - xr[i1] * s1;
+                final double a2r = xr[i2] * c2 + xi[i2] * s2, a2i = xi[i2] * c2 - xr[i2] * s2;
+                final double a3r = xr[i3] * c3 + xi[i3] * s3, a3i = xi[i3] * c3 - xr[i3] * s3;
+                final double a4r = xr[i4] * c4 + xi[i4] * s4, a4i = xi[i4] * c4 - xr[i4] * s4;
+                final double t1r = a1r + a4r, t1i = a1i + a4i, u1r = a1r - a4r, u1i = a1i - a4i;
+                final double t2r = a2r + a3r, t2i = a2i + a3i, u2r = a2r - a3r, u2i = a2i - a3i;
+                final double x0r = xr[i0], x0i = xi[i0];
+                final double m1r = x0r + ca * t1r + cb * t2r, m1i = x0i + ca * t1i + cb * t2i;
+                final double n1r = sa * u1r + sb * u2r, n1i = sa * u1i + sb * u2i;
+                final double m2r = x0r + cb * t1r + ca * t2r, m2i = x0i + cb * t1i + ca * t2i;
+                final double n2r = sb * u1r - sa * u2r, n2i = sb * u1i - sa * u2i;
+                final int o = out + k;
+                yr[o] = x0r + t1r + t2r;
+                yi[o] = x0i + t1i + t2i;
+                // X(s) = m - i * n, X(5 - s) = m + i * n
+                yr[o + l] = m1r + n1i;
+                yi[o + l] = m1i - n1r;
+                yr[o + 4 * l] = m1r - n1i;
+                yi[o + 4 * l] = m1i + n1r;
+                yr[o + 2 * l] = m2r + n2i;
+                yi[o + 2 * l] = m2i - n2r;
+                yr[o + 3 * l] = m2r - n2i;
+                yi[o + 3 * l] = m2i + n2r;
+            }
+        }
+    }
+
+    private void passOdd(int p, int l, int r, double[] xr, double[] xi, double[] yr, double[] yi, double[] b) {
+        final int stride = r * l;
+        final int half = p / 2;
+        final int np = n / p;
+        // The twiddled inputs a and the sums t and differences u of the inputs q and p - q, packed in b.
+        final int ai = p, tr = 2 * p, ti = tr + half + 1, ur = ti + half + 1, ui = ur + half + 1;
+        for (int j = 0; j < r; ++j) {
+            final int in = j * l;
+            final int out = p * j * l;
+            for (int k = 0; k < l; ++k) {
+                final int w = k * r;
+                final int i0 = in + k;
+                for (int q = 0; q < p; ++q) {
+                    final int iq = i0 + q * stride;
+                    final int wq = q * w;
+                    final double c = cos[wq], s = sin[wq];
+                    b[q] = xr[iq] * c + xi[iq] * s;
+                    b[ai + q] = xi[iq] * c - xr[iq] * s;
+                }
+                double sr = b[0], si = b[ai];
+                for (int q = 1; q <= half; ++q) {
+                    b[tr + q] = b[q] + b[p - q];
+                    b[ti + q] = b[ai + q] + b[ai + p - q];
+                    b[ur + q] = b[q] - b[p - q];
+                    b[ui + q] = b[ai + q] - b[ai + p - q];
+                    sr += b[tr + q];
+                    si += b[ti + q];
+                }
+                final int o = out + k;
+                yr[o] = sr;
+                yi[o] = si;
+                for (int s = 1; s <= half; ++s) {
+                    double mr = b[0], mi = b[ai], nr = 0.0, ni = 0.0;
+                    int qs = 0;
+                    for (int q = 1; q <= half; ++q) {
+                        qs += s;
+                        if (qs >= p) {
+                            qs -= p;
+                        }
+                        final double c = cos[qs * np], sn = sin[qs * np];
+                        mr += c * b[tr + q];
+                        mi += c * b[ti + q];
+                        nr += sn * b[ur + q];
+                        ni += sn * b[ui + q];
+                    }
+                    yr[o + s * l] = mr + ni;
+                    yi[o + s * l] = mi - nr;
+                    yr[o + (p - s) * l] = mr - ni;
+                    yi[o + (p - s) * l] = mi + nr;
+                }
+            }
+        }
+    }
+}
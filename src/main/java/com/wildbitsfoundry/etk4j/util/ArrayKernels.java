@@ -0,0 +1,98 @@
+package com.wildbitsfoundry.etk4j.util;
+
+/**
+ * Backend of the reduction kernels of {@link DoubleArrays} and of the register tile of the matrix multiply.
+ * <p>
+ * The default backend is plain Java. When the library runs on Java 17 or newer with the incubating Vector API enabled
+ * ({@code --add-modules jdk.incubator.vector}) and the processor has 256 bit or wider vector registers, a backend
+ * built on {@code jdk.incubator.vector} is loaded instead. It ships in the multi-release part of the jar, so Java 8
+ * only ever sees this class and the scalar backend. Set the system property {@code etk4j.vector} to {@code false} to
+ * force the scalar backend.
+ * <p>
+ * The vectorized reductions accumulate in several lanes, so their results may differ from the scalar ones in the last
+ * bits. The matrix multiply tile keeps one lane per element of the tile and accumulates in the same order, so it
+ * matches the scalar tile bit for bit. Element wise kernels are not part of the backend: the JIT compiler already
+ * vectorizes those loops.
+ */
+public abstract class ArrayKernels {
+
+    static final String VECTOR_BACKEND = "com.wildbitsfoundry.etk4j.util.VectorArrayKernels";
+
+    private static final ArrayKernels INSTANCE = load();
+
+    ArrayKernels() {
+    }
+
+    /**
+     * The backend in use.
+     *
+     * @return The vectorized backend if it is available, the scalar one otherwise.
+     */
+    public static ArrayKernels getInstance() {
+        return INSTANCE;
+    }
+
+    private static ArrayKernels load() {
+        if (Boolean.parseBoolean(System.getProperty("etk4j.vector", "true"))) {
+            try {
+                Class<?> backend = Class.forName(VECTOR_BACKEND);
+                if ((Boolean) backend.getDeclaredMethod("isSupported").invoke(null)) {
+                    return (ArrayKernels) backend.getDeclaredConstructor().newInstance();
+                }
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Older runtime or Vector API not enabled.
+            }
+        }
+        return new ScalarArrayKernels();
+    }
+
+    /**
+     * A short description of the backend, e.g. for benchmark reports.
+     *
+     * @return The name of the backend.
+     */
+    public abstract String getName();
+
+    /**
+     * @return {@code true} if this backend uses the Vector API.
+     */
+    public abstract boolean isVectorized();
+
+    /**
+     * @return {@code sum(a[off : off + n - 1])}
+     */
+    public abstract double sum(double[] a, int off, int n);
+
+    /**
+     * @return {@code sum(a[off : off + n - 1]<sup>2</sup>)}
+     */
+    public abstract double sumSquares(double[] a, int off, int n);
+
+    /**
+     * Sum of squares of the scaled elements, used to compute norms without overflow.
+     *
+     * @return {@code sum((scale * a[off : off + n - 1])<sup>2</sup>)}
+     */
+    public abstract double sumSquares(double[] a, int off, int n, double scale);
+
+    /**
+     * @return {@code sum(a[aOff : aOff + n - 1] * b[bOff : bOff + n - 1])}
+     */
+    public abstract double dot(double[] a, int aOff, double[] b, int bOff, int n);
+
+    /**
+     * The 4x4 register tile of the packed matrix multiply: {@code C += A * B} where A is stored as {@code kc} packed
+     * columns of 4 elements and B as {@code kc} packed rows of 4 elements.
+     *
+     * @param kc   The inner dimension.
+     * @param pa   The packed A sliver.
+     * @param aIdx The offset of the A sliver.
+     * @param pb   The packed B sliver.
+     * @param bIdx The offset of the B sliver.
+     * @param c    The row packed storage of C.
+     * @param cIdx The offset of {@code C(0, 0)}.
+     * @param ldc  The leading dimension of C.
+     */
+    public abstract void multiply4x4(int kc, double[] pa, int aIdx, double[] pb, int bIdx,
+                                     double[] c, int cIdx, int ldc);
+}
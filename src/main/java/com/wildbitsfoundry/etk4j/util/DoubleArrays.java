@@ -12,6 +12,11 @@ import com.wildbitsfoundry.etk4j.math.interpolation.CubicSpline;
  */
 public final class DoubleArrays {
 
+    /**
+     * Reductions are computed by the vectorized backend when it is available, see {@link ArrayKernels}.
+     */
+    private static final ArrayKernels KERNELS = ArrayKernels.getInstance();
+
     private DoubleArrays() {
     }
 
@@ -391,12 +396,7 @@ public final class DoubleArrays {
         if (max == 0.0) {
             return 0.0;
         }
-        double tmp = Math.pow(1.0 / max, 2);
-        double norm = 0.0;
-        for (int i = 0; i < a.length; ++i) {
-            norm += a[i] * a[i] * tmp;
-        }
-        return Math.sqrt(norm) * max;
+        return Math.sqrt(KERNELS.sumSquares(a, 0, a.length, 1.0 / max)) * max;
     }
 
     /**
@@ -541,12 +541,7 @@ public final class DoubleArrays {
      * @return {@code sum(a)}.
      */
     public static double sum(double[] a) {
-        final int length = a.length;
-        double result = 0;
-        for (int i = 0; i < length; ++i) {
-            result += a[i];
-        }
-        return result;
+        return KERNELS.sum(a, 0, a.length);
     }
 
     /**
@@ -555,12 +550,7 @@ public final class DoubleArrays {
      * @return {@code sum(a)}
      */
     public static double sumSquares(double[] a) {
-        final int length = a.length;
-        double result = 0;
-        for (int i = 0; i < length; ++i) {
-            result += a[i] * a[i];
-        }
-        return result;
+        return KERNELS.sumSquares(a, 0, a.length);
     }
 
     /**
@@ -739,11 +729,7 @@ public final class DoubleArrays {
         if(a.length != b.length) {
             throw new IllegalArgumentException("Both arrays must be of the same length.");
         }
-        double result = 0.0;
-        for(int i = 0; i < a.length; ++i) {
-            result += a[i] * b[i];
-        }
-        return result;
+        return KERNELS.dot(a, 0, b, 0, a.length);
     }
 
     /**
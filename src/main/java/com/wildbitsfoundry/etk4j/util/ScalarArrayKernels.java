@@ -0,0 +1,104 @@
+package com.wildbitsfoundry.etk4j.util;
+
+/**
+ * Plain Java implementation of {@link ArrayKernels}.
+ */
+final class ScalarArrayKernels extends ArrayKernels {
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return false;
+    }
+
+    @Override
+    public double sum(double[] a, int off, int n) {
+        double result = 0.0;
+        for (int i = off; i < off + n; ++i) {
+            result += a[i];
+        }
+        return result;
+    }
+
+    @Override
+    public double sumSquares(double[] a, int off, int n) {
+        double result = 0.0;
+        for (int i = off; i < off + n; ++i) {
+            result += a[i] * a[i];
+        }
+        return result;
+    }
+
+    @Override
+    public double sumSquares(double[] a, int off, int n, double scale) {
+        double result = 0.0;
+        for (int i = off; i < off + n; ++i) {
+            final double v = a[i] * scale;
+            result += v * v;
+        }
+        return result;
+    }
+
+    @Override
+    public double dot(double[] a, int aOff, double[] b, int bOff, int n) {
+        double result = 0.0;
+        for (int i = 0; i < n; ++i) {
+            result += a[aOff + i] * b[bOff + i];
+        }
+        return result;
+    }
+
+    @Override
+    public void multiply4x4(int kc, double[] pa, int aIdx, double[] pb, int bIdx, double[] c, int cIdx, int ldc) {
+        final int r0 = cIdx;
+        final int r1 = r0 + ldc;
+        final int r2 = r1 + ldc;
+        final int r3 = r2 + ldc;
+        double c00 = c[r0], c01 = c[r0 + 1], c02 = c[r0 + 2], c03 = c[r0 + 3];
+        double c10 = c[r1], c11 = c[r1 + 1], c12 = c[r1 + 2], c13 = c[r1 + 3];
+        double c20 = c[r2], c21 = c[r2 + 1], c22 = c[r2 + 2], c23 = c[r2 + 3];
+        double c30 = c[r3], c31 = c[r3 + 1], c32 = c[r3 + 2], c33 = c[r3 + 3];
+        for (int p = 0; p < kc; ++p) {
+            final int ai = aIdx + p * 4;
+            final int bi = bIdx + p * 4;
+            final double a0 = pa[ai], a1 = pa[ai + 1], a2 = pa[ai + 2], a3 = pa[ai + 3];
+            final double b0 = pb[bi], b1 = pb[bi + 1], b2 = pb[bi + 2], b3 = pb[bi + 3];
+            c00 += a0 * b0;
+            c01 += a0 * b1;
+            c02 += a0 * b2;
+            c03 += a0 * b3;
+            c10 += a1 * b0;
+            c11 += a1 * b1;
+            c12 += a1 * b2;
+            c13 += a1 * b3;
+            c20 += a2 * b0;
+            c21 += a2 * b1;
+            c22 += a2 * b2;
+            c23 += a2 * b3;
+            c30 += a3 * b0;
+            c31 += a3 * b1;
+            c32 += a3 * b2;
+            c33 += a3 * b3;
+        }
+        c[r0] = c00;
+        c[r0 + 1] = c01;
+        c[r0 + 2] = c02;
+        c[r0 + 3] = c03;
+        c[r1] = c10;
+        c[r1 + 1] = c11;
+        c[r1 + 2] = c12;
+        c[r1 + 3] = c13;
+        c[r2] = c20;
+        c[r2 + 1] = c21;
+        c[r2 + 2] = c22;
+        c[r2 + 3] = c23;
+        c[r3] = c30;
+        c[r3 + 1] = c31;
+        c[r3 + 2] = c32;
+        c[r3 + 3] = c33;
+    }
+}
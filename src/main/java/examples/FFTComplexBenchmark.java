@@ -0,0 +1,142 @@
+package examples;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import com.wildbitsfoundry.etk4j.math.complex.Complex;
+import com.wildbitsfoundry.etk4j.signals.fft.FFT;
+
+/**
+ * Rough comparison of a forward and inverse {@link FFT} of {@link Complex} data against the textbook radix-2 transform
+ * that updates the {@code Complex} values in every butterfly and conjugates in separate passes. The bytes allocated per
+ * transform pair are reported when the JVM can measure them. Run with a warmed up JVM, e.g.
+ * {@code java examples.FFTComplexBenchmark}.
+ */
+public class FFTComplexBenchmark {
+
+	public static void main(String[] args) {
+		int[] sizes = { 256, 1024, 4096, 16384, 65536, 262144 };
+		Random rand = new Random(0);
+
+		System.out.printf("%8s %12s %12s %8s %14s%n", "n", "loop us", "FFT us", "speedup", "FFT bytes/op");
+		for (int n : sizes) {
+			Complex[] data = new Complex[n];
+			for (int i = 0; i < n; ++i) {
+				data[i] = new Complex(rand.nextDouble(), rand.nextDouble());
+			}
+			FFT fft = new FFT(n);
+			Cos cos = new Cos(n);
+
+			double loop = time(() -> {
+				textbook(data, cos, false);
+				textbook(data, cos, true);
+			});
+			double kernel = time(() -> {
+				fft.direct(data);
+				fft.inverse(data);
+			});
+			long bytes = allocatedBytes(() -> {
+				fft.direct(data);
+				fft.inverse(data);
+			});
+			System.out.printf("%8d %12.1f %12.1f %8.2fx %14s%n", n, loop * 1e6, kernel * 1e6, loop / kernel,
+					bytes < 0 ? "n/a" : Long.toString(bytes));
+		}
+	}
+
+	private static double time(Runnable task) {
+		// Warm up for half a second, then keep the best of a few runs.
+		final long warmup = System.nanoTime() + 500000000L;
+		while (System.nanoTime() < warmup) {
+			task.run();
+		}
+		double best = Double.MAX_VALUE;
+		for (int i = 0; i < 10; ++i) {
+			long start = System.nanoTime();
+			task.run();
+			best = Math.min(best, (System.nanoTime() - start) * 1e-9);
+		}
+		return best;
+	}
+
+	private static long allocatedBytes(Runnable task) {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return -1;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		final long id = Thread.currentThread().getId();
+		long start = threads.getThreadAllocatedBytes(id);
+		task.run();
+		return threads.getThreadAllocatedBytes(id) - start;
+	}
+
+	private static final class Cos {
+		final int m;
+		final double[] cos;
+		final double[] sin;
+
+		Cos(int n) {
+			m = Integer.numberOfTrailingZeros(n);
+			cos = new double[n / 2];
+			sin = new double[n / 2];
+			for (int i = 0; i < n / 2; ++i) {
+				cos[i] = Math.cos(-2 * Math.PI * i / n);
+				sin[i] = Math.sin(-2 * Math.PI * i / n);
+			}
+		}
+	}
+
+	private static void textbook(Complex[] data, Cos w, boolean inverse) {
+		final int n = data.length;
+		if (inverse) {
+			for (int i = 0; i < n; ++i) {
+				double t1 = data[i].imag();
+				data[i].addEquals(0.0, -t1 - t1);
+			}
+		}
+		int i, j, k, n1, n2, a;
+		double c, s, t1, t2;
+		j = 0;
+		n2 = n / 2;
+		for (i = 1; i < n - 1; i++) {
+			n1 = n2;
+			while (j >= n1) {
+				j = j - n1;
+				n1 = n1 / 2;
+			}
+			j = j + n1;
+			if (i < j) {
+				Complex swap = data[i];
+				data[i] = data[j];
+				data[j] = swap;
+			}
+		}
+		n2 = 1;
+		for (i = 0; i < w.m; i++) {
+			n1 = n2;
+			n2 = n2 + n2;
+			a = 0;
+			for (j = 0; j < n1; j++) {
+				c = w.cos[a];
+				s = w.sin[a];
+				a += 1 << (w.m - i - 1);
+				for (k = j; k < n; k = k + n2) {
+					t1 = c * data[k + n1].real() - s * data[k + n1].imag();
+					t2 = s * data[k + n1].real() + c * data[k + n1].imag();
+					data[k + n1].addEquals(-data[k + n1].real() + data[k].real() - t1,
+							-data[k + n1].imag() + data[k].imag() - t2);
+					data[k].addEquals(t1, t2);
+				}
+			}
+		}
+		if (inverse) {
+			double factor = 1.0 / n;
+			for (i = 0; i < n; ++i) {
+				t1 = data[i].imag();
+				data[i].addEquals(0.0, -t1 - t1);
+				data[i].multiplyEquals(factor);
+			}
+		}
+	}
+}
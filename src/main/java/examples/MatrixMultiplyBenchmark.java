@@ -0,0 +1,69 @@
+package examples;
+
+import java.util.Random;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+
+/**
+ * Rough GFLOP/s comparison between {@link Matrix#multiply(Matrix)} and the textbook column-at-a-time triple loop.
+ * Run with a warmed up JVM, e.g. {@code java -Xmx4g examples.MatrixMultiplyBenchmark}.
+ */
+public class MatrixMultiplyBenchmark {
+
+	public static void main(String[] args) {
+		int[] sizes = { 100, 250, 500, 1000, 2000 };
+		Random rand = new Random(0);
+
+		System.out.printf("%6s %14s %18s %8s%n", "n", "loop GFLOP/s", "multiply GFLOP/s", "speedup");
+		for (int n : sizes) {
+			Matrix A = random(rand, n);
+			Matrix B = random(rand, n);
+			double flops = 2.0 * n * n * n;
+
+			double loop = flops / time(() -> tripleLoop(A, B)) * 1e-9;
+			double kernel = flops / time(() -> A.multiply(B)) * 1e-9;
+			System.out.printf("%6d %14.2f %18.2f %8.2fx%n", n, loop, kernel, kernel / loop);
+		}
+	}
+
+	private static double time(Runnable task) {
+		// Warm up, then keep the best of a few runs.
+		task.run();
+		double best = Double.MAX_VALUE;
+		for (int i = 0; i < 3; ++i) {
+			long start = System.nanoTime();
+			task.run();
+			best = Math.min(best, (System.nanoTime() - start) * 1e-9);
+		}
+		return best;
+	}
+
+	private static Matrix random(Random rand, int n) {
+		double[] data = new double[n * n];
+		for (int i = 0; i < data.length; ++i) {
+			data[i] = rand.nextDouble();
+		}
+		return new Matrix(data, n, n);
+	}
+
+	private static double[] tripleLoop(Matrix A, Matrix B) {
+		final int n = A.getRowCount();
+		double[] a = A.getArray();
+		double[] b = B.getArray();
+		double[] c = new double[n * n];
+		double[] bColJ = new double[n];
+		for (int j = 0; j < n; j++) {
+			for (int k = 0; k < n; k++) {
+				bColJ[k] = b[k * n + j];
+			}
+			for (int i = 0; i < n; i++) {
+				double s = 0;
+				for (int k = 0; k < n; k++) {
+					s += a[k + i * n] * bColJ[k];
+				}
+				c[i * n + j] = s;
+			}
+		}
+		return c;
+	}
+}
@@ -0,0 +1,130 @@
+package com.wildbitsfoundry.etk4j.util;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link ArrayKernels} built on the Vector API.
+ * <p>
+ * Uses 256 bit vectors even when wider ones are available: the matrix multiply tile is 4 doubles wide and the lane
+ * count of the reductions, and with it their rounding, stays the same on every processor that loads this backend.
+ */
+final class VectorArrayKernels extends ArrayKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_256;
+    private static final int LANES = SPECIES.length();
+
+    VectorArrayKernels() {
+    }
+
+    /**
+     * Checked by {@link ArrayKernels} before this backend is loaded.
+     *
+     * @return {@code true} if the processor has 256 bit or wider vector registers, narrower ones would be emulated.
+     */
+    static boolean isSupported() {
+        return DoubleVector.SPECIES_PREFERRED.length() >= LANES;
+    }
+
+    @Override
+    public String getName() {
+        return "vector " + SPECIES.vectorBitSize() + " bit";
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return true;
+    }
+
+    @Override
+    public double sum(double[] a, int off, int n) {
+        DoubleVector acc0 = DoubleVector.zero(SPECIES);
+        DoubleVector acc1 = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i <= n - 2 * LANES; i += 2 * LANES) {
+            acc0 = acc0.add(DoubleVector.fromArray(SPECIES, a, off + i));
+            acc1 = acc1.add(DoubleVector.fromArray(SPECIES, a, off + i + LANES));
+        }
+        double result = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; i < n; ++i) {
+            result += a[off + i];
+        }
+        return result;
+    }
+
+    @Override
+    public double sumSquares(double[] a, int off, int n) {
+        DoubleVector acc0 = DoubleVector.zero(SPECIES);
+        DoubleVector acc1 = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i <= n - 2 * LANES; i += 2 * LANES) {
+            DoubleVector v0 = DoubleVector.fromArray(SPECIES, a, off + i);
+            DoubleVector v1 = DoubleVector.fromArray(SPECIES, a, off + i + LANES);
+            acc0 = acc0.add(v0.mul(v0));
+            acc1 = acc1.add(v1.mul(v1));
+        }
+        double result = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; i < n; ++i) {
+            result += a[off + i] * a[off + i];
+        }
+        return result;
+    }
+
+    @Override
+    public double sumSquares(double[] a, int off, int n, double scale) {
+        DoubleVector acc0 = DoubleVector.zero(SPECIES);
+        DoubleVector acc1 = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i <= n - 2 * LANES; i += 2 * LANES) {
+            DoubleVector v0 = DoubleVector.fromArray(SPECIES, a, off + i).mul(scale);
+            DoubleVector v1 = DoubleVector.fromArray(SPECIES, a, off + i + LANES).mul(scale);
+            acc0 = acc0.add(v0.mul(v0));
+            acc1 = acc1.add(v1.mul(v1));
+        }
+        double result = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; i < n; ++i) {
+            final double v = a[off + i] * scale;
+            result += v * v;
+        }
+        return result;
+    }
+
+    @Override
+    public double dot(double[] a, int aOff, double[] b, int bOff, int n) {
+        DoubleVector acc0 = DoubleVector.zero(SPECIES);
+        DoubleVector acc1 = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i <= n - 2 * LANES; i += 2 * LANES) {
+            acc0 = acc0.add(DoubleVector.fromArray(SPECIES, a, aOff + i)
+                    .mul(DoubleVector.fromArray(SPECIES, b, bOff + i)));
+            acc1 = acc1.add(DoubleVector.fromArray(SPECIES, a, aOff + i + LANES)
+                    .mul(DoubleVector.fromArray(SPECIES, b, bOff + i + LANES)));
+        }
+        double result = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; i < n; ++i) {
+            result += a[aOff + i] * b[bOff + i];
+        }
+        return result;
+    }
+
+    @Override
+    public void multiply4x4(int kc, double[] pa, int aIdx, double[] pb, int bIdx, double[] c, int cIdx, int ldc) {
+        // One vector per row of the tile, every lane accumulates its element over p in increasing order.
+        DoubleVector c0 = DoubleVector.fromArray(SPECIES, c, cIdx);
+        DoubleVector c1 = DoubleVector.fromArray(SPECIES, c, cIdx + ldc);
+        DoubleVector c2 = DoubleVector.fromArray(SPECIES, c, cIdx + 2 * ldc);
+        DoubleVector c3 = DoubleVector.fromArray(SPECIES, c, cIdx + 3 * ldc);
+        for (int p = 0; p < kc; ++p) {
+            final int ai = aIdx + p * 4;
+            final DoubleVector b = DoubleVector.fromArray(SPECIES, pb, bIdx + p * 4);
+            c0 = c0.add(b.mul(pa[ai]));
+            c1 = c1.add(b.mul(pa[ai + 1]));
+            c2 = c2.add(b.mul(pa[ai + 2]));
+            c3 = c3.add(b.mul(pa[ai + 3]));
+        }
+        c0.intoArray(c, cIdx);
+        c1.intoArray(c, cIdx + ldc);
+        c2.intoArray(c, cIdx + 2 * ldc);
+        c3.intoArray(c, cIdx + 3 * ldc);
+    }
+}
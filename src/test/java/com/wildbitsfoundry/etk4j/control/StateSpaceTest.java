@@ -1,7 +1,10 @@
 package com.wildbitsfoundry.etk4j.control;
 
+import com.wildbitsfoundry.etk4j.control.LinearTimeInvariantSystem.ExponentialMethod;
+import com.wildbitsfoundry.etk4j.control.LinearTimeInvariantSystem.IntegrationMethod;
 import com.wildbitsfoundry.etk4j.math.complex.Complex;
 import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.sparse.CSRMatrix;
 import com.wildbitsfoundry.etk4j.util.ComplexArrays;
 import com.wildbitsfoundry.etk4j.util.DoubleArrays;
 import org.junit.Test;
@@ -418,6 +421,68 @@ public class StateSpaceTest {
         assertArrayEquals(xOut[2], transposedStateVector[2], 1e-12);
     }
 
+    @Test
+    public void testExponentialMethods() {
+        // Damped chain of masses, x = [positions; velocities].
+        final int masses = 40;
+        final int n = 2 * masses;
+        int[] rows = new int[6 * masses];
+        int[] cols = new int[rows.length];
+        double[] vals = new double[rows.length];
+        int k = 0;
+        for (int i = 0; i < masses; ++i) {
+            rows[k] = i;
+            cols[k] = masses + i;
+            vals[k++] = 1.0;
+            rows[k] = masses + i;
+            cols[k] = i;
+            vals[k++] = -2.0;
+            rows[k] = masses + i;
+            cols[k] = masses + i;
+            vals[k++] = -0.05;
+            if (i > 0) {
+                rows[k] = masses + i;
+                cols[k] = i - 1;
+                vals[k++] = 1.0;
+            }
+            if (i + 1 < masses) {
+                rows[k] = masses + i;
+                cols[k] = i + 1;
+                vals[k++] = 1.0;
+            }
+        }
+        CSRMatrix A = CSRMatrix.fromTriplets(n, n, Arrays.copyOf(rows, k), Arrays.copyOf(cols, k),
+                Arrays.copyOf(vals, k));
+        Matrix B = new Matrix(n, 2);
+        B.set(masses, 0, 1.0);
+        B.set(n - 1, 1, 0.5);
+        Matrix C = new Matrix(2, n);
+        C.set(0, masses - 1, 1.0);
+        C.set(1, 0, 1.0);
+        Matrix D = new Matrix(new double[][]{{0.0, 0.1}, {0.0, 0.0}});
+
+        double[] time = DoubleArrays.linSpace(0.5, 20.0, 80);
+        double[][] U = new double[2][time.length];
+        for (int i = 0; i < time.length; ++i) {
+            U[0][i] = Math.sin(time[i]);
+            U[1][i] = time[i] < 5.0 ? 1.0 : 0.0;
+        }
+        double[] x0 = new double[n];
+        x0[3] = 1.0;
+
+        StateSpace ss = new StateSpace(A.toMatrix(), B, C, D);
+        for (IntegrationMethod integrationMethod : IntegrationMethod.values()) {
+            TimeResponse expected = ss.simulateTimeResponse(U, time, x0, integrationMethod);
+            TimeResponse taylor = StateSpace.simulateTimeResponse(A, B, C, D, U, time, x0, integrationMethod,
+                    ExponentialMethod.TAYLOR);
+            TimeResponse krylov = ss.simulateTimeResponse(U, time, x0, integrationMethod, ExponentialMethod.KRYLOV);
+            for (int i = 0; i < 2; ++i) {
+                assertArrayEquals(expected.getResponse()[i], taylor.getResponse()[i], 1e-10);
+                assertArrayEquals(expected.getResponse()[i], krylov.getResponse()[i], 1e-10);
+            }
+        }
+    }
+
     @Test
     public void testEvaluateAt() {
         double[][] A = {{-2, -1}, {1, 0}};
@@ -635,6 +700,53 @@ public class StateSpaceTest {
         }
     }
 
+    @Test
+    public void testGramians() {
+        double[][] A = {{-1, 0}, {0, -2}};
+        double[][] B = {{1}, {1}};
+        double[][] C = {{1, 1}};
+        double[][] D = {{0}};
+        StateSpace ss = new StateSpace(A, B, C, D);
+
+        // W(i, j) = -B(i) * B(j) / (A(i, i) + A(j, j))
+        double[] gramian = {1.0 / 2.0, 1.0 / 3.0, 1.0 / 3.0, 1.0 / 4.0};
+        assertArrayEquals(gramian, ss.getControllabilityGramian().getArray(), 1e-15);
+        assertArrayEquals(gramian, ss.getObservabilityGramian().getArray(), 1e-15);
+        Matrix Rc = ss.getControllabilityGramianFactor();
+        assertEquals(0.0, Rc.get(1, 0), 0.0);
+        assertArrayEquals(gramian, Rc.transpose().multiply(Rc).getArray(), 1e-15);
+
+        // Wc = Wo, so the Hankel singular values are its eigenvalues.
+        double root = Math.sqrt(9.0 / 16.0 - 1.0 / 18.0);
+        double[] hsv = {(0.75 + root) / 2.0, (0.75 - root) / 2.0};
+        assertArrayEquals(hsv, ss.getHankelSingularValues(), 1e-15);
+
+        // A 200 state lightly damped chain of oscillators.
+        final int n = 200;
+        Matrix Ab = new Matrix(n, n);
+        for (int i = 0; i < n; i += 2) {
+            double w = 1.0 + i;
+            Ab.set(i, i + 1, w);
+            Ab.set(i + 1, i, -w);
+            Ab.set(i, i, -0.01 * w);
+            Ab.set(i + 1, i + 1, -0.01 * w);
+            if (i + 2 < n) {
+                Ab.set(i + 2, i, 0.5);
+            }
+        }
+        Matrix Bb = new Matrix(n, 2);
+        Bb.set(0, 0, 1.0);
+        Bb.set(n / 2, 1, 1.0);
+        Matrix Cb = new Matrix(1, n, 1.0);
+        ss = new StateSpace(Ab, Bb, Cb, new Matrix(1, 2));
+        Matrix Wc = ss.getControllabilityGramian();
+        Matrix Wo = ss.getObservabilityGramian();
+        assertEquals(0.0, Ab.multiply(Wc).add(Wc.multiply(Ab.transpose())).add(Bb.multiply(Bb.transpose()))
+                .normFrob(), 1e-10 * Ab.normFrob() * Wc.normFrob());
+        assertEquals(0.0, Ab.transpose().multiply(Wo).add(Wo.multiply(Ab)).add(Cb.transpose().multiply(Cb))
+                .normFrob(), 1e-10 * Ab.normFrob() * Wo.normFrob());
+    }
+
     @Test
     public void testToTransferFunctionMatricesWithNoColumns() {
 //        double[][] A = new double[1][0];
@@ -5,8 +5,10 @@ import com.wildbitsfoundry.etk4j.util.ComplexArrays;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Random;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 public class ComplexMatrixTest {
 
@@ -25,4 +27,51 @@ public class ComplexMatrixTest {
         assertArrayEquals(expected, inv.getArray());
 
     }
+
+    @Test
+    public void testSolve() {
+        Random random = new Random(7);
+        final int n = 40;
+        final int nx = 3;
+        ComplexMatrix A = randomComplexMatrix(random, n, n);
+        ComplexMatrix B = randomComplexMatrix(random, n, nx);
+
+        ComplexMatrix X = A.solve(B);
+        ComplexMatrix AX = A.multiply(X);
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < nx; ++j) {
+                assertEquals(B.get(i, j).real(), AX.get(i, j).real(), 1e-10);
+                assertEquals(B.get(i, j).imag(), AX.get(i, j).imag(), 1e-10);
+            }
+        }
+
+        // A * B computed one complex scalar at a time.
+        ComplexMatrix AB = A.multiply(B);
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < nx; ++j) {
+                Complex s = new Complex();
+                for (int k = 0; k < n; ++k) {
+                    s.addEquals(A.get(i, k).multiply(B.get(k, j)));
+                }
+                Complex c = AB.get(i, j);
+                assertEquals(s.real(), c.real(), 1e-12);
+                assertEquals(s.imag(), c.imag(), 1e-12);
+            }
+        }
+
+        Complex det = new ComplexLUDecomposition(A).det();
+        Complex transposed = new ComplexLUDecomposition(A.transpose()).det();
+        assertEquals(det.real(), transposed.real(), 1e-9 * det.abs());
+        assertEquals(det.imag(), transposed.imag(), 1e-9 * det.abs());
+    }
+
+    private static ComplexMatrix randomComplexMatrix(Random random, int rows, int cols) {
+        double[] real = new double[rows * cols];
+        double[] imag = new double[rows * cols];
+        for (int i = 0; i < real.length; ++i) {
+            real[i] = random.nextDouble() - 0.5;
+            imag[i] = random.nextDouble() - 0.5;
+        }
+        return new ComplexMatrix(real, imag, rows, cols);
+    }
 }
@@ -0,0 +1,82 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.sparse.CSRMatrix;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class ExpmvTest {
+
+    @Test
+    public void testDense() {
+        Random rand = new Random(5);
+        final int n = 40;
+        for (double scale : new double[]{1e-3, 1.0, 30.0}) {
+            Matrix A = randomMatrix(rand, n, n).multiply(scale / Math.sqrt(n));
+            double[] v = randomMatrix(rand, n, 1).getArray();
+            for (double t : new double[]{0.7, -0.7}) {
+                double[] expected = new double[n];
+                A.multiply(t).expm().multiply(v, expected);
+                final double tol = 1e-12 * norm(expected);
+                assertArrayEquals(expected, Expmv.taylor(A, t, v), tol);
+                assertArrayEquals(expected, Expmv.krylov(A, t, v), tol);
+            }
+        }
+    }
+
+    @Test
+    public void testSparse() {
+        // Second difference operator, the semi discretized heat equation.
+        final int n = 300;
+        int[] rows = new int[3 * n - 2];
+        int[] cols = new int[rows.length];
+        double[] vals = new double[rows.length];
+        int k = 0;
+        for (int i = 0; i < n; ++i) {
+            rows[k] = i;
+            cols[k] = i;
+            vals[k++] = -2.0;
+            if (i + 1 < n) {
+                rows[k] = i;
+                cols[k] = i + 1;
+                vals[k++] = 1.0;
+                rows[k] = i + 1;
+                cols[k] = i;
+                vals[k++] = 1.0;
+            }
+        }
+        CSRMatrix A = CSRMatrix.fromTriplets(n, n, rows, cols, vals);
+        double[] v = new double[n];
+        for (int i = 0; i < n; ++i) {
+            v[i] = Math.sin(Math.PI * (i + 1) / (n + 1)) + (i % 7 == 0 ? 1.0 : 0.0);
+        }
+        final double t = 25.0;
+        double[] expected = new double[n];
+        A.toMatrix().multiply(t).expm().multiply(v, expected);
+        final double tol = 1e-12 * norm(expected);
+        assertArrayEquals(expected, Expmv.taylor(A, t, v), tol);
+        assertArrayEquals(expected, Expmv.krylov(A, t, v), tol);
+
+        // Matrix free operator with its norm.
+        LinearOperator op = LinearOperator.of(n, n, A::multiply);
+        assertArrayEquals(expected, Expmv.taylor(op, 4.0, t, v), tol);
+    }
+
+    private static double norm(double[] x) {
+        double sum = 0.0;
+        for (double xi : x) {
+            sum += xi * xi;
+        }
+        return Math.sqrt(sum);
+    }
+
+    private static Matrix randomMatrix(Random rand, int rows, int cols) {
+        double[] data = new double[rows * cols];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = rand.nextDouble() - 0.5;
+        }
+        return new Matrix(data, rows, cols);
+    }
+}
@@ -0,0 +1,174 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.MappedMatrix.Order;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedMatrixTest {
+
+    // 16 elements per chunk, so rows, columns and tiles cross chunk boundaries.
+    private static final int SHIFT = 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCreateAndOpen() throws IOException {
+        for (Order order : Order.values()) {
+            Path file = folder.newFile().toPath();
+            Matrix A = random(7, 5, 1);
+            try (MappedMatrix M = MappedMatrix.create(file, 7, 5, order, SHIFT)) {
+                assertTrue(M.isMapped());
+                M.setMatrix(0, 0, A);
+                M.set(6, 4, 42.0);
+                A.set(6, 4, 42.0);
+            }
+            assertEquals(MappedMatrix.HEADER_SIZE + 35 * Double.BYTES, Files.size(file));
+            try (MappedMatrix M = MappedMatrix.open(file, false)) {
+                assertEquals(7, M.getRowCount());
+                assertEquals(5, M.getColumnCount());
+                assertEquals(order, M.getOrder());
+                assertArrayEquals(A.getArray(), M.toMatrix().getArray(), 0.0);
+                assertEquals(A.get(3, 2), M.get(3, 2), 0.0);
+                assertArrayEquals(A.subMatrix(2, 5, 1, 3).getArray(), M.getMatrix(2, 1, 4, 3).getArray(), 0.0);
+                try {
+                    M.set(0, 0, 1.0);
+                    fail();
+                } catch (ReadOnlyBufferException e) {
+                    // expected
+                }
+            }
+            try (MappedMatrix M = MappedMatrix.open(file, true, SHIFT)) {
+                M.set(0, 0, -1.0);
+            }
+            try (MappedMatrix M = MappedMatrix.open(file, false, SHIFT)) {
+                assertEquals(-1.0, M.get(0, 0), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidFile() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, new byte[100]);
+        try {
+            MappedMatrix.open(file, false);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The file is not a matrix file.", e.getMessage());
+        }
+        try (MappedMatrix M = MappedMatrix.create(file, 3, 3, Order.ROW_MAJOR)) {
+            M.set(2, 2, 1.0);
+        }
+        byte[] truncated = new byte[MappedMatrix.HEADER_SIZE + 8];
+        System.arraycopy(Files.readAllBytes(file), 0, truncated, 0, truncated.length);
+        Files.write(file, truncated);
+        try {
+            MappedMatrix.open(file, false);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The matrix file is truncated.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testMultiply() throws IOException {
+        Matrix A = random(11, 9, 2);
+        Matrix B = random(9, 7, 3);
+        Matrix expected = A.multiply(B);
+        for (Order a : Order.values()) {
+            for (Order b : Order.values()) {
+                MappedMatrix Ma = MappedMatrix.allocateDirect(11, 9, a, SHIFT);
+                MappedMatrix Mb = MappedMatrix.allocateDirect(9, 7, b, SHIFT);
+                Ma.setMatrix(0, 0, A);
+                Mb.setMatrix(0, 0, B);
+                try (MappedMatrix Mc = MappedMatrix.create(folder.newFile().toPath(), 11, 7, a, SHIFT)) {
+                    Ma.multiply(Mb, Mc, 4);
+                    assertArrayEquals(expected.getArray(), Mc.toMatrix().getArray(), 1e-13);
+                    Ma.multiply(Mb, Mc);
+                    assertArrayEquals(expected.getArray(), Mc.toMatrix().getArray(), 1e-13);
+                }
+                try {
+                    Ma.multiply(Mb, Ma);
+                    fail();
+                } catch (IllegalArgumentException e) {
+                    // expected
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testElementwise() {
+        Matrix A = random(13, 6, 4);
+        Matrix B = random(13, 6, 5);
+        for (Order a : Order.values()) {
+            for (Order b : Order.values()) {
+                MappedMatrix Ma = MappedMatrix.allocateDirect(13, 6, a, SHIFT);
+                MappedMatrix Mb = MappedMatrix.allocateDirect(13, 6, b, SHIFT);
+                MappedMatrix Mc = MappedMatrix.allocateDirect(13, 6, b, SHIFT);
+                assertFalse(Ma.isMapped());
+                Ma.setMatrix(0, 0, A);
+                Mb.setMatrix(0, 0, B);
+                Ma.add(Mb, Mc);
+                assertArrayEquals(A.add(B).getArray(), Mc.toMatrix().getArray(), 0.0);
+                Ma.subtract(Mb, Mc);
+                assertArrayEquals(A.subtract(B).getArray(), Mc.toMatrix().getArray(), 0.0);
+                Ma.arrayMultiply(Mb, Mc);
+                assertArrayEquals(A.arrayMultiply(B).getArray(), Mc.toMatrix().getArray(), 0.0);
+                // In place
+                Ma.multiply(2.0, Ma);
+                assertArrayEquals(A.multiply(2.0).getArray(), Ma.toMatrix().getArray(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testQR() {
+        final int m = 500, n = 6;
+        Matrix A = random(m, n, 6);
+        Matrix B = random(m, 2, 7);
+        for (Order order : Order.values()) {
+            MappedMatrix Ma = MappedMatrix.allocateDirect(m, n, order, SHIFT);
+            MappedMatrix Mb = MappedMatrix.allocateDirect(m, 2, order, SHIFT);
+            Ma.setMatrix(0, 0, A);
+            Mb.setMatrix(0, 0, B);
+            // 8 rows per panel.
+            MappedQRDecomposition qr = new MappedQRDecomposition(Ma, 64);
+            assertTrue(qr.isFullRank());
+            Matrix R = qr.getR();
+            for (int i = 0; i < n; ++i) {
+                for (int j = 0; j < i; ++j) {
+                    assertEquals(0.0, R.get(i, j), 0.0);
+                }
+            }
+            assertArrayEquals(A.transpose().multiply(A).getArray(), R.transpose().multiply(R).getArray(), 1e-11);
+            assertArrayEquals(A.QR().solve(B).getArray(), qr.solve(Mb).getArray(), 1e-13);
+            assertArrayEquals(A.QR().solve(B).getArray(), Ma.QR().solve(Mb).getArray(), 1e-13);
+        }
+    }
+
+    private static Matrix random(int m, int n, long seed) {
+        Random random = new Random(seed);
+        Matrix A = new Matrix(m, n);
+        for (int i = 0; i < m; ++i) {
+            for (int j = 0; j < n; ++j) {
+                A.set(i, j, random.nextGaussian());
+            }
+        }
+        return A;
+    }
+}
@@ -0,0 +1,149 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MatrixBatchTest {
+
+    // Not a multiple of the block size so the last block is partial.
+    private static final int COUNT = 300;
+
+    @Test
+    public void testMultiply() {
+        for (int n = 1; n <= 8; ++n) {
+            Matrix[] a = random(COUNT, n, n, 1.0, n);
+            Matrix[] b = random(COUNT, n, n + 1, 1.0, n + 100);
+            MatrixBatch C = MatrixBatch.of(a).multiply(MatrixBatch.of(b));
+            assertEquals(n + 1, C.getColumnCount());
+            for (int s = 0; s < COUNT; ++s) {
+                // Same accumulation order as Matrix.multiply
+                assertEquals(a[s].multiply(b[s]), C.getMatrix(s));
+            }
+        }
+        Matrix[] a = random(COUNT, 3, 3, 1.0, 7);
+        MatrixBatch C = MatrixBatch.of(a).multiply(MatrixBatch.of(a));
+        for (int s = 0; s < COUNT; ++s) {
+            assertEquals(a[s].multiply(a[s]), C.getMatrix(s));
+        }
+    }
+
+    @Test
+    public void testSolveInverseAndDeterminant() {
+        for (int n = 1; n <= 8; ++n) {
+            Matrix[] a = random(COUNT, n, n, 1.0, n);
+            Matrix[] b = random(COUNT, n, 2, 1.0, n + 100);
+            MatrixBatch A = MatrixBatch.of(a);
+            MatrixBatch X = A.solve(MatrixBatch.of(b));
+            MatrixBatch inv = A.inv();
+            double[] det = A.det();
+            for (int s = 0; s < COUNT; ++s) {
+                double scale = a[s].cond();
+                assertArrayEquals(a[s].solve(b[s]).getArray(), X.getMatrix(s).getArray(),
+                        1e-13 * scale * a[s].solve(b[s]).normInf());
+                assertArrayEquals(a[s].inv().getArray(), inv.getMatrix(s).getArray(),
+                        1e-13 * scale * a[s].inv().normInf());
+                assertEquals(a[s].det(), det[s], 1e-13 * scale * Math.abs(a[s].det()));
+            }
+        }
+    }
+
+    @Test
+    public void testSingularMember() {
+        Matrix[] a = random(COUNT, 4, 4, 1.0, 3);
+        a[17] = new Matrix(new double[][]{{1, 2, 3, 4}, {2, 4, 6, 8}, {0, 1, 0, 1}, {1, 0, 1, 0}});
+        BatchLUDecomposition lu = MatrixBatch.of(a).LU();
+        boolean[] nonSingular = lu.isNonSingular();
+        assertFalse(nonSingular[17]);
+        assertTrue(nonSingular[16]);
+        assertEquals(0.0, lu.det()[17], 0.0);
+        try {
+            lu.solve(MatrixBatch.identity(COUNT, 4));
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("Matrix 17 of the batch is singular.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testExpm() {
+        for (int n = 1; n <= 8; ++n) {
+            // Norms spread from 1e-3 to about 50 so every Padé degree and several squarings are used.
+            Matrix[] a = random(COUNT, n, n, 0.0, n);
+            for (int s = 0; s < COUNT; ++s) {
+                a[s] = a[s].multiply(Math.pow(10.0, -3.0 + 4.7 * s / COUNT) / a[s].norm1());
+            }
+            MatrixBatch E = MatrixBatch.of(a).expm();
+            for (int s = 0; s < COUNT; ++s) {
+                Matrix expected = a[s].expm();
+                assertArrayEquals(expected.getArray(), E.getMatrix(s).getArray(), 1e-12 * expected.norm1());
+            }
+        }
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        long threshold = MatrixBatch.getParallelThreshold();
+        // A dedicated pool so the batch is split among several workers also on single core machines.
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Matrix[] a = random(5000, 3, 3, 1.0, 11);
+            MatrixBatch A = MatrixBatch.of(a);
+            MatrixBatch.setParallelThreshold(Long.MAX_VALUE);
+            MatrixBatch serial = A.expm();
+            MatrixBatch.setParallelThreshold(0);
+            MatrixBatch parallel = pool.submit(A::expm).get();
+            assertArrayEquals(serial.getArray(), parallel.getArray(), 0.0);
+
+            // Every block waits until a second worker of the pool has picked up a block, which a serial run never
+            // does.
+            Set<Thread> workers = ConcurrentHashMap.newKeySet();
+            CountDownLatch started = new CountDownLatch(2);
+            pool.submit(() -> MatrixBatch.run(5000, 1, (from, len) -> {
+                if (workers.add(Thread.currentThread())) {
+                    started.countDown();
+                }
+                try {
+                    started.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            })).get();
+            assertTrue(workers.size() > 1);
+            for (Thread worker : workers) {
+                assertSame(pool, ((ForkJoinWorkerThread) worker).getPool());
+            }
+        } finally {
+            MatrixBatch.setParallelThreshold(threshold);
+            pool.shutdown();
+        }
+    }
+
+    private static Matrix[] random(int count, int rows, int cols, double diagonal, long seed) {
+        Random rand = new Random(seed);
+        Matrix[] result = new Matrix[count];
+        for (int s = 0; s < count; ++s) {
+            Matrix m = new Matrix(rows, cols);
+            for (int i = 0; i < rows; ++i) {
+                for (int j = 0; j < cols; ++j) {
+                    m.set(i, j, rand.nextGaussian() + (i == j ? diagonal * rows : 0.0));
+                }
+            }
+            result[s] = m;
+        }
+        return result;
+    }
+}
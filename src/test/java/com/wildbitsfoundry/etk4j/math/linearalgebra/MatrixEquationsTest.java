@@ -0,0 +1,200 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MatrixEquationsTest {
+
+    @Test
+    public void testRealSchurDecomposition() {
+        Matrix A = random(12, 12, 1);
+        RealSchurDecomposition schur = A.schur();
+        Matrix T = schur.getT();
+        Matrix U = schur.getU();
+        assertEquals(0.0, U.multiply(T).multiply(U.transpose()).subtract(A).normFrob(), 1e-12);
+        assertEquals(0.0, U.transpose().multiply(U).subtract(Matrix.identity(12)).normFrob(), 1e-13);
+        int pairs = 0;
+        for (int i = 0; i < 12; ++i) {
+            for (int j = 0; j < i - 1; ++j) {
+                assertEquals(0.0, T.get(i, j), 0.0);
+            }
+        }
+        for (int i = 0; i < 11; ++i) {
+            if (T.get(i + 1, i) != 0.0) {
+                // No two consecutive blocks overlap and every block holds a complex pair.
+                assertTrue(i == 10 || T.get(i + 2, i + 1) == 0.0);
+                assertTrue(schur.getImagEigenvalues()[i] > 0.0);
+                ++pairs;
+            }
+        }
+        assertTrue(pairs > 0);
+    }
+
+    @Test
+    public void testSylvester() {
+        for (int[] dims : new int[][]{{1, 1}, {2, 3}, {5, 4}, {9, 9}, {20, 13}}) {
+            final int m = dims[0], n = dims[1];
+            Matrix A = random(m, m, m).add(Matrix.identity(m).multiply(3.0));
+            Matrix B = random(n, n, n + 50).add(Matrix.identity(n).multiply(3.0));
+            Matrix C = random(m, n, m + n);
+            Matrix X = MatrixEquations.lyap(A, B, C);
+            assertEquals(0.0, A.multiply(X).add(X.multiply(B)).add(C).normFrob(), 1e-12 * scale(A, B, X));
+            assertMatrixEquals(kronecker(A, B, C, false), X);
+
+            Matrix Ad = A.multiply(0.1);
+            Matrix Bd = B.multiply(0.1);
+            X = MatrixEquations.dlyap(Ad, Bd, C);
+            assertEquals(0.0, Ad.multiply(X).multiply(Bd).subtract(X).add(C).normFrob(),
+                    1e-12 * scale(Ad, Bd, X));
+            assertMatrixEquals(kronecker(Ad, Bd, C, true), X);
+        }
+    }
+
+    @Test
+    public void testLyapunov() {
+        for (int n : new int[]{1, 2, 7, 30}) {
+            Matrix A = stable(n, n);
+            Matrix Q = random(n, n, 2 * n);
+            Q = Q.multiply(Q.transpose());
+            Matrix X = MatrixEquations.lyap(A, Q);
+            assertEquals(0.0, A.multiply(X).add(X.multiply(A.transpose())).add(Q).normFrob(),
+                    1e-12 * scale(A, A, X));
+            assertMatrixEquals(X, X.transpose());
+
+            Matrix Ad = A.multiply(0.5 / A.norm1());
+            X = MatrixEquations.dlyap(Ad, Q);
+            assertEquals(0.0, Ad.multiply(X).multiply(Ad.transpose()).subtract(X).add(Q).normFrob(),
+                    1e-12 * scale(Ad, Ad, X));
+            assertMatrixEquals(X, X.transpose());
+        }
+        // Symmetric A takes the diagonal Schur form.
+        Matrix A = new Matrix(new double[][]{{-2, 1, 0}, {1, -3, 1}, {0, 1, -4}});
+        Matrix Q = Matrix.identity(3);
+        Matrix X = MatrixEquations.lyap(A, Q);
+        assertEquals(0.0, A.multiply(X).add(X.multiply(A)).add(Q).normFrob(), 1e-13);
+    }
+
+    @Test
+    public void testLyapunovCholesky() {
+        for (int[] dims : new int[][]{{1, 1}, {4, 1}, {10, 3}, {25, 2}, {5, 9}}) {
+            final int n = dims[0], m = dims[1];
+            Matrix A = stable(n, n + m);
+            Matrix B = random(n, m, n + 7 * m);
+            Matrix BBt = B.multiply(B.transpose());
+
+            Matrix R = MatrixEquations.lyapChol(A, B);
+            assertUpperWithNonNegativeDiagonal(R);
+            Matrix X = MatrixEquations.lyap(A, BBt);
+            assertEquals(0.0, R.transpose().multiply(R).subtract(X).normFrob(), 1e-11 * X.normFrob());
+
+            Matrix Ad = A.multiply(0.5 / A.norm1());
+            R = MatrixEquations.dlyapChol(Ad, B);
+            assertUpperWithNonNegativeDiagonal(R);
+            X = MatrixEquations.dlyap(Ad, BBt);
+            assertEquals(0.0, R.transpose().multiply(R).subtract(X).normFrob(), 1e-11 * X.normFrob());
+        }
+    }
+
+    @Test
+    public void testErrors() {
+        Matrix A = new Matrix(new double[][]{{1, 0}, {0, -1}});
+        try {
+            MatrixEquations.lyap(A, Matrix.identity(2));
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("The equation does not have a unique solution.", e.getMessage());
+        }
+        try {
+            MatrixEquations.lyapChol(A, Matrix.identity(2));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Matrix A must be stable.", e.getMessage());
+        }
+        try {
+            MatrixEquations.dlyapChol(A, Matrix.identity(2));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Matrix A must be stable.", e.getMessage());
+        }
+        try {
+            MatrixEquations.lyap(A, Matrix.identity(3));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Matrix dimensions must agree.", e.getMessage());
+        }
+    }
+
+    private static void assertUpperWithNonNegativeDiagonal(Matrix R) {
+        for (int i = 0; i < R.getRowCount(); ++i) {
+            assertTrue(R.get(i, i) >= 0.0);
+            for (int j = 0; j < i; ++j) {
+                assertEquals(0.0, R.get(i, j), 0.0);
+            }
+        }
+    }
+
+    /**
+     * Solves A*X + X*B + C = 0, or A*X*B - X + C = 0, as a Kronecker product system.
+     */
+    private static Matrix kronecker(Matrix A, Matrix B, Matrix C, boolean discrete) {
+        final int m = A.getRowCount(), n = B.getRowCount();
+        Matrix K = new Matrix(m * n, m * n);
+        Matrix c = new Matrix(m * n, 1);
+        for (int i = 0; i < m; ++i) {
+            for (int j = 0; j < n; ++j) {
+                c.set(i * n + j, 0, -C.get(i, j));
+                for (int k = 0; k < m; ++k) {
+                    for (int l = 0; l < n; ++l) {
+                        double v;
+                        if (discrete) {
+                            v = A.get(i, k) * B.get(l, j) - (i == k && j == l ? 1.0 : 0.0);
+                        } else {
+                            v = (j == l ? A.get(i, k) : 0.0) + (i == k ? B.get(l, j) : 0.0);
+                        }
+                        K.set(i * n + j, k * n + l, v);
+                    }
+                }
+            }
+        }
+        double[] x = K.solve(c).getArray();
+        Matrix X = new Matrix(m, n);
+        for (int i = 0; i < m; ++i) {
+            for (int j = 0; j < n; ++j) {
+                X.set(i, j, x[i * n + j]);
+            }
+        }
+        return X;
+    }
+
+    private static void assertMatrixEquals(Matrix expected, Matrix actual) {
+        assertEquals(0.0, expected.subtract(actual).normFrob(), 1e-10 * Math.max(1.0, expected.normFrob()));
+    }
+
+    private static double scale(Matrix A, Matrix B, Matrix X) {
+        return Math.max(1.0, (A.normFrob() + B.normFrob() + 1.0) * X.normFrob());
+    }
+
+    /**
+     * A random matrix whose eigenvalues have negative real parts.
+     */
+    private static Matrix stable(int n, long seed) {
+        Matrix A = random(n, n, seed);
+        return A.subtract(Matrix.identity(n).multiply(A.norm1() + 1.0));
+    }
+
+    private static Matrix random(int m, int n, long seed) {
+        Random random = new Random(seed);
+        Matrix A = new Matrix(m, n);
+        for (int i = 0; i < m; ++i) {
+            for (int j = 0; j < n; ++j) {
+                A.set(i, j, random.nextGaussian());
+            }
+        }
+        return A;
+    }
+}
@@ -2,10 +2,21 @@ package com.wildbitsfoundry.etk4j.math.linearalgebra;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Test;
 
 import com.wildbitsfoundry.etk4j.constants.ConstantsETK;
+import com.wildbitsfoundry.etk4j.math.complex.Complex;
+import com.wildbitsfoundry.etk4j.util.ComplexArrays;
 
 public class MatrixTest {
 
@@ -52,7 +63,144 @@ public class MatrixTest {
 
         double[] solution = {-1.3333333333333317, -0.3333333333333325, 0.6666666666666661, 1.0833333333333321,
                 0.33333333333333265, -0.4166666666666662};
-        assertEquals(new Matrix(solution, 2, 3), matrix.pinv());
+        assertArrayEquals(solution, matrix.pinv().getArray(), 1e-14);
+        assertArrayEquals(matrix.transpose().pinv().transpose().getArray(), matrix.pinv().getArray(), 1e-14);
+
+        // Rank deficient, the Penrose conditions still hold.
+        Random rand = new Random(13);
+        Matrix A = randomMatrix(rand, 9, 3).multiply(randomMatrix(rand, 3, 7));
+        Matrix X = A.pinv();
+        assertEquals(0.0, A.multiply(X).multiply(A).subtract(A).norm1(), 1e-12);
+        assertEquals(0.0, X.multiply(A).multiply(X).subtract(X).norm1(), 1e-12 * X.norm1());
+        Matrix AX = A.multiply(X);
+        Matrix XA = X.multiply(A);
+        assertEquals(0.0, AX.subtract(AX.transpose()).norm1(), 1e-12);
+        assertEquals(0.0, XA.subtract(XA.transpose()).norm1(), 1e-12);
+        assertEquals(null, new Matrix(3, 2).pinv());
+    }
+
+    @Test
+    public void testColumnPivotedQR() {
+        Random rand = new Random(17);
+        Matrix A = randomMatrix(rand, 12, 5).multiply(randomMatrix(rand, 5, 8));
+        ColumnPivotedQRDecomposition qrcp = A.QRCP();
+        assertEquals(5, qrcp.rank());
+        assertEquals(5, A.rank());
+        assertEquals(5, A.transpose().rank());
+        Matrix R = qrcp.getR();
+        for (int i = 1; i < R.getRowCount(); ++i) {
+            assertTrue(Math.abs(R.get(i, i)) <= Math.abs(R.get(i - 1, i - 1)));
+        }
+        assertEquals(0.0, A.multiply(qrcp.getP()).subtract(qrcp.getQThin().multiply(R)).norm1(), 1e-13);
+        Matrix Ap = A.subMatrix(0, 11, qrcp.getPivot());
+        assertEquals(0.0, Ap.subtract(qrcp.getQThin().multiply(R)).norm1(), 1e-13);
+
+        // Full rank least squares agrees with the unpivoted QR.
+        Matrix B = randomMatrix(rand, 12, 6);
+        Matrix b = randomMatrix(rand, 12, 2);
+        assertArrayEquals(B.QR().solve(b).getArray(), B.QRCP().solve(b).getArray(), 1e-12);
+        assertEquals(0, new Matrix(4, 4).rank());
+    }
+
+    @Test
+    public void testRcond() {
+        Random rand = new Random(19);
+        for (int n : new int[]{1, 2, 5, 40, 150}) {
+            Matrix A = randomMatrix(rand, n, n);
+            double exact = 1.0 / (A.norm1() * A.inv().norm1());
+            double estimate = A.rcond();
+            // ||A^-1|| is never overestimated.
+            assertTrue(estimate >= exact * (1 - 1e-12));
+            assertTrue(estimate <= 3 * exact);
+            LUWorkspace lu = new LUWorkspace(n);
+            lu.factor(A);
+            assertEquals(estimate, lu.rcond(), 0.0);
+        }
+        // Hilbert matrix of order 6, cond1 = 2.907027900294e7
+        Matrix H = new Matrix(6, 6);
+        for (int i = 0; i < 6; ++i) {
+            for (int j = 0; j < 6; ++j) {
+                H.set(i, j, 1.0 / (i + j + 1));
+            }
+        }
+        assertEquals(1.0 / 2.907027900294e7, H.LU().rcond(), 1e-6 / 2.907027900294e7);
+        assertEquals(0.0, Matrix.magic(4).rcond(), 1e-16);
+        assertEquals(0.0, new Matrix(3, 3).rcond(), 0.0);
+    }
+
+    @Test
+    public void testFactorization() {
+        Random rand = new Random(23);
+        final int n = 150;
+        final int nx = 40;
+        Matrix A = randomMatrix(rand, n, n);
+        Matrix spd = A.transpose().multiply(A);
+        Matrix B = randomMatrix(rand, n, nx);
+
+        assertEquals(Factorization.Type.LU, A.factorize().getType());
+        assertEquals(Factorization.Type.CHOLESKY, spd.factorize().getType());
+        assertEquals(Factorization.Type.QR, randomMatrix(rand, n + 10, n).factorize().getType());
+        assertEquals(Factorization.Type.TRANSPOSE_QR, randomMatrix(rand, n, n + 10).factorize().getType());
+
+        for (Matrix M : new Matrix[]{A, spd}) {
+            // The blocked solve of all the columns agrees with the column by column solves.
+            Factorization f = M.factorize();
+            Matrix X = f.solve(B);
+            for (int j = 0; j < nx; ++j) {
+                double[] b = B.subMatrix(0, n - 1, j, j).getArray();
+                double[] x = f.solve(b);
+                for (int i = 0; i < n; ++i) {
+                    assertEquals(x[i], X.get(i, j), 1e-9 * Math.abs(x[i]) + 1e-12);
+                }
+            }
+            assertEquals(0.0, M.multiply(X).subtract(B).normFrob(), 1e-9 * B.normFrob() * M.cond());
+        }
+
+        // Least squares through the blocked R solve.
+        Matrix tall = randomMatrix(rand, 300, n);
+        Matrix rhs = randomMatrix(rand, 300, nx);
+        Matrix ls = tall.solve(rhs);
+        Matrix normal = tall.transpose().multiply(tall).solve(tall.transpose().multiply(rhs));
+        assertArrayEquals(normal.getArray(), ls.getArray(), 1e-8);
+    }
+
+    @Test
+    public void testFactorizationCaching() {
+        Random rand = new Random(29);
+        Matrix A = randomMatrix(rand, 20, 20);
+        Matrix b = randomMatrix(rand, 20, 1);
+        assertNotSame(A.factorize(), A.factorize());
+
+        A.setFactorizationCaching(true);
+        Factorization f = A.factorize();
+        assertSame(f, A.factorize());
+        Matrix x = A.solve(b);
+        assertSame(f, A.factorize());
+
+        int version = A.getVersion();
+        A.set(3, 4, A.get(3, 4) + 1.0);
+        assertNotEquals(version, A.getVersion());
+        assertNotSame(f, A.factorize());
+        assertEquals(0.0, A.multiply(A.solve(b)).subtract(b).normFrob(), 1e-12);
+        assertFalse(Arrays.equals(x.getArray(), A.solve(b).getArray()));
+
+        Factorization g = A.factorize();
+        A.multiplyEquals(2.0);
+        assertNotSame(g, A.factorize());
+
+        // Writes through a view, also of a transposed sub-view, invalidate the cached factorization.
+        Factorization h = A.factorize();
+        version = A.getVersion();
+        A.view().subView(2, 10, 3, 12).transpose().set(1, 0, 5.0);
+        assertEquals(5.0, A.get(2, 4), 0.0);
+        assertNotEquals(version, A.getVersion());
+        Factorization k = A.factorize();
+        assertNotSame(h, k);
+        assertEquals(0.0, A.multiply(A.solve(b)).subtract(b).normFrob(), 1e-12);
+        assertSame(k, A.factorize());
+
+        A.setFactorizationCaching(false);
+        assertNotSame(A.factorize(), A.factorize());
     }
 
     @Test
@@ -60,9 +208,32 @@ public class MatrixTest {
         double[][] data = {{1, 2, 3}, {4, 5, 6}, {7, 8, 9}};
         Matrix matrix = new Matrix(data);
 
-        double[] solution = {1118906.6994131864, 1374815.0629358063, 1630724.4264584277, 2533881.0418989714,
-                3113415.0313805523, 3692947.020862136, 3948856.3843847574, 4852012.9998253, 5755170.615265846};
-        assertEquals(new Matrix(solution, 3, 3), matrix.expm());
+        // Reference computed in 60 digit arithmetic.
+        double[] solution = {1118906.6994131859, 1374815.0629358066, 1630724.426458427, 2533881.0418989719,
+                3113415.0313805542, 3692947.020862137, 3948856.3843847574, 4852012.9998253016, 5755170.6152658463};
+        assertArrayEquals(solution, matrix.expm().getArray(), 1e-14 * matrix.expm().normInf());
+
+        // Ill conditioned example of Moler and Van Loan, eigenvalues -1 and -17 with eigenvectors (1, 2) and (3, 4).
+        matrix = new Matrix(new double[][]{{-49, 24}, {-64, 31}});
+        final double e1 = Math.exp(-1.0);
+        final double e17 = Math.exp(-17.0);
+        solution = new double[]{-2 * e1 + 3 * e17, 1.5 * e1 - 1.5 * e17, -4 * e1 + 4 * e17, 3 * e1 - 2 * e17};
+        assertArrayEquals(solution, matrix.expm().getArray(), 1e-13);
+
+        // Nilpotent, the series terminates after the quadratic term.
+        matrix = new Matrix(new double[][]{{0, 1e3, 0}, {0, 0, 1e3}, {0, 0, 0}});
+        solution = new double[]{1, 1e3, 5e5, 0, 1, 1e3, 0, 0, 1};
+        assertArrayEquals(solution, matrix.expm().getArray(), 1e-9);
+
+        // Small norms take the low degree approximants.
+        matrix = new Matrix(new double[][]{{1e-3, 2e-3}, {-3e-3, 0}});
+        Matrix series = Matrix.identity(2);
+        Matrix term = Matrix.identity(2);
+        for (int k = 1; k < 10; ++k) {
+            term = term.multiply(matrix).multiply(1.0 / k);
+            series.addEquals(term);
+        }
+        assertArrayEquals(series.getArray(), matrix.expm().getArray(), 1e-15);
     }
 
     @Test
@@ -80,6 +251,163 @@ public class MatrixTest {
         assertArrayEquals(row, m.getCol(0), 1e-12);
     }
 
+    @Test
+    public void testBlockedMultiply() {
+        Random rand = new Random(42);
+        // Odd sizes that cross the MC, KC and register tile boundaries of the blocked kernel.
+        Matrix A = randomMatrix(rand, 131, 301);
+        Matrix B = randomMatrix(rand, 301, 71);
+        assertArrayEquals(tripleLoopMultiply(A, B), A.multiply(B).getArray(), 0.0);
+
+        Matrix C = A.copy();
+        C.multiplyEquals(B);
+        assertEquals(131, C.getRowCount());
+        assertEquals(71, C.getColumnCount());
+        assertArrayEquals(tripleLoopMultiply(A, B), C.getArray(), 0.0);
+
+        Matrix real = randomMatrix(rand, 301, 71);
+        Matrix imag = randomMatrix(rand, 301, 71);
+        Complex[] values = ComplexArrays.zip(real.getArray(), imag.getArray());
+        ComplexMatrix product = A.multiply(new ComplexMatrix(values, 301, 71));
+        Complex[] expected = ComplexArrays.zip(tripleLoopMultiply(A, real), tripleLoopMultiply(A, imag));
+        assertArrayEquals(expected, product.getArray());
+    }
+
+    @Test
+    public void testBlockedLU() {
+        Random rand = new Random(11);
+        final int n = 2 * LUDecomposition.BLOCK_SIZE + 37;
+        Matrix A = randomMatrix(rand, n, n);
+        LUDecomposition lu = A.LU();
+        Matrix PA = A.subMatrix(lu.getPivot(), 0, n - 1);
+        Matrix LU = lu.getL().multiply(lu.getU());
+        assertEquals(0.0, PA.subtract(LU).norm1(), 1e-12 * A.norm1());
+
+        Matrix x = randomMatrix(rand, n, 3);
+        Matrix b = A.multiply(x);
+        assertEquals(0.0, A.solve(b).subtract(x).norm1(), 1e-9);
+
+        double logAbsDet = 0.0;
+        for (double d : lu.getU().diag()) {
+            logAbsDet += Math.log(Math.abs(d));
+        }
+        assertEquals(logAbsDet, Math.log(Math.abs(A.det())), 1e-9);
+    }
+
+    @Test
+    public void testBlockedQR() {
+        Random rand = new Random(13);
+        Matrix A = randomMatrix(rand, 230, QRDecomposition.BLOCKED_THRESHOLD + 45);
+        QRDecomposition qr = A.QR();
+        Matrix QR = qr.getQThin().multiply(qr.getR());
+        assertEquals(0.0, A.subtract(QR).norm1(), 1e-12 * A.norm1());
+
+        Matrix x = randomMatrix(rand, A.getColumnCount(), 2);
+        Matrix b = A.multiply(x);
+        assertEquals(0.0, qr.solve(b).subtract(x).norm1(), 1e-9);
+    }
+
+    @Test
+    public void testTallSkinnyQR() {
+        Random rand = new Random(17);
+        Matrix A = randomMatrix(rand, 5000, 6);
+        Matrix b = randomMatrix(rand, 5000, 2);
+        TallSkinnyQRDecomposition tsqr = new TallSkinnyQRDecomposition(A, 300);
+        assertEquals(0.0, A.QR().solve(b).subtract(tsqr.solve(b)).norm1(), 1e-12);
+
+        // R is unique up to the signs of its rows so compare R' * R = A' * A.
+        Matrix R = tsqr.getR();
+        Matrix AtA = A.transpose().multiply(A);
+        assertEquals(0.0, R.transpose().multiply(R).subtract(AtA).norm1(), 1e-12 * AtA.norm1());
+    }
+
+    @Test
+    public void testViews() {
+        Random rand = new Random(31);
+        Matrix A = randomMatrix(rand, 40, 30);
+        Matrix B = randomMatrix(rand, 50, 40);
+
+        // Strided products must match the products of packed copies bit for bit.
+        MatrixView At = A.view().transpose();
+        assertArrayEquals(A.transpose().multiply(B.transpose()).getArray(),
+                At.multiply(B.view().transpose()).getArray(), 0.0);
+        MatrixView S = B.view().subView(3, 32, 5, 24).transpose();
+        Matrix expected = B.subMatrix(3, 32, 5, 24).transpose().multiply(A.subMatrix(0, 29, 1, 10));
+        assertArrayEquals(expected.getArray(), S.multiply(A.view().subView(0, 29, 1, 10)).getArray(), 0.0);
+
+        double[] x = B.getRow(7);
+        double[] y = new double[30];
+        At.subView(0, 29, 0, 39).multiply(Arrays.copyOf(x, 40), y);
+        double[] z = new double[30];
+        A.transpose().multiply(Arrays.copyOf(x, 40), z);
+        assertArrayEquals(z, y, 0.0);
+
+        assertArrayEquals(A.getCol(4), A.view().column(4).toMatrix().getArray(), 0.0);
+        assertArrayEquals(A.getRow(4), A.view().transpose().column(4).toMatrix().getArray(), 0.0);
+
+        Matrix C = randomMatrix(rand, 20, 20);
+        Matrix b = randomMatrix(rand, 20, 2);
+        assertArrayEquals(C.transpose().solve(b).getArray(), C.view().transpose().solve(b).getArray(), 0.0);
+        LUDecomposition lu = C.view().transpose().LU();
+        assertArrayEquals(C.transpose().LU().solve(b).getArray(), lu.solve(b).getArray(), 0.0);
+        assertEquals(C.transpose().LU().rcond(), lu.rcond(), 0.0);
+
+        // Views share storage with the matrix.
+        A.view().transpose().subView(2, 5, 3, 7).set(1, 2, 42.0);
+        assertEquals(42.0, A.get(5, 3), 0.0);
+    }
+
+    @Test
+    public void testGetColNonSquare() {
+        Matrix A = new Matrix(new double[][]{{1, 2, 3}, {4, 5, 6}});
+        assertArrayEquals(new double[]{2, 5}, A.getCol(1), 0.0);
+        assertArrayEquals(new double[]{4, 5, 6}, A.getRow(1), 0.0);
+    }
+
+    @Test
+    public void testEigSymmetric() {
+        Random rand = new Random(29);
+        final int n = 100;
+        Matrix B = randomMatrix(rand, n, n);
+        Matrix S = B.add(B.transpose());
+
+        // Symmetric only up to rounding, eig() would fall back to the nonsymmetric algorithm.
+        Matrix A = S.copy();
+        A.set(n - 1, 0, A.get(n - 1, 0) * (1 + 1e-15));
+        A.set(0, n - 1, A.get(0, n - 1) * (1 - 1e-15));
+        EigenvalueDecomposition eig = A.eigSymmetric();
+        Matrix V = eig.getV();
+        Matrix D = eig.getD();
+        double[] lambda = eig.getRealEigenvalues();
+        for (int i = 1; i < n; ++i) {
+            assertTrue(lambda[i - 1] <= lambda[i]);
+        }
+        assertEquals(0.0, V.transpose().multiply(V).subtract(Matrix.identity(n)).norm1(), 1e-12);
+        assertEquals(0.0, S.multiply(V).subtract(V.multiply(D)).norm1(), 1e-12 * S.norm1());
+        assertArrayEquals(S.eig().getRealEigenvalues(), lambda, 1e-12);
+    }
+
+    @Test
+    public void testParallelMultiply() throws Exception {
+        Random rand = new Random(7);
+        Matrix A = randomMatrix(rand, 203, 157);
+        Matrix B = randomMatrix(rand, 157, 189);
+        long threshold = Matrix.getParallelMultiplyThreshold();
+        // A dedicated pool so the product is split among several workers also on single core machines.
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Matrix.setParallelMultiplyThreshold(Long.MAX_VALUE);
+            Matrix serial = A.multiply(B);
+            Matrix.setParallelMultiplyThreshold(0);
+            Matrix parallel = pool.submit(() -> A.multiply(B)).get();
+            assertArrayEquals(serial.getArray(), parallel.getArray(), 0.0);
+            assertArrayEquals(tripleLoopMultiply(A, B), parallel.getArray(), 0.0);
+        } finally {
+            Matrix.setParallelMultiplyThreshold(threshold);
+            pool.shutdown();
+        }
+    }
+
     @Test
     public void allTests() {
         Matrix A, B, C, Z, O, I, R, S, X, SUB, M, T, SQ, DEF, SOL;
@@ -935,4 +1263,29 @@ public class MatrixTest {
         print(">    " + s + "*** failure ***\n>      Message: " + e + "\n");
         return ++count;
     }
+
+    private static Matrix randomMatrix(Random rand, int rows, int cols) {
+        double[] data = new double[rows * cols];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = rand.nextDouble() - 0.5;
+        }
+        return new Matrix(data, rows, cols);
+    }
+
+    private static double[] tripleLoopMultiply(Matrix A, Matrix B) {
+        final int m = A.getRowCount();
+        final int n = B.getColumnCount();
+        final int k = A.getColumnCount();
+        double[] c = new double[m * n];
+        for (int i = 0; i < m; ++i) {
+            for (int j = 0; j < n; ++j) {
+                double s = 0;
+                for (int p = 0; p < k; ++p) {
+                    s += A.get(i, p) * B.get(p, j);
+                }
+                c[i * n + j] = s;
+            }
+        }
+        return c;
+    }
 }
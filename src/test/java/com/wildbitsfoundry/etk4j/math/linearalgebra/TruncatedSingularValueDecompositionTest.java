@@ -0,0 +1,95 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TruncatedSingularValueDecompositionTest {
+
+    @Test
+    public void testRandomized() {
+        // Fast decay, a couple of power iterations are plenty.
+        double[] s = new double[60];
+        for (int i = 0; i < s.length; ++i) {
+            s[i] = Math.pow(0.7, i);
+        }
+        Matrix A = withSingularValues(new Random(1), 400, 150, s);
+        TruncatedSingularValueDecomposition svd = TruncatedSingularValueDecomposition.randomized(A, 10, 1e-12);
+        assertEquals(10, svd.rank());
+        assertArrayEquals(Arrays.copyOf(s, 10), svd.getSingularValues(), 1e-10);
+        checkOrthonormal(svd.getU());
+        checkOrthonormal(svd.getV());
+        // The error of the best rank k approximation is sigma[k].
+        assertEquals(s[10], A.subtract(svd.toMatrix()).norm2(), 1e-10);
+    }
+
+    @Test
+    public void testLanczos() {
+        // Slow decay.
+        double[] s = new double[150];
+        for (int i = 0; i < s.length; ++i) {
+            s[i] = 1.0 / (i + 1);
+        }
+        Matrix A = withSingularValues(new Random(2), 300, 150, s);
+        TruncatedSingularValueDecomposition svd = TruncatedSingularValueDecomposition.lanczos(A, 8, 1e-10);
+        assertEquals(8, svd.rank());
+        assertArrayEquals(Arrays.copyOf(s, 8), svd.getSingularValues(), 1e-10);
+        checkOrthonormal(svd.getU());
+        checkOrthonormal(svd.getV());
+        Matrix U = svd.getU();
+        Matrix V = svd.getV();
+        Matrix S = svd.getS();
+        assertEquals(0.0, A.multiply(V).subtract(U.multiply(S)).norm1(), 1e-9);
+        assertEquals(0.0, A.transpose().multiply(U).subtract(V.multiply(S)).norm1(), 1e-9);
+
+        // Wide matrices work too.
+        TruncatedSingularValueDecomposition wide = TruncatedSingularValueDecomposition.lanczos(A.transpose(), 8, 1e-10);
+        assertArrayEquals(svd.getSingularValues(), wide.getSingularValues(), 1e-10);
+    }
+
+    @Test
+    public void testLowRank() {
+        Random rand = new Random(3);
+        Matrix A = random(rand, 200, 4).multiply(random(rand, 4, 90));
+        double[] expected = Arrays.copyOf(A.SVD().getSingularValues(), 4);
+
+        TruncatedSingularValueDecomposition randomized = TruncatedSingularValueDecomposition.randomized(A, 10, 1e-10);
+        assertEquals(4, randomized.rank());
+        assertArrayEquals(expected, randomized.getSingularValues(), 1e-10);
+        assertEquals(0.0, A.subtract(randomized.toMatrix()).normFrob(), 1e-10);
+
+        TruncatedSingularValueDecomposition lanczos = TruncatedSingularValueDecomposition.lanczos(A, 10, 1e-10);
+        assertEquals(4, lanczos.rank());
+        assertArrayEquals(expected, lanczos.getSingularValues(), 1e-10);
+        assertEquals(0.0, A.subtract(lanczos.toMatrix()).normFrob(), 1e-10);
+    }
+
+    private static void checkOrthonormal(Matrix Q) {
+        Matrix I = Matrix.identity(Q.getColumnCount());
+        assertEquals(0.0, Q.transpose().multiply(Q).subtract(I).norm1(), 1e-12);
+    }
+
+    private static Matrix withSingularValues(Random rand, int m, int n, double[] s) {
+        Matrix U = random(rand, m, s.length).QR().getQThin();
+        Matrix V = random(rand, n, s.length).QR().getQThin();
+        Matrix S = new Matrix(s.length, s.length);
+        for (int i = 0; i < s.length; ++i) {
+            S.set(i, i, s[i]);
+        }
+        return U.multiply(S).multiply(V.transpose());
+    }
+
+    private static Matrix random(Random rand, int rows, int cols) {
+        Matrix A = new Matrix(rows, cols);
+        for (int i = 0; i < rows; ++i) {
+            for (int j = 0; j < cols; ++j) {
+                A.set(i, j, rand.nextGaussian());
+            }
+        }
+        return A;
+    }
+}
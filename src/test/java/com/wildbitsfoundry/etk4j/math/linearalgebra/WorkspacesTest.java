@@ -0,0 +1,106 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+public class WorkspacesTest {
+
+    private static final Matrix A = new Matrix(new double[][]{{4, 1, 2, 0.5}, {1, 5, 1, 0.25}, {2, 1, 6, 1},
+            {0.5, 0.25, 1, 3}});
+    private static final Matrix B = new Matrix(new double[][]{{1, 2}, {3, 4}, {5, 6}, {7, 8}});
+    private static final Matrix TALL = new Matrix(new double[][]{{1, 2}, {3, 4}, {5, 6}, {7, 9}});
+
+    @Test
+    public void testLUWorkspace() {
+        LUWorkspace lu = new LUWorkspace(4);
+        assertTrue(lu.factor(A));
+        assertEquals(A.det(), lu.det(), 0.0);
+
+        Matrix X = new Matrix(4, 2);
+        lu.solve(B, X);
+        assertArrayEquals(A.LU().solve(B).getArray(), X.getArray(), 0.0);
+
+        double[] x = column(B, 0);
+        lu.solve(x, x);
+        assertArrayEquals(column(X, 0), x, 0.0);
+    }
+
+    @Test
+    public void testQRWorkspace() {
+        QRWorkspace qr = new QRWorkspace(4, 2);
+        assertTrue(qr.factor(TALL));
+
+        Matrix X = new Matrix(2, 2);
+        qr.solve(B, X);
+        assertArrayEquals(TALL.QR().solve(B).getArray(), X.getArray(), 0.0);
+
+        double[] x = new double[2];
+        qr.solve(column(B, 1), x);
+        assertArrayEquals(column(X, 1), x, 0.0);
+    }
+
+    @Test
+    public void testCholeskyWorkspace() {
+        CholeskyWorkspace chol = new CholeskyWorkspace(4);
+        assertTrue(chol.factor(A));
+
+        Matrix X = new Matrix(4, 2);
+        chol.solve(B, X);
+        assertArrayEquals(A.Chol().solve(B).getArray(), X.getArray(), 0.0);
+
+        Matrix Y = B.copy();
+        chol.solve(Y, Y);
+        assertArrayEquals(X.getArray(), Y.getArray(), 0.0);
+    }
+
+    @Test
+    public void testSteadyStateDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        LUWorkspace lu = new LUWorkspace(4);
+        QRWorkspace qr = new QRWorkspace(4, 2);
+        CholeskyWorkspace chol = new CholeskyWorkspace(4);
+        Matrix X = new Matrix(4, 2);
+        Matrix Xqr = new Matrix(2, 2);
+        double[] b = new double[4];
+        double[] x = new double[4];
+        double[] xqr = new double[2];
+        Runnable cycle = () -> {
+            lu.factor(A);
+            lu.solve(B, X);
+            lu.solve(b, x);
+            qr.factor(TALL);
+            qr.solve(B, Xqr);
+            qr.solve(b, xqr);
+            chol.factor(A);
+            chol.solve(B, X);
+            chol.solve(b, x);
+        };
+        // Warm up so that class loading and JIT compilation are out of the way.
+        for (int i = 0; i < 20000; ++i) {
+            cycle.run();
+        }
+        final long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 10000; ++i) {
+            cycle.run();
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+        // Allow for the odd allocation done by the measurement itself.
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private static double[] column(Matrix m, int j) {
+        return m.subMatrix(0, m.getRowCount() - 1, j, j).getArray();
+    }
+}
@@ -0,0 +1,163 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.iterative;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.LinearOperator;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.sparse.CSRMatrix;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.sparse.SparseLUDecomposition;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KrylovSolversTest {
+
+    private static final int GRID = 20;
+    private static final int N = GRID * GRID;
+
+    @Test
+    public void testConjugateGradient() {
+        CSRMatrix A = laplacian(0.0);
+        double[] b = ones(N);
+        double[] expected = new SparseLUDecomposition(A.toCSC()).solve(b);
+
+        IterativeSolverResults plain = new ConjugateGradient(A, b).solve();
+        assertTrue(plain.hasConverged());
+        assertArrayEquals(expected, plain.getValue(), 1e-8);
+
+        IterativeSolverResults ilu = new ConjugateGradient(A, b).preconditioner(new ILU0Preconditioner(A)).solve();
+        assertTrue(ilu.hasConverged());
+        assertArrayEquals(expected, ilu.getValue(), 1e-8);
+        assertTrue(ilu.getNumberOfIterations() < plain.getNumberOfIterations());
+
+        IterativeSolverResults jacobi = new ConjugateGradient(A, b).preconditioner(new JacobiPreconditioner(A))
+                .solve();
+        assertTrue(jacobi.hasConverged());
+        assertArrayEquals(expected, jacobi.getValue(), 1e-8);
+    }
+
+    @Test
+    public void testNonSymmetricSolvers() {
+        CSRMatrix A = laplacian(0.4);
+        double[] b = ones(N);
+        double[] expected = new SparseLUDecomposition(A.toCSC()).solve(b);
+        ILU0Preconditioner ilu = new ILU0Preconditioner(A);
+
+        IterativeSolverResults gmres = new GMRES(A, b).restart(20).solve();
+        assertTrue(gmres.getSolverStatus(), gmres.hasConverged());
+        assertArrayEquals(expected, gmres.getValue(), 1e-8);
+
+        IterativeSolverResults gmresIlu = new GMRES(A, b).restart(20).preconditioner(ilu).solve();
+        assertTrue(gmresIlu.hasConverged());
+        assertArrayEquals(expected, gmresIlu.getValue(), 1e-8);
+        assertTrue(gmresIlu.getNumberOfIterations() < gmres.getNumberOfIterations());
+
+        IterativeSolverResults bicgstab = new BiCGSTAB(A, b).solve();
+        assertTrue(bicgstab.getSolverStatus(), bicgstab.hasConverged());
+        assertArrayEquals(expected, bicgstab.getValue(), 1e-8);
+
+        IterativeSolverResults bicgstabIlu = new BiCGSTAB(A, b).preconditioner(ilu).solve();
+        assertTrue(bicgstabIlu.hasConverged());
+        assertArrayEquals(expected, bicgstabIlu.getValue(), 1e-8);
+        assertTrue(bicgstabIlu.getNumberOfIterations() < bicgstab.getNumberOfIterations());
+    }
+
+    @Test
+    public void testWarmStartAndResidualReporting() {
+        CSRMatrix A = laplacian(0.0);
+        double[] b = ones(N);
+        IterativeSolverResults cold = new ConjugateGradient(A, b).solve();
+
+        List<Double> residuals = new ArrayList<>();
+        IterativeSolverResults warm = new ConjugateGradient(A, b).initialGuess(cold.getValue())
+                .residualListener((k, r) -> residuals.add(r)).solve();
+        assertTrue(warm.hasConverged());
+        assertEquals(0, warm.getNumberOfIterations());
+        assertEquals(1, residuals.size());
+
+        // A perturbed warm start converges faster than a cold one.
+        double[] guess = Arrays.copyOf(cold.getValue(), N);
+        for (int i = 0; i < N; ++i) {
+            guess[i] *= 0.99;
+        }
+        IterativeSolverResults perturbed = new GMRES(A, b).initialGuess(guess).solve();
+        IterativeSolverResults gmres = new GMRES(A, b).residualListener((k, r) -> residuals.add(r)).solve();
+        assertTrue(perturbed.getNumberOfIterations() < gmres.getNumberOfIterations());
+
+        double[] history = gmres.getResidualHistory();
+        assertEquals(gmres.getNumberOfIterations() + 1, history.length);
+        assertEquals(history.length + 1, residuals.size());
+        assertEquals(Math.sqrt(N), history[0], 1e-12);
+        assertTrue(history[history.length - 1] <= 1e-10 * Math.sqrt(N));
+    }
+
+    @Test
+    public void testOperators() {
+        Matrix A = new Matrix(new double[][]{{4, 1, 0}, {1, 3, 1}, {0, 1, 2}});
+        double[] b = {1, 2, 3};
+        double[] expected = A.solve(new Matrix(b, 3)).getArray();
+
+        assertArrayEquals(expected, new ConjugateGradient(A, b).solve().getValue(), 1e-12);
+        assertArrayEquals(expected, new BiCGSTAB(A, b).solve().getValue(), 1e-12);
+
+        // Matrix free tridiagonal operator.
+        LinearOperator op = LinearOperator.of(3, 3, (x, y) -> {
+            y[0] = 4 * x[0] + x[1];
+            y[1] = x[0] + 3 * x[1] + x[2];
+            y[2] = x[1] + 2 * x[2];
+        });
+        IterativeSolverResults results = new GMRES(op, b).preconditioner(new JacobiPreconditioner(A)).solve();
+        assertTrue(results.hasConverged());
+        assertArrayEquals(expected, results.getValue(), 1e-12);
+    }
+
+    /**
+     * Five point Laplacian on a GRID x GRID grid plus a first order convection term, nonsymmetric if it is nonzero.
+     */
+    private static CSRMatrix laplacian(double convection) {
+        int[] rows = new int[5 * N];
+        int[] cols = new int[5 * N];
+        double[] vals = new double[5 * N];
+        int nnz = 0;
+        for (int i = 0; i < GRID; ++i) {
+            for (int j = 0; j < GRID; ++j) {
+                final int k = i * GRID + j;
+                rows[nnz] = k;
+                cols[nnz] = k;
+                vals[nnz++] = 4.0;
+                if (i > 0) {
+                    rows[nnz] = k;
+                    cols[nnz] = k - GRID;
+                    vals[nnz++] = -1.0;
+                }
+                if (i < GRID - 1) {
+                    rows[nnz] = k;
+                    cols[nnz] = k + GRID;
+                    vals[nnz++] = -1.0;
+                }
+                if (j > 0) {
+                    rows[nnz] = k;
+                    cols[nnz] = k - 1;
+                    vals[nnz++] = -1.0 - convection;
+                }
+                if (j < GRID - 1) {
+                    rows[nnz] = k;
+                    cols[nnz] = k + 1;
+                    vals[nnz++] = -1.0 + convection;
+                }
+            }
+        }
+        return CSRMatrix.fromTriplets(N, N, Arrays.copyOf(rows, nnz), Arrays.copyOf(cols, nnz),
+                Arrays.copyOf(vals, nnz));
+    }
+
+    private static double[] ones(int n) {
+        double[] x = new double[n];
+        Arrays.fill(x, 1.0);
+        return x;
+    }
+}
@@ -0,0 +1,211 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.iterative;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.EigenvalueDecomposition;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.LinearOperator;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.iterative.PartialEigenSolver.Which;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.sparse.CSRMatrix;
+import com.wildbitsfoundry.etk4j.math.linearalgebra.sparse.SparseLUDecomposition;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PartialEigenSolverTest {
+
+    private static final int GRID = 30;
+    private static final int N = GRID * GRID;
+    // Different couplings along both directions, so the eigenvalues are simple.
+    private static final double ANISOTROPY = 0.7;
+
+    @Test
+    public void testLanczos() {
+        CSRMatrix A = laplacian(0.0);
+        double[] exact = laplacianEigenvalues();
+
+        PartialEigenResults largest = new LanczosEigenSolver(A, 4).solve();
+        assertTrue(largest.getSolverStatus(), largest.hasConverged());
+        assertArrayEquals(new double[]{exact[N - 1], exact[N - 2], exact[N - 3], exact[N - 4]},
+                largest.getRealEigenvalues(), 1e-9);
+        checkEigenpairs(A, largest, 1e-8);
+
+        PartialEigenResults smallest = new LanczosEigenSolver(A, 3).which(Which.SMALLEST_REAL).solve();
+        assertTrue(smallest.getSolverStatus(), smallest.hasConverged());
+        assertArrayEquals(Arrays.copyOf(exact, 3), smallest.getRealEigenvalues(), 1e-9);
+
+        // Shift-invert around zero needs far fewer restarts for the smallest eigenvalues.
+        SparseLUDecomposition lu = new SparseLUDecomposition(A.toCSC());
+        LinearOperator inverse = LinearOperator.of(N, N, (x, y) -> System.arraycopy(lu.solve(x), 0, y, 0, N));
+        PartialEigenResults shifted = new LanczosEigenSolver(A, 3).shiftInvert(0.0, inverse).solve();
+        assertTrue(shifted.hasConverged());
+        assertArrayEquals(Arrays.copyOf(exact, 3), shifted.getRealEigenvalues(), 1e-12);
+        assertTrue(shifted.getNumberOfIterations() < smallest.getNumberOfIterations());
+        checkEigenpairs(A, shifted, 1e-8);
+    }
+
+    @Test
+    public void testArnoldi() {
+        Random rand = new Random(5);
+        final int n = 200;
+        Matrix A = new Matrix(n, n);
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < n; ++j) {
+                A.set(i, j, rand.nextGaussian());
+            }
+        }
+        EigenvalueDecomposition eig = A.eig(false);
+        double[] re = eig.getRealEigenvalues();
+        double[] im = eig.getImagEigenvalues();
+        Integer[] order = sorted(re, im, Comparator.comparingDouble(i -> -Math.hypot(re[i], im[i])));
+
+        PartialEigenResults results = new ArnoldiEigenSolver(A, 6).subspaceDimension(30).solve();
+        assertTrue(results.getSolverStatus(), results.hasConverged());
+        for (int p = 0; p < 6; ++p) {
+            assertEquals(Math.hypot(re[order[p]], im[order[p]]),
+                    Math.hypot(results.getRealEigenvalues()[p], results.getImagEigenvalues()[p]), 1e-9);
+        }
+        checkEigenpairs(A, results, 1e-8);
+
+        // Interior eigenvalues closest to 1.
+        Integer[] closest = sorted(re, im, Comparator.comparingDouble(i -> Math.hypot(re[i] - 1.0, im[i])));
+        PartialEigenResults shifted = new ArnoldiEigenSolver(A, 2).shiftInvert(1.0).solve();
+        assertTrue(shifted.hasConverged());
+        for (int p = 0; p < 2; ++p) {
+            assertEquals(re[closest[p]], shifted.getRealEigenvalues()[p], 1e-10);
+            assertEquals(Math.abs(im[closest[p]]), Math.abs(shifted.getImagEigenvalues()[p]), 1e-10);
+        }
+        checkEigenpairs(A, shifted, 1e-8);
+    }
+
+    @Test
+    public void testLargestRealPart() {
+        // Stability check of x' = -A * x for a convection-diffusion operator.
+        CSRMatrix A = laplacian(0.4);
+        LinearOperator minusA = LinearOperator.of(N, N, (x, y) -> {
+            A.multiply(x, y);
+            for (int i = 0; i < N; ++i) {
+                y[i] = -y[i];
+            }
+        });
+        // The convection only scales the eigenvalues of the tridiagonal factor by sqrt(1 - c^2).
+        final double c = Math.cos(Math.PI / (GRID + 1));
+        final double lambdaMin = 2.0 + 2.0 * ANISOTROPY - 2.0 * ANISOTROPY * c - 2.0 * Math.sqrt(1 - 0.4 * 0.4) * c;
+
+        PartialEigenResults results = new ArnoldiEigenSolver(minusA, 2).which(Which.LARGEST_REAL)
+                .subspaceDimension(40).iterationLimit(1000).solve();
+        assertTrue(results.getSolverStatus(), results.hasConverged());
+        assertEquals(-lambdaMin, results.getRealEigenvalues()[0], 1e-8);
+        assertTrue(results.getRealEigenvalues()[0] < 0.0);
+    }
+
+    @Test
+    public void testSolverStatus() {
+        CSRMatrix A = laplacian(0.0);
+        PartialEigenResults results = new LanczosEigenSolver(A, 3).which(Which.SMALLEST_REAL).iterationLimit(0)
+                .solve();
+        assertFalse(results.hasConverged());
+        assertEquals("Maximum number of iterations exceeded", results.getSolverStatus());
+
+        // A starting vector in an eigenspace leaves nothing to add to the Krylov subspace.
+        Matrix I = Matrix.identity(2);
+        results = new ArnoldiEigenSolver(I, 1).subspaceDimension(2).initialVector(new double[]{1, 0}).solve();
+        assertTrue(results.hasConverged());
+        assertEquals("Converged, the Krylov subspace is invariant.", results.getSolverStatus());
+        assertEquals(1.0, results.getRealEigenvalues()[0], 1e-12);
+    }
+
+    private static void checkEigenpairs(LinearOperator A, PartialEigenResults results, double tol) {
+        double[] re = results.getRealEigenvalues();
+        double[] im = results.getImagEigenvalues();
+        Matrix Vr = results.getRealEigenvectors();
+        Matrix Vi = results.getImagEigenvectors();
+        final int n = A.getRowCount();
+        double[] xr = new double[n];
+        double[] xi = new double[n];
+        double[] yr = new double[n];
+        double[] yi = new double[n];
+        for (int p = 0; p < re.length; ++p) {
+            for (int i = 0; i < n; ++i) {
+                xr[i] = Vr.get(i, p);
+                xi[i] = Vi.get(i, p);
+            }
+            A.multiply(xr, yr);
+            A.multiply(xi, yi);
+            double residual = 0.0;
+            double norm = 0.0;
+            for (int i = 0; i < n; ++i) {
+                // (A - lambda) * x with lambda = re + i * im
+                double rr = yr[i] - (re[p] * xr[i] - im[p] * xi[i]);
+                double ri = yi[i] - (re[p] * xi[i] + im[p] * xr[i]);
+                residual += rr * rr + ri * ri;
+                norm += xr[i] * xr[i] + xi[i] * xi[i];
+            }
+            assertEquals(1.0, norm, 1e-12);
+            assertEquals(0.0, Math.sqrt(residual), tol * Math.max(1.0, Math.hypot(re[p], im[p])));
+        }
+    }
+
+    private static Integer[] sorted(double[] re, double[] im, Comparator<Integer> comparator) {
+        Integer[] order = new Integer[re.length];
+        for (int i = 0; i < order.length; ++i) {
+            order[i] = i;
+        }
+        Arrays.sort(order, comparator);
+        return order;
+    }
+
+    private static double[] laplacianEigenvalues() {
+        double[] lambda = new double[N];
+        for (int i = 0; i < GRID; ++i) {
+            for (int j = 0; j < GRID; ++j) {
+                lambda[i * GRID + j] = 2.0 + 2.0 * ANISOTROPY
+                        - 2.0 * ANISOTROPY * Math.cos(Math.PI * (i + 1) / (GRID + 1)) - 2.0 * Math.cos(Math.PI * (j + 1) / (GRID + 1));
+            }
+        }
+        Arrays.sort(lambda);
+        return lambda;
+    }
+
+    private static CSRMatrix laplacian(double convection) {
+        int[] rows = new int[5 * N];
+        int[] cols = new int[5 * N];
+        double[] vals = new double[5 * N];
+        int nnz = 0;
+        for (int i = 0; i < GRID; ++i) {
+            for (int j = 0; j < GRID; ++j) {
+                final int k = i * GRID + j;
+                rows[nnz] = k;
+                cols[nnz] = k;
+                vals[nnz++] = 2.0 + 2.0 * ANISOTROPY;
+                if (i > 0) {
+                    rows[nnz] = k;
+                    cols[nnz] = k - GRID;
+                    vals[nnz++] = -ANISOTROPY;
+                }
+                if (i < GRID - 1) {
+                    rows[nnz] = k;
+                    cols[nnz] = k + GRID;
+                    vals[nnz++] = -ANISOTROPY;
+                }
+                if (j > 0) {
+                    rows[nnz] = k;
+                    cols[nnz] = k - 1;
+                    vals[nnz++] = -1.0 - convection;
+                }
+                if (j < GRID - 1) {
+                    rows[nnz] = k;
+                    cols[nnz] = k + 1;
+                    vals[nnz++] = -1.0 + convection;
+                }
+            }
+        }
+        return CSRMatrix.fromTriplets(N, N, Arrays.copyOf(rows, nnz), Arrays.copyOf(cols, nnz),
+                Arrays.copyOf(vals, nnz));
+    }
+}
@@ -0,0 +1,245 @@
+package com.wildbitsfoundry.etk4j.math.linearalgebra.sparse;
+
+import com.wildbitsfoundry.etk4j.math.linearalgebra.Matrix;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SparseMatrixTest {
+
+    private static final Matrix A = new Matrix(new double[][]{
+            {4, 0, 0, 1, 0},
+            {0, 3, 0, 0, 2},
+            {1, 0, 5, 0, 0},
+            {0, 0, 2, 6, 0},
+            {0, 1, 0, 0, 7}});
+
+    @Test
+    public void testConversions() {
+        CSRMatrix csr = CSRMatrix.fromMatrix(A);
+        CSCMatrix csc = CSCMatrix.fromMatrix(A);
+        assertEquals(10, csr.getNonZeroCount());
+        assertEquals(10, csc.getNonZeroCount());
+        assertArrayEquals(A.getArray(), csr.toMatrix().getArray(), 0.0);
+        assertArrayEquals(A.getArray(), csc.toMatrix().getArray(), 0.0);
+        assertArrayEquals(A.getArray(), csr.toCSC().toMatrix().getArray(), 0.0);
+        assertArrayEquals(A.getArray(), csc.toCSR().toMatrix().getArray(), 0.0);
+        assertArrayEquals(A.transpose().getArray(), csr.transpose().toMatrix().getArray(), 0.0);
+        assertArrayEquals(A.transpose().getArray(), csc.transpose().toMatrix().getArray(), 0.0);
+        assertEquals(2.0, csr.get(3, 2), 0.0);
+        assertEquals(0.0, csc.get(3, 1), 0.0);
+    }
+
+    @Test
+    public void testFromTriplets() {
+        // Duplicated entries are summed.
+        int[] rows = {2, 0, 1, 0, 2};
+        int[] cols = {1, 0, 2, 0, 1};
+        double[] vals = {1, 2, 3, 4, 5};
+        CSRMatrix csr = CSRMatrix.fromTriplets(3, 3, rows, cols, vals);
+        CSCMatrix csc = CSCMatrix.fromTriplets(3, 3, rows, cols, vals);
+        double[] expected = {6, 0, 0, 0, 0, 3, 0, 6, 0};
+        assertEquals(3, csr.getNonZeroCount());
+        assertArrayEquals(expected, csr.toMatrix().getArray(), 0.0);
+        assertArrayEquals(expected, csc.toMatrix().getArray(), 0.0);
+        assertArrayEquals(new int[]{0, 1, 2, 3}, csr.getRowPointers());
+        assertArrayEquals(new int[]{0, 2, 1}, csr.getColumnIndices());
+    }
+
+    @Test
+    public void testMultiply() {
+        CSRMatrix csr = CSRMatrix.fromMatrix(A);
+        CSCMatrix csc = CSCMatrix.fromMatrix(A);
+        double[] x = {1, -2, 3, -4, 5};
+        double[] expected = A.multiply(new Matrix(x, 5)).getArray();
+        assertArrayEquals(expected, csr.multiply(x), 1e-14);
+        assertArrayEquals(expected, csc.multiply(x), 1e-14);
+
+        Matrix B = new Matrix(new double[][]{{1, 2}, {3, 4}, {5, 6}, {7, 8}, {9, 10}});
+        assertArrayEquals(A.multiply(B).getArray(), csr.multiply(B).getArray(), 1e-14);
+        assertArrayEquals(A.multiply(B).getArray(), csc.multiply(B).getArray(), 1e-14);
+        assertArrayEquals(A.multiply(A).getArray(), csr.multiply(csr).toMatrix().getArray(), 1e-14);
+        assertArrayEquals(A.getArray(), csr.multiply(CSRMatrix.identity(5)).toMatrix().getArray(), 0.0);
+    }
+
+    @Test
+    public void testOrderings() {
+        CSCMatrix arrow = arrowhead(50);
+        for (int[] p : new int[][]{SparseOrderings.amd(arrow), SparseOrderings.rcm(arrow)}) {
+            int[] sorted = Arrays.copyOf(p, p.length);
+            Arrays.sort(sorted);
+            assertArrayEquals(SparseOrderings.natural(50), sorted);
+        }
+        // Eliminating the hub of an arrowhead matrix first fills the whole matrix, minimum degree leaves it for the end.
+        assertTrue(SparseOrderings.inverse(SparseOrderings.amd(arrow))[0] >= 48);
+        SparseCholeskyDecomposition natural = new SparseCholeskyDecomposition(arrow, SparseOrderings.natural(50));
+        SparseCholeskyDecomposition amd = new SparseCholeskyDecomposition(arrow);
+        assertEquals(50 * 51 / 2, natural.getL().getNonZeroCount());
+        assertEquals(2 * 50 - 1, amd.getL().getNonZeroCount());
+
+        // Reverse Cuthill-McKee recovers a narrow band from a scrambled tridiagonal matrix.
+        final int n = 40;
+        int[] scramble = randomPermutation(new Random(3), n);
+        int[] rows = new int[3 * n];
+        int[] cols = new int[3 * n];
+        double[] vals = new double[3 * n];
+        int nnz = 0;
+        for (int i = 0; i < n; ++i) {
+            for (int j = Math.max(0, i - 1); j <= Math.min(n - 1, i + 1); ++j) {
+                rows[nnz] = scramble[i];
+                cols[nnz] = scramble[j];
+                vals[nnz++] = 1.0;
+            }
+        }
+        CSCMatrix T = CSCMatrix.fromTriplets(n, n, Arrays.copyOf(rows, nnz), Arrays.copyOf(cols, nnz),
+                Arrays.copyOf(vals, nnz));
+        int[] pinv = SparseOrderings.inverse(SparseOrderings.rcm(T));
+        int bandwidth = 0;
+        for (int p = 0; p < nnz; ++p) {
+            bandwidth = Math.max(bandwidth, Math.abs(pinv[rows[p]] - pinv[cols[p]]));
+        }
+        assertEquals(1, bandwidth);
+    }
+
+    @Test
+    public void testLU() {
+        Random random = new Random(11);
+        final int n = 200;
+        CSCMatrix S = randomSparse(random, n, 0.02, false);
+        SparseLUDecomposition lu = new SparseLUDecomposition(S);
+        assertTrue(lu.isNonSingular());
+
+        double[] b = new double[n];
+        for (int i = 0; i < n; ++i) {
+            b[i] = random.nextDouble();
+        }
+        double[] x = lu.solve(b);
+        assertArrayEquals(b, S.multiply(x), 1e-10);
+
+        Matrix dense = S.toMatrix();
+        Matrix B = twoColumns(b, x);
+        assertArrayEquals(dense.solve(B).getArray(), lu.solve(B).getArray(), 1e-9);
+
+        // L * U = P * A * Q
+        Matrix LU = lu.getL().multiply(lu.getU().toMatrix());
+        int[] p = lu.getRowPermutation();
+        int[] q = lu.getColumnPermutation();
+        Matrix PAQ = dense.subMatrix(p, q);
+        assertArrayEquals(PAQ.getArray(), LU.getArray(), 1e-12);
+
+        assertEquals(A.det(), new SparseLUDecomposition(CSCMatrix.fromMatrix(A)).det(), 1e-10);
+
+        CSCMatrix singular = CSCMatrix.fromMatrix(new Matrix(new double[][]{{1, 2}, {2, 4}}));
+        assertFalse(new SparseLUDecomposition(singular).isNonSingular());
+    }
+
+    @Test
+    public void testCholesky() {
+        Random random = new Random(5);
+        final int n = 200;
+        CSCMatrix S = randomSparse(random, n, 0.02, true);
+        SparseCholeskyDecomposition chol = new SparseCholeskyDecomposition(S);
+        assertTrue(chol.isSPD());
+
+        double[] b = new double[n];
+        for (int i = 0; i < n; ++i) {
+            b[i] = random.nextDouble();
+        }
+        double[] x = chol.solve(b);
+        assertArrayEquals(b, S.multiply(x), 1e-10);
+
+        Matrix dense = S.toMatrix();
+        Matrix B = twoColumns(b, x);
+        assertArrayEquals(dense.solve(B).getArray(), chol.solve(B).getArray(), 1e-9);
+
+        // L * L' = P * A * P'
+        Matrix L = chol.getL().toMatrix();
+        int[] p = chol.getPermutation();
+        Matrix PAP = dense.subMatrix(p, p);
+        assertArrayEquals(PAP.getArray(), L.multiply(L.transpose()).getArray(), 1e-12);
+
+        CSCMatrix indefinite = CSCMatrix.fromMatrix(new Matrix(new double[][]{{1, 2}, {2, 1}}));
+        assertFalse(new SparseCholeskyDecomposition(indefinite).isSPD());
+        CSCMatrix unsymmetric = CSCMatrix.fromMatrix(new Matrix(new double[][]{{4, 1}, {0, 4}}));
+        assertFalse(new SparseCholeskyDecomposition(unsymmetric).isSPD());
+    }
+
+    private static CSCMatrix arrowhead(int n) {
+        int[] rows = new int[3 * n];
+        int[] cols = new int[3 * n];
+        double[] vals = new double[3 * n];
+        int nnz = 0;
+        for (int i = 0; i < n; ++i) {
+            rows[nnz] = i;
+            cols[nnz] = i;
+            vals[nnz++] = n;
+            if (i > 0) {
+                rows[nnz] = i;
+                cols[nnz] = 0;
+                vals[nnz++] = 1;
+                rows[nnz] = 0;
+                cols[nnz] = i;
+                vals[nnz++] = 1;
+            }
+        }
+        return CSCMatrix.fromTriplets(n, n, Arrays.copyOf(rows, nnz), Arrays.copyOf(cols, nnz),
+                Arrays.copyOf(vals, nnz));
+    }
+
+    /**
+     * Random sparse matrix with a dominant diagonal, symmetric if requested.
+     */
+    private static CSCMatrix randomSparse(Random random, int n, double density, boolean symmetric) {
+        final int offDiagonal = (int) (density * n * n);
+        int[] rows = new int[n + 2 * offDiagonal];
+        int[] cols = new int[rows.length];
+        double[] vals = new double[rows.length];
+        int nnz = 0;
+        for (int i = 0; i < n; ++i) {
+            rows[nnz] = i;
+            cols[nnz] = i;
+            vals[nnz++] = 2.0 * n * density + 1.0;
+        }
+        for (int t = 0; t < offDiagonal; ++t) {
+            int i = random.nextInt(n);
+            int j = random.nextInt(n);
+            double v = random.nextDouble() - 0.5;
+            rows[nnz] = i;
+            cols[nnz] = j;
+            vals[nnz++] = v;
+            if (symmetric) {
+                rows[nnz] = j;
+                cols[nnz] = i;
+                vals[nnz++] = v;
+            }
+        }
+        return CSCMatrix.fromTriplets(n, n, Arrays.copyOf(rows, nnz), Arrays.copyOf(cols, nnz),
+                Arrays.copyOf(vals, nnz));
+    }
+
+    private static Matrix twoColumns(double[] a, double[] b) {
+        double[] data = new double[2 * a.length];
+        for (int i = 0; i < a.length; ++i) {
+            data[2 * i] = a[i];
+            data[2 * i + 1] = b[i];
+        }
+        return new Matrix(data, a.length, 2);
+    }
+
+    private static int[] randomPermutation(Random random, int n) {
+        int[] p = SparseOrderings.natural(n);
+        for (int i = n - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int temp = p[i];
+            p[i] = p[j];
+            p[j] = temp;
+        }
+        return p;
+    }
+}
@@ -0,0 +1,209 @@
+package com.wildbitsfoundry.etk4j.signals.fft;
+
+import com.wildbitsfoundry.etk4j.math.complex.Complex;
+import com.wildbitsfoundry.etk4j.util.ComplexArrays;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class FFTPlanTest {
+
+    @Test
+    public void testCache() {
+        FFTPlan forward = FFTPlan.get(64, FFTPlan.Direction.FORWARD);
+        assertSame(forward, FFTPlan.get(64, FFTPlan.Direction.FORWARD));
+        FFTPlan inverse = FFTPlan.get(64, FFTPlan.Direction.INVERSE);
+        assertSame(inverse, FFTPlan.get(64, FFTPlan.Direction.INVERSE));
+        assertEquals(64, inverse.getLength());
+        assertEquals(FFTPlan.Direction.INVERSE, inverse.getDirection());
+    }
+
+    @Test
+    public void testPowersOfTwo() {
+        // Odd and even exponents, so with and without the leading radix-2 stage.
+        for (int n = 1; n <= 2048; n *= 2) {
+            double[] real = random(n, n);
+            double[] imag = random(n, n + 1);
+            double[] expectedReal = new double[n];
+            double[] expectedImag = new double[n];
+            dft(real, imag, expectedReal, expectedImag);
+
+            double[] re = real.clone();
+            double[] im = imag.clone();
+            FFTPlan.get(n, FFTPlan.Direction.FORWARD).execute(re, im);
+            assertArrayEquals("n = " + n, expectedReal, re, 1e-12 * n);
+            assertArrayEquals("n = " + n, expectedImag, im, 1e-12 * n);
+            FFTPlan.get(n, FFTPlan.Direction.INVERSE).execute(re, im);
+            assertArrayEquals("n = " + n, real, re, 1e-14 * n);
+            assertArrayEquals("n = " + n, imag, im, 1e-14 * n);
+
+            Complex[] data = ComplexArrays.zip(real, imag);
+            FFTPlan.get(n, FFTPlan.Direction.FORWARD).execute(data);
+            assertArrayEquals("n = " + n, expectedReal, ComplexArrays.real(data), 1e-12 * n);
+            assertArrayEquals("n = " + n, expectedImag, ComplexArrays.imag(data), 1e-12 * n);
+            FFTPlan.get(n, FFTPlan.Direction.INVERSE).execute(data);
+            assertArrayEquals("n = " + n, real, ComplexArrays.real(data), 1e-14 * n);
+            assertArrayEquals("n = " + n, imag, ComplexArrays.imag(data), 1e-14 * n);
+        }
+    }
+
+    @Test
+    public void testConcurrentUse() throws Exception {
+        // A power of two and a mixed-radix length, whose transforms share the pooled scratch of their plan.
+        for (final int n : new int[]{4096, 3000}) {
+            final double[] real = random(n, 1);
+            final double[] imag = random(n, 2);
+            final double[] expectedReal = real.clone();
+            final double[] expectedImag = imag.clone();
+            FFTPlan.get(n, FFTPlan.Direction.FORWARD).execute(expectedReal, expectedImag);
+
+            FFTPlan.clearCache();
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<double[][]>> results = new ArrayList<>();
+                for (int t = 0; t < 32; ++t) {
+                    final boolean complex = (t & 1) != 0;
+                    results.add(pool.submit(() -> {
+                        FFTPlan plan = FFTPlan.get(n, FFTPlan.Direction.FORWARD);
+                        if (complex) {
+                            Complex[] data = ComplexArrays.zip(real, imag);
+                            plan.execute(data);
+                            return new double[][]{ComplexArrays.real(data), ComplexArrays.imag(data)};
+                        }
+                        double[] re = real.clone();
+                        double[] im = imag.clone();
+                        plan.execute(re, im);
+                        return new double[][]{re, im};
+                    }));
+                }
+                for (Future<double[][]> result : results) {
+                    assertArrayEquals(expectedReal, result.get()[0], 0.0);
+                    assertArrayEquals(expectedImag, result.get()[1], 0.0);
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testFourStep() throws Exception {
+        // A dedicated pool so the blocks are split among several workers also on single core machines.
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int n : new int[]{1 << 8, 1 << 15, 1 << 16}) {
+                double[] real = random(n, n);
+                double[] imag = random(n, n + 1);
+                double[] expectedReal = real.clone();
+                double[] expectedImag = imag.clone();
+                FFTPlan.get(n, FFTPlan.Direction.FORWARD).execute(expectedReal, expectedImag);
+
+                FFTPlan forward = new FFTPlan(n, FFTPlan.Direction.FORWARD, true);
+                double[] serialReal = real.clone();
+                double[] serialImag = imag.clone();
+                forward.fourStep(serialReal, serialImag, false);
+                assertArrayEquals("n = " + n, expectedReal, serialReal, 1e-13 * n);
+                assertArrayEquals("n = " + n, expectedImag, serialImag, 1e-13 * n);
+
+                double[] re = real.clone();
+                double[] im = imag.clone();
+                pool.submit(() -> forward.fourStep(re, im, true)).get();
+                assertArrayEquals("n = " + n, serialReal, re, 0.0);
+                assertArrayEquals("n = " + n, serialImag, im, 0.0);
+
+                FFTPlan inverse = new FFTPlan(n, FFTPlan.Direction.INVERSE, true);
+                pool.submit(() -> inverse.fourStep(re, im, true)).get();
+                assertArrayEquals("n = " + n, real, re, 1e-15 * n);
+                assertArrayEquals("n = " + n, imag, im, 1e-15 * n);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testNoAllocation() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        // Radix-2 and radix-4 stages, generic radices 7 and 11 (1792 = 7 * 256, 3136 = 7 * 7 * 64, 2816 = 11 * 256),
+        // radices 3 and 5 and a chirp-z length.
+        for (int n : new int[]{1024, 2048, 1792, 3136, 2816, 3000, 1009}) {
+            final FFTPlan forward = FFTPlan.get(n, FFTPlan.Direction.FORWARD);
+            final FFTPlan inverse = FFTPlan.get(n, FFTPlan.Direction.INVERSE);
+            final double[] re = random(n, 1);
+            final double[] im = random(n, 2);
+            final Complex[] data = ComplexArrays.zip(re, im);
+            assertEquals("n = " + n, 0L, allocatedBytes(threads, () -> {
+                forward.execute(data);
+                inverse.execute(data);
+            }));
+            assertEquals("n = " + n, 0L, allocatedBytes(threads, () -> {
+                forward.execute(re, im);
+                inverse.execute(re, im);
+            }));
+        }
+        final FFTPlan fourStep = new FFTPlan(1 << 16, FFTPlan.Direction.FORWARD, true);
+        final double[] re = random(1 << 16, 1);
+        final double[] im = random(1 << 16, 2);
+        assertEquals(0L, allocatedBytes(threads, () -> fourStep.fourStep(re, im, false)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLength() {
+        FFTPlan.get(0, FFTPlan.Direction.FORWARD);
+    }
+
+    /**
+     * Fewest bytes allocated by a run of the task, after a first run has filled the pooled buffers. The minimum
+     * ignores the odd allocation of the JVM itself, an allocating transform allocates on every run.
+     */
+    private static long allocatedBytes(com.sun.management.ThreadMXBean threads, Runnable task) {
+        final long id = Thread.currentThread().getId();
+        task.run();
+        long bytes = Long.MAX_VALUE;
+        for (int i = 0; i < 5; ++i) {
+            final long start = threads.getThreadAllocatedBytes(id);
+            task.run();
+            bytes = Math.min(bytes, threads.getThreadAllocatedBytes(id) - start);
+        }
+        return bytes;
+    }
+
+    private static void dft(double[] real, double[] imag, double[] outReal, double[] outImag) {
+        final int n = real.length;
+        for (int k = 0; k < n; ++k) {
+            double sr = 0.0, si = 0.0;
+            for (int j = 0; j < n; ++j) {
+                final double t = -2 * Math.PI * ((long) j * k % n) / n;
+                sr += real[j] * Math.cos(t) - imag[j] * Math.sin(t);
+                si += real[j] * Math.sin(t) + imag[j] * Math.cos(t);
+            }
+            outReal[k] = sr;
+            outImag[k] = si;
+        }
+    }
+
+    private static double[] random(int n, long seed) {
+        Random random = new Random(seed);
+        double[] x = new double[n];
+        for (int i = 0; i < n; ++i) {
+            x[i] = random.nextDouble() - 0.5;
+        }
+        return x;
+    }
+}
@@ -5,8 +5,10 @@ import com.wildbitsfoundry.etk4j.util.ComplexArrays;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Random;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 public class FFTTest {
 
@@ -103,4 +105,113 @@ public class FFTTest {
         assertArrayEquals(real, ComplexArrays.real(data), 1e-12);
         assertArrayEquals(imag, ComplexArrays.imag(data), 1e-12);
     }
+
+    @Test
+    public void testArbitraryLengths() {
+        // Mixed radix lengths, including generic odd radices, and lengths with a large prime factor (Bluestein).
+        int[] lengths = {1, 2, 3, 5, 6, 7, 9, 10, 12, 15, 20, 25, 30, 35, 48, 49, 60, 61, 67, 97, 100, 121, 134,
+                143, 480, 1000, 1009, 2018};
+        for (int n : lengths) {
+            double[] real = random(n, n);
+            double[] imag = random(n, n + 1);
+            double[] expectedReal = new double[n];
+            double[] expectedImag = new double[n];
+            dft(real, imag, expectedReal, expectedImag);
+
+            double[] re = real.clone();
+            double[] im = imag.clone();
+            FFT fft = new FFT(n);
+            fft.direct(re, im);
+            assertArrayEquals("n = " + n, expectedReal, re, 1e-12 * n);
+            assertArrayEquals("n = " + n, expectedImag, im, 1e-12 * n);
+            fft.inverse(re, im);
+            assertArrayEquals("n = " + n, real, re, 1e-13 * n);
+            assertArrayEquals("n = " + n, imag, im, 1e-13 * n);
+
+            Complex[] data = ComplexArrays.zip(real, imag);
+            fft.direct(data);
+            assertArrayEquals("n = " + n, expectedReal, ComplexArrays.real(data), 1e-12 * n);
+            assertArrayEquals("n = " + n, expectedImag, ComplexArrays.imag(data), 1e-12 * n);
+            fft.inverse(data);
+            assertArrayEquals("n = " + n, real, ComplexArrays.real(data), 1e-13 * n);
+        }
+    }
+
+    @Test
+    public void testLargeMixedRadixLengths() {
+        // 48000 = 2^7 * 3 * 5^3 and 100000 = 2^5 * 5^5 run without padding.
+        for (int n : new int[]{48000, 100000}) {
+            double[] real = random(n, 1);
+            double[] imag = new double[n];
+            FFT fft = new FFT(n);
+            double[] re = real.clone();
+            double[] im = imag.clone();
+            fft.direct(re, im);
+            for (int k : new int[]{0, 1, 7, n / 3, n - 1}) {
+                double sr = 0.0, si = 0.0;
+                for (int j = 0; j < n; ++j) {
+                    double t = -2.0 * Math.PI * ((long) j * k % n) / n;
+                    sr += real[j] * Math.cos(t);
+                    si += real[j] * Math.sin(t);
+                }
+                assertEquals(sr, re[k], 1e-9);
+                assertEquals(si, im[k], 1e-9);
+            }
+            fft.inverse(re, im);
+            assertArrayEquals(real, re, 1e-12);
+            assertArrayEquals(imag, im, 1e-12);
+        }
+    }
+
+    @Test
+    public void testRealData() {
+        int[] lengths = {1, 2, 3, 4, 6, 8, 10, 14, 15, 16, 30, 64, 98, 100, 1024, 1009, 2018, 4096};
+        for (int n : lengths) {
+            double[] x = random(n, n);
+            double[] expectedReal = new double[n];
+            double[] expectedImag = new double[n];
+            dft(x, new double[n], expectedReal, expectedImag);
+
+            final int bins = n / 2 + 1;
+            double[] re = new double[bins];
+            double[] im = new double[bins];
+            FFT fft = new FFT(n);
+            fft.directReal(x, re, im);
+            assertArrayEquals("n = " + n, Arrays.copyOf(expectedReal, bins), re, 1e-12 * n);
+            assertArrayEquals("n = " + n, Arrays.copyOf(expectedImag, bins), im, 1e-12 * n);
+
+            double[] y = new double[n];
+            fft.inverseReal(re, im, y);
+            assertArrayEquals("n = " + n, x, y, 1e-13 * n);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRealDataLengthMismatch() {
+        new FFT(8).directReal(new double[8], new double[8], new double[8]);
+    }
+
+    private static void dft(double[] real, double[] imag, double[] outReal, double[] outImag) {
+        final int n = real.length;
+        for (int k = 0; k < n; ++k) {
+            double sr = 0.0, si = 0.0;
+            for (int j = 0; j < n; ++j) {
+                double t = -2.0 * Math.PI * ((long) j * k % n) / n;
+                double c = Math.cos(t), s = Math.sin(t);
+                sr += real[j] * c - imag[j] * s;
+                si += real[j] * s + imag[j] * c;
+            }
+            outReal[k] = sr;
+            outImag[k] = si;
+        }
+    }
+
+    private static double[] random(int n, long seed) {
+        Random random = new Random(seed);
+        double[] x = new double[n];
+        for (int i = 0; i < n; ++i) {
+            x[i] = 2.0 * random.nextDouble() - 1.0;
+        }
+        return x;
+    }
 }
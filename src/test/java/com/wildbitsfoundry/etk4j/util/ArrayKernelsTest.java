@@ -0,0 +1,69 @@
+package com.wildbitsfoundry.etk4j.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+public class ArrayKernelsTest {
+
+    // Compares the vectorized backend against the scalar one.
+    private final ArrayKernels kernels = ArrayKernels.getInstance();
+    private final ArrayKernels scalar = new ScalarArrayKernels();
+
+    @Before
+    public void checkBackend() {
+        // Needs Java 17+ with the vector-api profile and 256 bit vector registers, otherwise both are scalar.
+        assumeTrue("The vector backend is not loaded.", kernels.isVectorized());
+        assertEquals("vector 256 bit", kernels.getName());
+    }
+
+    @Test
+    public void testReductions() {
+        Random rand = new Random(1);
+        double[] a = new double[1003];
+        double[] b = new double[1003];
+        for (int i = 0; i < a.length; ++i) {
+            a[i] = rand.nextGaussian();
+            b[i] = rand.nextGaussian();
+        }
+        // Every length up to a few vectors, so all the tails are covered, and unaligned offsets.
+        for (int n = 0; n < 40; ++n) {
+            for (int off = 0; off < 3; ++off) {
+                assertEquals(scalar.sum(a, off, n), kernels.sum(a, off, n), 1e-13);
+                assertEquals(scalar.sumSquares(a, off, n), kernels.sumSquares(a, off, n), 1e-13);
+                assertEquals(scalar.sumSquares(a, off, n, 0.5), kernels.sumSquares(a, off, n, 0.5), 1e-13);
+                assertEquals(scalar.dot(a, off, b, 2 - off, n), kernels.dot(a, off, b, 2 - off, n), 1e-13);
+            }
+        }
+        assertEquals(scalar.dot(a, 0, b, 0, a.length), kernels.dot(a, 0, b, 0, a.length), 1e-12);
+        assertEquals(scalar.sumSquares(a, 0, a.length), kernels.sumSquares(a, 0, a.length), 1e-12);
+    }
+
+    @Test
+    public void testMultiply4x4() {
+        Random rand = new Random(2);
+        final int kc = 37;
+        double[] pa = new double[4 * kc + 1];
+        double[] pb = new double[4 * kc + 2];
+        for (int i = 0; i < pa.length; ++i) {
+            pa[i] = rand.nextGaussian();
+        }
+        for (int i = 0; i < pb.length; ++i) {
+            pb[i] = rand.nextGaussian();
+        }
+        double[] expected = new double[3 + 4 * 6];
+        for (int i = 0; i < expected.length; ++i) {
+            expected[i] = rand.nextGaussian();
+        }
+        double[] actual = expected.clone();
+        scalar.multiply4x4(kc, pa, 1, pb, 2, expected, 3, 6);
+        kernels.multiply4x4(kc, pa, 1, pb, 2, actual, 3, 6);
+        // Same accumulation order per element.
+        assertArrayEquals(expected, actual, 0.0);
+    }
+}